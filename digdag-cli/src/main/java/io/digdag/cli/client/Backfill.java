@@ -9,6 +9,7 @@ import io.digdag.client.DigdagClient;
 import io.digdag.client.api.LocalTimeOrInstant;
 import io.digdag.client.api.RestProject;
 import io.digdag.client.api.RestSchedule;
+import io.digdag.client.api.RestScheduleBackfillJob;
 import io.digdag.client.api.RestSessionAttempt;
 import io.digdag.client.api.RestWorkflowDefinition;
 import io.digdag.client.api.RestWorkflowSessionTime;
@@ -36,6 +37,12 @@ public class Backfill
     @Parameter(names = {"-d", "--dry-run"})
     boolean dryRun = false;
 
+    @Parameter(names = {"--async"})
+    boolean async = false;
+
+    @Parameter(names = {"--job"})
+    String jobId;
+
     @Override
     public void mainWithClientException()
         throws Exception
@@ -44,10 +51,19 @@ public class Backfill
             throw usage(null);
         }
 
+        if (jobId != null) {
+            showJob(args.get(0), args.get(1));
+            return;
+        }
+
         if (fromTimeString == null) {
             throw new ParameterException("--from option is required");
         }
 
+        if (async && dryRun) {
+            throw new ParameterException("--async and --dry-run can't be used together");
+        }
+
         backfill(args.get(0), args.get(1));
     }
 
@@ -59,6 +75,8 @@ public class Backfill
         err.println("        --name NAME                  retry attempt name");
         err.println("    -d, --dry-run                    tries to backfill and validates the results but does nothing");
         err.println("        --count N                    number of sessions to run from the time (default: all sessions until the next schedule time)");
+        err.println("        --async                      starts sessions in background on the server");
+        err.println("        --job ID                     shows progress of a backfill started with --async");
         showCommonOptions();
         return systemExit(error);
     }
@@ -87,6 +105,23 @@ public class Backfill
             retryAttemptName = UUID.randomUUID().toString();
         }
 
+        if (async) {
+            RestScheduleBackfillJob job = client.startScheduleBackfillJob(
+                    sched.getId(),
+                    truncatedTime.getSessionTime().toInstant(),
+                    retryAttemptName,
+                    Optional.fromNullable(count));
+            ln("Backfill job:");
+            ln("  id: %s", job.getId());
+            ln("  schedule id: %s", job.getScheduleId());
+            ln("  retry attempt name: %s", job.getAttemptName());
+            ln("  number of sessions: %d", job.getTotal());
+            ln("");
+            err.println("Backfill job started. The server starts session attempts in background.");
+            err.println("Use `" + programName + " backfill " + projName + " " + workflowName + " --job " + job.getId() + "` to show the progress.");
+            return;
+        }
+
         List<RestSessionAttempt> attempts = client.backfillSchedule(
                 sched.getId(),
                 truncatedTime.getSessionTime().toInstant(),
@@ -117,6 +152,36 @@ public class Backfill
         }
     }
 
+    private void showJob(String projName, String workflowName)
+        throws Exception
+    {
+        DigdagClient client = buildClient();
+
+        RestSchedule sched = findScheduleByWorkflowName(client, projName, workflowName);
+        if (sched == null) {
+            throw systemExit("Schedule is not set to the workflow");
+        }
+
+        RestScheduleBackfillJob job = client.getScheduleBackfillJob(sched.getId(), parseBackfillJobIdOrUsage(jobId));
+        ln("Backfill job:");
+        ln("  id: %s", job.getId());
+        ln("  schedule id: %s", job.getScheduleId());
+        ln("  retry attempt name: %s", job.getAttemptName());
+        ln("  status: %s", job.getStatus());
+        ln("  submitted sessions: %d / %d", job.getSubmitted(), job.getTotal());
+        if (job.getLastSessionTime().isPresent()) {
+            ln("  last session time: %s", TimeUtil.formatTime(job.getLastSessionTime().get()));
+        }
+        if (job.getError().isPresent()) {
+            ln("  error: %s", job.getError().get());
+        }
+        ln("  created at: %s", TimeUtil.formatTime(job.getCreatedAt()));
+        if (job.getFinishedAt().isPresent()) {
+            ln("  finished at: %s", TimeUtil.formatTime(job.getFinishedAt().get()));
+        }
+        ln("");
+    }
+
     private static RestSchedule findScheduleByWorkflowName(DigdagClient client,
             String projName, String workflowName)
     {
@@ -261,6 +261,12 @@ public abstract class ClientCommand
         return Id.of(Integer.toString(parseIntOrUsage(arg)));
     }
 
+    protected Id parseBackfillJobIdOrUsage(String arg)
+            throws SystemExitException
+    {
+        return Id.of(Long.toString(parseLongOrUsage(arg)));
+    }
+
     private long parseLongOrUsage(String arg)
             throws SystemExitException
     {
@@ -11,7 +11,12 @@ import io.digdag.client.api.RestTask;
 import io.digdag.core.log.LogLevel;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static io.digdag.cli.SystemExitException.systemExit;
 
@@ -24,6 +29,15 @@ public class ShowLog
     @Parameter(names = {"-f", "--follow"})
     protected boolean follow = false;
 
+    // updatedAt of a task is the start time of the transaction that updated
+    // it. Fetch changes with this margin not to miss updates of transactions
+    // committed later than others that started after them.
+    private static final Duration TASK_UPDATE_MARGIN = Duration.ofMinutes(1);
+
+    // tasks fetched so far, updated by fetching only changed tasks
+    private final Map<String, RestTask> tasks = new HashMap<>();
+    private Optional<Instant> lastTaskUpdatedAt = Optional.absent();
+
     @Override
     public void mainWithClientException()
         throws Exception
@@ -100,7 +114,7 @@ public class ShowLog
             if (attempt.getDone()) {
                 return true;
             }
-            for (RestTask task : client.getTasks(attemptId).getTasks()) {
+            for (RestTask task : fetchTasks(client, attemptId)) {
                 if (task.getFullName().startsWith(taskName.get())) {
                     switch (task.getState()) {
                     case "blocked":
@@ -125,4 +139,22 @@ public class ShowLog
             return attempt.getDone();
         }
     }
+
+    private Collection<RestTask> fetchTasks(DigdagClient client, Id attemptId)
+    {
+        List<RestTask> changed;
+        if (lastTaskUpdatedAt.isPresent()) {
+            changed = client.getTasks(attemptId, lastTaskUpdatedAt.get().minus(TASK_UPDATE_MARGIN)).getTasks();
+        }
+        else {
+            changed = client.getTasks(attemptId).getTasks();
+        }
+        for (RestTask task : changed) {
+            tasks.put(task.getId().get(), task);
+            if (!lastTaskUpdatedAt.isPresent() || task.getUpdatedAt().isAfter(lastTaskUpdatedAt.get())) {
+                lastTaskUpdatedAt = Optional.of(task.getUpdatedAt());
+            }
+        }
+        return tasks.values();
+    }
 }
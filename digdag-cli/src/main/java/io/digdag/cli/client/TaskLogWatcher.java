@@ -18,10 +18,13 @@ import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.EOFException;
 import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
 import io.digdag.client.DigdagClient;
 import io.digdag.client.api.Id;
 import io.digdag.client.api.RestLogFileHandle;
 import io.digdag.core.log.LogLevel;
+import javax.ws.rs.NotFoundException;
 import static java.util.Locale.ENGLISH;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -69,7 +72,7 @@ class TaskLogWatcher
     private class TaskLogState
     {
         private RestLogFileHandle lastFile = null;
-        private int lastLineCount = 0;
+        private long lastOffset = 0;
         private boolean lastLineFiltered = false;
 
         boolean update(List<RestLogFileHandle> sortedHandles)
@@ -88,7 +91,7 @@ class TaskLogWatcher
                     else if (lastFile.getFileName().equals(handle.getFileName())) {
                         // showing the last file if its size is grown
                         if (handle.getFileSize() > lastFile.getFileSize()) {
-                            showFileAndUpdate(handle, lastLineCount, lastLineFiltered);
+                            showFileAndUpdate(handle, lastOffset, lastLineFiltered);
                             updated = true;
                         }
                         // following files are all new files
@@ -112,30 +115,53 @@ class TaskLogWatcher
             return updated;
         }
 
-        private void showFileAndUpdate(RestLogFileHandle handle, int lineOffset, boolean lastLineFiltered)
+        private void showFileAndUpdate(RestLogFileHandle handle, long offset, boolean lastLineFiltered)
             throws IOException
         {
-            int lines = 0;
-
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(client.getLogFile(attemptId, handle)), UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    lines++;
-                    if (lineOffset > 0) {
-                        lineOffset--;
-                        continue;
+            long readBytes = 0;
+
+            try (CountingInputStream in = new CountingInputStream(openContent(handle, offset))) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        lastLineFiltered = showOrFilterLine(line, lastLineFiltered);
                     }
-                    lastLineFiltered = showOrFilterLine(line, lastLineFiltered);
                 }
-            }
-            catch (EOFException ex) {
-                // OK to ignore Unexpected end of ZLIB input stream
+                catch (EOFException ex) {
+                    // OK to ignore Unexpected end of ZLIB input stream
+                }
+                finally {
+                    readBytes = in.getCount();
+                }
             }
 
             this.lastFile = handle;
-            this.lastLineCount = lines;
+            this.lastOffset = offset + readBytes;
             this.lastLineFiltered = false;
         }
+
+        private InputStream openContent(RestLogFileHandle handle, long offset)
+            throws IOException
+        {
+            if (offset > 0 && !handle.getDirect().isPresent()) {
+                // read only the grown part. Server decompresses the file and skips the offset.
+                try {
+                    return client.getLogFileContent(attemptId, handle.getFileName(), offset);
+                }
+                catch (NotFoundException ex) {
+                    // server doesn't support the content API. fallback to downloading whole file
+                }
+            }
+
+            InputStream in = new GZIPInputStream(client.getLogFile(attemptId, handle));
+            try {
+                ByteStreams.skipFully(in, offset);
+            }
+            catch (EOFException ex) {
+                // the file is not grown yet or it's being written.
+            }
+            return in;
+        }
     }
 
     private boolean showOrFilterLine(String line, boolean lastLineFiltered)
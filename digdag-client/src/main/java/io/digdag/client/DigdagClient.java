@@ -25,6 +25,7 @@ import io.digdag.client.api.RestProjectCollection;
 import io.digdag.client.api.RestRevisionCollection;
 import io.digdag.client.api.RestSchedule;
 import io.digdag.client.api.RestScheduleCollection;
+import io.digdag.client.api.RestScheduleBackfillJob;
 import io.digdag.client.api.RestScheduleBackfillRequest;
 import io.digdag.client.api.RestScheduleSkipRequest;
 import io.digdag.client.api.RestScheduleSummary;
@@ -594,6 +595,17 @@ public class DigdagClient implements AutoCloseable
                 .queryParam("last_id", lastId.orNull()));
     }
 
+    /**
+     * Get attempts of the site created or finished at or after updatedSince.
+     */
+    public RestSessionAttemptCollection getSessionAttemptsUpdatedSince(Instant updatedSince, Optional<Id> lastId)
+    {
+        return doGet(RestSessionAttemptCollection.class,
+                target("/api/attempts")
+                .queryParam("updated_since", updatedSince.toString())
+                .queryParam("last_id", lastId.orNull()));
+    }
+
     public RestSessionAttemptCollection getSessionAttempts(String projName, Optional<Id> lastId)
     {
         return doGet(RestSessionAttemptCollection.class,
@@ -625,6 +637,22 @@ public class DigdagClient implements AutoCloseable
                 .resolveTemplate("id", attemptId));
     }
 
+    /**
+     * Get tasks of an attempt updated at or after updatedSince.
+     *
+     * updatedAt of a task is the time when the transaction that updated the
+     * task started. A transaction can commit after another one that started
+     * later. Clients polling changes should give updatedSince a margin before
+     * the latest updatedAt they have seen and merge the results by task id.
+     */
+    public RestTaskCollection getTasks(Id attemptId, Instant updatedSince)
+    {
+        return doGet(RestTaskCollection.class,
+                target("/api/attempts/{id}/tasks")
+                .resolveTemplate("id", attemptId)
+                .queryParam("updated_since", updatedSince.toString()));
+    }
+
     public RestLogFileHandleCollection getLogFileHandlesOfAttempt(Id attemptId)
     {
         return doGet(RestLogFileHandleCollection.class,
@@ -666,6 +694,21 @@ public class DigdagClient implements AutoCloseable
                 .readEntity(InputStream.class);
     }
 
+    // returns uncompressed content of a log file starting from offset
+    public InputStream getLogFileContent(Id attemptId, String fileName, long offset)
+    {
+        Invocation request = target("/api/logs/{id}/files/{fileName}/content")
+                .resolveTemplate("id", attemptId)
+                .resolveTemplate("fileName", fileName)
+                .queryParam("offset", offset)
+                .request()
+                .headers(this.headers.get())
+                .buildGet();
+
+        return invokeWithRetry(request)
+                .readEntity(InputStream.class);
+    }
+
     private Response invokeWithRetry(Invocation request)
     {
         Retryer<Response> retryer = RetryerBuilder.<Response>newBuilder()
@@ -782,6 +825,27 @@ public class DigdagClient implements AutoCloseable
                 .resolveTemplate("id", scheduleId));
     }
 
+    public RestScheduleBackfillJob startScheduleBackfillJob(Id scheduleId, Instant fromTime, String attemptName, Optional<Integer> count)
+    {
+        return doPost(RestScheduleBackfillJob.class,
+                RestScheduleBackfillRequest.builder()
+                    .fromTime(fromTime)
+                    .dryRun(false)
+                    .attemptName(attemptName)
+                    .count(count)
+                    .build(),
+                target("/api/schedules/{id}/backfill_jobs")
+                .resolveTemplate("id", scheduleId));
+    }
+
+    public RestScheduleBackfillJob getScheduleBackfillJob(Id scheduleId, Id jobId)
+    {
+        return doGet(RestScheduleBackfillJob.class,
+                target("/api/schedules/{id}/backfill_jobs/{jobId}")
+                .resolveTemplate("id", scheduleId)
+                .resolveTemplate("jobId", jobId));
+    }
+
     public RestScheduleSummary disableSchedule(Id scheduleId)
     {
         return doPost(RestScheduleSummary.class,
@@ -0,0 +1,37 @@
+package io.digdag.client.api;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.base.Optional;
+import java.time.Instant;
+import org.immutables.value.Value;
+
+@Value.Immutable
+@JsonDeserialize(as = ImmutableRestScheduleBackfillJob.class)
+public interface RestScheduleBackfillJob
+{
+    Id getId();
+
+    Id getScheduleId();
+
+    String getAttemptName();
+
+    // "running", "success" or "error"
+    String getStatus();
+
+    int getTotal();
+
+    int getSubmitted();
+
+    Optional<Instant> getLastSessionTime();
+
+    Optional<String> getError();
+
+    Instant getCreatedAt();
+
+    Optional<Instant> getFinishedAt();
+
+    static ImmutableRestScheduleBackfillJob.Builder builder()
+    {
+        return ImmutableRestScheduleBackfillJob.builder();
+    }
+}
@@ -12,6 +12,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.TextNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import com.fasterxml.jackson.databind.JavaType;
@@ -132,16 +136,19 @@ public class Config
 
     public Config merge(Config other)
     {
-        mergeJsonObject(object, other.deepCopy().object);
+        mergeJsonObject(object, other.object);
         return this;
     }
 
     public Config mergeDefault(Config other)
     {
-        mergeDefaultJsonObject(object, other.deepCopy().object);
+        mergeDefaultJsonObject(object, other.object);
         return this;
     }
 
+    // merge methods don't modify other. Only values stored into src are
+    // copied instead of copying the entire other object in advance.
+
     private static void mergeJsonObject(ObjectNode src, ObjectNode other)
     {
         Iterator<Map.Entry<String, JsonNode>> ite = other.fields();
@@ -152,7 +159,7 @@ public class Config
             if (v.isObject() && s != null && s.isObject()) {
                 mergeJsonObject((ObjectNode) s, (ObjectNode) v);
             } else {
-                src.set(pair.getKey(), v);  // keeps order if key exists
+                src.set(pair.getKey(), v.deepCopy());  // keeps order if key exists
             }
         }
     }
@@ -167,7 +174,7 @@ public class Config
             if (v.isObject() && s != null && s.isObject()) {
                 mergeDefaultJsonObject((ObjectNode) s, (ObjectNode) v);
             } else if (s == null) {
-                src.set(pair.getKey(), v);
+                src.set(pair.getKey(), v.deepCopy());
             }
         }
     }
@@ -192,6 +199,25 @@ public class Config
 
     private JsonNode writeObject(Object obj)
     {
+        // fast paths for common types. result is same with serializing
+        // them to JSON and reading it.
+        if (obj instanceof String) {
+            return TextNode.valueOf((String) obj);
+        }
+        else if (obj instanceof Boolean) {
+            return BooleanNode.valueOf((Boolean) obj);
+        }
+        else if (obj instanceof Integer) {
+            return IntNode.valueOf((Integer) obj);
+        }
+        else if (obj instanceof Long) {
+            long v = (Long) obj;
+            if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+                return IntNode.valueOf((int) v);
+            }
+            return LongNode.valueOf(v);
+        }
+
         try {
             String value = mapper.writeValueAsString(obj);
             return mapper.readTree(value);
@@ -475,8 +501,25 @@ public class Config
         object.set(key, value);
     }
 
+    @SuppressWarnings("unchecked")
     private <E> E readObject(Class<E> type, JsonNode value, String key)
     {
+        // fast paths for common types that don't need conversion. other
+        // combinations including coercion (e.g. number to String) go
+        // through ObjectMapper.
+        if (type == String.class && value.isTextual()) {
+            return (E) value.textValue();
+        }
+        else if ((type == Integer.class || type == int.class) && value.isInt()) {
+            return (E) Integer.valueOf(value.intValue());
+        }
+        else if ((type == Long.class || type == long.class) && (value.isInt() || value.isLong())) {
+            return (E) Long.valueOf(value.longValue());
+        }
+        else if ((type == Boolean.class || type == boolean.class) && value.isBoolean()) {
+            return (E) Boolean.valueOf(value.booleanValue());
+        }
+
         try {
             return mapper.readValue(value.traverse(), type);
         }
@@ -53,6 +53,41 @@ public class ConfigTest
         assertThat(config.get("bool", Boolean.class), is(true));
     }
 
+    @Test
+    public void verifySetLongKeepsJsonRepresentation()
+    {
+        config.set("small", 1L);
+        config.set("large", 10000000000L);
+
+        assertThat(config, is(config.getFactory().fromJsonString("{\"small\":1,\"large\":10000000000}")));
+        assertThat(config.get("small", int.class), is(1));
+        assertThat(config.get("large", long.class), is(10000000000L));
+    }
+
+    @Test
+    public void verifyMergeDoesNotModifyOther()
+    {
+        Config other = newConfig();
+        other.getNestedOrSetEmpty("a").set("b", 1);
+        other.getNestedOrSetEmpty("c").set("d", 2);
+
+        config.getNestedOrSetEmpty("a").set("x", 0);
+        config.merge(other);
+        config.getNested("a").set("b", 3);
+        config.getNested("c").set("d", 4);
+
+        assertThat(other.getNested("a").get("b", int.class), is(1));
+        assertThat(other.getNested("c").get("d", int.class), is(2));
+        assertThat(config.getNested("a").getKeys(), is(ImmutableList.of("x", "b")));
+
+        Config defaults = newConfig();
+        defaults.getNestedOrSetEmpty("e").set("f", 5);
+        config.mergeDefault(defaults);
+        config.getNested("e").set("f", 6);
+
+        assertThat(defaults.getNested("e").get("f", int.class), is(5));
+    }
+
     @Test
     public void verifyAutoStringConvert()
     {
@@ -13,6 +13,8 @@ public interface AgentConfig
     static final int DEFAULT_HEARTBEAT_INTERVAL = 60;
     static final int DEFAULT_LOCK_RETENTION_TIME = 300;
     static final int DEFAULT_MAX_TASK_THREADS = 0;
+    static final int DEFAULT_IN_PROCESS_POLLING_MAX_INTERVAL = 0;
+    static final int DEFAULT_IN_PROCESS_POLLING_MAX_TIME = 60;
 
     boolean getEnabled();
 
@@ -22,13 +24,25 @@ public interface AgentConfig
 
     int getMaxThreads();
 
+    // polling operators are retried in the running thread instead of
+    // going back to the queue if retry interval is shorter than this.
+    // 0 disables in-process polling. disabled by default because a polling
+    // task occupies a task thread while it waits.
+    int getInProcessPollingMaxInterval();
+
+    // a polling task goes back to the queue if it keeps polling in the
+    // running thread longer than this, so that it can be canceled.
+    int getInProcessPollingMaxTime();
+
     static ImmutableAgentConfig.Builder defaultBuilder()
     {
         return ImmutableAgentConfig.builder()
             .enabled(true)
             .heartbeatInterval(DEFAULT_HEARTBEAT_INTERVAL)
             .lockRetentionTime(DEFAULT_LOCK_RETENTION_TIME)
-            .maxThreads(DEFAULT_MAX_TASK_THREADS);
+            .maxThreads(DEFAULT_MAX_TASK_THREADS)
+            .inProcessPollingMaxInterval(DEFAULT_IN_PROCESS_POLLING_MAX_INTERVAL)
+            .inProcessPollingMaxTime(DEFAULT_IN_PROCESS_POLLING_MAX_TIME);
     }
 
     static AgentConfig convertFrom(Config config)
@@ -38,6 +52,8 @@ public interface AgentConfig
             .heartbeatInterval(config.get("agent.heartbeat-interval", int.class, DEFAULT_HEARTBEAT_INTERVAL))
             .lockRetentionTime(config.get("agent.lock-retention-time", int.class, DEFAULT_LOCK_RETENTION_TIME))
             .maxThreads(config.get("agent.max-task-threads", int.class, DEFAULT_MAX_TASK_THREADS))
+            .inProcessPollingMaxInterval(config.get("agent.in-process-polling.max-interval", int.class, DEFAULT_IN_PROCESS_POLLING_MAX_INTERVAL))
+            .inProcessPollingMaxTime(config.get("agent.in-process-polling.max-time", int.class, DEFAULT_IN_PROCESS_POLLING_MAX_TIME))
             .build();
     }
 }
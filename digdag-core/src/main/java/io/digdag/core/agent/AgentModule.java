@@ -8,6 +8,7 @@ import io.digdag.spi.NotificationSender;
 import io.digdag.spi.Notifier;
 import io.digdag.spi.TemplateEngine;
 import io.digdag.spi.CommandLogger;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
 
 public class AgentModule
         implements Module
@@ -24,5 +25,7 @@ public class AgentModule
 
         // log
         binder.bind(CommandLogger.class).to(TaskContextCommandLogger.class).in(Scopes.SINGLETON);
+
+        newExporter(binder).export(OperatorRegistry.class).withGeneratedName();
     }
 }
@@ -100,6 +100,12 @@ public class ConfigEvalEngine
 
     private String invokeTemplate(Invocable templateInvocable, String code, Config params)
         throws TemplateException
+    {
+        return invokeTemplate(templateInvocable, code, params.getInternalObjectNode());
+    }
+
+    private String invokeTemplate(Invocable templateInvocable, String code, ObjectNode params)
+        throws TemplateException
     {
         String context;
         try {
@@ -198,10 +204,11 @@ public class ConfigEvalEngine
         private JsonNode evalValue(ObjectNode local, String code)
             throws TemplateException
         {
-            Config scopedParams = params.deepCopy();
-            for (Map.Entry<String, JsonNode> pair : ImmutableList.copyOf(local.fields())) {
-                scopedParams.set(pair.getKey(), pair.getValue());
-            }
+            // scopedParams is only serialized to JSON. Nested values of
+            // params can be shared instead of deep-copying params.
+            ObjectNode scopedParams = jsonMapper.getNodeFactory().objectNode();
+            scopedParams.setAll(params.getInternalObjectNode());
+            scopedParams.setAll(local);
             String resultText = invokeTemplate(templateInvocable, code, scopedParams);
             if (resultText == null) {
                 return jsonMapper.getNodeFactory().nullNode();
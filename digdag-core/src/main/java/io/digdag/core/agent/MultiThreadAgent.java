@@ -80,6 +80,7 @@ public class MultiThreadAgent
     {
         stop = true;
         taskServer.interruptLocalWait();
+        runner.stopInProcessPolling();
         int maximumActiveTasks;
         synchronized (addActiveTaskLock) {
             // synchronize addActiveTaskLock not to reject task execution after acquiring them from taskServer
@@ -1,5 +1,6 @@
 package io.digdag.core.agent;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
@@ -62,6 +63,9 @@ public class OperatorManager
     private final ScheduledExecutorService heartbeatScheduler;
     private final ConcurrentHashMap<Long, TaskRequest> runningTaskMap = new ConcurrentHashMap<>();  // {taskId => TaskRequest}
 
+    private final Object pollingWaitLock = new Object();
+    private volatile boolean pollingStopped = false;
+
     @Inject(optional = true)
     private ErrorReporter errorReporter = ErrorReporter.empty();
 
@@ -100,10 +104,21 @@ public class OperatorManager
     @PreDestroy
     public void shutdown()
     {
+        stopInProcessPolling();
         heartbeatScheduler.shutdown();
         // TODO wait for shutdown completion?
     }
 
+    // Called when the agent is shutting down. Tasks polling in process
+    // stop waiting and go back to the queue so that another agent takes them.
+    public void stopInProcessPolling()
+    {
+        synchronized (pollingWaitLock) {
+            pollingStopped = true;
+            pollingWaitLock.notifyAll();
+        }
+    }
+
     public void run(TaskRequest request)
     {
         long taskId = request.getTaskId();
@@ -187,7 +202,7 @@ public class OperatorManager
         // evaluate config and creates the complete merged config.
         Config config;
         try {
-            Config all = RuntimeParams.buildRuntimeParams(request.getConfig().getFactory(), request).deepCopy();
+            Config all = RuntimeParams.buildRuntimeParams(request.getConfig().getFactory(), request);
             all.merge(request.getConfig());  // export / carry params (TaskRequest.config sent by WorkflowExecutor doesn't include config of this task)
             Config evalParams = all.deepCopy();
             all.merge(request.getLocalConfig());
@@ -245,13 +260,7 @@ public class OperatorManager
         // Track accessed keys using UsedKeysSet class
         CheckedConfig.UsedKeysSet usedKeys = new CheckedConfig.UsedKeysSet();
 
-        TaskRequest mergedRequest = TaskRequest.builder()
-            .from(request)
-            .localConfig(new CheckedConfig(localConfig, usedKeys))
-            .config(new CheckedConfig(config, usedKeys))
-            .build();
-
-        TaskResult result = callExecutor(projectPath, type, mergedRequest);
+        TaskResult result = callExecutorWithInProcessPolling(projectPath, type, request, config, localConfig, usedKeys);
 
         if (!usedKeys.isAllUsed()) {
             shouldBeUsedKeys.removeAll(usedKeys);
@@ -265,6 +274,75 @@ public class OperatorManager
                 result);
     }
 
+    // Polling operators (e.g. *_wait) throw TaskExecutionException.ofNextPolling
+    // to check a condition again later. Going back to the queue for each poll
+    // needs a round trip to the server, downloading and extracting the archive,
+    // and evaluating the config again. If the interval is short, this method
+    // waits in the running thread and calls the operator again with the new
+    // state params, keeping the lock, workspace and evaluated config. The
+    // thread isn't available for other tasks meanwhile, so this is disabled
+    // unless agent.in-process-polling.max-interval is set.
+    @VisibleForTesting
+    TaskResult callExecutorWithInProcessPolling(Path projectPath, String type, TaskRequest request,
+            Config config, Config localConfig, CheckedConfig.UsedKeysSet usedKeys)
+    {
+        long maxIntervalMillis = TimeUnit.SECONDS.toMillis(agentConfig.getInProcessPollingMaxInterval());
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(agentConfig.getInProcessPollingMaxTime());
+
+        Config lastStateParams = request.getLastStateParams();
+        // callExecutor modifies config (e.g. removes _secrets). Copy them only if this may call it again.
+        boolean mayPoll = maxIntervalMillis > 0;
+        while (true) {
+            TaskRequest mergedRequest = TaskRequest.builder()
+                .from(request)
+                .localConfig(new CheckedConfig(mayPoll ? localConfig.deepCopy() : localConfig, usedKeys))
+                .config(new CheckedConfig(mayPoll ? config.deepCopy() : config, usedKeys))
+                .lastStateParams(lastStateParams)
+                .build();
+
+            try {
+                return callExecutor(projectPath, type, mergedRequest);
+            }
+            catch (TaskExecutionException ex) {
+                if (!ex.getRetryInterval().isPresent() || ex.getError(cf).isPresent()) {
+                    // failed, or retrying to recover from an error. the server should know it.
+                    throw ex;
+                }
+                long intervalMillis = TimeUnit.SECONDS.toMillis(ex.getRetryInterval().get());
+                if (!mayPoll || intervalMillis > maxIntervalMillis || System.currentTimeMillis() + intervalMillis > deadline) {
+                    throw ex;
+                }
+                logger.debug("Polling task in process {}", ex.toString());
+                if (!waitForNextPolling(intervalMillis)) {
+                    // agent is shutting down
+                    throw ex;
+                }
+                lastStateParams = ex.getStateParams(cf).get();
+            }
+        }
+    }
+
+    private boolean waitForNextPolling(long intervalMillis)
+    {
+        long until = System.currentTimeMillis() + intervalMillis;
+        synchronized (pollingWaitLock) {
+            while (!pollingStopped) {
+                long remaining = until - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return true;
+                }
+                try {
+                    pollingWaitLock.wait(remaining);
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+
     private void warnUnusedKeys(TaskRequest request, Set<String> shouldBeUsedButNotUsedKeys, Collection<String> candidateKeys)
     {
         for (String key : shouldBeUsedButNotUsedKeys) {
@@ -283,7 +361,7 @@ public class OperatorManager
             throw new ConfigException("Unknown task type: " + type);
         }
 
-        SecretStore secretStore = secretStoreManager.getSecretStore(mergedRequest.getSiteId());
+        SecretStore secretStore = secretStoreManager.getTaskSecretStore(mergedRequest.getSiteId());
 
         SecretAccessContext secretContext = SecretAccessContext.builder()
                 .siteId(mergedRequest.getSiteId())
@@ -11,6 +11,8 @@ import com.google.inject.Binder;
 import com.google.inject.TypeLiteral;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
 import io.digdag.spi.OperatorProvider;
 import io.digdag.spi.OperatorFactory;
 import io.digdag.spi.TaskRequest;
@@ -86,6 +88,13 @@ public class OperatorRegistry
                 10);
     }
 
+    @Managed
+    @Nested
+    public DynamicPluginLoader<Map<String, OperatorFactory>> getDynamicPluginLoader()
+    {
+        return dynamicLoader;
+    }
+
     public OperatorFactory get(TaskRequest request, String type)
     {
         // built-in operators have higher priority
@@ -11,7 +11,11 @@ import java.nio.file.Path;
 import java.nio.file.Files;
 import java.nio.charset.StandardCharsets;
 import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.common.io.CharStreams;
 import com.google.inject.Inject;
 import io.digdag.client.config.ConfigException;
@@ -35,8 +39,19 @@ public class YamlConfigLoader
 {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    private static final int PARSED_CACHE_MAX_SIZE = 4096;
+
     private final ObjectMapper treeObjectMapper = new ObjectMapper();
 
+    // Parsed trees of parameterized files keyed by digest of the contents.
+    // Parsing doesn't depend on the path or parameters, so a file included
+    // from many workflows, or loaded again by call> or the next load of the
+    // same project, is parsed only once. Cached trees are never modified
+    // because ParameterizeContext builds new objects and arrays.
+    private final Cache<HashCode, ObjectNode> parsedCache = CacheBuilder.newBuilder()
+        .maximumSize(PARSED_CACHE_MAX_SIZE)
+        .build();
+
     // TODO set charset and timezone
 
     @Inject
@@ -76,8 +91,7 @@ public class YamlConfigLoader
             content = CharStreams.toString(new InputStreamReader(in, StandardCharsets.UTF_8));
         }
 
-        Yaml yaml = new Yaml(new YamlParameterizedConstructor(), new Representer(), new DumperOptions(), new YamlTagResolver());
-        ObjectNode object = normalizeValidateObjectNode(yaml.load(content));
+        ObjectNode object = parseParameterizedContent(content);
 
         Path includeDir = path.toAbsolutePath().getParent();
         if (includeDir == null) {
@@ -87,6 +101,21 @@ public class YamlConfigLoader
         return new ParameterizeContext(includeDir, params).evalObjectRecursive(object);
     }
 
+    private ObjectNode parseParameterizedContent(String content)
+        throws IOException
+    {
+        HashCode digest = Hashing.sha256().hashString(content, UTF_8);
+        ObjectNode cached = parsedCache.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+
+        Yaml yaml = new Yaml(new YamlParameterizedConstructor(), new Representer(), new DumperOptions(), new YamlTagResolver());
+        ObjectNode object = normalizeValidateObjectNode(yaml.load(content));
+        parsedCache.put(digest, object);
+        return object;
+    }
+
     private class ParameterizeContext
     {
         private final Path includeDir;
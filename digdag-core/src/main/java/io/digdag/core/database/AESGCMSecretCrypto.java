@@ -45,6 +45,8 @@ public class AESGCMSecretCrypto implements SecretCrypto
 {
     private static final SecureRandom SECURE_RANDOM = new SecureRandom();
 
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(AESGCMSecretCrypto::newCipher);
+
     private static final String NAME = "aesgcm";
     private static final byte[] NAME_BYTES = NAME.getBytes(UTF_8);
 
@@ -183,14 +185,9 @@ public class AESGCMSecretCrypto implements SecretCrypto
 
     private Cipher cipher(int encryptMode, SecretKey sharedSecret, byte[] nonce)
     {
-        Cipher result;
-        try {
-            result = Cipher.getInstance("AES/GCM/NoPadding");
-        }
-        catch (NoSuchAlgorithmException | NoSuchPaddingException e1) {
-            throw Throwables.propagate(e1);
-        }
-        Cipher cipher = result;
+        // Cipher.getInstance looks up security providers for every call. A Cipher
+        // is not thread-safe but can be reused by initializing it again.
+        Cipher cipher = CIPHERS.get();
 
         GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, nonce);
         try {
@@ -202,6 +199,16 @@ public class AESGCMSecretCrypto implements SecretCrypto
         return cipher;
     }
 
+    private static Cipher newCipher()
+    {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        }
+        catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
     private byte[] generateNonce()
     {
         // The nonce need not be random, just unique. It is simply convenient to rely on
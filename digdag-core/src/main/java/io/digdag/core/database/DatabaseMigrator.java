@@ -36,6 +36,9 @@ public class DatabaseMigrator
         new Migration_20170116082921_AddAttemptIndexColumn1(),
         new Migration_20170116090744_AddAttemptIndexColumn2(),
         new Migration_20170223220127_AddLastSessionTimeAndFlagsToSessions(),
+        new Migration_20170301141907_AddRetryAtIndexToTasks(),
+        new Migration_20170320094133_AddUpdatedAtIndexToTasksAndSessionAttempts(),
+        new Migration_20170405141512_CreateScheduleBackfillJobs(),
     })
     .sorted(Comparator.comparing(m -> m.getVersion()))
     .collect(Collectors.toList());
@@ -2,6 +2,7 @@ package io.digdag.core.database;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 import io.digdag.client.config.Config;
 import io.digdag.core.repository.ArchiveType;
@@ -28,6 +29,7 @@ import io.digdag.core.schedule.ScheduleStatus;
 import io.digdag.spi.ScheduleTime;
 import org.immutables.value.Value;
 import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
 import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
@@ -44,9 +46,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static java.util.Locale.ENGLISH;
@@ -89,6 +94,30 @@ public class DatabaseProjectStoreManager
                 "workflow id=%s", wfId);
     }
 
+    @Override
+    public List<StoredWorkflowDefinitionWithProject> getWorkflowDetailsByIdList(List<Long> wfIdList)
+    {
+        if (wfIdList.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        return autoCommit((handle, dao) ->
+                handle.createQuery(
+                    "select wd.*, wc.config, wc.timezone," +
+                    " proj.id as proj_id, proj.name as proj_name, proj.deleted_name as proj_deleted_name, proj.deleted_at as proj_deleted_at, proj.site_id, proj.created_at as proj_created_at," +
+                    " rev.name as rev_name, rev.default_params as rev_default_params" +
+                    " from workflow_definitions wd" +
+                    " join revisions rev on rev.id = wd.revision_id" +
+                    " join projects proj on proj.id = rev.project_id" +
+                    " join workflow_configs wc on wc.id = wd.config_id" +
+                    " where wd.id in (" + wfIdList.stream()
+                        .map(it -> Long.toString(it)).collect(Collectors.joining(", ")) + ")"
+                )
+                .mapTo(StoredWorkflowDefinitionWithProject.class)
+                .list()
+        );
+    }
+
     @Override
     public StoredProject getProjectByIdInternal(int projId)
         throws ResourceNotFoundException
@@ -445,6 +474,133 @@ public class DatabaseProjectStoreManager
             }
         }
 
+        /**
+         * Create workflow definitions of a revision at once.
+         *
+         * Same with calling insertWorkflowDefinition for each workflow but
+         * looks up and inserts workflow_configs and workflow_definitions
+         * using a constant number of statements.
+         */
+        @Override
+        public List<StoredWorkflowDefinition> insertWorkflowDefinitions(int projId, int revId, List<WorkflowDefinition> defs)
+            throws ResourceConflictException
+        {
+            if (defs.isEmpty()) {
+                return ImmutableList.of();
+            }
+
+            Set<String> names = new HashSet<>();
+            for (WorkflowDefinition def : defs) {
+                if (!names.add(def.getName())) {
+                    throw new ResourceConflictException("Resource already exists: " +
+                            String.format(ENGLISH, "workflow=%s in revision id=%d", def.getName(), revId));
+                }
+            }
+
+            List<String> configTexts = new ArrayList<>();
+            List<String> zoneIds = new ArrayList<>();
+            List<Long> configDigests = new ArrayList<>();
+            for (WorkflowDefinition def : defs) {
+                String configText = configMapper.toText(def.getConfig());
+                String zoneId = def.getTimeZone().getId();
+                configTexts.add(configText);
+                zoneIds.add(zoneId);
+                configDigests.add(WorkflowConfig.digest(configText, zoneId));
+            }
+
+            Map<Long, List<WorkflowConfig>> configs = findWorkflowConfigsByDigest(projId, new HashSet<>(configDigests));
+
+            // insert configs that don't exist yet. the same config shared by
+            // multiple workflows is inserted only once.
+            Map<Long, List<WorkflowConfig>> newConfigs = new HashMap<>();
+            PreparedBatch configBatch = handle.prepareBatch(
+                    "insert into workflow_configs" +
+                    " (project_id, config, timezone, config_digest)" +
+                    " values (:projId, :config, :timezone, :configDigest)");
+            for (int i = 0; i < defs.size(); i++) {
+                long configDigest = configDigests.get(i);
+                if (!findEquivalentConfig(configs, configDigest, configTexts.get(i), zoneIds.get(i)).isPresent() &&
+                        !findEquivalentConfig(newConfigs, configDigest, configTexts.get(i), zoneIds.get(i)).isPresent()) {
+                    newConfigs.computeIfAbsent(configDigest, key -> new ArrayList<>())
+                        .add(ImmutableWorkflowConfig.builder()
+                                .id(0)
+                                .configText(configTexts.get(i))
+                                .timeZone(zoneIds.get(i))
+                                .build());
+                    configBatch.add()
+                        .bind("projId", projId)
+                        .bind("config", configTexts.get(i))
+                        .bind("timezone", zoneIds.get(i))
+                        .bind("configDigest", configDigest);
+                }
+            }
+            if (!newConfigs.isEmpty()) {
+                configBatch.execute();
+                configs = findWorkflowConfigsByDigest(projId, new HashSet<>(configDigests));
+            }
+
+            PreparedBatch defBatch = handle.prepareBatch(
+                    "insert into workflow_definitions" +
+                    " (revision_id, name, config_id)" +
+                    " values (:revId, :name, :configId)");
+            for (int i = 0; i < defs.size(); i++) {
+                Optional<WorkflowConfig> config = findEquivalentConfig(configs, configDigests.get(i), configTexts.get(i), zoneIds.get(i));
+                if (!config.isPresent()) {
+                    throw new IllegalStateException("Database state error: inserted workflow config does not exist");
+                }
+                defBatch.add()
+                    .bind("revId", revId)
+                    .bind("name", defs.get(i).getName())
+                    .bind("configId", config.get().getId());
+            }
+            catchConflict(() -> defBatch.execute(),
+                    "workflows in revision id=%d", revId);
+
+            Map<String, StoredWorkflowDefinition> stored = new HashMap<>();
+            for (StoredWorkflowDefinition def : dao.getWorkflowDefinitionsOfRevision(revId)) {
+                stored.put(def.getName(), def);
+            }
+            ImmutableList.Builder<StoredWorkflowDefinition> builder = ImmutableList.builder();
+            for (WorkflowDefinition def : defs) {
+                StoredWorkflowDefinition found = stored.get(def.getName());
+                if (found == null) {
+                    throw new IllegalStateException("Database state error: inserted workflow does not exist: " + def.getName());
+                }
+                builder.add(found);
+            }
+            return builder.build();
+        }
+
+        private Map<Long, List<WorkflowConfig>> findWorkflowConfigsByDigest(int projId, Set<Long> configDigests)
+        {
+            List<WorkflowConfig> found = handle.createQuery(
+                    "select id, config, timezone" +
+                    " from workflow_configs" +
+                    " where project_id = :projId" +
+                    " and config_digest " + inLargeIdListExpression(configDigests)
+                )
+                .bind("projId", projId)
+                .mapTo(WorkflowConfig.class)
+                .list();
+            Map<Long, List<WorkflowConfig>> map = new HashMap<>();
+            for (WorkflowConfig config : found) {
+                long configDigest = WorkflowConfig.digest(config.getConfigText(), config.getTimeZone());
+                map.computeIfAbsent(configDigest, key -> new ArrayList<>()).add(config);
+            }
+            return map;
+        }
+
+        private Optional<WorkflowConfig> findEquivalentConfig(Map<Long, List<WorkflowConfig>> configs,
+                long configDigest, String configText, String zoneId)
+        {
+            for (WorkflowConfig config : configs.getOrDefault(configDigest, ImmutableList.of())) {
+                if (WorkflowConfig.isEquivalent(config, configText, zoneId)) {
+                    return Optional.of(config);
+                }
+            }
+            return Optional.absent();
+        }
+
         @Override
         public <T extends Schedule> void updateSchedules(int projId, List<T> schedules,
                 ScheduleUpdateAction<T> func)
@@ -458,35 +614,61 @@ public class DatabaseProjectStoreManager
             // However, ScheduleExecutor modifies schedules without locking the
             // project. Instead, ScheduleExecutor locks schedules. To avoid
             // concurrent update of schedules, here needs to lock schedules
-            // before UPDATE.
+            // before UPDATE. All matched schedules are locked by one statement
+            // in order of id as ScheduleExecutor does.
+
+            List<Integer> matchedSchedIds = schedules.stream()
+                .map(schedule -> oldScheduleNames.get(schedule.getWorkflowName()))
+                .filter(id -> id != null)
+                .collect(Collectors.toList());
+            Map<Integer, ScheduleStatus> statuses = lockSchedulesById(matchedSchedIds);
+
+            PreparedBatch updateBatch = handle.prepareBatch(
+                    "update schedules" +
+                    " set workflow_definition_id = :workflowDefinitionId, next_run_time = :nextRunTime, next_schedule_time = :nextScheduleTime, updated_at = now()" +
+                    " where id = :id");
+            PreparedBatch insertBatch = handle.prepareBatch(
+                    "insert into schedules" +
+                    " (project_id, workflow_definition_id, next_run_time, next_schedule_time, last_session_time, created_at, updated_at)" +
+                    " values (:projId, :workflowDefinitionId, :nextRunTime, :nextScheduleTime, NULL, now(), now())");
+            int updateCount = 0;
+            int insertCount = 0;
 
             for (T schedule : schedules) {
                 Integer matchedSchedId = oldScheduleNames.get(schedule.getWorkflowName());
                 if (matchedSchedId != null) {
-                    // found the same name. lock it and update
-                    ScheduleStatus status = dao.lockScheduleById(matchedSchedId);
+                    // found the same name. update the locked row
+                    ScheduleStatus status = statuses.get(matchedSchedId);
                     if (status != null) {
                         ScheduleTime newSchedule = func.apply(status, schedule);
-                        dao.updateScheduleById(
-                                matchedSchedId,
-                                schedule.getWorkflowDefinitionId(),
-                                newSchedule.getRunTime().getEpochSecond(),
-                                newSchedule.getTime().getEpochSecond());
+                        updateBatch.add()
+                            .bind("id", (int) matchedSchedId)
+                            .bind("workflowDefinitionId", schedule.getWorkflowDefinitionId())
+                            .bind("nextRunTime", newSchedule.getRunTime().getEpochSecond())
+                            .bind("nextScheduleTime", newSchedule.getTime().getEpochSecond());
+                        updateCount++;
                         oldScheduleNames.remove(schedule.getWorkflowName());
                     }
                 }
                 else {
                     // not found this name. inserting a new entry.
-                    catchConflict(() ->
-                        dao.insertSchedule(
-                                projId,
-                                schedule.getWorkflowDefinitionId(),
-                                schedule.getNextRunTime().getEpochSecond(),
-                                schedule.getNextScheduleTime().getEpochSecond()),
-                        "workflow_definition_id=%d", schedule.getWorkflowDefinitionId());
+                    insertBatch.add()
+                        .bind("projId", projId)
+                        .bind("workflowDefinitionId", schedule.getWorkflowDefinitionId())
+                        .bind("nextRunTime", schedule.getNextRunTime().getEpochSecond())
+                        .bind("nextScheduleTime", schedule.getNextScheduleTime().getEpochSecond());
+                    insertCount++;
                 }
             }
 
+            if (updateCount > 0) {
+                updateBatch.execute();
+            }
+            if (insertCount > 0) {
+                catchConflict(() -> insertBatch.execute(),
+                        "schedules of project id=%d", projId);
+            }
+
             // delete unused schedules
             if (!oldScheduleNames.isEmpty()) {
                 // those names don exist any more.
@@ -498,6 +680,27 @@ public class DatabaseProjectStoreManager
             }
         }
 
+        private Map<Integer, ScheduleStatus> lockSchedulesById(List<Integer> schedIds)
+        {
+            Map<Integer, ScheduleStatus> map = new HashMap<>();
+            if (schedIds.isEmpty()) {
+                return map;
+            }
+            ScheduleStatusMapper mapper = new ScheduleStatusMapper();
+            handle.createQuery(
+                    "select id, next_run_time, next_schedule_time, last_session_time from schedules" +
+                    " where id " + inLargeIdListExpression(schedIds) +
+                    " order by id" +
+                    " for update"
+                )
+                .map((index, r, ctx) -> {
+                    map.put(r.getInt("id"), mapper.map(index, r, ctx));
+                    return null;
+                })
+                .list();
+            return map;
+        }
+
         @Override
         public void deleteSchedules(int projId)
         {
@@ -717,6 +920,11 @@ public class DatabaseProjectStoreManager
                 " limit 1")
         StoredWorkflowDefinition getWorkflowDefinitionByName(@Bind("siteId") int siteId, @Bind("revId") int revId, @Bind("name") String name);
 
+        @SqlQuery("select wd.*, wc.config, wc.timezone from workflow_definitions wd" +
+                " join workflow_configs wc on wc.id = wd.config_id" +
+                " where wd.revision_id = :revId")
+        List<StoredWorkflowDefinition> getWorkflowDefinitionsOfRevision(@Bind("revId") int revId);
+
         @SqlQuery("select id, config, timezone" +
                 " from workflow_configs" +
                 " where project_id = :projId and config_digest = :configDigest")
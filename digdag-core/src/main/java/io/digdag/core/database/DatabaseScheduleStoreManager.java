@@ -5,6 +5,9 @@ import com.google.inject.Inject;
 import io.digdag.core.repository.ResourceConflictException;
 import io.digdag.core.repository.ResourceLimitExceededException;
 import io.digdag.core.repository.ResourceNotFoundException;
+import io.digdag.core.schedule.BackfillJob;
+import io.digdag.core.schedule.BackfillJobControlStore;
+import io.digdag.core.schedule.ImmutableBackfillJob;
 import io.digdag.core.schedule.ImmutableStoredSchedule;
 import io.digdag.core.schedule.ScheduleControlStore;
 import io.digdag.core.schedule.ScheduleStore;
@@ -15,6 +18,7 @@ import org.skife.jdbi.v2.DBI;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.tweak.ResultSetMapper;
@@ -27,7 +31,6 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class DatabaseScheduleStoreManager
         extends BasicDatabaseStoreManager<DatabaseScheduleStoreManager.Dao>
@@ -63,18 +66,9 @@ public class DatabaseScheduleStoreManager
         List<RuntimeException> exceptions = new ArrayList<>();
 
         long count = transaction((handle, dao) -> {
-            Stream<StoredSchedule> schedStream;
-            if (dao instanceof PgDao) {
-                schedStream = ((PgDao) dao).lockReadySchedulesSkipLocked(currentTime.getEpochSecond(), limit)
-                    .stream();
-            }
-            else {
-                // H2 database doesn't support JOIN + FOR UPDATE OF
-                schedStream = dao.lockReadyScheduleIds(currentTime.getEpochSecond(), limit)
-                    .stream()
-                    .map(dao::getScheduleByIdInternal);
-            }
-            return schedStream.mapToInt(sched -> {
+            return lockReadySchedules(dao, currentTime, limit)
+                .stream()
+                .mapToInt(sched -> {
                     try {
                         func.schedule(new DatabaseScheduleControlStore(handle), sched);
                     }
@@ -97,6 +91,78 @@ public class DatabaseScheduleStoreManager
         return (int) count;
     }
 
+    @Override
+    public int lockReadyScheduleBatch(Instant currentTime, int limit, ScheduleBatchAction func)
+    {
+        return transaction((handle, dao) -> {
+            List<StoredSchedule> schedules = lockReadySchedules(dao, currentTime, limit);
+            if (!schedules.isEmpty()) {
+                func.schedule(new DatabaseScheduleControlStore(handle), schedules);
+            }
+            return schedules.size();
+        });
+    }
+
+    @Override
+    public boolean lockReadyScheduleById(int schedId, Instant currentTime, ScheduleAction func)
+    {
+        return transaction((handle, dao) -> {
+            // JOIN + FOR UPDATE doesn't work with H2 database. So here locks it first then get columns.
+            if (dao.lockScheduleById(schedId) == 0) {
+                return false;
+            }
+            StoredSchedule schedule = dao.getScheduleByIdInternal(schedId);
+            if (schedule == null || schedule.getDisabledAt().isPresent() ||
+                    schedule.getNextRunTime().getEpochSecond() > currentTime.getEpochSecond()) {
+                return false;
+            }
+            func.schedule(new DatabaseScheduleControlStore(handle), schedule);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean lockReadyBackfillJob(Instant currentTime, BackfillJobAction func)
+        throws ResourceNotFoundException, ResourceConflictException, ResourceLimitExceededException
+    {
+        return this.<Boolean, ResourceNotFoundException, ResourceConflictException, ResourceLimitExceededException>transaction((handle, dao) -> {
+            BackfillJob job;
+            if (dao instanceof PgDao) {
+                job = ((PgDao) dao).lockReadyBackfillJobSkipLocked(currentTime.getEpochSecond());
+            }
+            else {
+                job = dao.lockReadyBackfillJob(currentTime.getEpochSecond());
+            }
+            if (job == null) {
+                return false;
+            }
+            func.run(new DatabaseBackfillJobControlStore(handle), job);
+            return true;
+        }, ResourceNotFoundException.class, ResourceConflictException.class, ResourceLimitExceededException.class);
+    }
+
+    @Override
+    public boolean failBackfillJob(long jobId, String error)
+    {
+        return transaction((handle, dao) -> {
+            return dao.finishBackfillJob(jobId, BackfillJob.Status.ERROR.get(), error, BackfillJob.Status.RUNNING.get()) > 0;
+        });
+    }
+
+    private static List<StoredSchedule> lockReadySchedules(Dao dao, Instant currentTime, int limit)
+    {
+        if (dao instanceof PgDao) {
+            return ((PgDao) dao).lockReadySchedulesSkipLocked(currentTime.getEpochSecond(), limit);
+        }
+        else {
+            // H2 database doesn't support JOIN + FOR UPDATE OF
+            return dao.lockReadyScheduleIds(currentTime.getEpochSecond(), limit)
+                .stream()
+                .map(dao::getScheduleByIdInternal)
+                .collect(Collectors.toList());
+        }
+    }
+
     private interface ScheduleCombinedLockAction <T, E extends Exception>
     {
         public T call(ScheduleControlStore store, StoredSchedule storedSched)
@@ -177,6 +243,25 @@ public class DatabaseScheduleStoreManager
         {
             return combinedLockScheduleById(schedId, (store, sched) -> func.call(store, sched), ResourceLimitExceededException.class);
         }
+
+        @Override
+        public BackfillJob insertBackfillJob(int schedId, String attemptName, Instant fromTime, int total, Instant currentTime)
+        {
+            return transaction((handle, dao) -> {
+                long id = dao.insertBackfillJob(siteId, schedId, attemptName, fromTime.getEpochSecond(), total,
+                        BackfillJob.Status.RUNNING.get(), currentTime.getEpochSecond());
+                return dao.getBackfillJobById(siteId, id);
+            });
+        }
+
+        @Override
+        public BackfillJob getBackfillJobById(long jobId)
+            throws ResourceNotFoundException
+        {
+            return requiredResource(
+                    (handle, dao) -> dao.getBackfillJobById(siteId, jobId),
+                    "backfill job id=%d", jobId);
+        }
     }
 
     private static class DatabaseScheduleControlStore
@@ -240,6 +325,35 @@ public class DatabaseScheduleStoreManager
         }
     }
 
+    private static class DatabaseBackfillJobControlStore
+            implements BackfillJobControlStore
+    {
+        private final Dao dao;
+
+        public DatabaseBackfillJobControlStore(Handle handle)
+        {
+            this.dao = handle.attach(Dao.class);
+        }
+
+        @Override
+        public void addSubmittedAttempts(long jobId, int count, long lastSessionId, Instant lastSessionTime, Instant currentTime)
+        {
+            dao.addSubmittedAttempts(jobId, count, lastSessionId, lastSessionTime.getEpochSecond(), currentTime.getEpochSecond());
+        }
+
+        @Override
+        public void delayBackfillJob(long jobId, Instant nextRunTime)
+        {
+            dao.delayBackfillJob(jobId, nextRunTime.getEpochSecond());
+        }
+
+        @Override
+        public void finishBackfillJob(long jobId, BackfillJob.Status status, Optional<String> error)
+        {
+            dao.finishBackfillJob(jobId, status.get(), error.orNull(), BackfillJob.Status.RUNNING.get());
+        }
+    }
+
     public interface H2Dao
             extends Dao
     {
@@ -252,9 +366,18 @@ public class DatabaseScheduleStoreManager
                 " join workflow_definitions wd on wd.id = s.workflow_definition_id" +
                 " where s.next_run_time <= :currentTime" +
                 " and s.disabled_at is null" +
+                " order by s.id" +
                 " limit :limit" +
                 " for update of s skip locked")
         List<StoredSchedule> lockReadySchedulesSkipLocked(@Bind("currentTime") long currentTime, @Bind("limit") int limit);
+
+        @SqlQuery("select * from schedule_backfill_jobs" +
+                " where status = 0" +
+                " and next_run_time <= :currentTime" +
+                " order by next_run_time, id" +
+                " limit 1" +
+                " for update skip locked")
+        BackfillJob lockReadyBackfillJobSkipLocked(@Bind("currentTime") long currentTime);
     }
 
     public interface Dao
@@ -313,6 +436,7 @@ public class DatabaseScheduleStoreManager
         @SqlQuery("select id from schedules" +
                 " where next_run_time <= :currentTime" +
                 " and disabled_at is null" +
+                " order by id" +
                 " limit :limit" +
                 " for update")
         List<Integer> lockReadyScheduleIds(@Bind("currentTime") long currentTime, @Bind("limit") int limit);
@@ -341,6 +465,44 @@ public class DatabaseScheduleStoreManager
                 " set disabled_at = null, updated_at = now()" +
                 " where id = :id")
         int enableSchedule(@Bind("id") int id);
+
+        @SqlQuery("select * from schedule_backfill_jobs" +
+                " where status = 0" +
+                " and next_run_time <= :currentTime" +
+                " order by next_run_time, id" +
+                " limit 1" +
+                " for update")
+        BackfillJob lockReadyBackfillJob(@Bind("currentTime") long currentTime);
+
+        @SqlQuery("select * from schedule_backfill_jobs" +
+                " where id = :id" +
+                " and site_id = :siteId")
+        BackfillJob getBackfillJobById(@Bind("siteId") int siteId, @Bind("id") long id);
+
+        @SqlUpdate("insert into schedule_backfill_jobs" +
+                " (site_id, schedule_id, attempt_name, from_time, total, submitted, status, next_run_time, last_submitted_at, created_at, updated_at)" +
+                " values (:siteId, :scheduleId, :attemptName, :fromTime, :total, 0, :status, :currentTime, :currentTime, now(), now())")
+        @GetGeneratedKeys
+        long insertBackfillJob(@Bind("siteId") int siteId, @Bind("scheduleId") int scheduleId, @Bind("attemptName") String attemptName,
+                @Bind("fromTime") long fromTime, @Bind("total") int total, @Bind("status") short status, @Bind("currentTime") long currentTime);
+
+        @SqlUpdate("update schedule_backfill_jobs" +
+                " set submitted = submitted + :count, last_session_id = :lastSessionId, last_session_time = :lastSessionTime," +
+                " next_run_time = :currentTime, last_submitted_at = :currentTime, updated_at = now()" +
+                " where id = :id")
+        int addSubmittedAttempts(@Bind("id") long id, @Bind("count") int count,
+                @Bind("lastSessionId") long lastSessionId, @Bind("lastSessionTime") long lastSessionTime, @Bind("currentTime") long currentTime);
+
+        @SqlUpdate("update schedule_backfill_jobs" +
+                " set next_run_time = :nextRunTime, updated_at = now()" +
+                " where id = :id")
+        int delayBackfillJob(@Bind("id") long id, @Bind("nextRunTime") long nextRunTime);
+
+        @SqlUpdate("update schedule_backfill_jobs" +
+                " set status = :status, error = :error, finished_at = now(), updated_at = now()" +
+                " where id = :id" +
+                " and status = :runningStatus")
+        int finishBackfillJob(@Bind("id") long id, @Bind("status") short status, @Bind("error") String error, @Bind("runningStatus") short runningStatus);
     }
 
     static class StoredScheduleMapper
@@ -371,4 +533,31 @@ public class DatabaseScheduleStoreManager
                 .build();
         }
     }
+
+    static class BackfillJobMapper
+            implements ResultSetMapper<BackfillJob>
+    {
+        @Override
+        public BackfillJob map(int index, ResultSet r, StatementContext ctx)
+                throws SQLException
+        {
+            return ImmutableBackfillJob.builder()
+                .id(r.getLong("id"))
+                .siteId(r.getInt("site_id"))
+                .scheduleId(r.getInt("schedule_id"))
+                .attemptName(r.getString("attempt_name"))
+                .fromTime(Instant.ofEpochSecond(r.getLong("from_time")))
+                .total(r.getInt("total"))
+                .submitted(r.getInt("submitted"))
+                .lastSessionId(getOptionalLong(r, "last_session_id"))
+                .lastSessionTime(getOptionalLong(r, "last_session_time").transform(Instant::ofEpochSecond))
+                .status(BackfillJob.Status.of(r.getShort("status")))
+                .error(Optional.fromNullable(r.getString("error")))
+                .nextRunTime(Instant.ofEpochSecond(r.getLong("next_run_time")))
+                .lastSubmittedAt(Instant.ofEpochSecond(r.getLong("last_submitted_at")))
+                .createdAt(getTimestampInstant(r, "created_at"))
+                .finishedAt(getOptionalTimestampInstant(r, "finished_at"))
+                .build();
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package io.digdag.core.database;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Table;
 import io.digdag.core.crypto.SecretCrypto;
 import io.digdag.spi.SecretStore;
 import org.skife.jdbi.v2.DBI;
@@ -11,6 +13,7 @@ import org.skife.jdbi.v2.tweak.ResultSetMapper;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 import static java.util.Locale.ENGLISH;
 
 class DatabaseSecretStore
@@ -39,6 +42,24 @@ class DatabaseSecretStore
             return Optional.absent();
         }
 
+        return Optional.of(decrypt(secret));
+    }
+
+    // returns (scope, key) -> secret of all secrets of a project
+    Table<String, String, EncryptedSecret> getEncryptedSecrets(int projectId)
+    {
+        List<ProjectSecret> secrets =
+                tm.begin(() -> autoCommit((handle, dao) -> dao.getProjectSecrets(siteId, projectId)));
+
+        ImmutableTable.Builder<String, String, EncryptedSecret> builder = ImmutableTable.builder();
+        for (ProjectSecret secret : secrets) {
+            builder.put(secret.scope, secret.key, secret.secret);
+        }
+        return builder.build();
+    }
+
+    String decrypt(EncryptedSecret secret)
+    {
         // TODO: look up crypto engine using name
         if (!crypto.getName().equals(secret.engine)) {
             throw new AssertionError(String.format(ENGLISH,
@@ -46,9 +67,7 @@ class DatabaseSecretStore
                         secret.engine, crypto.getName()));
         }
 
-        String decrypted = crypto.decryptSecret(secret.value);
-
-        return Optional.of(decrypted);
+        return crypto.decryptSecret(secret.value);
     }
 
     interface Dao
@@ -56,6 +75,10 @@ class DatabaseSecretStore
         @SqlQuery("select engine, value from secrets" +
                 " where site_id = :siteId and project_id = :projectId and key = :key and scope = :scope")
         EncryptedSecret getProjectSecret(@Bind("siteId") int siteId, @Bind("projectId") int projectId, @Bind("scope") String scope, @Bind("key") String key);
+
+        @SqlQuery("select scope, key, engine, value from secrets" +
+                " where site_id = :siteId and project_id = :projectId")
+        List<ProjectSecret> getProjectSecrets(@Bind("siteId") int siteId, @Bind("projectId") int projectId);
     }
 
     static class EncryptedSecret
@@ -70,6 +93,20 @@ class DatabaseSecretStore
         }
     }
 
+    static class ProjectSecret
+    {
+        final String scope;
+        final String key;
+        final EncryptedSecret secret;
+
+        private ProjectSecret(String scope, String key, EncryptedSecret secret)
+        {
+            this.scope = scope;
+            this.key = key;
+            this.secret = secret;
+        }
+    }
+
     static class ScopedSecretMapper
             implements ResultSetMapper<EncryptedSecret>
     {
@@ -80,4 +117,16 @@ class DatabaseSecretStore
             return new EncryptedSecret(r.getString("engine"), r.getString("value"));
         }
     }
+
+    static class ProjectSecretMapper
+            implements ResultSetMapper<ProjectSecret>
+    {
+        @Override
+        public ProjectSecret map(int index, ResultSet r, StatementContext ctx)
+                throws SQLException
+        {
+            return new ProjectSecret(r.getString("scope"), r.getString("key"),
+                    new EncryptedSecret(r.getString("engine"), r.getString("value")));
+        }
+    }
 }
@@ -28,4 +28,10 @@ public class DatabaseSecretStoreManager
     {
         return new DatabaseSecretStore(config, tm, cfm, siteId, crypto);
     }
+
+    @Override
+    public SecretStore getTaskSecretStore(int siteId)
+    {
+        return new TaskSecretStore(new DatabaseSecretStore(config, tm, cfm, siteId, crypto));
+    }
 }
@@ -71,6 +71,7 @@ import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.Arrays;
@@ -424,9 +425,27 @@ public class DatabaseSessionStoreManager
     }
 
     @Override
-    public int trySetRetryWaitingToReady()
+    public int trySetRetryWaitingToReady(int limit)
     {
-        return autoCommit((handle, dao) -> dao.trySetRetryWaitingToReady());
+        return autoCommit((handle, dao) -> dao.trySetRetryWaitingToReady(limit));
+    }
+
+    @Override
+    public Optional<Duration> findNextRetryWaitingDelay()
+    {
+        return autoCommit((handle, dao) ->
+                handle.createQuery(
+                    "select min(retry_at) as retry_at, now() as now from tasks" +
+                    " where state in (" + TaskStateCode.RETRY_WAITING_CODE +"," + TaskStateCode.GROUP_RETRY_WAITING_CODE + ")"
+                )
+                .map((index, r, ctx) -> {
+                    Optional<Instant> retryAt = getOptionalTimestampInstant(r, "retry_at");
+                    if (!retryAt.isPresent()) {
+                        return Optional.<Duration>absent();
+                    }
+                    return Optional.of(Duration.between(getTimestampInstant(r, "now"), retryAt.get()));
+                })
+                .first());
     }
 
     @Override
@@ -1200,6 +1219,32 @@ public class DatabaseSessionStoreManager
             }
         }
 
+        @Override
+        public List<StoredSessionAttemptWithSession> getAttemptsUpdatedSince(boolean withRetriedAttempts, Instant updatedSince, int pageSize, Optional<Long> lastId)
+        {
+            return autoCommit((handle, dao) ->
+                    handle.createQuery(
+                        "select sa.*, s.session_uuid, s.workflow_name, s.session_time" +
+                        " from session_attempts sa" +
+                        (withRetriedAttempts
+                            ? " join sessions s on s.id = sa.session_id"
+                            : " join sessions s on s.last_attempt_id = sa.id") +
+                        " where sa.site_id = :siteId" +
+                        (withRetriedAttempts ? " and s.last_attempt_id is not null" : "") +
+                        " and (sa.created_at >= :updatedSince or sa.finished_at >= :updatedSince)" +
+                        " and sa.id < :lastId" +
+                        " order by sa.id desc" +
+                        " limit :limit"
+                        )
+                    .bind("siteId", siteId)
+                    .bind("updatedSince", sqlTimestampOf(updatedSince))
+                    .bind("lastId", lastId.or(Long.MAX_VALUE))
+                    .bind("limit", pageSize)
+                    .mapTo(StoredSessionAttemptWithSession.class)
+                    .list()
+                );
+        }
+
         @Override
         public List<StoredSessionAttemptWithSession> getAttemptsOfProject(boolean withRetriedAttempts, int projectId, int pageSize, Optional<Long> lastId)
         {
@@ -1267,6 +1312,15 @@ public class DatabaseSessionStoreManager
                     "session attempt name=%s in session project id=%d workflow name=%s time=%s", retryAttemptName, projectId, workflowName, sessionTime);
         }
 
+        @Override
+        public List<Instant> getSessionTimesOfAttemptName(int projectId, String workflowName, Instant fromTime, Instant toTime, String retryAttemptName)
+        {
+            return autoCommit((handle, dao) -> dao.getSessionTimesOfAttemptName(siteId, projectId, workflowName, fromTime.getEpochSecond(), toTime.getEpochSecond(), retryAttemptName))
+                .stream()
+                .map(Instant::ofEpochSecond)
+                .collect(Collectors.toList());
+        }
+
         @Override
         public List<StoredSessionAttemptWithSession> getOtherAttempts(long attemptId)
             throws ResourceNotFoundException
@@ -1302,14 +1356,7 @@ public class DatabaseSessionStoreManager
         {
             List<ArchivedTask> tasks = autoCommit((handle, dao) ->
                     handle.createQuery(
-                        "select t.*, td.full_name, td.local_config, td.export_config, td.resuming_task_id, ts.subtask_config, ts.export_params, ts.store_params, ts.error, ts.report, ts.reset_store_params, " +
-                            "(select " + commaGroupConcat("upstream_id") + " from task_dependencies where downstream_id = t.id) as upstream_ids" +
-                        " from tasks t" +
-                        " join session_attempts sa on sa.id = t.attempt_id" +
-                        " join task_details td on t.id = td.id" +
-                        " join task_state_details ts on t.id = ts.id" +
-                        " where sa.site_id = :siteId" +
-                        " and t.attempt_id = :attemptId" +
+                        selectArchivedTasksQuery() +
                         " order by t.id"
                         )
                     .bind("siteId", siteId)
@@ -1325,6 +1372,93 @@ public class DatabaseSessionStoreManager
             }
             return tasks;
         }
+
+        @Override
+        public List<ArchivedTask> getTasksOfAttempt(long attemptId, int pageSize, Optional<Long> lastId)
+        {
+            List<ArchivedTask> tasks = autoCommit((handle, dao) ->
+                    handle.createQuery(
+                        selectArchivedTasksQuery() +
+                        " and t.id > :lastId" +
+                        " order by t.id" +
+                        " limit :limit"
+                        )
+                    .bind("siteId", siteId)
+                    .bind("attemptId", attemptId)
+                    .bind("lastId", lastId.or(0L))
+                    .bind("limit", pageSize)
+                    .map(atm)
+                    .list()
+                );
+            if (tasks.isEmpty()) {
+                // tasks of a finished attempt are moved to task_archives.
+                // archived tasks are stored as one document and are sorted by id.
+                String archive = autoCommit((handle, dao) -> dao.getTaskArchiveById(siteId, attemptId));
+                if (archive != null) {
+                    long lastTaskId = lastId.or(0L);
+                    return loadTaskArchive(archive).stream()
+                        .filter(task -> task.getId() > lastTaskId)
+                        .limit(pageSize)
+                        .collect(Collectors.toList());
+                }
+            }
+            return tasks;
+        }
+
+        @Override
+        public List<ArchivedTask> getTasksOfAttemptUpdatedSince(long attemptId, Instant updatedSince, int pageSize, Optional<Long> lastId)
+        {
+            List<ArchivedTask> tasks = autoCommit((handle, dao) ->
+                    handle.createQuery(
+                        selectArchivedTasksQuery() +
+                        " and t.updated_at >= :updatedSince" +
+                        " and t.id > :lastId" +
+                        " order by t.id" +
+                        " limit :limit"
+                        )
+                    .bind("siteId", siteId)
+                    .bind("attemptId", attemptId)
+                    .bind("updatedSince", sqlTimestampOf(updatedSince))
+                    .bind("lastId", lastId.or(0L))
+                    .bind("limit", pageSize)
+                    .map(atm)
+                    .list()
+                );
+            if (tasks.isEmpty()) {
+                String archive = autoCommit((handle, dao) -> dao.getTaskArchiveById(siteId, attemptId));
+                if (archive != null) {
+                    long lastTaskId = lastId.or(0L);
+                    return loadTaskArchive(archive).stream()
+                        .filter(task -> task.getId() > lastTaskId)
+                        .filter(task -> !task.getUpdatedAt().isBefore(updatedSince))
+                        .limit(pageSize)
+                        .collect(Collectors.toList());
+                }
+            }
+            return tasks;
+        }
+
+        @Override
+        public Optional<List<ArchivedTask>> getArchivedTasksOfAttempt(long attemptId)
+        {
+            String archive = autoCommit((handle, dao) -> dao.getTaskArchiveById(siteId, attemptId));
+            if (archive == null) {
+                return Optional.absent();
+            }
+            return Optional.of(loadTaskArchive(archive));
+        }
+
+        private String selectArchivedTasksQuery()
+        {
+            return "select t.*, td.full_name, td.local_config, td.export_config, td.resuming_task_id, ts.subtask_config, ts.export_params, ts.store_params, ts.error, ts.report, ts.reset_store_params, " +
+                    "(select " + commaGroupConcat("upstream_id") + " from task_dependencies where downstream_id = t.id) as upstream_ids" +
+                " from tasks t" +
+                " join session_attempts sa on sa.id = t.attempt_id" +
+                " join task_details td on t.id = td.id" +
+                " join task_state_details ts on t.id = ts.id" +
+                " where sa.site_id = :siteId" +
+                " and t.attempt_id = :attemptId";
+        }
     }
 
     private class DatabaseSessionControlStore
@@ -1734,6 +1868,17 @@ public class DatabaseSessionStoreManager
                 " limit 1")
         StoredSessionAttemptWithSession getAttemptByName(@Bind("siteId") int siteId, @Bind("projectId") int projectId, @Bind("workflowName") String workflowName, @Bind("sessionTime") long sessionTime, @Bind("attemptName") String attemptName);
 
+        @SqlQuery("select s.session_time" +
+                " from session_attempts sa" +
+                " join sessions s on s.id = sa.session_id" +
+                " where s.project_id = :projectId" +
+                " and s.workflow_name = :workflowName" +
+                " and s.session_time >= :fromTime" +
+                " and s.session_time <= :toTime" +
+                " and sa.attempt_name = :attemptName" +
+                " and sa.site_id = :siteId")
+        List<Long> getSessionTimesOfAttemptName(@Bind("siteId") int siteId, @Bind("projectId") int projectId, @Bind("workflowName") String workflowName, @Bind("fromTime") long fromTime, @Bind("toTime") long toTime, @Bind("attemptName") String attemptName);
+
         @SqlQuery("select sa.*, s.session_uuid, s.workflow_name, s.session_time" +
                 " from session_attempts sa" +
                 " join sessions s on s.id = sa.session_id" +
@@ -1946,9 +2091,15 @@ public class DatabaseSessionStoreManager
 
         @SqlUpdate("update tasks" +
                 " set updated_at = now(), retry_at = NULL, state = " + TaskStateCode.READY_CODE +
-                " where state in (" + TaskStateCode.RETRY_WAITING_CODE +"," + TaskStateCode.GROUP_RETRY_WAITING_CODE + ")" +
-                " and retry_at <= now()")
-        int trySetRetryWaitingToReady();
+                " where id in (" +
+                    "select id from tasks" +
+                    " where state in (" + TaskStateCode.RETRY_WAITING_CODE +"," + TaskStateCode.GROUP_RETRY_WAITING_CODE + ")" +
+                    " and retry_at <= now()" +
+                    " order by retry_at, id" +
+                    " limit :limit" +
+                " )" +
+                " and state in (" + TaskStateCode.RETRY_WAITING_CODE +"," + TaskStateCode.GROUP_RETRY_WAITING_CODE + ")")
+        int trySetRetryWaitingToReady(@Bind("limit") int limit);
 
         @SqlQuery("select * from session_monitors" +
                 " where next_run_time <= :currentTime" +
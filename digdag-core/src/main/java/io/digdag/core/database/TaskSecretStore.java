@@ -0,0 +1,48 @@
+package io.digdag.core.database;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Table;
+import io.digdag.spi.SecretStore;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A SecretStore used while a task runs.
+ *
+ * Operators look up several secrets, each in project and project-default
+ * scopes. This store reads all secrets of a project in one query at the
+ * first lookup instead of running a query per lookup. Secrets changed while
+ * the task runs are not visible to the task.
+ *
+ * Only encrypted values are kept. Secrets are decrypted at each lookup so
+ * that plain text doesn't stay in memory longer than the operator needs it.
+ */
+class TaskSecretStore
+        implements SecretStore
+{
+    private final DatabaseSecretStore store;
+    private final Map<Integer, Table<String, String, DatabaseSecretStore.EncryptedSecret>> projects = new HashMap<>();
+
+    TaskSecretStore(DatabaseSecretStore store)
+    {
+        this.store = store;
+    }
+
+    @Override
+    public Optional<String> getSecret(int projectId, String scope, String key)
+    {
+        DatabaseSecretStore.EncryptedSecret secret = getEncryptedSecrets(projectId).get(scope, key);
+
+        if (secret == null) {
+            return Optional.absent();
+        }
+
+        return Optional.of(store.decrypt(secret));
+    }
+
+    private synchronized Table<String, String, DatabaseSecretStore.EncryptedSecret> getEncryptedSecrets(int projectId)
+    {
+        return projects.computeIfAbsent(projectId, store::getEncryptedSecrets);
+    }
+}
@@ -73,6 +73,7 @@ public class ThreadLocalTransactionManager
                 dbi.registerMapper(new DatabaseProjectStoreManager.ScheduleStatusMapper());
                 dbi.registerMapper(new DatabaseQueueSettingStoreManager.StoredQueueSettingMapper(configMapper));
                 dbi.registerMapper(new DatabaseScheduleStoreManager.StoredScheduleMapper(configMapper));
+                dbi.registerMapper(new DatabaseScheduleStoreManager.BackfillJobMapper());
                 dbi.registerMapper(new DatabaseSessionStoreManager.StoredTaskMapper(configMapper));
                 dbi.registerMapper(new DatabaseSessionStoreManager.ArchivedTaskMapper(cklm, configMapper));
                 dbi.registerMapper(new DatabaseSessionStoreManager.ResumingTaskMapper(cklm, configMapper));
@@ -88,6 +89,7 @@ public class ThreadLocalTransactionManager
                 dbi.registerMapper(new DatabaseSessionStoreManager.TaskRelationMapper());
                 dbi.registerMapper(new DatabaseSessionStoreManager.InstantMapper());
                 dbi.registerMapper(new DatabaseSecretStore.ScopedSecretMapper());
+                dbi.registerMapper(new DatabaseSecretStore.ProjectSecretMapper());
                 dbi.registerMapper(new DatabaseTaskQueueServer.ImmutableTaskQueueLockMapper());
 
                 dbi.registerArgumentFactory(configMapper.getArgumentFactory());
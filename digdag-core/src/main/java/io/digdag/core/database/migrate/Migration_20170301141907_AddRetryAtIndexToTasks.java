@@ -0,0 +1,19 @@
+package io.digdag.core.database.migrate;
+
+import org.skife.jdbi.v2.Handle;
+
+public class Migration_20170301141907_AddRetryAtIndexToTasks
+        implements Migration
+{
+    @Override
+    public void migrate(Handle handle, MigrationContext context)
+    {
+        // tasks_on_state_and_id doesn't include RETRY_WAITING (2) and GROUP_RETRY_WAITING (3)
+        if (context.isPostgres()) {
+            handle.update("create index tasks_on_retry_at on tasks (retry_at, id) where state = 2 or state = 3");
+        }
+        else {
+            handle.update("create index tasks_on_retry_at on tasks (retry_at, id)");
+        }
+    }
+}
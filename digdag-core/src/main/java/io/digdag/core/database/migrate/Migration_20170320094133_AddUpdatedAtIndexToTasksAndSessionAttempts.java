@@ -0,0 +1,17 @@
+package io.digdag.core.database.migrate;
+
+import org.skife.jdbi.v2.Handle;
+
+public class Migration_20170320094133_AddUpdatedAtIndexToTasksAndSessionAttempts
+        implements Migration
+{
+    @Override
+    public void migrate(Handle handle, MigrationContext context)
+    {
+        // for SessionStore.getTasksOfAttemptUpdatedSince
+        handle.update("create index tasks_on_attempt_id_and_updated_at on tasks (attempt_id, updated_at)");
+        // for SessionStore.getAttemptsUpdatedSince
+        handle.update("create index session_attempts_on_site_id_and_created_at on session_attempts (site_id, created_at)");
+        handle.update("create index session_attempts_on_site_id_and_finished_at on session_attempts (site_id, finished_at)");
+    }
+}
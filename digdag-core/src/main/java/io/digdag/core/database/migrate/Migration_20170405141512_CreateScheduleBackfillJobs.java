@@ -0,0 +1,35 @@
+package io.digdag.core.database.migrate;
+
+import org.skife.jdbi.v2.Handle;
+
+public class Migration_20170405141512_CreateScheduleBackfillJobs
+        implements Migration
+{
+    @Override
+    public void migrate(Handle handle, MigrationContext context)
+    {
+        // schedule_id doesn't reference schedules because schedules are
+        // deleted when a workflow is removed from the project.
+        handle.update(
+                context.newCreateTableBuilder("schedule_backfill_jobs")
+                .addLongId("id")
+                .addInt("site_id", "not null")
+                .addInt("schedule_id", "not null")
+                .addString("attempt_name", "not null")
+                .addLong("from_time", "not null")
+                .addInt("total", "not null")
+                .addInt("submitted", "not null")
+                .addLong("last_session_id", "")
+                .addLong("last_session_time", "")
+                .addShort("status", "not null")  // 0=running, 1=success, 2=error
+                .addMediumText("error", "")
+                .addLong("next_run_time", "not null")
+                .addLong("last_submitted_at", "not null")
+                .addTimestamp("created_at", "not null")
+                .addTimestamp("updated_at", "not null")
+                .addTimestamp("finished_at", "")
+                .build());
+        // for ScheduleStoreManager.lockReadyBackfillJob
+        handle.update("create index schedule_backfill_jobs_on_status_and_next_run_time on schedule_backfill_jobs (status, next_run_time)");
+    }
+}
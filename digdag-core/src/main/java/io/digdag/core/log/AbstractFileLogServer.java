@@ -3,6 +3,7 @@ package io.digdag.core.log;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.zip.GZIPOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.IOException;
@@ -23,6 +24,7 @@ import io.digdag.spi.LogFileHandle;
 import io.digdag.spi.ImmutableLogFileHandle;
 import io.digdag.spi.DirectDownloadHandle;
 import io.digdag.spi.DirectUploadHandle;
+import io.digdag.spi.Storage;
 import io.digdag.spi.StorageFileNotFoundException;
 import io.digdag.client.config.Config;
 import java.time.format.DateTimeFormatter;
@@ -36,11 +38,43 @@ public abstract class AbstractFileLogServer
 
     protected abstract void putFile(String dateDir, String attemptDir, String fileName, byte[] gzData);
 
+    // Subclasses should override this method if they can write the file without
+    // buffering whole content in memory.
+    protected void putFile(String dateDir, String attemptDir, String fileName,
+            long contentLength, Storage.UploadStreamProvider gzData)
+        throws IOException
+    {
+        byte[] data;
+        try (InputStream in = gzData.open()) {
+            data = ByteStreams.toByteArray(in);
+        }
+        putFile(dateDir, attemptDir, fileName, data);
+    }
+
     protected abstract byte[] getFile(String dateDir, String attemptDir, String fileName)
             throws StorageFileNotFoundException;
 
+    // Subclasses should override this method if they can read the file
+    // without buffering whole content in memory.
+    protected InputStream openFile(String dateDir, String attemptDir, String fileName)
+            throws StorageFileNotFoundException
+    {
+        return new ByteArrayInputStream(getFile(dateDir, attemptDir, fileName));
+    }
+
     protected abstract void listFiles(String dateDir, String attemptDir, FileMetadataConsumer fileNameConsumer);
 
+    // Subclasses should override this method if they can skip listing
+    // files whose names are less than or equal to startAfterFileName.
+    protected void listFiles(String dateDir, String attemptDir, String startAfterFileName, FileMetadataConsumer fileNameConsumer)
+    {
+        listFiles(dateDir, attemptDir, (name, size, direct) -> {
+            if (name.compareTo(startAfterFileName) > 0) {
+                fileNameConsumer.accept(name, size, direct);
+            }
+        });
+    }
+
     public interface FileMetadataConsumer
     {
         public void accept(String name, long size, DirectDownloadHandle directOrNull);
@@ -67,6 +101,20 @@ public abstract class AbstractFileLogServer
         return fileName;
     }
 
+    @Override
+    public String putFile(LogFilePrefix prefix, String taskName, Instant firstLogTime, String agentId,
+            long contentLength, Storage.UploadStreamProvider gzData)
+        throws IOException
+    {
+        String dateDir = LogFiles.formatDataDir(prefix);
+        String attemptDir = LogFiles.formatSessionAttemptDir(prefix);
+        String fileName = LogFiles.formatFileName(taskName, firstLogTime, agentId);
+
+        putFile(dateDir, attemptDir, fileName, contentLength, gzData);
+
+        return fileName;
+    }
+
     @Override
     public byte[] getFile(LogFilePrefix prefix, String fileName)
             throws StorageFileNotFoundException
@@ -76,6 +124,15 @@ public abstract class AbstractFileLogServer
         return getFile(dateDir, attemptDir, fileName);
     }
 
+    @Override
+    public InputStream openFile(LogFilePrefix prefix, String fileName)
+            throws StorageFileNotFoundException
+    {
+        String dateDir = LogFiles.formatDataDir(prefix);
+        String attemptDir = LogFiles.formatSessionAttemptDir(prefix);
+        return openFile(dateDir, attemptDir, fileName);
+    }
+
     @Override
     public List<LogFileHandle> getFileHandles(LogFilePrefix prefix, Optional<String> taskName)
     {
@@ -83,8 +140,29 @@ public abstract class AbstractFileLogServer
         String attemptDir = LogFiles.formatSessionAttemptDir(prefix);
 
         List<LogFileHandle> handles = new ArrayList<>();
+        listFiles(dateDir, attemptDir, collectHandles(taskName, handles));
+        LogFiles.sortLogFileHandles(handles);
 
-        listFiles(dateDir, attemptDir, (name, size, direct) -> {
+        return handles;
+    }
+
+    @Override
+    public List<LogFileHandle> getFileHandles(LogFilePrefix prefix, String taskName, String afterFileName)
+    {
+        String dateDir = LogFiles.formatDataDir(prefix);
+        String attemptDir = LogFiles.formatSessionAttemptDir(prefix);
+
+        List<LogFileHandle> handles = new ArrayList<>();
+        listFiles(dateDir, attemptDir, afterFileName, collectHandles(Optional.of(taskName), handles));
+        handles.removeIf(handle -> !handle.getTaskName().equals(taskName));
+        LogFiles.sortLogFileHandles(handles);
+
+        return handles;
+    }
+
+    private static FileMetadataConsumer collectHandles(Optional<String> taskName, List<LogFileHandle> handles)
+    {
+        return (name, size, direct) -> {
             if (name.endsWith(LogFiles.LOG_GZ_FILE_SUFFIX) && (!taskName.isPresent() || name.startsWith(taskName.get()))) {
                 LogFileHandle handle = LogFiles.buildLogFileHandleFromFileName(name, size);
                 if (handle != null) {
@@ -100,10 +178,6 @@ public abstract class AbstractFileLogServer
                     }
                 }
             }
-        });
-
-        LogFiles.sortLogFileHandles(handles);
-
-        return handles;
+        };
     }
 }
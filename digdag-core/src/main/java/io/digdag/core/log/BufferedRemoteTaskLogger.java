@@ -1,34 +1,44 @@
 package io.digdag.core.log;
 
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.zip.GZIPOutputStream;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
-import java.time.Instant;
 import com.google.common.base.Throwables;
-import com.google.common.io.ByteStreams;
 import io.digdag.core.TempFileManager;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Locale.ENGLISH;
 
 public class BufferedRemoteTaskLogger
     implements TaskLogger
 {
     public static interface Uploader
     {
-        void upload(Instant firstLogTime, byte[] gzData);
+        void upload(Instant firstLogTime, Path gzFile)
+            throws IOException;
     }
 
-    private static final int UPLOAD_THRESHOLD = 16 * 1024 * 1024;
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss Z", ENGLISH)
+        .withZone(ZoneId.systemDefault());
 
     private final TempFileManager tempFiles;
     private final String tempFilePrefix;
     private final Uploader uploader;
+    private final LogUploadExecutor uploadExecutor;
+    private final long chunkSize;
+    private final long flushIntervalMillis;
+    private final ReentrantLock submitLock = new ReentrantLock();
+    private volatile CompletableFuture<?> lastUpload = CompletableFuture.completedFuture(null);
     private final ReentrantReadWriteLock lock;
     private final ReadLock logAppendLock;
     private final WriteLock logUploadLock;
@@ -36,14 +46,18 @@ public class BufferedRemoteTaskLogger
     private volatile boolean closed;
 
     public BufferedRemoteTaskLogger(TempFileManager tempFiles, String tempFilePrefix,
-            Uploader uploader)
+            Uploader uploader, LogUploadExecutor uploadExecutor)
     {
         this.tempFiles = tempFiles;
         this.tempFilePrefix = tempFilePrefix;
         this.uploader = uploader;
+        this.uploadExecutor = uploadExecutor;
+        this.chunkSize = uploadExecutor.getChunkSize();
+        this.flushIntervalMillis = uploadExecutor.getFlushIntervalMillis();
         this.lock = new ReentrantReadWriteLock();
         this.logAppendLock = lock.readLock();
         this.logUploadLock = lock.writeLock();
+        uploadExecutor.register(this);
     }
 
     @Override
@@ -62,7 +76,7 @@ public class BufferedRemoteTaskLogger
             try {
                 openCurrentFile();
                 currentFile.write(data, off, len);
-                if (currentFile.getUncompressedSize() > UPLOAD_THRESHOLD) {
+                if (currentFile.getUncompressedSize() > chunkSize) {
                     uploadAfterUnlock = true;
                 }
             }
@@ -70,7 +84,7 @@ public class BufferedRemoteTaskLogger
                 logAppendLock.unlock();
             }
             if (uploadAfterUnlock) {
-                tryUpload(false);
+                uploadChunk(false);
             }
         }
         catch (IOException ex) {
@@ -96,24 +110,56 @@ public class BufferedRemoteTaskLogger
         }
     }
 
-    private void tryUpload(boolean atClose)
+    // called by LogUploadExecutor periodically so that followers can read
+    // logs of long-running tasks before the task finishes.
+    void flushIfExpired(long nowMillis)
+        throws IOException
+    {
+        CountingLogOutputStream file = currentFile;
+        if (file != null && isExpired(file, nowMillis)) {
+            // this runs on the flusher thread shared by all loggers. it doesn't
+            // wait for a slot of the upload queue. if the queue is full, the
+            // chunk is kept and flushed by the next check.
+            if (uploadExecutor.tryAcquireSlot()) {
+                rotateAndSubmit(false, true);
+            }
+        }
+    }
+
+    private boolean isExpired(CountingLogOutputStream file, long nowMillis)
+    {
+        return flushIntervalMillis > 0 && nowMillis - file.getOpenTime().toEpochMilli() >= flushIntervalMillis;
+    }
+
+    private void uploadChunk(boolean atClose)
+        throws IOException
+    {
+        // waits for a slot before taking logUploadLock so that other threads
+        // can keep appending logs meanwhile.
+        boolean hasSlot = currentFile != null && uploadExecutor.acquireSlot();
+        rotateAndSubmit(atClose, hasSlot);
+    }
+
+    private void rotateAndSubmit(boolean atClose, boolean hasSlot)
         throws IOException
     {
+        Path path = null;
+        Instant firstLogTime = null;
+
+        // only rotation is done while holding the lock. upload runs in
+        // background so that log writers don't wait for remote storage.
         logUploadLock.lock();
         try {
-            if (currentFile != null && (atClose || currentFile.getUncompressedSize() > UPLOAD_THRESHOLD)) {
+            if (currentFile != null && (atClose ||
+                        currentFile.getUncompressedSize() > chunkSize ||
+                        isExpired(currentFile, System.currentTimeMillis()))) {
                 currentFile.close();
-                Path path = currentFile.getPath();
-                Instant firstLogTime = currentFile.getOpenTime();
+                path = currentFile.getPath();
+                firstLogTime = currentFile.getOpenTime();
                 currentFile = null;
-
-                byte[] gzData;
-                try (InputStream in = Files.newInputStream(path)) {
-                    gzData = ByteStreams.toByteArray(in);
-                }
-
-                uploader.upload(firstLogTime, gzData);
-                Files.deleteIfExists(path);
+                // taken before releasing logUploadLock so that another
+                // rotation can't submit its chunk before this one.
+                submitLock.lock();
             }
             if (atClose) {
                 closed = true;
@@ -122,17 +168,87 @@ public class BufferedRemoteTaskLogger
         finally {
             logUploadLock.unlock();
         }
+
+        if (path == null) {
+            // another thread rotated the chunk
+            if (hasSlot) {
+                uploadExecutor.releaseSlot();
+            }
+            return;
+        }
+
+        long droppedSize = -1;
+        try {
+            if (hasSlot) {
+                lastUpload = uploadExecutor.submit(uploader, firstLogTime, path, lastUpload);
+            }
+            else {
+                droppedSize = uploadExecutor.drop(path);
+            }
+        }
+        finally {
+            submitLock.unlock();
+        }
+
+        if (droppedSize >= 0 && !atClose) {
+            // record the gap in the task log itself so that readers know logs are missing
+            // the line doesn't trigger another rotation so that it can't loop
+            // while the queue is still full.
+            Instant now = Instant.now();
+            byte[] data = String.format(ENGLISH,
+                        "%s [WARN] (%s): Dropped task logs written since %s (%d bytes compressed) because the log upload queue was full%n",
+                        TIME_FORMATTER.format(now), Thread.currentThread().getName(),
+                        TIME_FORMATTER.format(firstLogTime), droppedSize)
+                .getBytes(UTF_8);
+            logAppendLock.lock();
+            try {
+                openCurrentFile();
+                currentFile.write(data, 0, data.length);
+            }
+            finally {
+                logAppendLock.unlock();
+            }
+        }
+    }
+
+    private void waitForPendingUploads()
+    {
+        // the flusher thread may have rotated the last chunk but not submitted
+        // it yet. submitLock is held until lastUpload is set.
+        CompletableFuture<?> upload;
+        submitLock.lock();
+        try {
+            upload = lastUpload;
+        }
+        finally {
+            submitLock.unlock();
+        }
+
+        // uploads are chained. completion of the last one means all are done.
+        try {
+            upload.get();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException ex) {
+            // LogUploadExecutor already counted and reported the failure
+        }
     }
 
     @Override
     public void close()
     {
         try {
-            tryUpload(true);
+            uploadChunk(true);
         }
         catch (IOException ex) {
             throw Throwables.propagate(ex);
         }
+        finally {
+            uploadExecutor.unregister(this);
+        }
+        waitForPendingUploads();
     }
 
     private static class CountingLogOutputStream
@@ -13,6 +13,7 @@ import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Files;
 import java.nio.file.DirectoryStream;
+import java.nio.file.NoSuchFileException;
 import com.google.inject.Inject;
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
@@ -24,6 +25,7 @@ import io.digdag.spi.LogFilePrefix;
 import io.digdag.spi.LogFileHandle;
 import io.digdag.spi.DirectDownloadHandle;
 import io.digdag.spi.DirectUploadHandle;
+import io.digdag.spi.Storage.UploadStreamProvider;
 import io.digdag.spi.StorageFileNotFoundException;
 import io.digdag.client.config.Config;
 import java.time.format.DateTimeFormatter;
@@ -31,6 +33,7 @@ import static java.util.Locale.ENGLISH;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 public class LocalFileLogServerFactory
     implements LogServerFactory
@@ -99,6 +102,19 @@ public class LocalFileLogServerFactory
             }
         }
 
+        @Override
+        protected void putFile(String dateDir, String attemptDir, String fileName,
+                long contentLength, UploadStreamProvider gzData)
+            throws IOException
+        {
+            Path dir = getPrefixDir(dateDir, attemptDir);
+            Files.createDirectories(dir);
+            Path path = dir.resolve(fileName);
+            try (InputStream in = gzData.open()) {
+                Files.copy(in, path, REPLACE_EXISTING);
+            }
+        }
+
         @Override
         protected void listFiles(String dateDir, String attemptDir, FileMetadataConsumer consumer)
         {
@@ -136,6 +152,22 @@ public class LocalFileLogServerFactory
             }
         }
 
+        @Override
+        protected InputStream openFile(String dateDir, String attemptDir, String fileName)
+            throws StorageFileNotFoundException
+        {
+            Path path = getPrefixDir(dateDir, attemptDir).resolve(fileName);
+            try {
+                return Files.newInputStream(path);
+            }
+            catch (NoSuchFileException ex) {
+                throw new StorageFileNotFoundException(ex);
+            }
+            catch (IOException ex) {
+                throw Throwables.propagate(ex);
+            }
+        }
+
         private Path getPrefixDir(String dateDir, String attemptDir)
         {
             return logPath.resolve(dateDir).resolve(attemptDir);
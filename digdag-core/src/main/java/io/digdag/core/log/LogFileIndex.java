@@ -0,0 +1,96 @@
+package io.digdag.core.log;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import io.digdag.spi.LogFileHandle;
+import io.digdag.spi.LogFilePrefix;
+
+/**
+ * Caches list of log files of an attempt so that repeated listing
+ * (e.g. UI refreshing the log view) doesn't list the storage every time.
+ *
+ * Entries are invalidated when a file is put through this server. Files
+ * uploaded by other servers or through direct upload URLs become visible
+ * after the TTL expires. Finished attempts rarely get new files, so they
+ * use a longer TTL. It should be shorter than expiration time of direct
+ * download URLs included in the handles.
+ */
+class LogFileIndex
+{
+    static final int DEFAULT_TTL = 10;
+    static final int DEFAULT_FINISHED_TTL = 300;
+    static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private static class Entry
+    {
+        private final List<LogFileHandle> handles;
+        private final long loadedAt;
+
+        Entry(List<LogFileHandle> handles, long loadedAt)
+        {
+            this.handles = handles;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final Cache<LogFilePrefix, Entry> cache;
+    private final long ttlMillis;
+    private final long finishedTtlMillis;
+
+    LogFileIndex(int ttlSeconds, int finishedTtlSeconds, int maxEntries)
+    {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.finishedTtlMillis = TimeUnit.SECONDS.toMillis(finishedTtlSeconds);
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterWrite(Math.max(ttlSeconds, finishedTtlSeconds), TimeUnit.SECONDS)
+            .build();
+    }
+
+    List<LogFileHandle> getFileHandles(LogFilePrefix prefix, boolean finished,
+            Supplier<List<LogFileHandle>> loader)
+    {
+        long now = System.currentTimeMillis();
+        long ttl = finished ? finishedTtlMillis : ttlMillis;
+
+        Entry entry = cache.getIfPresent(prefix);
+        if (entry == null || now - entry.loadedAt >= ttl) {
+            entry = new Entry(ImmutableList.copyOf(loader.get()), now);
+            if (ttl > 0) {
+                cache.put(prefix, entry);
+            }
+        }
+        return entry.handles;
+    }
+
+    Optional<List<LogFileHandle>> getCachedFileHandles(LogFilePrefix prefix, boolean finished)
+    {
+        long ttl = finished ? finishedTtlMillis : ttlMillis;
+        Entry entry = cache.getIfPresent(prefix);
+        if (entry == null || System.currentTimeMillis() - entry.loadedAt >= ttl) {
+            return Optional.absent();
+        }
+        return Optional.of(entry.handles);
+    }
+
+    void invalidate(LogFilePrefix prefix)
+    {
+        cache.invalidate(prefix);
+    }
+
+    static List<LogFileHandle> filterByTaskName(List<LogFileHandle> handles, Optional<String> taskName)
+    {
+        if (!taskName.isPresent()) {
+            return handles;
+        }
+        return handles.stream()
+            .filter(handle -> handle.getFileName().startsWith(taskName.get()))
+            .collect(Collectors.toList());
+    }
+}
@@ -6,6 +6,7 @@ import com.google.inject.Binder;
 import com.google.inject.Scopes;
 import com.google.inject.multibindings.Multibinder;
 import io.digdag.spi.LogServerFactory;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
 
 public class LogModule
         implements Module
@@ -14,9 +15,12 @@ public class LogModule
     public void configure(Binder binder)
     {
         binder.bind(LogServerManager.class).in(Scopes.SINGLETON);
+        binder.bind(LogUploadExecutor.class).in(Scopes.SINGLETON);
 
         Multibinder<LogServerFactory> logServerBinder = Multibinder.newSetBinder(binder, LogServerFactory.class);
         logServerBinder.addBinding().to(NullLogServerFactory.class).in(Scopes.SINGLETON);
         logServerBinder.addBinding().to(LocalFileLogServerFactory.class).in(Scopes.SINGLETON);
+
+        newExporter(binder).export(LogUploadExecutor.class).withGeneratedName();
     }
 }
@@ -1,14 +1,21 @@
 package io.digdag.core.log;
 
+import java.nio.file.Files;
+import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.stream.Collectors;
+import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import io.digdag.core.session.StoredSessionAttemptWithSession;
 import io.digdag.spi.LogServer;
 import io.digdag.spi.LogServerFactory;
 import io.digdag.spi.LogFilePrefix;
+import io.digdag.spi.LogFileHandle;
+import io.digdag.spi.DirectUploadHandle;
 import io.digdag.spi.Storage;
 import io.digdag.client.config.Config;
 import io.digdag.client.config.ConfigFactory;
@@ -27,10 +34,12 @@ public class LogServerManager
 
     private final LogServer logServer;
     private final TempFileManager tempFiles;
+    private final LogUploadExecutor uploadExecutor;
+    private final LogFileIndex fileIndex;
 
     @Inject
     public LogServerManager(Set<LogServerFactory> factories, Config systemConfig, TempFileManager tempFiles,
-            StorageManager storageManager)
+            StorageManager storageManager, LogUploadExecutor uploadExecutor)
     {
         String type = systemConfig.get("log-server.type", String.class, "null");
         LogServerFactory factory = findLogServer(factories, type);
@@ -41,6 +50,11 @@ public class LogServerManager
             this.logServer = factory.getLogServer();
         }
         this.tempFiles = tempFiles;
+        this.uploadExecutor = uploadExecutor;
+        this.fileIndex = new LogFileIndex(
+                systemConfig.get("log-server.file-index.ttl", int.class, LogFileIndex.DEFAULT_TTL),
+                systemConfig.get("log-server.file-index.finished-ttl", int.class, LogFileIndex.DEFAULT_FINISHED_TTL),
+                systemConfig.get("log-server.file-index.max-entries", int.class, LogFileIndex.DEFAULT_MAX_ENTRIES));
     }
 
     private static LogServerFactory findLogServer(Set<LogServerFactory> factories, String type)
@@ -75,6 +89,42 @@ public class LogServerManager
         return logServer;
     }
 
+    public String putFile(LogFilePrefix prefix, String taskName, Instant firstLogTime, String agentId, byte[] gzData)
+    {
+        String fileName = logServer.putFile(prefix, taskName, firstLogTime, agentId, gzData);
+        fileIndex.invalidate(prefix);
+        return fileName;
+    }
+
+    public Optional<DirectUploadHandle> getDirectUploadHandle(LogFilePrefix prefix, String taskName, Instant firstLogTime, String agentId)
+    {
+        // the agent will upload a file. cached list becomes stale.
+        fileIndex.invalidate(prefix);
+        return logServer.getDirectUploadHandle(prefix, taskName, firstLogTime, agentId);
+    }
+
+    public List<LogFileHandle> getFileHandles(LogFilePrefix prefix, boolean attemptFinished, Optional<String> taskName)
+    {
+        List<LogFileHandle> handles = fileIndex.getFileHandles(prefix, attemptFinished,
+                () -> logServer.getFileHandles(prefix, Optional.absent()));
+        return LogFileIndex.filterByTaskName(handles, taskName);
+    }
+
+    public List<LogFileHandle> getFileHandles(LogFilePrefix prefix, boolean attemptFinished, String taskName, String afterFileName)
+    {
+        Optional<List<LogFileHandle>> cached = fileIndex.getCachedFileHandles(prefix, attemptFinished);
+        if (cached.isPresent()) {
+            return cached.get().stream()
+                .filter(handle -> handle.getTaskName().equals(taskName))
+                .filter(handle -> handle.getFileName().compareTo(afterFileName) > 0)
+                .collect(Collectors.toList());
+        }
+        else {
+            // listing files after a name is cheap enough. doesn't populate the index
+            return logServer.getFileHandles(prefix, taskName, afterFileName);
+        }
+    }
+
     // this is called when server == agent (server runs a local agent).
     public TaskLogger newInProcessTaskLogger(AgentId agentId, LogFilePrefix prefix, String taskName)
     {
@@ -92,9 +142,12 @@ public class LogServerManager
                     .append(ISO8601_SHORT.format(prefix.getSessionTime())) // yyyyMMdd'T'HHmmss'Z'
                     .toString();
             return new BufferedRemoteTaskLogger(tempFiles, tempFilePrefix,
-                    (firstLogTime, gzData) -> {
-                        logServer.putFile(prefix, taskName, firstLogTime, agentId.toString(), gzData);
-                    });
+                    (firstLogTime, gzFile) -> {
+                        logServer.putFile(prefix, taskName, firstLogTime, agentId.toString(),
+                                Files.size(gzFile), () -> Files.newInputStream(gzFile));
+                        fileIndex.invalidate(prefix);
+                    },
+                    uploadExecutor);
         }
     }
 
@@ -0,0 +1,340 @@
+package io.digdag.core.log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import com.google.inject.Inject;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.digdag.client.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weakref.jmx.Managed;
+
+/**
+ * Uploads log chunks rotated by BufferedRemoteTaskLogger on background
+ * threads so that task threads writing logs don't wait for remote storage.
+ *
+ * A chunk is rotated when its uncompressed size exceeds chunk-size, or when
+ * flush-interval passes after its first log.
+ *
+ * Number of chunks waiting for upload is bounded. If the queue is full,
+ * writers wait until a slot becomes available (back-pressure). If it
+ * doesn't become available within max-wait, the chunk is dropped and a
+ * line saying so is written to the next chunk of the task log. The
+ * flusher thread is shared by all loggers and never waits; it leaves an
+ * expired chunk for the next check instead.
+ *
+ * Chunks of a logger are uploaded one by one in the order of rotation even
+ * though chunks of different loggers are uploaded in parallel. Followers
+ * list files after the last file name they have seen, and this ordering
+ * ensures that an earlier chunk never appears after a later one.
+ */
+public class LogUploadExecutor
+{
+    private static final Logger logger = LoggerFactory.getLogger(LogUploadExecutor.class);
+
+    static final int DEFAULT_UPLOAD_THREADS = 2;
+    static final int DEFAULT_QUEUE_SIZE = 64;
+    static final int DEFAULT_MAX_WAIT = 60;
+    static final long DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    static final int DEFAULT_FLUSH_INTERVAL = 30;
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService flusher;
+    private final Set<BufferedRemoteTaskLogger> activeLoggers = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+    private final long chunkSize;
+    private final long flushIntervalMillis;
+
+    private final AtomicLong pendingCount = new AtomicLong(0L);
+    private final AtomicLong uploadedCount = new AtomicLong(0L);
+    private final AtomicLong uploadedBytes = new AtomicLong(0L);
+    private final AtomicLong failedCount = new AtomicLong(0L);
+    private final AtomicLong droppedCount = new AtomicLong(0L);
+    private final AtomicLong droppedBytes = new AtomicLong(0L);
+    private final AtomicLong backPressureCount = new AtomicLong(0L);
+    private final AtomicLong backPressureMillis = new AtomicLong(0L);
+
+    @Inject
+    public LogUploadExecutor(Config systemConfig)
+    {
+        this(systemConfig.get("log-server.upload.threads", int.class, DEFAULT_UPLOAD_THREADS),
+                systemConfig.get("log-server.upload.queue-size", int.class, DEFAULT_QUEUE_SIZE),
+                systemConfig.get("log-server.upload.max-wait", int.class, DEFAULT_MAX_WAIT),
+                systemConfig.get("log-server.upload.chunk-size", long.class, DEFAULT_CHUNK_SIZE),
+                systemConfig.get("log-server.upload.flush-interval", int.class, DEFAULT_FLUSH_INTERVAL));
+    }
+
+    public LogUploadExecutor(int threads, int queueSize, int maxWaitSeconds,
+            long chunkSize, int flushIntervalSeconds)
+    {
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("log-upload-%d")
+                .build()
+                );
+        this.permits = new Semaphore(queueSize);
+        this.maxWaitMillis = TimeUnit.SECONDS.toMillis(maxWaitSeconds);
+        this.chunkSize = chunkSize;
+        this.flushIntervalMillis = TimeUnit.SECONDS.toMillis(flushIntervalSeconds);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("log-flush-%d")
+                .build()
+                );
+        if (flushIntervalMillis > 0) {
+            long checkInterval = Math.min(flushIntervalMillis, 1000L);
+            flusher.scheduleWithFixedDelay(() -> flushExpiredLoggers(),
+                    checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public long getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    public long getFlushIntervalMillis()
+    {
+        return flushIntervalMillis;
+    }
+
+    void register(BufferedRemoteTaskLogger taskLogger)
+    {
+        activeLoggers.add(taskLogger);
+    }
+
+    void unregister(BufferedRemoteTaskLogger taskLogger)
+    {
+        activeLoggers.remove(taskLogger);
+    }
+
+    private void flushExpiredLoggers()
+    {
+        long now = System.currentTimeMillis();
+        for (BufferedRemoteTaskLogger taskLogger : activeLoggers) {
+            try {
+                taskLogger.flushIfExpired(now);
+            }
+            catch (Exception ex) {
+                logger.warn("Failed to flush task logs", ex);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        flusher.shutdown();
+        executor.shutdown();
+        try {
+            // give pending chunks a chance to be uploaded
+            if (!executor.awaitTermination(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("{} log chunks were not uploaded before shutdown", pendingCount.get());
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reserves a slot of the upload queue for a chunk. If the queue is full,
+     * waits up to max-wait for a slot (back-pressure). Only threads writing
+     * task logs call this so that the shared flusher thread never waits.
+     *
+     * @return false if a slot didn't become available within max-wait
+     */
+    boolean acquireSlot()
+    {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        backPressureCount.incrementAndGet();
+        long start = System.currentTimeMillis();
+        try {
+            return permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally {
+            backPressureMillis.addAndGet(System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Reserves a slot of the upload queue without waiting.
+     *
+     * @return false if the queue is full
+     */
+    boolean tryAcquireSlot()
+    {
+        return permits.tryAcquire();
+    }
+
+    void releaseSlot()
+    {
+        permits.release();
+    }
+
+    /**
+     * Submits a gzip-compressed log chunk using a slot reserved by
+     * acquireSlot or tryAcquireSlot. This method doesn't block. The file is
+     * deleted after upload regardless of the result, and the slot is released.
+     * The upload starts after previous completes so that chunks of a logger
+     * are uploaded in order.
+     */
+    CompletableFuture<?> submit(BufferedRemoteTaskLogger.Uploader uploader, Instant firstLogTime, Path gzFile,
+            CompletableFuture<?> previous)
+    {
+        long size = fileSize(gzFile);
+
+        pendingCount.incrementAndGet();
+        Runnable task = () -> {
+            try {
+                upload(uploader, firstLogTime, gzFile, size);
+            }
+            finally {
+                pendingCount.decrementAndGet();
+                permits.release();
+            }
+        };
+
+        // failure of previous upload is already counted. it doesn't stop following chunks
+        return previous.handle((result, error) -> null)
+            .thenRunAsync(task, uploadExecutor());
+    }
+
+    /**
+     * Drops a chunk that couldn't get a slot of the upload queue.
+     *
+     * @return size of the dropped file
+     */
+    long drop(Path gzFile)
+    {
+        long size = fileSize(gzFile);
+        logger.warn("Log upload queue is full. Dropping a log chunk of {} bytes", size);
+        droppedCount.incrementAndGet();
+        droppedBytes.addAndGet(size);
+        deleteFile(gzFile);
+        return size;
+    }
+
+    private Executor uploadExecutor()
+    {
+        return (command) -> {
+            try {
+                executor.execute(command);
+            }
+            catch (RejectedExecutionException ex) {
+                // executor is already shut down. upload it on this thread not to lose logs
+                command.run();
+            }
+        };
+    }
+
+    private void upload(BufferedRemoteTaskLogger.Uploader uploader, Instant firstLogTime, Path gzFile, long size)
+    {
+        try {
+            uploader.upload(firstLogTime, gzFile);
+            uploadedCount.incrementAndGet();
+            uploadedBytes.addAndGet(size);
+        }
+        catch (Exception ex) {
+            // this thread doesn't have task context. logging here doesn't loop back to the task logger
+            logger.warn("Failed to upload a log chunk of {} bytes", size, ex);
+            failedCount.incrementAndGet();
+            droppedBytes.addAndGet(size);
+        }
+        finally {
+            deleteFile(gzFile);
+        }
+    }
+
+    private static long fileSize(Path path)
+    {
+        try {
+            return Files.size(path);
+        }
+        catch (IOException ex) {
+            return 0L;
+        }
+    }
+
+    private static void deleteFile(Path path)
+    {
+        try {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException ex) {
+            logger.warn("Failed to delete a temporary log file {}", path, ex);
+        }
+    }
+
+    @Managed
+    public long getPendingCount()
+    {
+        return pendingCount.get();
+    }
+
+    @Managed
+    public long getUploadedCount()
+    {
+        return uploadedCount.get();
+    }
+
+    @Managed
+    public long getUploadedBytes()
+    {
+        return uploadedBytes.get();
+    }
+
+    @Managed
+    public long getFailedCount()
+    {
+        return failedCount.get();
+    }
+
+    @Managed
+    public long getDroppedCount()
+    {
+        return droppedCount.get();
+    }
+
+    @Managed
+    public long getDroppedBytes()
+    {
+        return droppedBytes.get();
+    }
+
+    @Managed
+    public long getBackPressureCount()
+    {
+        return backPressureCount.get();
+    }
+
+    @Managed
+    public long getBackPressureMillis()
+    {
+        return backPressureMillis.get();
+    }
+}
@@ -4,13 +4,16 @@ import java.io.InputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.FileNotFoundException;
+import java.util.List;
 import com.google.common.io.ByteStreams;
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
 import io.digdag.spi.DirectDownloadHandle;
 import io.digdag.spi.DirectUploadHandle;
 import io.digdag.spi.Storage;
+import io.digdag.spi.Storage.UploadStreamProvider;
 import io.digdag.spi.StorageObject;
+import io.digdag.spi.StorageObjectSummary;
 import io.digdag.spi.StorageFileNotFoundException;
 
 public class StorageFileLogServer
@@ -51,6 +54,15 @@ public class StorageFileLogServer
         }
     }
 
+    @Override
+    protected void putFile(String dateDir, String attemptDir, String fileName,
+            long contentLength, UploadStreamProvider gzData)
+        throws IOException
+    {
+        String path = getPrefixDir(dateDir, attemptDir) + fileName;
+        storage.put(path, contentLength, gzData);
+    }
+
     @Override
     protected byte[] getFile(String dateDir, String attemptDir, String fileName)
         throws StorageFileNotFoundException
@@ -72,21 +84,40 @@ public class StorageFileLogServer
         }
     }
 
+    @Override
+    protected InputStream openFile(String dateDir, String attemptDir, String fileName)
+        throws StorageFileNotFoundException
+    {
+        String path = getPrefixDir(dateDir, attemptDir) + fileName;
+        return storage.open(path).getContentInputStream();
+    }
+
     @Override
     protected void listFiles(String dateDir, String attemptDir, FileMetadataConsumer consumer)
     {
         String dir = getPrefixDir(dateDir, attemptDir);
 
-        storage.list(dir, (chunk) -> {
-            chunk.forEach(meta -> {
-                    String key = meta.getKey();
-                    String fileName = key.substring(dir.length());
+        storage.list(dir, (chunk) -> acceptFiles(dir, chunk, consumer));
+    }
+
+    @Override
+    protected void listFiles(String dateDir, String attemptDir, String startAfterFileName, FileMetadataConsumer consumer)
+    {
+        String dir = getPrefixDir(dateDir, attemptDir);
+
+        storage.list(dir, dir + startAfterFileName, (chunk) -> acceptFiles(dir, chunk, consumer));
+    }
+
+    private void acceptFiles(String dir, List<StorageObjectSummary> chunk, FileMetadataConsumer consumer)
+    {
+        chunk.forEach(meta -> {
+                String key = meta.getKey();
+                String fileName = key.substring(dir.length());
 
-                    consumer.accept(
-                            fileName,
-                            meta.getContentLength(),
-                            directDownloadEnabled ? storage.getDirectDownloadHandle(key).orNull() : null);
-            });
+                consumer.accept(
+                        fileName,
+                        meta.getContentLength(),
+                        directDownloadEnabled ? storage.getDirectDownloadHandle(key).orNull() : null);
         });
     }
 }
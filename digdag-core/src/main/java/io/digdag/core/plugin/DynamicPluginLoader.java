@@ -3,6 +3,7 @@ package io.digdag.core.plugin;
 import java.util.function.Function;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.common.base.Throwables;
@@ -14,9 +15,14 @@ import com.google.inject.Injector;
 import com.google.inject.Guice;
 import com.google.inject.Stage;
 import io.digdag.spi.Plugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weakref.jmx.Managed;
 
 public class DynamicPluginLoader<R>
 {
+    private static final Logger logger = LoggerFactory.getLogger(DynamicPluginLoader.class);
+
     public static <R> DynamicPluginLoader<R> build(
             PluginLoader loader,
             Module restrictInjectModule,
@@ -33,6 +39,10 @@ public class DynamicPluginLoader<R>
     private final Function<PluginSet.WithInjector, R> cacheBuilder;
     private final Cache<Spec, R> cache;
 
+    private final AtomicLong loadCount = new AtomicLong(0L);
+    private final AtomicLong totalLoadMillis = new AtomicLong(0L);
+    private final AtomicLong lastLoadMillis = new AtomicLong(0L);
+
     private DynamicPluginLoader(
             PluginLoader loader,
             Module restrictInjectModule,
@@ -44,7 +54,9 @@ public class DynamicPluginLoader<R>
         this.cacheBuilder = cacheBuilder;
         this.cache = CacheBuilder.newBuilder()
             .maximumSize(maxCacheSize)
-            .expireAfterWrite(10, TimeUnit.MINUTES)
+            // loaded classes stay in memory while tasks use them. expiring
+            // by write time reloads plugins used constantly for no benefit.
+            .expireAfterAccess(10, TimeUnit.MINUTES)
             .build();
     }
 
@@ -63,8 +75,41 @@ public class DynamicPluginLoader<R>
 
     private R loadCache(Spec spec)
     {
+        long startTime = System.currentTimeMillis();
         PluginSet plugins = loader.load(spec);
-        return cacheBuilder.apply(plugins.withInjector(injector));
+        R result = cacheBuilder.apply(plugins.withInjector(injector));
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        loadCount.incrementAndGet();
+        totalLoadMillis.addAndGet(elapsed);
+        lastLoadMillis.set(elapsed);
+        logger.debug("Loaded plugins {} in {}ms", spec.getDependencies(), elapsed);
+
+        return result;
+    }
+
+    @Managed
+    public long getLoadCount()
+    {
+        return loadCount.get();
+    }
+
+    @Managed
+    public long getTotalLoadMillis()
+    {
+        return totalLoadMillis.get();
+    }
+
+    @Managed
+    public long getLastLoadMillis()
+    {
+        return lastLoadMillis.get();
+    }
+
+    @Managed
+    public long getCacheSize()
+    {
+        return cache.size();
     }
 
     private static Injector buildRestrictedInjector(Module module)
@@ -4,11 +4,19 @@ import java.util.List;
 import java.util.stream.Collectors;
 import java.util.ServiceConfigurationError;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
 import org.eclipse.aether.RepositorySystem;
@@ -27,11 +35,13 @@ import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.collection.CollectRequest;
 import org.eclipse.aether.graph.Dependency;
 import org.eclipse.aether.graph.DependencyFilter;
-import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.graph.DependencyNode;
 import org.eclipse.aether.resolution.DependencyRequest;
 import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.eclipse.aether.resolution.DependencyResult;
 import org.eclipse.aether.util.artifact.JavaScopes;
 import org.eclipse.aether.util.filter.DependencyFilterUtils;
+import org.eclipse.aether.version.VersionConstraint;
 
 import io.digdag.spi.Plugin;
 
@@ -39,6 +49,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static io.digdag.core.plugin.LocalPluginLoader.lookupPlugins;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class RemotePluginLoader
         implements PluginLoader
@@ -93,13 +104,22 @@ public class RemotePluginLoader
         return session;
     }
 
+    // Resolved classpath of a dependency is stored in this directory under
+    // the local repository so that loading the same plugin again (after
+    // restart or eviction from DynamicPluginLoader's cache) doesn't run
+    // dependency resolution, which reads all POM files and may access
+    // remote repositories.
+    private static final String CLASSPATH_CACHE_DIR = ".classpath-cache";
+
     private final RepositorySystem system;
     private final RepositorySystemSession session;
+    private final Path classpathCacheDir;
 
     public RemotePluginLoader(Path localRepositoryPath)
     {
         this.system = newRepositorySystem();
         this.session = newRepositorySystemSession(system, localRepositoryPath);
+        this.classpathCacheDir = localRepositoryPath.resolve(CLASSPATH_CACHE_DIR);
     }
 
     @Override
@@ -114,15 +134,14 @@ public class RemotePluginLoader
         List<RemoteRepository> repositories = getRepositories(spec);
 
         for (String dep : spec.getDependencies()) {
-            // download artifacts, and/or resolve local-repository references to them
             logger.debug("Loading plugin {}", dep);
-            List<ArtifactResult> artifactResults = resolveArtifacts(repositories, dep);
+            List<Path> classpath = resolveClasspath(repositories, dep);
 
             logger.debug("Classpath of plugin {}: {}", dep,
-                    artifactResults.stream().map(a -> a.getArtifact().getFile().toString())
+                    classpath.stream().map(Path::toString)
                     .collect(Collectors.joining(File.pathSeparator)));
 
-            ClassLoader pluginClassLoader = buildPluginClassLoader(artifactResults);
+            ClassLoader pluginClassLoader = buildPluginClassLoader(classpath);
             try {
                 List<Plugin> plugins = lookupPlugins(pluginClassLoader);
                 if (plugins.isEmpty()) {
@@ -140,13 +159,136 @@ public class RemotePluginLoader
         return new PluginSet(builder.build());
     }
 
-    private ClassLoader buildPluginClassLoader(List<ArtifactResult> artifactResults)
+    private List<Path> resolveClasspath(List<RemoteRepository> repositories, String dep)
+    {
+        Optional<Path> cacheFile = classpathCacheFile(repositories, dep);
+        if (cacheFile.isPresent()) {
+            Optional<List<Path>> cached = readClasspathCache(cacheFile.get());
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
+        // download artifacts, and/or resolve local-repository references to them
+        DependencyResult result = resolveArtifacts(repositories, dep);
+        List<Path> classpath = result.getArtifactResults()
+            .stream()
+            .map(artifactResult -> artifactResult.getArtifact().getFile().toPath().toAbsolutePath())
+            .collect(Collectors.toList());
+
+        if (cacheFile.isPresent()) {
+            if (isCacheable(result.getRoot())) {
+                writeClasspathCache(cacheFile.get(), classpath);
+            }
+            else {
+                logger.debug("Classpath of plugin {} is not cached because it depends on a SNAPSHOT or a version range", dep);
+            }
+        }
+        return classpath;
+    }
+
+    // A transitive dependency can be a SNAPSHOT or a version range even if
+    // the plugin itself has a fixed version. Such classpath may change later.
+    @VisibleForTesting
+    static boolean isCacheable(DependencyNode node)
+    {
+        Artifact artifact = node.getArtifact();
+        if (artifact != null && artifact.isSnapshot()) {
+            return false;
+        }
+        VersionConstraint constraint = node.getVersionConstraint();
+        if (constraint != null) {
+            if (constraint.getRange() != null) {
+                return false;
+            }
+            if (constraint.getVersion() != null && isMetaVersion(constraint.getVersion().toString())) {
+                return false;
+            }
+        }
+        for (DependencyNode child : node.getChildren()) {
+            if (!isCacheable(child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isMetaVersion(String version)
+    {
+        return version.equals("LATEST") || version.equals("RELEASE") || version.endsWith("SNAPSHOT");
+    }
+
+    @VisibleForTesting
+    Optional<Path> classpathCacheFile(List<RemoteRepository> repositories, String dep)
+    {
+        // SNAPSHOT, version ranges, LATEST and RELEASE may resolve to another
+        // version later. Those are resolved every time. Transitive
+        // dependencies are checked by isCacheable after resolution.
+        if (dep.contains("SNAPSHOT") || dep.contains("[") || dep.contains("(") ||
+                dep.endsWith(":LATEST") || dep.endsWith(":RELEASE")) {
+            return Optional.absent();
+        }
+
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (RemoteRepository repository : repositories) {
+            hasher.putString(repository.getUrl(), UTF_8).putByte((byte) 0);
+        }
+        hasher.putString(dep, UTF_8);
+        return Optional.of(classpathCacheDir.resolve(hasher.hash().toString()));
+    }
+
+    @VisibleForTesting
+    static Optional<List<Path>> readClasspathCache(Path cacheFile)
+    {
+        List<Path> classpath;
+        try {
+            classpath = Files.readAllLines(cacheFile, UTF_8)
+                .stream()
+                .filter(line -> !line.isEmpty())
+                .map(line -> new File(line).toPath())
+                .collect(Collectors.toList());
+        }
+        catch (NoSuchFileException ex) {
+            return Optional.absent();
+        }
+        catch (IOException ex) {
+            logger.warn("Failed to read classpath cache file {}", cacheFile, ex);
+            return Optional.absent();
+        }
+
+        // resolve again if files are removed from the local repository
+        if (classpath.isEmpty() || !classpath.stream().allMatch(Files::isRegularFile)) {
+            return Optional.absent();
+        }
+        return Optional.of(classpath);
+    }
+
+    @VisibleForTesting
+    static void writeClasspathCache(Path cacheFile, List<Path> classpath)
+    {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmp, classpath.stream().map(Path::toString).collect(Collectors.toList()), UTF_8);
+                Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        catch (IOException ex) {
+            logger.warn("Failed to write classpath cache file {}", cacheFile, ex);
+        }
+    }
+
+    private ClassLoader buildPluginClassLoader(List<Path> classpath)
     {
         ImmutableList.Builder<URL> urls = ImmutableList.builder();
-        for (ArtifactResult artifactResult : artifactResults) {
+        for (Path path : classpath) {
             URL url;
             try {
-                url = artifactResult.getArtifact().getFile().toPath().toUri().toURL();
+                url = path.toUri().toURL();
             }
             catch (MalformedURLException ex) {
                 throw Throwables.propagate(ex);
@@ -157,11 +299,11 @@ public class RemotePluginLoader
                 PARENT_FIRST_PACKAGES, PARENT_FIRST_RESOURCES);
     }
 
-    private List<ArtifactResult> resolveArtifacts(List<RemoteRepository> repositories, String dep)
+    private DependencyResult resolveArtifacts(List<RemoteRepository> repositories, String dep)
     {
         DependencyRequest depRequest = buildDependencyRequest(repositories, dep, JavaScopes.RUNTIME);
         try {
-            return system.resolveDependencies(session, depRequest).getArtifactResults();
+            return system.resolveDependencies(session, depRequest);
         }
         catch (DependencyResolutionException ex) {
             throw Throwables.propagate(ex);
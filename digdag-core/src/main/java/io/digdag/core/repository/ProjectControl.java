@@ -6,7 +6,6 @@ import java.util.Map;
 import java.time.Instant;
 import com.google.common.collect.ImmutableList;
 import com.google.common.base.Optional;
-import com.google.common.base.Throwables;
 import io.digdag.client.config.Config;
 import io.digdag.core.schedule.Schedule;
 import io.digdag.core.schedule.ScheduleStoreManager;
@@ -15,7 +14,6 @@ import io.digdag.core.schedule.ScheduleExecutor;
 import io.digdag.client.config.ConfigException;
 import io.digdag.spi.ScheduleTime;
 import io.digdag.spi.Scheduler;
-import java.util.stream.Collectors;
 
 public class ProjectControl
 {
@@ -76,22 +74,7 @@ public class ProjectControl
             StoredRevision revision, List<WorkflowDefinition> defs)
         throws ResourceConflictException
     {
-        try {
-            return defs.stream()
-                .map(def -> {
-                    try {
-                        return store.insertWorkflowDefinition(project.getId(), revision.getId(), def, def.getTimeZone());
-                    }
-                    catch (ResourceConflictException ex) {
-                        throw new IllegalStateException("Database state error", ex);
-                    }
-                })
-                .collect(Collectors.toList());
-        }
-        catch (IllegalStateException ex) {
-            Throwables.propagateIfInstanceOf(ex.getCause(), ResourceConflictException.class);
-            throw ex;
-        }
+        return store.insertWorkflowDefinitions(project.getId(), revision.getId(), defs);
     }
 
     private void updateSchedules(
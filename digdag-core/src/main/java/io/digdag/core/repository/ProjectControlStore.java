@@ -19,6 +19,9 @@ public interface ProjectControlStore
     StoredWorkflowDefinition insertWorkflowDefinition(int projId, int revId, WorkflowDefinition workflow, ZoneId workflowTimeZone)
         throws ResourceConflictException;
 
+    List<StoredWorkflowDefinition> insertWorkflowDefinitions(int projId, int revId, List<WorkflowDefinition> workflows)
+        throws ResourceConflictException;
+
     interface ScheduleUpdateAction <T extends Schedule>
     {
         ScheduleTime apply(ScheduleStatus oldStatus, T newSchedule);
@@ -1,5 +1,7 @@
 package io.digdag.core.repository;
 
+import java.util.List;
+
 public interface ProjectStoreManager
 {
     ProjectStore getProjectStore(int siteId);
@@ -8,6 +10,10 @@ public interface ProjectStoreManager
     StoredWorkflowDefinitionWithProject getWorkflowDetailsById(long wfId)
         throws ResourceNotFoundException;
 
+    // used by ScheduleExecutor to fetch workflows of a batch of schedules at once.
+    // workflows that don't exist are not included in the result.
+    List<StoredWorkflowDefinitionWithProject> getWorkflowDetailsByIdList(List<Long> wfIdList);
+
     StoredProject getProjectByIdInternal(int projId)
         throws ResourceNotFoundException;
 
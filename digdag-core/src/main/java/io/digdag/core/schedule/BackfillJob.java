@@ -0,0 +1,76 @@
+package io.digdag.core.schedule;
+
+import java.time.Instant;
+import com.google.common.base.Optional;
+import org.immutables.value.Value;
+
+/**
+ * Progress of a backfill started by ScheduleExecutor.startBackfill.
+ *
+ * Backfill jobs are stored in the database. Attempts of a chunk and the
+ * progress of the job are committed in the same transaction, so any server
+ * can continue a job after restart of the server that was running it.
+ */
+@Value.Immutable
+public abstract class BackfillJob
+{
+    public enum Status
+    {
+        RUNNING(0),
+        SUCCESS(1),
+        ERROR(2);
+
+        private final short code;
+
+        Status(int code)
+        {
+            this.code = (short) code;
+        }
+
+        public short get()
+        {
+            return code;
+        }
+
+        public static Status of(short code)
+        {
+            for (Status status : values()) {
+                if (status.code == code) {
+                    return status;
+                }
+            }
+            throw new IllegalArgumentException("Unknown backfill job status code: " + code);
+        }
+    }
+
+    public abstract long getId();
+
+    public abstract int getSiteId();
+
+    public abstract int getScheduleId();
+
+    public abstract String getAttemptName();
+
+    public abstract Instant getFromTime();
+
+    public abstract int getTotal();
+
+    public abstract int getSubmitted();
+
+    public abstract Optional<Long> getLastSessionId();
+
+    public abstract Optional<Instant> getLastSessionTime();
+
+    public abstract Status getStatus();
+
+    public abstract Optional<String> getError();
+
+    public abstract Instant getNextRunTime();
+
+    // time when the job submitted attempts last time, or created
+    public abstract Instant getLastSubmittedAt();
+
+    public abstract Instant getCreatedAt();
+
+    public abstract Optional<Instant> getFinishedAt();
+}
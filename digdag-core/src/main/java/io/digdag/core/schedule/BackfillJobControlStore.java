@@ -0,0 +1,13 @@
+package io.digdag.core.schedule;
+
+import java.time.Instant;
+import com.google.common.base.Optional;
+
+public interface BackfillJobControlStore
+{
+    void addSubmittedAttempts(long jobId, int count, long lastSessionId, Instant lastSessionTime, Instant currentTime);
+
+    void delayBackfillJob(long jobId, Instant nextRunTime);
+
+    void finishBackfillJob(long jobId, BackfillJob.Status status, Optional<String> error);
+}
@@ -9,6 +9,7 @@ import com.google.inject.Inject;
 import io.digdag.client.config.Config;
 import io.digdag.core.BackgroundExecutor;
 import io.digdag.core.ErrorReporter;
+import io.digdag.core.Limits;
 import io.digdag.core.database.TransactionManager;
 import io.digdag.core.repository.ProjectStoreManager;
 import io.digdag.core.repository.ResourceConflictException;
@@ -22,6 +23,7 @@ import io.digdag.core.workflow.AttemptRequest;
 import io.digdag.core.workflow.SessionAttemptConflictException;
 import io.digdag.core.workflow.TaskLimitExceededException;
 import io.digdag.core.workflow.WorkflowExecutor;
+import io.digdag.core.workflow.WorkflowSubmitter;
 import io.digdag.core.session.DelayedAttemptControlStore;
 import io.digdag.core.session.Session;
 import io.digdag.core.session.AttemptStateFlags;
@@ -39,17 +41,25 @@ import io.digdag.client.config.ConfigFactory;
 import io.digdag.util.DurationParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.weakref.jmx.Managed;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static java.util.Locale.ENGLISH;
 
@@ -58,6 +68,15 @@ public class ScheduleExecutor
 {
     private static final Logger logger = LoggerFactory.getLogger(ScheduleExecutor.class);
 
+    static final int DEFAULT_BATCH_SIZE = 1;
+    static final int DEFAULT_THREADS = 1;
+    static final int DEFAULT_BACKFILL_THREADS = 1;
+    static final int DEFAULT_BACKFILL_CHUNK_SIZE = 100;
+    // backfill jobs wait for this time when there're too many active attempts
+    static final int DEFAULT_BACKFILL_WAIT_INTERVAL = 10;
+    // backfill jobs fail if they can't submit attempts for this time
+    static final int DEFAULT_BACKFILL_MAX_WAIT = 24 * 60 * 60;
+
     private final ProjectStoreManager rm;
     private final ScheduleStoreManager sm;
     private final SchedulerManager srm;
@@ -66,7 +85,19 @@ public class ScheduleExecutor
     private final AttemptBuilder attemptBuilder;
     private final WorkflowExecutor workflowExecutor;
     private final ConfigFactory cf;
+    private final int batchSize;
+    private final int threads;
+    private final int backfillThreads;
+    private final int backfillChunkSize;
+    private final long backfillMaxActiveAttempts;
+    private final long backfillWaitMillis;
+    private final long backfillMaxWaitMillis;
     private ScheduledExecutorService executor;
+    private ScheduledExecutorService backfillExecutor;
+
+    private final AtomicLong firedCount = new AtomicLong(0L);
+    private final AtomicLong totalLagMillis = new AtomicLong(0L);
+    private final AtomicLong lastLagMillis = new AtomicLong(0L);
 
     @Inject(optional = true)
     private ErrorReporter errorReporter = ErrorReporter.empty();
@@ -80,7 +111,8 @@ public class ScheduleExecutor
             SessionStoreManager sessionStoreManager,
             AttemptBuilder attemptBuilder,
             WorkflowExecutor workflowExecutor,
-            ConfigFactory cf)
+            ConfigFactory cf,
+            Config systemConfig)
     {
         this.rm = rm;
         this.sm = sm;
@@ -90,13 +122,35 @@ public class ScheduleExecutor
         this.attemptBuilder = attemptBuilder;
         this.workflowExecutor = workflowExecutor;
         this.cf = cf;
+        this.batchSize = systemConfig.get("schedule.batch_size", int.class, DEFAULT_BATCH_SIZE);
+        this.threads = systemConfig.get("schedule.threads", int.class, DEFAULT_THREADS);
+        this.backfillThreads = systemConfig.get("schedule.backfill.threads", int.class, DEFAULT_BACKFILL_THREADS);
+        this.backfillChunkSize = systemConfig.get("schedule.backfill.chunk_size", int.class, DEFAULT_BACKFILL_CHUNK_SIZE);
+        this.backfillMaxActiveAttempts = systemConfig.get("schedule.backfill.max_active_attempts", long.class, Limits.maxAttempts() / 2);
+        this.backfillWaitMillis = TimeUnit.SECONDS.toMillis(
+                systemConfig.get("schedule.backfill.wait_interval", int.class, DEFAULT_BACKFILL_WAIT_INTERVAL));
+        this.backfillMaxWaitMillis = TimeUnit.SECONDS.toMillis(
+                systemConfig.get("schedule.backfill.max_wait", int.class, DEFAULT_BACKFILL_MAX_WAIT));
+    }
+
+    public ScheduleExecutor(
+            ProjectStoreManager rm,
+            ScheduleStoreManager sm,
+            SchedulerManager srm,
+            TransactionManager tm,
+            SessionStoreManager sessionStoreManager,
+            AttemptBuilder attemptBuilder,
+            WorkflowExecutor workflowExecutor,
+            ConfigFactory cf)
+    {
+        this(rm, sm, srm, tm, sessionStoreManager, attemptBuilder, workflowExecutor, cf, cf.create());
     }
 
     @PostConstruct
     public synchronized void start()
     {
         if (executor == null) {
-            executor = Executors.newScheduledThreadPool(1,
+            executor = Executors.newScheduledThreadPool(threads + 1,
                     new ThreadFactoryBuilder()
                     .setDaemon(true)
                     .setNameFormat("scheduler-%d")
@@ -104,11 +158,30 @@ public class ScheduleExecutor
                     );
         }
         // TODO make interval configurable?
-        executor.scheduleWithFixedDelay(() -> runSchedules(),
-                1, 1, TimeUnit.SECONDS);
+        // Threads don't wait for each other because schedules locked by
+        // another thread are skipped (on PostgreSQL).
+        for (int i = 0; i < threads; i++) {
+            executor.scheduleWithFixedDelay(() -> runSchedules(),
+                    1, 1, TimeUnit.SECONDS);
+        }
         // TODO make interval configurable?
         executor.scheduleWithFixedDelay(() -> runDelayedAttempts(),
                 1, 1, TimeUnit.SECONDS);
+
+        if (backfillExecutor == null) {
+            backfillExecutor = Executors.newScheduledThreadPool(backfillThreads,
+                    new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("backfill-%d")
+                    .build()
+                    );
+        }
+        // A waiting job doesn't occupy a thread. It's locked again by
+        // any thread (or server) after its next run time.
+        for (int i = 0; i < backfillThreads; i++) {
+            backfillExecutor.scheduleWithFixedDelay(() -> runBackfillJobs(),
+                    1, 1, TimeUnit.SECONDS);
+        }
     }
 
     @PreDestroy
@@ -119,6 +192,10 @@ public class ScheduleExecutor
             // TODO wait for shutdown completion?
             executor = null;
         }
+        if (backfillExecutor != null) {
+            backfillExecutor.shutdown();
+            backfillExecutor = null;
+        }
     }
 
     @Override
@@ -147,16 +224,87 @@ public class ScheduleExecutor
     @VisibleForTesting
     boolean runScheduleOnce(Instant now)
     {
+        if (batchSize > 1) {
+            return runScheduleBatchOnce(now);
+        }
+
         int count = tm.begin(() -> {
             // here uses limit=1 because selecting multiple rows with FOR UPDATE
             // has risk of too often deadlock.
             return sm.lockReadySchedules(now, 1, (store, storedSchedule) -> {
-                runSchedule(new ScheduleControl(store, storedSchedule), now);
+                runSchedule(new ScheduleControl(store, storedSchedule), now, Optional.absent());
             });
         });
         return count > 0;
     }
 
+    private boolean runScheduleBatchOnce(Instant now)
+    {
+        List<Integer> lockedIds = new ArrayList<>();
+
+        // Locks multiple schedules in a transaction. Rows are locked in the
+        // order of id so that it doesn't deadlock with other threads.
+        int count;
+        try {
+            count = tm.begin(() -> {
+                return sm.lockReadyScheduleBatch(now, batchSize, (store, schedules) -> {
+                    schedules.forEach(sched -> lockedIds.add(sched.getId()));
+
+                    Map<Long, StoredWorkflowDefinitionWithProject> defs = rm.getWorkflowDetailsByIdList(
+                            schedules.stream()
+                            .map(sched -> sched.getWorkflowDefinitionId())
+                            .distinct()
+                            .collect(Collectors.toList()))
+                        .stream()
+                        .collect(Collectors.toMap(def -> def.getId(), def -> def));
+
+                    // An error aborts the transaction on PostgreSQL. It rolls back
+                    // the whole batch and the schedules are retried one by one below.
+                    for (StoredSchedule sched : schedules) {
+                        runSchedule(new ScheduleControl(store, sched), now,
+                                Optional.fromNullable(defs.get(sched.getWorkflowDefinitionId())));
+                    }
+                });
+            });
+        }
+        catch (RuntimeException ex) {
+            if (lockedIds.isEmpty()) {
+                throw ex;
+            }
+            logger.warn("Failed to run a batch of {} schedules. Retrying them one by one.", lockedIds.size(), ex);
+            runSchedulesOneByOne(lockedIds, now);
+            return true;
+        }
+
+        return count > 0;
+    }
+
+    private void runSchedulesOneByOne(List<Integer> schedIds, Instant now)
+    {
+        List<RuntimeException> exceptions = new ArrayList<>();
+
+        for (int schedId : schedIds) {
+            try {
+                tm.begin(() -> {
+                    return sm.lockReadyScheduleById(schedId, now, (store, sched) -> {
+                        runSchedule(new ScheduleControl(store, sched), now, Optional.absent());
+                    });
+                });
+            }
+            catch (RuntimeException ex) {
+                exceptions.add(ex);
+            }
+        }
+
+        if (!exceptions.isEmpty()) {
+            RuntimeException first = exceptions.get(0);
+            for (RuntimeException ex : exceptions.subList(1, exceptions.size())) {
+                first.addSuppressed(ex);
+            }
+            throw first;
+        }
+    }
+
     private void runDelayedAttempts()
     {
         runDelayedAttempts(Instant.now());
@@ -179,10 +327,16 @@ public class ScheduleExecutor
         }
     }
 
-    private void runSchedule(ScheduleControl lockedSched, Instant now)
+    private void runSchedule(ScheduleControl lockedSched, Instant now,
+            Optional<StoredWorkflowDefinitionWithProject> prefetchedDef)
     {
         StoredSchedule sched = lockedSched.get();
 
+        long lag = Math.max(0L, Instant.now().toEpochMilli() - sched.getNextRunTime().toEpochMilli());
+        firedCount.incrementAndGet();
+        totalLagMillis.addAndGet(lag);
+        lastLagMillis.set(lag);
+
         // TODO If a workflow has wait-until-last-schedule attribute, don't start
         //      new session and return a ScheduleTime with delayed nextRunTime and
         //      same nextScheduleTime
@@ -191,10 +345,13 @@ public class ScheduleExecutor
         Instant successfulSessionTime = null;
 
         try {
-            StoredWorkflowDefinitionWithProject def = rm.getWorkflowDetailsById(sched.getWorkflowDefinitionId());
-
-            SessionStore ss = sessionStoreManager.getSessionStore(def.getProject().getSiteId());
-            List<StoredSessionAttemptWithSession> activeAttempts = ss.getActiveAttemptsOfWorkflow(def.getProject().getId(), def.getName(), 1, Optional.absent());
+            StoredWorkflowDefinitionWithProject def;
+            if (prefetchedDef.isPresent()) {
+                def = prefetchedDef.get();
+            }
+            else {
+                def = rm.getWorkflowDetailsById(sched.getWorkflowDefinitionId());
+            }
 
             Scheduler sr = srm.getScheduler(def);
 
@@ -207,7 +364,7 @@ public class ScheduleExecutor
                 logger.info("Now={} is too late from scheduled time={}. It's over skip_delayed_by={}. Skipping this schedule: {}", now, sched.getNextScheduleTime(), skipDelay.get(), sched);
                 nextSchedule = sr.nextScheduleTime(sched.getNextScheduleTime());
             }
-            else if (!activeAttempts.isEmpty() && skipOnOvertime) {
+            else if (skipOnOvertime && hasActiveAttempts(def)) {
                 logger.info("An attempt of the scheduled workflow is still running and skip_on_overtime = true. Skipping this schedule: {}", sched);
                 nextSchedule = sr.nextScheduleTime(sched.getNextScheduleTime());
             }
@@ -256,6 +413,13 @@ public class ScheduleExecutor
         }
     }
 
+    private boolean hasActiveAttempts(StoredWorkflowDefinitionWithProject def)
+    {
+        SessionStore ss = sessionStoreManager.getSessionStore(def.getProject().getSiteId());
+        List<StoredSessionAttemptWithSession> activeAttempts = ss.getActiveAttemptsOfWorkflow(def.getProject().getId(), def.getName(), 1, Optional.absent());
+        return !activeAttempts.isEmpty();
+    }
+
     @VisibleForTesting
     ScheduleTime startSchedule(StoredSchedule sched, Scheduler sr,
             StoredWorkflowDefinitionWithProject def)
@@ -364,51 +528,14 @@ public class ScheduleExecutor
 
         return sm.getScheduleStore(siteId).lockScheduleById(schedId, (store, sched) -> {
             StoredWorkflowDefinitionWithProject def = rm.getWorkflowDetailsById(sched.getWorkflowDefinitionId());
-            Scheduler sr = srm.getScheduler(def);
 
-            boolean useCount = count.isPresent();
-            int remaining = count.or(0);
-
-            List<Instant> instants = new ArrayList<>();
-            Instant time = sr.getFirstScheduleTime(fromTime).getTime();
-            while (time.isBefore(sched.getNextScheduleTime())) {
-                if (useCount) {
-                    if (remaining <= 0) {
-                        break;
-                    }
-                    remaining--;
-                }
-                instants.add(time);
-                time = sr.nextScheduleTime(time).getTime();
-            }
-
-            if (useCount && remaining > 0) {
-                throw new IllegalArgumentException(String.format(ENGLISH,
-                        "count is set to %d but there are only %d attempts until the next schedule time",
-                        count.get(), count.get() - remaining));
-            }
-
-            // confirm sessions with the same attemptName doesn't exist
-            for (Instant instant : instants) {
-                try {
-                    ss.getAttemptByName(def.getProject().getId(), def.getName(), instant, attemptName);
-                    throw new ResourceConflictException(String.format(Locale.ENGLISH,
-                                "Attempt of project id=%d workflow=%s instant=%s attempt name=%s already exists",
-                                def.getProject().getId(), def.getName(), instant, attemptName));
-                }
-                catch (ResourceNotFoundException ex) {
-                    // OK
-                }
-            }
+            List<Instant> instants = getBackfillTimes(ss, sched, def, fromTime, attemptName, count);
 
             // run sessions
             return workflowExecutor.submitTransaction(siteId, (submitter) -> {
-                ImmutableList.Builder<StoredSessionAttemptWithSession> attempts = ImmutableList.builder();
-
-                Optional<StoredSessionAttemptWithSession> lastAttempt = Optional.absent();
-
-                for (Instant instant : instants) {
-                    if (dryRun) {
+                if (dryRun) {
+                    ImmutableList.Builder<StoredSessionAttemptWithSession> attempts = ImmutableList.builder();
+                    for (Instant instant : instants) {
                         attempts.add(
                                 StoredSessionAttemptWithSession.dryRunDummy(siteId,
                                     Session.of(def.getProject().getId(), def.getName(), instant),
@@ -427,29 +554,235 @@ public class ScheduleExecutor
                                 )
                             );
                     }
-                    else {
-                        Optional<Instant> lastExecutedSessionTime =
-                            lastAttempt
-                            .transform(a -> a.getSession().getSessionTime());
-                        if (!lastExecutedSessionTime.isPresent()) {
-                            lastExecutedSessionTime = submitter.getLastExecutedSessionTime(
-                                    sched.getProjectId(), sched.getWorkflowName(), instant);
-                        }
-                        AttemptRequest ar = newAttemptRequest(
-                                def, ScheduleTime.of(instant, sched.getNextScheduleTime()),
-                                Optional.of(attemptName), lastExecutedSessionTime);
-                        StoredSessionAttemptWithSession attempt =
-                            submitter.submitDelayedAttempt(ar, lastAttempt.transform(a -> a.getSessionId()));
-                        lastAttempt = Optional.of(attempt);
-                        attempts.add(attempt);
-                    }
+                    return attempts.build();
+                }
+                else {
+                    return submitBackfillAttempts(submitter, sched, def, instants, attemptName,
+                            Optional.absent(), Optional.absent());
                 }
-
-                return attempts.build();
             });
         });
     }
 
+    /**
+     * Starts a backfill in background and returns immediately.
+     *
+     * Unlike backfill, attempts are submitted in chunks of
+     * schedule.backfill.chunk_size in separated transactions. A chunk is
+     * submitted only when number of active attempts of the site is less than
+     * schedule.backfill.max_active_attempts so that a long backfill doesn't
+     * reach the attempt limit and starve schedules and other attempts. The job
+     * fails if no chunk can be submitted for schedule.backfill.max_wait seconds.
+     *
+     * The job is stored in the database and run by schedule.backfill.threads
+     * threads of any server. Progress of a chunk is committed together with
+     * its attempts, so a job continues after restart of a server.
+     */
+    public BackfillJob startBackfill(int siteId, int schedId, Instant fromTime, String attemptName, Optional<Integer> count)
+        throws ResourceNotFoundException, ResourceConflictException, ResourceLimitExceededException
+    {
+        SessionStore ss = sessionStoreManager.getSessionStore(siteId);
+
+        return sm.getScheduleStore(siteId).lockScheduleById(schedId, (store, sched) -> {
+            StoredWorkflowDefinitionWithProject def = rm.getWorkflowDetailsById(sched.getWorkflowDefinitionId());
+
+            List<Instant> instants = getBackfillTimes(ss, sched, def, fromTime, attemptName, count);
+
+            BackfillJob job = sm.getScheduleStore(siteId).insertBackfillJob(schedId, attemptName, fromTime, instants.size(), Instant.now());
+            logger.info("Started backfill job {} of schedule id={}: {} attempts from {}",
+                    job.getId(), sched.getId(), instants.size(), instants.isEmpty() ? null : instants.get(0));
+            return job;
+        });
+    }
+
+    public BackfillJob getBackfillJob(int siteId, long jobId)
+        throws ResourceNotFoundException
+    {
+        return sm.getScheduleStore(siteId).getBackfillJobById(jobId);
+    }
+
+    private List<Instant> getBackfillTimes(SessionStore ss, StoredSchedule sched, StoredWorkflowDefinitionWithProject def,
+            Instant fromTime, String attemptName, Optional<Integer> count)
+        throws ResourceConflictException
+    {
+        Scheduler sr = srm.getScheduler(def);
+
+        boolean useCount = count.isPresent();
+        int remaining = count.or(0);
+
+        List<Instant> instants = new ArrayList<>();
+        Instant time = sr.getFirstScheduleTime(fromTime).getTime();
+        while (time.isBefore(sched.getNextScheduleTime())) {
+            if (useCount) {
+                if (remaining <= 0) {
+                    break;
+                }
+                remaining--;
+            }
+            instants.add(time);
+            time = sr.nextScheduleTime(time).getTime();
+        }
+
+        if (useCount && remaining > 0) {
+            throw new IllegalArgumentException(String.format(ENGLISH,
+                    "count is set to %d but there are only %d attempts until the next schedule time",
+                    count.get(), count.get() - remaining));
+        }
+
+        // confirm sessions with the same attemptName doesn't exist
+        if (!instants.isEmpty()) {
+            List<Instant> existing = ss.getSessionTimesOfAttemptName(def.getProject().getId(), def.getName(),
+                    instants.get(0), instants.get(instants.size() - 1), attemptName);
+            Set<Instant> conflicts = new HashSet<>(existing);
+            for (Instant instant : instants) {
+                if (conflicts.contains(instant)) {
+                    throw new ResourceConflictException(String.format(Locale.ENGLISH,
+                                "Attempt of project id=%d workflow=%s instant=%s attempt name=%s already exists",
+                                def.getProject().getId(), def.getName(), instant, attemptName));
+                }
+            }
+        }
+
+        return instants;
+    }
+
+    private List<StoredSessionAttemptWithSession> submitBackfillAttempts(WorkflowSubmitter submitter,
+            StoredSchedule sched, StoredWorkflowDefinitionWithProject def,
+            List<Instant> instants, String attemptName,
+            Optional<Long> lastSessionId, Optional<Instant> lastSessionTime)
+        throws ResourceNotFoundException, AttemptLimitExceededException, SessionAttemptConflictException
+    {
+        if (instants.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        Optional<Instant> lastExecutedSessionTime = lastSessionTime;
+        if (!lastExecutedSessionTime.isPresent()) {
+            lastExecutedSessionTime = submitter.getLastExecutedSessionTime(
+                    sched.getProjectId(), sched.getWorkflowName(), instants.get(0));
+        }
+
+        List<AttemptRequest> requests = new ArrayList<>();
+        for (Instant instant : instants) {
+            requests.add(newAttemptRequest(
+                    def, ScheduleTime.of(instant, sched.getNextScheduleTime()),
+                    Optional.of(attemptName), lastExecutedSessionTime));
+            lastExecutedSessionTime = Optional.of(instant);
+        }
+
+        return submitter.submitDelayedAttempts(def.getProject().getId(), requests, lastSessionId);
+    }
+
+    private void runBackfillJobs()
+    {
+        try {
+            while (runBackfillJobOnce(Instant.now()))
+                ;  // repeat while jobs make progress
+        }
+        catch (Throwable t) {
+            logger.error("An uncaught exception is ignored. Backfill jobs will be retried.", t);
+            errorReporter.reportUncaughtError(t);
+        }
+    }
+
+    /**
+     * Locks a ready backfill job and submits a chunk of it.
+     *
+     * Returns true if the job submitted attempts or finished. Returns false
+     * if no jobs are ready or the job has to wait for active attempts.
+     */
+    @VisibleForTesting
+    boolean runBackfillJobOnce(Instant now)
+    {
+        AtomicReference<BackfillJob> lockedJob = new AtomicReference<>();
+        AtomicBoolean progressed = new AtomicBoolean(false);
+        try {
+            tm.<Boolean, ResourceNotFoundException, ResourceConflictException, ResourceLimitExceededException>begin(() -> {
+                return sm.lockReadyBackfillJob(now, (store, job) -> {
+                    lockedJob.set(job);
+                    progressed.set(runBackfillJob(store, job, now));
+                });
+            }, ResourceNotFoundException.class, ResourceConflictException.class, ResourceLimitExceededException.class);
+            return progressed.get();
+        }
+        catch (Exception ex) {
+            BackfillJob job = lockedJob.get();
+            if (job == null) {
+                throw Throwables.propagate(ex);
+            }
+            // the chunk is rolled back. fail the job in another transaction
+            logger.error("Backfill job {} failed after submitting {} attempts", job.getId(), job.getSubmitted(), ex);
+            tm.begin(() -> sm.failBackfillJob(job.getId(), ex.toString()));
+            return true;
+        }
+    }
+
+    private boolean runBackfillJob(BackfillJobControlStore store, BackfillJob job, Instant now)
+        throws ResourceNotFoundException, ResourceConflictException, ResourceLimitExceededException
+    {
+        int remaining = job.getTotal() - job.getSubmitted();
+        if (remaining <= 0) {
+            store.finishBackfillJob(job.getId(), BackfillJob.Status.SUCCESS, Optional.absent());
+            logger.info("Backfill job {} submitted {} attempts", job.getId(), job.getSubmitted());
+            return true;
+        }
+
+        StoredSchedule sched = sm.getScheduleStore(job.getSiteId()).getScheduleById(job.getScheduleId());
+        StoredWorkflowDefinitionWithProject def = rm.getWorkflowDetailsById(sched.getWorkflowDefinitionId());
+
+        List<StoredSessionAttemptWithSession> submitted = workflowExecutor.submitTransaction(job.getSiteId(), (submitter) -> {
+            long available = backfillMaxActiveAttempts - submitter.getActiveAttemptCount();
+            if (available <= 0) {
+                return ImmutableList.of();
+            }
+            int n = (int) Math.min(Math.min(available, backfillChunkSize), remaining);
+            return submitBackfillAttempts(submitter, sched, def, getNextBackfillTimes(def, job, n), job.getAttemptName(),
+                    job.getLastSessionId(), job.getLastSessionTime());
+        });
+
+        if (submitted.isEmpty()) {
+            // too many active attempts. wait for them to finish
+            if (now.toEpochMilli() - job.getLastSubmittedAt().toEpochMilli() >= backfillMaxWaitMillis) {
+                String message = String.format(ENGLISH,
+                        "Number of active attempts didn't decrease below %d for %d seconds",
+                        backfillMaxActiveAttempts, TimeUnit.MILLISECONDS.toSeconds(backfillMaxWaitMillis));
+                logger.error("Backfill job {} failed after submitting {} attempts: {}", job.getId(), job.getSubmitted(), message);
+                store.finishBackfillJob(job.getId(), BackfillJob.Status.ERROR, Optional.of(message));
+                return true;
+            }
+            store.delayBackfillJob(job.getId(), now.plusMillis(backfillWaitMillis));
+            return false;
+        }
+
+        StoredSessionAttemptWithSession last = submitted.get(submitted.size() - 1);
+        store.addSubmittedAttempts(job.getId(), submitted.size(), last.getSessionId(), last.getSession().getSessionTime(), now);
+        if (submitted.size() >= remaining) {
+            store.finishBackfillJob(job.getId(), BackfillJob.Status.SUCCESS, Optional.absent());
+            logger.info("Backfill job {} submitted {} attempts", job.getId(), job.getTotal());
+        }
+        return true;
+    }
+
+    private List<Instant> getNextBackfillTimes(StoredWorkflowDefinitionWithProject def, BackfillJob job, int count)
+    {
+        Scheduler sr = srm.getScheduler(def);
+
+        Instant time;
+        if (job.getLastSessionTime().isPresent()) {
+            time = sr.nextScheduleTime(job.getLastSessionTime().get()).getTime();
+        }
+        else {
+            time = sr.getFirstScheduleTime(job.getFromTime()).getTime();
+        }
+
+        List<Instant> instants = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            instants.add(time);
+            time = sr.nextScheduleTime(time).getTime();
+        }
+        return instants;
+    }
+
     public void runDelayedAttempt(DelayedAttemptControlStore control, StoredDelayedSessionAttempt delayedAttempt)
     {
         try {
@@ -497,4 +830,23 @@ public class ScheduleExecutor
                 ImmutableList.of(),
                 lastExecutedSessionTime);
     }
+
+    @Managed
+    public long getFiredCount()
+    {
+        return firedCount.get();
+    }
+
+    // sum of delays from next_run_time to the time when schedules are processed
+    @Managed
+    public long getTotalScheduleLagMillis()
+    {
+        return totalLagMillis.get();
+    }
+
+    @Managed
+    public long getLastScheduleLagMillis()
+    {
+        return lastLagMillis.get();
+    }
 }
@@ -3,6 +3,7 @@ package io.digdag.core.schedule;
 import com.google.inject.Module;
 import com.google.inject.Binder;
 import com.google.inject.Scopes;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
 
 public class ScheduleExecutorModule
         implements Module
@@ -11,5 +12,6 @@ public class ScheduleExecutorModule
     public void configure(Binder binder)
     {
         binder.bind(ScheduleExecutor.class).asEagerSingleton();
+        newExporter(binder).export(ScheduleExecutor.class).withGeneratedName();
     }
 }
@@ -1,5 +1,6 @@
 package io.digdag.core.schedule;
 
+import java.time.Instant;
 import java.util.List;
 import com.google.common.base.Optional;
 import io.digdag.core.repository.ResourceConflictException;
@@ -35,4 +36,9 @@ public interface ScheduleStore
 
     <T> T lockScheduleById(int schedId, ScheduleLockAction<T> func)
         throws ResourceNotFoundException, ResourceConflictException, ResourceLimitExceededException;
+
+    BackfillJob insertBackfillJob(int schedId, String attemptName, Instant fromTime, int total, Instant currentTime);
+
+    BackfillJob getBackfillJobById(long jobId)
+        throws ResourceNotFoundException;
 }
@@ -5,6 +5,7 @@ import java.util.List;
 import com.google.common.base.Optional;
 import io.digdag.spi.ScheduleTime;
 import io.digdag.core.repository.ResourceConflictException;
+import io.digdag.core.repository.ResourceLimitExceededException;
 import io.digdag.core.repository.ResourceNotFoundException;
 
 public interface ScheduleStoreManager
@@ -17,4 +18,32 @@ public interface ScheduleStoreManager
     }
 
     int lockReadySchedules(Instant currentTime, int limit, ScheduleAction func);
+
+    interface ScheduleBatchAction
+    {
+        void schedule(ScheduleControlStore store, List<StoredSchedule> schedules);
+    }
+
+    // locks up to limit schedules at once and passes them to func in a transaction.
+    // schedules locked by other transactions are skipped if the database supports it.
+    int lockReadyScheduleBatch(Instant currentTime, int limit, ScheduleBatchAction func);
+
+    // locks a schedule and passes it to func in a transaction if it's still ready.
+    // returns false if the schedule doesn't exist or is not ready any more.
+    boolean lockReadyScheduleById(int schedId, Instant currentTime, ScheduleAction func);
+
+    interface BackfillJobAction
+    {
+        void run(BackfillJobControlStore store, BackfillJob job)
+            throws ResourceNotFoundException, ResourceConflictException, ResourceLimitExceededException;
+    }
+
+    // locks a running backfill job whose next run time has passed and passes it to func in a transaction.
+    // jobs locked by other transactions are skipped if the database supports it.
+    // returns false if no jobs are ready.
+    boolean lockReadyBackfillJob(Instant currentTime, BackfillJobAction func)
+        throws ResourceNotFoundException, ResourceConflictException, ResourceLimitExceededException;
+
+    // sets error to a running backfill job. returns false if the job doesn't exist or is already finished.
+    boolean failBackfillJob(long jobId, String error);
 }
@@ -2,9 +2,16 @@ package io.digdag.core.schedule;
 
 import java.util.Set;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.time.ZoneId;
 import com.google.inject.Inject;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.common.collect.ImmutableMap;
 import io.digdag.spi.Scheduler;
 import io.digdag.spi.SchedulerFactory;
@@ -28,8 +35,15 @@ public class SchedulerManager
         return def.getConfig().getNested("schedule");
     }
 
+    private static final int MAX_CACHE_SIZE = 1000;
+
     private final Map<String, SchedulerFactory> types;
 
+    // ScheduleExecutor gets a scheduler every time a schedule fires or is
+    // backfilled. Schedulers are immutable and built only from the schedule
+    // config and time zone, so they are cached by them.
+    private final Cache<SchedulerKey, Scheduler> cache;
+
     @Inject
     public SchedulerManager(Set<SchedulerFactory> factories)
     {
@@ -38,6 +52,10 @@ public class SchedulerManager
             builder.put(factory.getType(), factory);
         }
         this.types = builder.build();
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHE_SIZE)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
     }
 
     public Optional<Scheduler> tryGetScheduler(Revision rev, WorkflowDefinition def)
@@ -61,6 +79,20 @@ public class SchedulerManager
     }
 
     private Scheduler getScheduler(Config schedulerConfig, ZoneId workflowTimeZone)
+    {
+        SchedulerKey key = new SchedulerKey(schedulerConfig.toString(), workflowTimeZone);
+        try {
+            return cache.get(key, () -> newScheduler(schedulerConfig, workflowTimeZone));
+        }
+        catch (UncheckedExecutionException ex) {
+            throw Throwables.propagate(ex.getCause());
+        }
+        catch (ExecutionException ex) {
+            throw Throwables.propagate(ex.getCause());
+        }
+    }
+
+    private Scheduler newScheduler(Config schedulerConfig, ZoneId workflowTimeZone)
     {
         Config c = schedulerConfig.deepCopy();
 
@@ -88,4 +120,35 @@ public class SchedulerManager
         }
         return factory.newScheduler(c, workflowTimeZone);
     }
+
+    private static class SchedulerKey
+    {
+        private final String config;
+        private final ZoneId timeZone;
+
+        SchedulerKey(String config, ZoneId timeZone)
+        {
+            this.config = config;
+            this.timeZone = timeZone;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SchedulerKey other = (SchedulerKey) o;
+            return config.equals(other.config) && timeZone.equals(other.timeZone);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(config, timeZone);
+        }
+    }
 }
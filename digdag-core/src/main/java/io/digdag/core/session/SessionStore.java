@@ -22,6 +22,9 @@ public interface SessionStore
 
     List<StoredSessionAttemptWithSession> getAttemptsOfProject(boolean withRetriedAttempts, int projectId, int pageSize, Optional<Long> lastId);
 
+    // returns attempts created or finished at or after updatedSince
+    List<StoredSessionAttemptWithSession> getAttemptsUpdatedSince(boolean withRetriedAttempts, Instant updatedSince, int pageSize, Optional<Long> lastId);
+
     List<StoredSessionAttemptWithSession> getAttemptsOfWorkflow(boolean withRetriedAttempts, int projectId, String workflowName, int pageSize, Optional<Long> lastId);
 
     List<StoredSessionAttemptWithSession> getActiveAttemptsOfWorkflow(int projectId, String workflowName, int pageSize, Optional<Long> lastId);
@@ -37,11 +40,23 @@ public interface SessionStore
     StoredSessionAttemptWithSession getAttemptByName(int projectId, String workflowName, Instant instant, String retryAttemptName)
         throws ResourceNotFoundException;
 
+    // returns session times between fromTime and toTime (inclusive) that have an attempt of retryAttemptName
+    List<Instant> getSessionTimesOfAttemptName(int projectId, String workflowName, Instant fromTime, Instant toTime, String retryAttemptName);
+
     List<StoredSessionAttemptWithSession> getOtherAttempts(long attemptId)
         throws ResourceNotFoundException;
 
     List<ArchivedTask> getTasksOfAttempt(long attemptId);
 
+    // returns tasks whose id is greater than lastId in ascending order of id
+    List<ArchivedTask> getTasksOfAttempt(long attemptId, int pageSize, Optional<Long> lastId);
+
+    // same with getTasksOfAttempt but returns only tasks updated at or after updatedSince
+    List<ArchivedTask> getTasksOfAttemptUpdatedSince(long attemptId, Instant updatedSince, int pageSize, Optional<Long> lastId);
+
+    // returns all tasks in ascending order of id if tasks of the finished attempt are moved to task_archives
+    Optional<List<ArchivedTask>> getArchivedTasksOfAttempt(long attemptId);
+
     interface SessionTransactionAction <T>
     {
         T call(SessionTransaction transaction)
@@ -1,6 +1,7 @@
 package io.digdag.core.session;
 
 import java.util.List;
+import java.time.Duration;
 import java.time.Instant;
 import com.google.common.base.*;
 import io.digdag.client.config.Config;
@@ -57,7 +58,12 @@ public interface SessionStoreManager
 
     boolean requestCancelAttempt(long attemptId);
 
-    int trySetRetryWaitingToReady();
+    int trySetRetryWaitingToReady(int limit);
+
+    // for WorkflowExecutor.retryRetryWaitingTasks. Returns time until the
+    // earliest retry_at of RETRY_WAITING or GROUP_RETRY_WAITING tasks
+    // measured by the database clock, or absent if no tasks are waiting.
+    Optional<Duration> findNextRetryWaitingDelay();
 
     interface TaskLockAction <T>
     {
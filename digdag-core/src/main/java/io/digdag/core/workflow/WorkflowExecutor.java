@@ -44,6 +44,7 @@ import io.digdag.util.RetryControl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -172,6 +173,10 @@ public class WorkflowExecutor
     private final Condition propagatorCondition = propagatorLock.newCondition();
     private volatile boolean propagatorNotice = false;
 
+    // System.currentTimeMillis() when retryRetryWaitingTasks needs to check
+    // RETRY_WAITING tasks next time. 0 means checking them immediately.
+    private volatile long nextRetryWaitingCheckTime = 0L;
+
     @Inject
     public WorkflowExecutor(
             ProjectStoreManager rm,
@@ -478,10 +483,12 @@ public class WorkflowExecutor
 
     private static final int INITIAL_INTERVAL = 100;
     private static final int MAX_INTERVAL = 5000;
+    private static final int RETRY_WAITING_BATCH_SIZE = 100;
 
     public void runWhile(BooleanSupplier cond)
             throws InterruptedException
     {
+        nextRetryWaitingCheckTime = 0L;
         try (TaskQueuer queuer = new TaskQueuer()) {
             propagateBlockedChildrenToReady();
             retryRetryWaitingTasks();
@@ -507,6 +514,8 @@ public class WorkflowExecutor
                 enqueueReadyTasks(queuer);
 
                 if (propagateAllPlannedToDone()) {
+                    // propagation may set GROUP_RETRY_WAITING
+                    nextRetryWaitingCheckTime = 0L;
                     propagateSessionArchive();
                 }
                 else {
@@ -517,7 +526,9 @@ public class WorkflowExecutor
                             waitMsec.set(INITIAL_INTERVAL);
                         }
                         else {
-                            boolean noticed = propagatorCondition.await(waitMsec.get(), TimeUnit.MILLISECONDS);
+                            // wake up when the next RETRY_WAITING task becomes ready
+                            long untilRetry = Math.max(nextRetryWaitingCheckTime - System.currentTimeMillis(), 0L);
+                            boolean noticed = propagatorCondition.await(Math.min(waitMsec.get(), untilRetry), TimeUnit.MILLISECONDS);
                             if (noticed && propagatorNotice) {
                                 propagatorNotice = false;
                                 waitMsec.set(INITIAL_INTERVAL);
@@ -752,7 +763,36 @@ public class WorkflowExecutor
 
     private boolean retryRetryWaitingTasks()
     {
-        return tm.begin(() -> sm.trySetRetryWaitingToReady() > 0);
+        // Instead of updating RETRY_WAITING tasks every loop, remember retry_at of
+        // the next task and check them only after it passes. Tasks set to
+        // RETRY_WAITING by this server reset the time. The time is checked at
+        // least every MAX_INTERVAL for tasks set to RETRY_WAITING by other servers.
+        long now = System.currentTimeMillis();
+        if (now < nextRetryWaitingCheckTime) {
+            return false;
+        }
+        nextRetryWaitingCheckTime = now + MAX_INTERVAL;
+
+        boolean anyChanged = false;
+        while (true) {
+            int n = tm.begin(() -> sm.trySetRetryWaitingToReady(RETRY_WAITING_BATCH_SIZE));
+            if (n > 0) {
+                anyChanged = true;
+            }
+            if (n < RETRY_WAITING_BATCH_SIZE) {
+                break;
+            }
+        }
+
+        Optional<Duration> nextDelay = tm.begin(() -> sm.findNextRetryWaitingDelay());
+        if (nextDelay.isPresent()) {
+            long next = System.currentTimeMillis() + Math.max(nextDelay.get().toMillis(), INITIAL_INTERVAL);
+            // don't overwrite reset by retryTask done concurrently
+            if (nextRetryWaitingCheckTime != 0L && next < nextRetryWaitingCheckTime) {
+                nextRetryWaitingCheckTime = next;
+            }
+        }
+        return anyChanged;
     }
 
     private class TaskQueuer
@@ -1233,6 +1273,7 @@ public class WorkflowExecutor
 
         boolean updated = lockedTask.setRunningToRetryWaiting(retryStateParams, retryInterval);
 
+        nextRetryWaitingCheckTime = 0L;
         noticeStatusPropagate();
 
         if (!updated) {
@@ -1,6 +1,7 @@
 package io.digdag.core.workflow;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import io.digdag.core.Limits;
 import io.digdag.core.database.TransactionManager;
 import io.digdag.core.repository.ProjectStore;
@@ -14,6 +15,7 @@ import io.digdag.core.session.SessionTransaction;
 import io.digdag.core.session.StoredSessionAttempt;
 import io.digdag.core.session.StoredSessionAttemptWithSession;
 import java.time.Instant;
+import java.util.List;
 
 import static java.util.Locale.ENGLISH;
 
@@ -70,18 +72,89 @@ public class WorkflowSubmitter
             });
         }
         catch (ResourceConflictException sessionAlreadyExists) {
-            transactionManager.reset();
-            StoredSessionAttemptWithSession conflicted;
-            if (ar.getRetryAttemptName().isPresent()) {
-                conflicted = sessionStore
-                    .getAttemptByName(session.getProjectId(), session.getWorkflowName(), session.getSessionTime(), ar.getRetryAttemptName().get());
+            throw sessionAttemptConflict(ar, session, sessionAlreadyExists);
+        }
+    }
+
+    /**
+     * Submits delayed attempts of a project at once. Each attempt depends on
+     * the session of the previous attempt so that they run one by one.
+     * Attempt limit and the project are checked only once for all attempts.
+     */
+    public List<StoredSessionAttemptWithSession> submitDelayedAttempts(
+            int projId,
+            List<AttemptRequest> requests,
+            Optional<Long> dependentSessionId)
+        throws ResourceNotFoundException, AttemptLimitExceededException, SessionAttemptConflictException
+    {
+        if (requests.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        long activeAttempts = transaction.getActiveAttemptCount();
+        if (activeAttempts + requests.size() > Limits.maxAttempts()) {
+            throw new AttemptLimitExceededException("Too many attempts running. Limit: " + Limits.maxAttempts() + ", Current: " + activeAttempts + ", Submitting: " + requests.size());
+        }
+
+        StoredProject proj = projectStore.getProjectById(projId);
+        if (proj.getDeletedAt().isPresent()) {
+            throw new ResourceNotFoundException(String.format(ENGLISH,
+                        "Project id={} name={} is already deleted",
+                        proj.getId(), proj.getName()));
+        }
+
+        ImmutableList.Builder<StoredSessionAttemptWithSession> builder = ImmutableList.builder();
+        Optional<Long> lastSessionId = dependentSessionId;
+        for (AttemptRequest ar : requests) {
+            if (ar.getStored().getProjectId() != projId) {
+                throw new IllegalArgumentException("Attempt request of a different project: " + ar);
             }
-            else {
-                conflicted = sessionStore
-                    .getLastAttemptByName(session.getProjectId(), session.getWorkflowName(), session.getSessionTime());
+
+            Session session = Session.of(projId, ar.getWorkflowName(), ar.getSessionTime());
+            SessionAttempt attempt = SessionAttempt.of(
+                    ar.getRetryAttemptName(),
+                    ar.getSessionParams(),
+                    ar.getTimeZone(),
+                    Optional.of(ar.getStored().getWorkflowDefinitionId()));
+
+            TaskConfig.validateAttempt(attempt);
+
+            Optional<Long> dependency = lastSessionId;
+            StoredSessionAttemptWithSession stored;
+            try {
+                stored = transaction.putAndLockSession(session, (store, storedSession) -> {
+                    StoredSessionAttempt storedAttempt = store.insertDelayedAttempt(storedSession.getId(), projId, attempt, dependency);  // this may throw ResourceConflictException
+                    return StoredSessionAttemptWithSession.of(siteId, storedSession, storedAttempt);
+                });
             }
-            throw new SessionAttemptConflictException("Session already exists", sessionAlreadyExists, conflicted);
+            catch (ResourceConflictException sessionAlreadyExists) {
+                throw sessionAttemptConflict(ar, session, sessionAlreadyExists);
+            }
+            builder.add(stored);
+            lastSessionId = Optional.of(stored.getSessionId());
+        }
+        return builder.build();
+    }
+
+    private SessionAttemptConflictException sessionAttemptConflict(AttemptRequest ar, Session session, ResourceConflictException sessionAlreadyExists)
+        throws ResourceNotFoundException
+    {
+        transactionManager.reset();
+        StoredSessionAttemptWithSession conflicted;
+        if (ar.getRetryAttemptName().isPresent()) {
+            conflicted = sessionStore
+                .getAttemptByName(session.getProjectId(), session.getWorkflowName(), session.getSessionTime(), ar.getRetryAttemptName().get());
+        }
+        else {
+            conflicted = sessionStore
+                .getLastAttemptByName(session.getProjectId(), session.getWorkflowName(), session.getSessionTime());
         }
+        return new SessionAttemptConflictException("Session already exists", sessionAlreadyExists, conflicted);
+    }
+
+    public long getActiveAttemptCount()
+    {
+        return transaction.getActiveAttemptCount();
     }
 
     public Optional<Instant> getLastExecutedSessionTime(
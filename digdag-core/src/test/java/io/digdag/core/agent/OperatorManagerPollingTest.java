@@ -0,0 +1,162 @@
+package io.digdag.core.agent;
+
+import com.google.common.collect.ImmutableList;
+import io.digdag.client.config.Config;
+import io.digdag.client.config.ConfigElement;
+import io.digdag.spi.TaskExecutionException;
+import io.digdag.spi.TaskRequest;
+import io.digdag.spi.TaskResult;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.digdag.client.config.ConfigUtils.configFactory;
+import static io.digdag.client.config.ConfigUtils.newConfig;
+import static io.digdag.core.workflow.OperatorTestingUtils.newTaskRequest;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class OperatorManagerPollingTest
+{
+    // throws ofNextPolling with the given interval until it's called pollCount times
+    private static class PollingOperatorManager
+            extends OperatorManager
+    {
+        private final int interval;
+        private final int pollCount;
+        private final List<Config> lastStateParams = new ArrayList<>();
+
+        PollingOperatorManager(AgentConfig agentConfig, int interval, int pollCount)
+        {
+            super(agentConfig, null, null, null, configFactory, null, null, null);
+            this.interval = interval;
+            this.pollCount = pollCount;
+        }
+
+        @Override
+        protected TaskResult callExecutor(Path projectPath, String type, TaskRequest mergedRequest)
+        {
+            lastStateParams.add(mergedRequest.getLastStateParams());
+            int count = mergedRequest.getLastStateParams().get("count", int.class, 0);
+            if (count < pollCount) {
+                throw TaskExecutionException.ofNextPolling(interval,
+                        ConfigElement.copyOf(newConfig().set("count", count + 1)));
+            }
+            return TaskResult.empty(configFactory);
+        }
+
+        TaskResult call()
+        {
+            return callExecutorWithInProcessPolling(Paths.get(""), "polling",
+                    newTaskRequest(), newConfig(), newConfig(), new CheckedConfig.UsedKeysSet());
+        }
+    }
+
+    private static AgentConfig agentConfig(int maxInterval, int maxTime)
+    {
+        return AgentConfig.defaultBuilder()
+            .inProcessPollingMaxInterval(maxInterval)
+            .inProcessPollingMaxTime(maxTime)
+            .build();
+    }
+
+    @Test
+    public void disabledByDefault()
+    {
+        PollingOperatorManager manager = new PollingOperatorManager(AgentConfig.defaultBuilder().build(), 0, 2);
+
+        TaskExecutionException ex = expectPolling(manager);
+
+        assertThat(manager.lastStateParams.size(), is(1));
+        assertThat(ex.getStateParams(configFactory).get(), is(newConfig().set("count", 1)));
+    }
+
+    @Test
+    public void passStateParamsToNextPolling()
+    {
+        PollingOperatorManager manager = new PollingOperatorManager(agentConfig(1, 60), 0, 2);
+
+        manager.call();
+
+        assertThat(manager.lastStateParams, is(ImmutableList.of(
+                        newConfig(),
+                        newConfig().set("count", 1),
+                        newConfig().set("count", 2))));
+    }
+
+    @Test
+    public void requeueIfIntervalIsLongerThanMaxInterval()
+    {
+        PollingOperatorManager manager = new PollingOperatorManager(agentConfig(1, 60), 2, 2);
+
+        TaskExecutionException ex = expectPolling(manager);
+
+        assertThat(manager.lastStateParams.size(), is(1));
+        assertThat(ex.getRetryInterval().get(), is(2));
+        assertThat(ex.getStateParams(configFactory).get(), is(newConfig().set("count", 1)));
+    }
+
+    @Test
+    public void requeueAfterMaxTime()
+    {
+        PollingOperatorManager manager = new PollingOperatorManager(agentConfig(1, 2), 1, 100);
+
+        TaskExecutionException ex = expectPolling(manager);
+
+        // the next polling would pass the deadline
+        int calls = manager.lastStateParams.size();
+        assertThat(calls >= 1 && calls <= 3, is(true));
+        // the server continues polling with state params of the last call
+        assertThat(ex.getStateParams(configFactory).get(), is(newConfig().set("count", calls)));
+    }
+
+    @Test
+    public void requeueAtShutdown()
+            throws Exception
+    {
+        PollingOperatorManager manager = new PollingOperatorManager(agentConfig(10, 60), 10, 100);
+
+        Thread stopper = new Thread(() -> {
+            try {
+                Thread.sleep(500);
+            }
+            catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            manager.stopInProcessPolling();
+        });
+        stopper.start();
+
+        long start = System.nanoTime();
+        TaskExecutionException ex = expectPolling(manager);
+        stopper.join();
+
+        // returned without waiting for the interval
+        assertThat(System.nanoTime() - start, lessThan(TimeUnit.SECONDS.toNanos(5)));
+        assertThat(manager.lastStateParams.size(), is(1));
+        assertThat(ex.getStateParams(configFactory).get(), is(newConfig().set("count", 1)));
+
+        // doesn't wait after shutdown
+        manager.lastStateParams.clear();
+        expectPolling(manager);
+        assertThat(manager.lastStateParams.size(), is(1));
+    }
+
+    private static TaskExecutionException expectPolling(PollingOperatorManager manager)
+    {
+        try {
+            manager.call();
+            throw new AssertionError("expected TaskExecutionException");
+        }
+        catch (TaskExecutionException ex) {
+            assertThat(ex.getRetryInterval().isPresent(), is(true));
+            assertThat(ex.getError(configFactory).isPresent(), is(false));
+            return ex;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.digdag.core.config;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.io.Resources;
 import org.yaml.snakeyaml.error.YAMLException;
 import org.junit.Before;
@@ -36,4 +37,28 @@ public class YamlConfigLoaderTest
         Files.write(temp, "{\"a\":1, \"a\":2}".getBytes(UTF_8));
         loader.loadParameterizedFile(temp.toFile(), null);
     }
+
+    @Test
+    public void verifyParsedFilesAreReusedSafely()
+            throws Exception
+    {
+        Path dir = Files.createTempDirectory("digdag-YamlConfigLoaderTest");
+        Path main = dir.resolve("main.dig");
+        Path included = dir.resolve("included.yml");
+        Files.write(main, "a:\n  !include : 'included.yml'\nb: {c: 1}\n".getBytes(UTF_8));
+        Files.write(included, "x: 1\n".getBytes(UTF_8));
+
+        ObjectNode first = (ObjectNode) loader.loadParameterizedInclude(main, null);
+        assertEquals("{\"a\":{\"x\":1},\"b\":{\"c\":1}}", first.toString());
+
+        // modifying a loaded tree doesn't affect trees loaded later
+        ((ObjectNode) first.get("b")).put("c", 2);
+        ObjectNode second = loader.loadParameterizedInclude(main, null);
+        assertEquals("{\"a\":{\"x\":1},\"b\":{\"c\":1}}", second.toString());
+
+        // changes of an included file are reflected
+        Files.write(included, "x: 2\n".getBytes(UTF_8));
+        ObjectNode third = loader.loadParameterizedInclude(main, null);
+        assertEquals("{\"a\":{\"x\":2},\"b\":{\"c\":1}}", third.toString());
+    }
 }
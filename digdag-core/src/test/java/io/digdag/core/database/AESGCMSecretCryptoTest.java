@@ -64,6 +64,21 @@ public class AESGCMSecretCryptoTest
         crypto2.decryptSecret(encrypted);
     }
 
+    @Test
+    public void verifyCipherIsReusableAfterFailure()
+            throws Exception
+    {
+        String encrypted = crypto1.encryptSecret(TEXT);
+        try {
+            crypto2.decryptSecret(encrypted);
+        }
+        catch (SecretCryptoException ex) {
+            // expected
+        }
+        assertThat(crypto1.decryptSecret(encrypted), is(TEXT));
+        assertThat(crypto2.decryptSecret(crypto2.encryptSecret(TEXT)), is(TEXT));
+    }
+
     @Test
     public void verifyTextSizeLimit()
             throws Exception
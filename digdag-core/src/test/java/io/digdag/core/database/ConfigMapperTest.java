@@ -0,0 +1,106 @@
+package io.digdag.core.database;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import io.digdag.client.config.Config;
+import io.digdag.client.config.ConfigFactory;
+import java.sql.ResultSet;
+import java.util.List;
+import org.h2.tools.SimpleResultSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import static io.digdag.core.database.DatabaseTestingUtils.createConfigFactory;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+public class ConfigMapperTest
+{
+    private ConfigFactory cf;
+    private ConfigMapper mapper;
+
+    @Before
+    public void setUp()
+    {
+        cf = createConfigFactory();
+        mapper = new ConfigMapper(cf);
+    }
+
+    @Test
+    public void verifyTextFormat()
+            throws Exception
+    {
+        Config config = cf.create()
+            .set("a", 1)
+            .set("b", ImmutableList.of("x", "y"));
+        config.getNestedOrSetEmpty("c").set("d", true);
+        String text = "{\"a\":1,\"b\":[\"x\",\"y\"],\"c\":{\"d\":true}}";
+        assertThat(
+                mapper.toBinding(config),
+                is(text));
+        assertThat(
+                mapper.fromResultSetOrEmpty(mockResultSet(text), "mock"),
+                is(config));
+        assertThat(
+                mapper.fromResultSet(mockResultSet(text), "mock"),
+                is(Optional.of(config)));
+    }
+
+    @Test
+    public void preserveKeyOrder()
+            throws Exception
+    {
+        // order of +task keys is order of tasks
+        String text = "{\"+step2\":{\"sh>\":\"b\"},\"+step10\":{\"sh>\":\"c\"},\"+step1\":{\"sh>\":\"a\"}}";
+        Config config = mapper.fromResultSetOrEmpty(mockResultSet(text), "mock");
+        List<String> keys = config.getKeys();
+        assertThat(keys, is(ImmutableList.of("+step2", "+step10", "+step1")));
+        assertThat(mapper.toBinding(config), is(text));
+    }
+
+    @Test
+    public void emptyToNull()
+            throws Exception
+    {
+        assertNull(mapper.toBinding(cf.create()));
+        assertNull(mapper.toBinding(null));
+    }
+
+    @Test
+    public void nullToEmpty()
+            throws Exception
+    {
+        assertThat(
+                mapper.fromResultSetOrEmpty(mockResultSet(null), "mock"),
+                is(cf.create()));
+        assertThat(
+                mapper.fromResultSet(mockResultSet(null), "mock"),
+                is(Optional.absent()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectNonObject()
+            throws Exception
+    {
+        mapper.fromResultSetOrEmpty(mockResultSet(" [1]"), "mock");
+    }
+
+    private static ResultSet mockResultSet(final String text)
+    {
+        return new SimpleResultSet()
+        {
+            @Override
+            public String getString(String column)
+            {
+                return text;
+            }
+
+            @Override
+            public boolean wasNull()
+            {
+                return text == null;
+            }
+        };
+    }
+}
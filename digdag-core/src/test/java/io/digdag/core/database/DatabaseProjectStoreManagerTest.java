@@ -2,6 +2,7 @@ package io.digdag.core.database;
 
 import java.util.*;
 import java.time.Instant;
+import java.time.ZoneId;
 import java.util.concurrent.atomic.AtomicReference;
 import org.skife.jdbi.v2.IDBI;
 import org.junit.*;
@@ -186,6 +187,9 @@ public class DatabaseProjectStoreManagerTest
             assertEquals(wfDetails1, manager.getWorkflowDetailsById(wf1.getId()));
             assertEquals(wfDetails2, manager.getWorkflowDetailsById(wf2.getId()));
             assertNotFound(() -> manager.getWorkflowDetailsById(wf1.getId() + 10));
+            assertEquals(ImmutableSet.of(wfDetails1, wfDetails2),
+                    ImmutableSet.copyOf(manager.getWorkflowDetailsByIdList(ImmutableList.of(wf1.getId(), wf2.getId(), wf1.getId() + 10))));
+            assertEquals(ImmutableList.of(), manager.getWorkflowDetailsByIdList(ImmutableList.of()));
 
             assertEquals(rev1, manager.getRevisionOfWorkflowDefinition(wf1.getId()));
             assertEquals(rev2, manager.getRevisionOfWorkflowDefinition(wf2.getId()));
@@ -274,6 +278,58 @@ public class DatabaseProjectStoreManagerTest
         });
     }
 
+    @Test
+    public void testInsertWorkflowDefinitionsSharingConfigs()
+        throws Exception
+    {
+        factory.begin(() -> {
+            WorkflowDefinition srcWf1 = createWorkflow("wf1");
+            WorkflowDefinition srcWf2 = WorkflowDefinition.of("wf2", srcWf1.getConfig(), srcWf1.getTimeZone());
+            WorkflowDefinition srcWf3 = WorkflowDefinition.of("wf3", srcWf1.getConfig(), ZoneId.of("Asia/Tokyo"));
+            WorkflowDefinition srcWf4 = createWorkflow("wf4");
+
+            List<WorkflowDefinition> srcWfs = ImmutableList.of(srcWf3, srcWf1, srcWf4, srcWf2);
+
+            List<StoredWorkflowDefinition> wfs1 = store.putAndLockProject(
+                    Project.of("proj1"),
+                    (store, stored) -> {
+                        ProjectControl lock = new ProjectControl(store, stored);
+                        StoredRevision rev = lock.insertRevision(createRevision("rev1"));
+                        return lock.insertWorkflowDefinitions(rev, srcWfs, sm, Instant.now());
+                    });
+
+            // the same configs are stored again by the next revision
+            List<StoredWorkflowDefinition> wfs2 = store.putAndLockProject(
+                    Project.of("proj1"),
+                    (store, stored) -> {
+                        ProjectControl lock = new ProjectControl(store, stored);
+                        StoredRevision rev = lock.insertRevision(createRevision("rev2"));
+                        return lock.insertWorkflowDefinitions(rev, srcWfs, sm, Instant.now());
+                    });
+
+            for (List<StoredWorkflowDefinition> wfs : ImmutableList.of(wfs1, wfs2)) {
+                assertEquals(srcWfs.size(), wfs.size());
+                for (int i = 0; i < srcWfs.size(); i++) {
+                    assertEquals(srcWfs.get(i), ImmutableWorkflowDefinition.builder().from(wfs.get(i)).build());
+                    assertEquals(wfs.get(i), store.getWorkflowDefinitionByName(wfs.get(i).getRevisionId(), wfs.get(i).getName()));
+                }
+            }
+            assertEquals(wfs1.get(0).getRevisionId(), wfs1.get(3).getRevisionId());
+            assertNotEquals(wfs1.get(0).getRevisionId(), wfs2.get(0).getRevisionId());
+
+            // workflow conflicts if names in a list conflict
+            assertConflict(() -> {
+                store.putAndLockProject(
+                        Project.of("proj1"),
+                        (store, stored) -> {
+                            ProjectControl lock = new ProjectControl(store, stored);
+                            StoredRevision rev = lock.insertRevision(createRevision("rev3"));
+                            return lock.insertWorkflowDefinitions(rev, ImmutableList.of(srcWf1, createWorkflow("wf1")), sm, Instant.now());
+                        });
+            });
+        });
+    }
+
     @Test
     public void testRevisionArchiveData()
         throws Exception
@@ -218,6 +218,25 @@ public class DatabaseScheduleStoreManagerTest
             });
             assertEquals(ImmutableList.of(sched3.getId(), sched4.getId()), lockedByRuntime2);
 
+            List<Integer> lockedBatch = new ArrayList<>();
+            assertEquals(2, schedManager.lockReadyScheduleBatch(runTime2, 10, (store, schedules) -> {
+                schedules.forEach(schedule -> lockedBatch.add(schedule.getId()));
+            }));
+            assertEquals(ImmutableList.of(sched3.getId(), sched4.getId()), lockedBatch);
+            assertEquals(1, schedManager.lockReadyScheduleBatch(runTime2, 1, (store, schedules) -> { }));
+
+            List<Integer> lockedById = new ArrayList<>();
+            assertTrue(schedManager.lockReadyScheduleById(sched4.getId(), runTime2, (store, schedule) -> {
+                lockedById.add(schedule.getId());
+            }));
+            assertFalse(schedManager.lockReadyScheduleById(sched4.getId(), runTime1, (store, schedule) -> {
+                lockedById.add(schedule.getId());
+            }));
+            assertFalse(schedManager.lockReadyScheduleById(sched2.getId(), runTime2, (store, schedule) -> {
+                lockedById.add(schedule.getId());
+            }));
+            assertEquals(ImmutableList.of(sched4.getId()), lockedById);
+
             // exception during lockReadySchedules
             try {
                 schedManager.lockReadySchedules(runTime2, 10, (store, schedule) -> {
@@ -387,4 +406,76 @@ public class DatabaseScheduleStoreManagerTest
             }
         });
     }
+
+    @Test
+    public void testBackfillJobs()
+        throws Exception
+    {
+        factory.begin(() -> {
+            Instant now = Instant.ofEpochSecond(Instant.now().getEpochSecond());
+            Instant fromTime = now.minus(Duration.ofDays(10));
+
+            BackfillJob job1 = schedStore.insertBackfillJob(3, "bf1", fromTime, 10, now);
+            BackfillJob job2 = schedStore.insertBackfillJob(3, "bf2", fromTime, 5, now.plusSeconds(10));
+
+            assertThat(job1.getScheduleId(), is(3));
+            assertThat(job1.getAttemptName(), is("bf1"));
+            assertThat(job1.getFromTime(), is(fromTime));
+            assertThat(job1.getTotal(), is(10));
+            assertThat(job1.getSubmitted(), is(0));
+            assertThat(job1.getLastSessionId(), is(Optional.absent()));
+            assertThat(job1.getLastSessionTime(), is(Optional.absent()));
+            assertThat(job1.getStatus(), is(BackfillJob.Status.RUNNING));
+            assertThat(job1.getNextRunTime(), is(now));
+            assertThat(job1.getFinishedAt(), is(Optional.absent()));
+            assertThat(schedStore.getBackfillJobById(job1.getId()), is(job1));
+
+            // other sites can't see the job
+            assertNotFound(() -> schedManager.getScheduleStore(1).getBackfillJobById(job1.getId()));
+
+            // only jobs whose next run time has passed are locked
+            List<Long> locked = new ArrayList<>();
+            assertTrue(schedManager.lockReadyBackfillJob(now, (store, job) -> {
+                locked.add(job.getId());
+                store.addSubmittedAttempts(job.getId(), 4, 100L, fromTime.plus(Duration.ofDays(3)), now.plusSeconds(1));
+            }));
+            assertThat(locked, contains(job1.getId()));
+
+            BackfillJob progressed = schedStore.getBackfillJobById(job1.getId());
+            assertThat(progressed.getSubmitted(), is(4));
+            assertThat(progressed.getLastSessionId(), is(Optional.of(100L)));
+            assertThat(progressed.getLastSessionTime(), is(Optional.of(fromTime.plus(Duration.ofDays(3)))));
+            assertThat(progressed.getNextRunTime(), is(now.plusSeconds(1)));
+            assertThat(progressed.getLastSubmittedAt(), is(now.plusSeconds(1)));
+
+            assertFalse(schedManager.lockReadyBackfillJob(now, (store, job) -> fail()));
+
+            // a waiting job is locked after the next run time
+            assertTrue(schedManager.lockReadyBackfillJob(now.plusSeconds(1), (store, job) -> {
+                assertThat(job.getId(), is(job1.getId()));
+                store.delayBackfillJob(job.getId(), now.plusSeconds(20));
+            }));
+            assertThat(schedStore.getBackfillJobById(job1.getId()).getLastSubmittedAt(), is(now.plusSeconds(1)));
+            assertTrue(schedManager.lockReadyBackfillJob(now.plusSeconds(10), (store, job) -> {
+                assertThat(job.getId(), is(job2.getId()));
+                store.finishBackfillJob(job.getId(), BackfillJob.Status.SUCCESS, Optional.absent());
+            }));
+
+            // finished jobs are not locked
+            assertFalse(schedManager.lockReadyBackfillJob(now.plusSeconds(10), (store, job) -> fail()));
+            BackfillJob finished = schedStore.getBackfillJobById(job2.getId());
+            assertThat(finished.getStatus(), is(BackfillJob.Status.SUCCESS));
+            assertTrue(finished.getFinishedAt().isPresent());
+
+            assertTrue(schedManager.failBackfillJob(job1.getId(), "failed"));
+            BackfillJob failed = schedStore.getBackfillJobById(job1.getId());
+            assertThat(failed.getStatus(), is(BackfillJob.Status.ERROR));
+            assertThat(failed.getError(), is(Optional.of("failed")));
+            assertFalse(schedManager.lockReadyBackfillJob(now.plusSeconds(20), (store, job) -> fail()));
+
+            // finished jobs can't be failed
+            assertFalse(schedManager.failBackfillJob(job2.getId(), "failed"));
+            assertThat(schedStore.getBackfillJobById(job2.getId()).getStatus(), is(BackfillJob.Status.SUCCESS));
+        });
+    }
 }
@@ -177,6 +177,32 @@ public class DatabaseSecretStoreTest
         assertThat(secretStore.getSecret(projectId, SecretScopes.PROJECT_DEFAULT, KEY2), is(Optional.of(VALUE3)));
     }
 
+    @Test
+    public void taskSecretStoreReadsSecretsOfProjectAtOnce()
+            throws Exception
+    {
+        factory.begin(() -> {
+                    secretControlStore.setProjectSecret(projectId, SecretScopes.PROJECT, KEY1, VALUE1);
+                    secretControlStore.setProjectSecret(projectId, SecretScopes.PROJECT_DEFAULT, KEY2, VALUE3);
+                    return null;
+                });
+
+        SecretStore taskSecretStore = storeManager.getTaskSecretStore(SITE_ID);
+        assertThat(taskSecretStore.getSecret(projectId, SecretScopes.PROJECT, KEY1), is(Optional.of(VALUE1)));
+        assertThat(taskSecretStore.getSecret(projectId, SecretScopes.PROJECT, KEY2), is(Optional.absent()));
+        assertThat(taskSecretStore.getSecret(projectId, SecretScopes.PROJECT_DEFAULT, KEY1), is(Optional.absent()));
+        assertThat(taskSecretStore.getSecret(projectId, SecretScopes.PROJECT_DEFAULT, KEY2), is(Optional.of(VALUE3)));
+        assertThat(taskSecretStore.getSecret(projectId + 1, SecretScopes.PROJECT, KEY1), is(Optional.absent()));
+
+        // secrets are read when the first secret is looked up
+        factory.autoCommit(() -> secretControlStore.setProjectSecret(projectId, SecretScopes.PROJECT, KEY2, VALUE2));
+        assertThat(taskSecretStore.getSecret(projectId, SecretScopes.PROJECT, KEY2), is(Optional.absent()));
+        assertThat(secretStore.getSecret(projectId, SecretScopes.PROJECT, KEY2), is(Optional.of(VALUE2)));
+
+        SecretStore anotherSite = storeManager.getTaskSecretStore(SITE_ID + 1);
+        assertThat(anotherSite.getSecret(projectId, SecretScopes.PROJECT, KEY1), is(Optional.absent()));
+    }
+
     @Test
     public void getSecretWithScope()
             throws Exception
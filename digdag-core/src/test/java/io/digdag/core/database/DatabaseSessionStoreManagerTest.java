@@ -3,6 +3,7 @@ package io.digdag.core.database;
 import java.util.*;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.stream.Collectors;
 
 import org.hamcrest.Matchers;
 import org.junit.*;
@@ -433,6 +434,13 @@ public class DatabaseSessionStoreManagerTest
             assertNotFound(() -> anotherSite.getAttemptByName(proj.getId(), wf1.getName(), sessionTime1, ""));
             assertNotFound(() -> anotherSite.getAttemptByName(proj.getId(), wf1.getName(), sessionTime2, ""));
 
+            assertThat(store.getAttempts(true, 100, Optional.absent()),
+                    is(store.getAttemptsUpdatedSince(true, Instant.EPOCH, 100, Optional.absent())));
+            assertThat(store.getAttempts(false, 100, Optional.absent()),
+                    is(store.getAttemptsUpdatedSince(false, Instant.EPOCH, 100, Optional.absent())));
+            assertEmpty(store.getAttemptsUpdatedSince(true, Instant.now().plusSeconds(3600), 100, Optional.absent()));
+            assertEmpty(anotherSite.getAttemptsUpdatedSince(true, Instant.EPOCH, 100, Optional.absent()));
+
             assertThat(ImmutableList.of(attempt2, attempt3), is(store.getOtherAttempts(attempt2.getId())));
             assertThat(ImmutableList.of(attempt2, attempt3), is(store.getOtherAttempts(attempt3.getId())));
 
@@ -440,6 +448,15 @@ public class DatabaseSessionStoreManagerTest
             // task archving
             //
             List<ArchivedTask> activeArchive = store.getTasksOfAttempt(attempt1.getId());
+            long lastTaskId = activeArchive.get(activeArchive.size() - 1).getId();
+            assertThat(activeArchive, is(store.getTasksOfAttempt(attempt1.getId(), 100, Optional.absent())));
+            assertThat(activeArchive.subList(0, 1), is(store.getTasksOfAttempt(attempt1.getId(), 1, Optional.absent())));
+            assertEmpty(store.getTasksOfAttempt(attempt1.getId(), 100, Optional.of(lastTaskId)));
+            assertEmpty(anotherSite.getTasksOfAttempt(attempt1.getId(), 100, Optional.absent()));
+            assertThat(activeArchive, is(store.getTasksOfAttemptUpdatedSince(attempt1.getId(), Instant.EPOCH, 100, Optional.absent())));
+            assertEmpty(store.getTasksOfAttemptUpdatedSince(attempt1.getId(), Instant.now().plusSeconds(3600), 100, Optional.absent()));
+            assertEmpty(anotherSite.getTasksOfAttemptUpdatedSince(attempt1.getId(), Instant.EPOCH, 100, Optional.absent()));
+            assertThat(store.getArchivedTasksOfAttempt(attempt1.getId()), is(Optional.absent()));
             SessionAttemptSummary sum = manager.lockAttemptIfExists(
                     attempt1.getId(),
                     (store, summary) -> {
@@ -447,6 +464,15 @@ public class DatabaseSessionStoreManagerTest
                         return summary;
                     }).get();
             assertThat(activeArchive, is(store.getTasksOfAttempt(attempt1.getId())));
+            assertThat(activeArchive, is(store.getTasksOfAttempt(attempt1.getId(), 100, Optional.absent())));
+            assertEmpty(store.getTasksOfAttempt(attempt1.getId(), 100, Optional.of(lastTaskId)));
+            assertThat(activeArchive, is(store.getTasksOfAttemptUpdatedSince(attempt1.getId(), Instant.EPOCH, 100, Optional.absent())));
+            assertEmpty(store.getTasksOfAttemptUpdatedSince(attempt1.getId(), Instant.now().plusSeconds(3600), 100, Optional.absent()));
+            // archived updatedAt is truncated to seconds
+            assertThat(
+                    store.getArchivedTasksOfAttempt(attempt1.getId()).get().stream().map(ArchivedTask::getId).collect(Collectors.toList()),
+                    is(activeArchive.stream().map(ArchivedTask::getId).collect(Collectors.toList())));
+            assertThat(anotherSite.getArchivedTasksOfAttempt(attempt1.getId()), is(Optional.absent()));
         });
     }
 
@@ -458,6 +484,121 @@ public class DatabaseSessionStoreManagerTest
         assertThat(session.getLastAttempt(), is(StoredSessionAttempt.copyOf(attempt)));
     }
 
+    @Test
+    public void testSubmitDelayedAttempts()
+        throws Exception
+    {
+        Instant sessionTime1 = Instant.ofEpochSecond(Instant.now().getEpochSecond() / 3600 * 3600);
+        List<Instant> sessionTimes = ImmutableList.of(
+                sessionTime1,
+                sessionTime1.plusSeconds(3600),
+                sessionTime1.plusSeconds(7200));
+
+        List<AttemptRequest> requests = new ArrayList<>();
+        for (Instant sessionTime : sessionTimes) {
+            requests.add(attemptBuilder.buildFromStoredWorkflow(
+                        rev,
+                        wf1,
+                        newConfig(),
+                        ScheduleTime.runNow(sessionTime),
+                        Optional.of("backfill1"),
+                        Optional.absent(),
+                        ImmutableList.of()));
+        }
+
+        List<StoredSessionAttemptWithSession> attempts = factory.begin(() ->
+                exec.submitTransaction(0, (submitter) -> submitter.submitDelayedAttempts(proj.getId(), requests, Optional.absent())));
+        assertThat(attempts.size(), is(3));
+
+        factory.begin(() -> {
+            for (int i = 0; i < attempts.size(); i++) {
+                assertThat(attempts.get(i).getSession().getSessionTime(), is(sessionTimes.get(i)));
+                assertThat(attempts.get(i), is(store.getAttemptByName(proj.getId(), wf1.getName(), sessionTimes.get(i), "backfill1")));
+            }
+
+            assertThat(store.getSessionTimesOfAttemptName(proj.getId(), wf1.getName(), sessionTime1, sessionTime1.plusSeconds(3600), "backfill1"),
+                    containsInAnyOrder(sessionTimes.get(0), sessionTimes.get(1)));
+            assertThat(store.getSessionTimesOfAttemptName(proj.getId(), wf1.getName(), sessionTime1, sessionTime1.plusSeconds(7200), "other"),
+                    is(ImmutableList.of()));
+            assertThat(manager.getSessionStore(1).getSessionTimesOfAttemptName(proj.getId(), wf1.getName(), sessionTime1, sessionTime1.plusSeconds(7200), "backfill1"),
+                    is(ImmutableList.of()));
+            return null;
+        });
+
+        // same sessions conflict
+        factory.begin(() ->
+                assertConflict(() -> {
+                    propagateOnly(ResourceConflictException.class, () ->
+                            exec.submitTransaction(0, (submitter) -> submitter.submitDelayedAttempts(proj.getId(), requests, Optional.absent()))
+                    );
+                }));
+    }
+
+    @Test
+    public void testTrySetRetryWaitingToReady()
+        throws Exception
+    {
+        factory.begin(() -> {
+            WorkflowDefinition def1 = WorkflowDefinition.of(
+                    wf1.getName(),
+                    newConfig()
+                        .setNested("+step1", newConfig().set("sh>", "echo step1"))
+                        .setNested("+step2", newConfig().set("sh>", "echo step2"))
+                        .setNested("+step3", newConfig().set("sh>", "echo step3"))
+                        .setNested("+step4", newConfig().set("sh>", "echo step4")),
+                    ZoneId.of("UTC")
+                    );
+            AttemptRequest ar1 = attemptBuilder.buildFromStoredWorkflow(
+                    rev,
+                    wf1,
+                    newConfig(),
+                    ScheduleTime.runNow(Instant.ofEpochSecond(Instant.now().getEpochSecond())));
+            StoredSessionAttemptWithSession attempt1 = exec.submitWorkflow(0, ar1, def1);
+
+            List<Long> steps = store.getTasksOfAttempt(attempt1.getId()).stream()
+                .filter(task -> task.getParentId().isPresent())
+                .map(ArchivedTask::getId)
+                .collect(Collectors.toList());
+            assertThat(steps.size(), is(4));
+
+            // retry_at is not in the order of ids
+            setRetryWaiting(steps.get(0), -10);
+            setRetryWaiting(steps.get(1), -30);
+            setRetryWaiting(steps.get(2), -20);
+            // not yet
+            setRetryWaiting(steps.get(3), 3600);
+
+            // the limit is honored and tasks with earlier retry_at are set to READY first
+            assertThat(manager.trySetRetryWaitingToReady(2), is(2));
+            assertThat(taskState(attempt1, steps.get(0)), is(TaskStateCode.RETRY_WAITING));
+            assertThat(taskState(attempt1, steps.get(1)), is(TaskStateCode.READY));
+            assertThat(taskState(attempt1, steps.get(2)), is(TaskStateCode.READY));
+
+            assertThat(manager.trySetRetryWaitingToReady(2), is(1));
+            assertThat(taskState(attempt1, steps.get(0)), is(TaskStateCode.READY));
+
+            // tasks whose retry_at doesn't pass yet are left
+            assertThat(manager.trySetRetryWaitingToReady(2), is(0));
+            assertThat(taskState(attempt1, steps.get(3)), is(TaskStateCode.RETRY_WAITING));
+            assertThat(manager.findNextRetryWaitingDelay().get().getSeconds() > 3500, is(true));
+        });
+    }
+
+    private void setRetryWaiting(long taskId, int retryInterval)
+    {
+        manager.lockTaskIfExists(taskId, (TaskControlStore lockedTask, StoredTask task) ->
+                lockedTask.setRetryWaitingState(taskId, task.getState(), TaskStateCode.RETRY_WAITING, retryInterval, newConfig(), Optional.absent()));
+    }
+
+    private TaskStateCode taskState(StoredSessionAttemptWithSession attempt, long taskId)
+    {
+        return store.getTasksOfAttempt(attempt.getId()).stream()
+            .filter(task -> task.getId() == taskId)
+            .findFirst()
+            .get()
+            .getState();
+    }
+
     @Test
     public void verifyStoredArchiveTaskBackwardCompatibility()
     {
@@ -90,6 +90,7 @@ public class DatabaseTestingUtils
         "workflow_configs",
         "workflow_definitions",
         "schedules",
+        "schedule_backfill_jobs",
         "sessions",
         "session_attempts",
         "task_archives",
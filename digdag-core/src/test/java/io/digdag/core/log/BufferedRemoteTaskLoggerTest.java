@@ -0,0 +1,289 @@
+package io.digdag.core.log;
+
+import com.google.common.io.ByteStreams;
+import io.digdag.core.TempFileManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BufferedRemoteTaskLoggerTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private TempFileManager tempFiles;
+    private LogUploadExecutor uploadExecutor;
+    private List<String> uploaded;
+
+    @Before
+    public void setUp()
+    {
+        tempFiles = new TempFileManager(temporaryFolder.getRoot().toPath());
+        uploadExecutor = new LogUploadExecutor(2, 4, 10, 16, 0);
+        uploaded = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @After
+    public void shutdown()
+    {
+        uploadExecutor.shutdown();
+    }
+
+    private void upload(Path gzFile)
+        throws IOException
+    {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gzFile))) {
+            uploaded.add(new String(ByteStreams.toByteArray(in), UTF_8));
+        }
+    }
+
+    @Test
+    public void uploadAtClose()
+        throws Exception
+    {
+        BufferedRemoteTaskLogger logger = new BufferedRemoteTaskLogger(tempFiles, "test",
+                (firstLogTime, gzFile) -> upload(gzFile),
+                uploadExecutor);
+        logger.log(LogLevel.INFO, 0L, "hello\n");
+        logger.log(LogLevel.INFO, 0L, "world\n");
+        logger.close();
+
+        assertThat(uploaded, is(Collections.singletonList("hello\nworld\n")));
+        assertThat(uploadExecutor.getUploadedCount(), is(1L));
+        assertThat(uploadExecutor.getPendingCount(), is(0L));
+        assertThat(Files.list(temporaryFolder.getRoot().toPath().resolve("logs")).count(), is(0L));
+    }
+
+    @Test
+    public void rotateBySize()
+        throws Exception
+    {
+        BufferedRemoteTaskLogger logger = new BufferedRemoteTaskLogger(tempFiles, "test",
+                (firstLogTime, gzFile) -> upload(gzFile),
+                uploadExecutor);
+        logger.log(LogLevel.INFO, 0L, "0123456789\n");
+        logger.log(LogLevel.INFO, 0L, "0123456789\n");  // exceeds 16 bytes
+        logger.log(LogLevel.INFO, 0L, "abc\n");
+        logger.close();
+
+        // chunks of a logger are uploaded in order
+        assertThat(uploaded, is(Arrays.asList("0123456789\n0123456789\n", "abc\n")));
+    }
+
+    @Test
+    public void chunksOfLoggerAreUploadedInOrder()
+        throws Exception
+    {
+        BufferedRemoteTaskLogger logger = new BufferedRemoteTaskLogger(tempFiles, "test",
+                (firstLogTime, gzFile) -> {
+                    if (uploaded.isEmpty()) {
+                        // the other upload thread is idle while this upload is slow
+                        try {
+                            Thread.sleep(500);
+                        }
+                        catch (InterruptedException ex) {
+                            throw new RuntimeException(ex);
+                        }
+                    }
+                    upload(gzFile);
+                },
+                uploadExecutor);
+        logger.log(LogLevel.INFO, 0L, "first chunk of logs\n");
+        logger.log(LogLevel.INFO, 0L, "second chunk of logs\n");
+        logger.log(LogLevel.INFO, 0L, "third\n");
+        logger.close();
+
+        assertThat(uploaded, is(Arrays.asList("first chunk of logs\n", "second chunk of logs\n", "third\n")));
+    }
+
+    @Test
+    public void flushByInterval()
+        throws Exception
+    {
+        LogUploadExecutor intervalExecutor = new LogUploadExecutor(2, 4, 10, 1024 * 1024, 1);
+        try {
+            BufferedRemoteTaskLogger logger = new BufferedRemoteTaskLogger(tempFiles, "test",
+                    (firstLogTime, gzFile) -> upload(gzFile),
+                    intervalExecutor);
+            logger.log(LogLevel.INFO, 0L, "hello\n");
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (uploaded.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertThat(uploaded, is(Collections.singletonList("hello\n")));
+
+            logger.log(LogLevel.INFO, 0L, "world\n");
+            logger.close();
+
+            assertThat(uploaded, is(Arrays.asList("hello\n", "world\n")));
+        }
+        finally {
+            intervalExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void flusherDoesNotWaitForFullQueue()
+        throws Exception
+    {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LogUploadExecutor intervalExecutor = new LogUploadExecutor(2, 1, 10, 1024 * 1024, 1);
+        try {
+            BufferedRemoteTaskLogger slow = new BufferedRemoteTaskLogger(tempFiles, "slow",
+                    (firstLogTime, gzFile) -> {
+                        blocked.countDown();
+                        try {
+                            release.await();
+                        }
+                        catch (InterruptedException ex) {
+                            throw new RuntimeException(ex);
+                        }
+                        upload(gzFile);
+                    },
+                    intervalExecutor);
+            BufferedRemoteTaskLogger logger = new BufferedRemoteTaskLogger(tempFiles, "test",
+                    (firstLogTime, gzFile) -> upload(gzFile),
+                    intervalExecutor);
+
+            // the only slot of the queue is taken by the slow upload
+            slow.log(LogLevel.INFO, 0L, "slow\n");
+            assertThat(blocked.await(10, TimeUnit.SECONDS), is(true));
+
+            // the chunk expires while the queue is full
+            logger.log(LogLevel.INFO, 0L, "hello\n");
+            Thread.sleep(2500);
+            assertThat(uploaded, is(Collections.emptyList()));
+
+            // it's flushed by a later check instead of being dropped
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (uploaded.size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertThat(uploaded, is(Arrays.asList("slow\n", "hello\n")));
+            assertThat(intervalExecutor.getBackPressureCount(), is(0L));
+            assertThat(intervalExecutor.getDroppedBytes(), is(0L));
+
+            slow.close();
+            logger.close();
+        }
+        finally {
+            release.countDown();
+            intervalExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void chunksAreUploadedInOrderUnderFullQueue()
+        throws Exception
+    {
+        LogUploadExecutor smallExecutor = new LogUploadExecutor(2, 1, 10, 16, 0);
+        try {
+            BufferedRemoteTaskLogger logger = new BufferedRemoteTaskLogger(tempFiles, "test",
+                    (firstLogTime, gzFile) -> {
+                        if (uploaded.isEmpty()) {
+                            try {
+                                Thread.sleep(500);
+                            }
+                            catch (InterruptedException ex) {
+                                throw new RuntimeException(ex);
+                            }
+                        }
+                        upload(gzFile);
+                    },
+                    smallExecutor);
+            logger.log(LogLevel.INFO, 0L, "first chunk of logs\n");
+            // the writer waits until the first chunk is uploaded
+            logger.log(LogLevel.INFO, 0L, "second chunk of logs\n");
+            logger.log(LogLevel.INFO, 0L, "third\n");
+            logger.close();
+
+            assertThat(uploaded, is(Arrays.asList("first chunk of logs\n", "second chunk of logs\n", "third\n")));
+            assertThat(smallExecutor.getBackPressureCount() > 0, is(true));
+            assertThat(smallExecutor.getDroppedCount(), is(0L));
+        }
+        finally {
+            smallExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void droppedChunkIsRecordedInTaskLog()
+        throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        LogUploadExecutor smallExecutor = new LogUploadExecutor(2, 1, 1, 16, 0);
+        try {
+            BufferedRemoteTaskLogger slow = new BufferedRemoteTaskLogger(tempFiles, "slow",
+                    (firstLogTime, gzFile) -> {
+                        try {
+                            release.await();
+                        }
+                        catch (InterruptedException ex) {
+                            throw new RuntimeException(ex);
+                        }
+                    },
+                    smallExecutor);
+            BufferedRemoteTaskLogger logger = new BufferedRemoteTaskLogger(tempFiles, "test",
+                    (firstLogTime, gzFile) -> upload(gzFile),
+                    smallExecutor);
+
+            // the only slot of the queue is taken by the slow upload
+            slow.log(LogLevel.INFO, 0L, "0123456789abcdefg\n");
+
+            // no slot becomes available within max-wait
+            logger.log(LogLevel.INFO, 0L, "0123456789abcdefg\n");
+            assertThat(smallExecutor.getDroppedCount(), is(1L));
+            assertThat(smallExecutor.getDroppedBytes() > 0, is(true));
+
+            release.countDown();
+            logger.close();
+            slow.close();
+
+            assertThat(uploaded.size(), is(1));
+            assertThat(uploaded.get(0), containsString("[WARN]"));
+            assertThat(uploaded.get(0), containsString("because the log upload queue was full"));
+            assertThat(Files.list(temporaryFolder.getRoot().toPath().resolve("logs")).count(), is(0L));
+        }
+        finally {
+            release.countDown();
+            smallExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void failedUploadIsCountedAsDropped()
+        throws Exception
+    {
+        BufferedRemoteTaskLogger logger = new BufferedRemoteTaskLogger(tempFiles, "test",
+                (firstLogTime, gzFile) -> { throw new IOException("test"); },
+                uploadExecutor);
+        logger.log(LogLevel.INFO, 0L, "hello\n");
+        logger.close();
+
+        assertThat(uploadExecutor.getFailedCount(), is(1L));
+        assertThat(uploadExecutor.getDroppedBytes() > 0, is(true));
+        assertThat(Files.list(temporaryFolder.getRoot().toPath().resolve("logs")).count(), is(0L));
+    }
+}
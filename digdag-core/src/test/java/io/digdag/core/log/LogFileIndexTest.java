@@ -0,0 +1,70 @@
+package io.digdag.core.log;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import io.digdag.spi.LogFileHandle;
+import io.digdag.spi.LogFilePrefix;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LogFileIndexTest
+{
+    private final LogFilePrefix prefix = LogFilePrefix.builder()
+        .siteId(0)
+        .projectId(1)
+        .workflowName("wf")
+        .sessionTime(Instant.ofEpochSecond(0))
+        .timeZone(ZoneId.of("UTC"))
+        .retryAttemptName(Optional.absent())
+        .createdAt(Instant.ofEpochSecond(0))
+        .build();
+
+    private final List<LogFileHandle> handles = ImmutableList.of(
+            LogFiles.buildLogFileHandleFromFileName(LogFiles.formatFileName("+wf+a", Instant.ofEpochSecond(1), "agent"), 10),
+            LogFiles.buildLogFileHandleFromFileName(LogFiles.formatFileName("+wf+b", Instant.ofEpochSecond(2), "agent"), 10));
+
+    @Test
+    public void cacheUntilInvalidated()
+    {
+        LogFileIndex index = new LogFileIndex(60, 60, 10);
+        AtomicInteger loadCount = new AtomicInteger();
+
+        assertThat(index.getFileHandles(prefix, false, () -> { loadCount.incrementAndGet(); return handles; }), is(handles));
+        assertThat(index.getFileHandles(prefix, false, () -> { loadCount.incrementAndGet(); return handles; }), is(handles));
+        assertThat(loadCount.get(), is(1));
+
+        index.invalidate(prefix);
+        assertThat(index.getCachedFileHandles(prefix, false), is(Optional.absent()));
+        index.getFileHandles(prefix, false, () -> { loadCount.incrementAndGet(); return handles; });
+        assertThat(loadCount.get(), is(2));
+    }
+
+    @Test
+    public void finishedAttemptsUseLongerTtl()
+    {
+        LogFileIndex index = new LogFileIndex(0, 60, 10);
+        AtomicInteger loadCount = new AtomicInteger();
+
+        index.getFileHandles(prefix, false, () -> { loadCount.incrementAndGet(); return handles; });
+        index.getFileHandles(prefix, false, () -> { loadCount.incrementAndGet(); return handles; });
+        assertThat(loadCount.get(), is(2));
+
+        index.getFileHandles(prefix, true, () -> { loadCount.incrementAndGet(); return handles; });
+        index.getFileHandles(prefix, true, () -> { loadCount.incrementAndGet(); return handles; });
+        assertThat(loadCount.get(), is(3));
+    }
+
+    @Test
+    public void filterByTaskName()
+    {
+        assertThat(LogFileIndex.filterByTaskName(handles, Optional.of("+wf+b")), is(handles.subList(1, 2)));
+        assertThat(LogFileIndex.filterByTaskName(handles, Optional.absent()), is(handles));
+    }
+}
@@ -0,0 +1,167 @@
+package io.digdag.core.plugin;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class RemotePluginLoaderTest
+{
+    private static final List<RemoteRepository> REPOSITORIES = ImmutableList.of(
+            new RemoteRepository.Builder("central", "default", "http://central.maven.org/maven2/").build());
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path repo;
+    private RemotePluginLoader loader;
+
+    @Before
+    public void setUp()
+            throws Exception
+    {
+        repo = folder.newFolder("repo").toPath();
+        loader = new RemotePluginLoader(repo);
+    }
+
+    @Test
+    public void writeAndReadClasspathCache()
+            throws Exception
+    {
+        Path cacheFile = loader.classpathCacheFile(REPOSITORIES, "com.example:plugin:1.0.0").get();
+        List<Path> classpath = ImmutableList.of(newJar("plugin-1.0.0.jar"), newJar("dep-2.0.0.jar"));
+
+        assertThat(RemotePluginLoader.readClasspathCache(cacheFile), is(Optional.absent()));
+
+        RemotePluginLoader.writeClasspathCache(cacheFile, classpath);
+        assertThat(RemotePluginLoader.readClasspathCache(cacheFile), is(Optional.of(classpath)));
+
+        // overwrite
+        List<Path> updated = ImmutableList.of(newJar("plugin-1.0.0.jar"));
+        RemotePluginLoader.writeClasspathCache(cacheFile, updated);
+        assertThat(RemotePluginLoader.readClasspathCache(cacheFile), is(Optional.of(updated)));
+    }
+
+    @Test
+    public void invalidateClasspathCacheIfFileIsRemoved()
+            throws Exception
+    {
+        Path cacheFile = loader.classpathCacheFile(REPOSITORIES, "com.example:plugin:1.0.0").get();
+        Path dep = newJar("dep-2.0.0.jar");
+        RemotePluginLoader.writeClasspathCache(cacheFile, ImmutableList.of(newJar("plugin-1.0.0.jar"), dep));
+
+        Files.delete(dep);
+        assertThat(RemotePluginLoader.readClasspathCache(cacheFile), is(Optional.absent()));
+    }
+
+    @Test
+    public void invalidateEmptyClasspathCache()
+            throws Exception
+    {
+        Path cacheFile = loader.classpathCacheFile(REPOSITORIES, "com.example:plugin:1.0.0").get();
+        Files.createDirectories(cacheFile.getParent());
+        Files.write(cacheFile, new byte[0]);
+
+        assertThat(RemotePluginLoader.readClasspathCache(cacheFile), is(Optional.absent()));
+    }
+
+    @Test
+    public void classpathCacheFileDependsOnRepositories()
+            throws Exception
+    {
+        List<RemoteRepository> other = ImmutableList.<RemoteRepository>builder()
+            .addAll(REPOSITORIES)
+            .add(new RemoteRepository.Builder("repository-1", "default", "https://example.com/maven/").build())
+            .build();
+
+        Path cacheFile = loader.classpathCacheFile(REPOSITORIES, "com.example:plugin:1.0.0").get();
+        assertThat(cacheFile.getParent(), is(repo.resolve(".classpath-cache")));
+        assertThat(loader.classpathCacheFile(other, "com.example:plugin:1.0.0").get(), is(not(cacheFile)));
+        assertThat(loader.classpathCacheFile(REPOSITORIES, "com.example:plugin:1.0.1").get(), is(not(cacheFile)));
+    }
+
+    @Test
+    public void bypassClasspathCacheOfNonFixedVersion()
+            throws Exception
+    {
+        assertThat(loader.classpathCacheFile(REPOSITORIES, "com.example:plugin:1.0.0-SNAPSHOT"), is(Optional.absent()));
+        assertThat(loader.classpathCacheFile(REPOSITORIES, "com.example:plugin:[1.0,2.0)"), is(Optional.absent()));
+        assertThat(loader.classpathCacheFile(REPOSITORIES, "com.example:plugin:LATEST"), is(Optional.absent()));
+        assertThat(loader.classpathCacheFile(REPOSITORIES, "com.example:plugin:RELEASE"), is(Optional.absent()));
+    }
+
+    @Test
+    public void isCacheable()
+            throws Exception
+    {
+        assertThat(RemotePluginLoader.isCacheable(
+                    node("com.example:plugin:1.0.0", "1.0.0",
+                        node("com.example:dep:2.0.0", "2.0.0"))),
+                is(true));
+    }
+
+    @Test
+    public void isNotCacheableIfTransitiveDependencyIsSnapshot()
+            throws Exception
+    {
+        assertThat(RemotePluginLoader.isCacheable(
+                    node("com.example:plugin:1.0.0", "1.0.0",
+                        node("com.example:dep:2.0.0", "2.0.0",
+                            node("com.example:snapshot:3.0.0-SNAPSHOT", "3.0.0-SNAPSHOT")))),
+                is(false));
+    }
+
+    @Test
+    public void isNotCacheableIfTransitiveDependencyIsRange()
+            throws Exception
+    {
+        // range [2.0,3.0) resolved to 2.1.0
+        assertThat(RemotePluginLoader.isCacheable(
+                    node("com.example:plugin:1.0.0", "1.0.0",
+                        node("com.example:dep:2.1.0", "[2.0,3.0)"))),
+                is(false));
+    }
+
+    @Test
+    public void isNotCacheableIfTransitiveDependencyIsMetaVersion()
+            throws Exception
+    {
+        assertThat(RemotePluginLoader.isCacheable(
+                    node("com.example:plugin:1.0.0", "1.0.0",
+                        node("com.example:dep:2.1.0", "LATEST"))),
+                is(false));
+    }
+
+    private Path newJar(String name)
+            throws Exception
+    {
+        Path path = repo.resolve(name);
+        Files.write(path, name.getBytes(UTF_8));
+        return path;
+    }
+
+    private static DefaultDependencyNode node(String coords, String constraint, DefaultDependencyNode... children)
+            throws Exception
+    {
+        DefaultDependencyNode node = new DefaultDependencyNode(new Dependency(new DefaultArtifact(coords), "runtime"));
+        node.setVersionConstraint(new GenericVersionScheme().parseVersionConstraint(constraint));
+        node.setChildren(ImmutableList.copyOf(children));
+        return node;
+    }
+}
@@ -11,10 +11,14 @@ import io.digdag.core.repository.ProjectStoreManager;
 import io.digdag.core.repository.StoredProject;
 import io.digdag.core.repository.StoredWorkflowDefinitionWithProject;
 import io.digdag.core.session.SessionStore;
+import io.digdag.core.session.Session;
 import io.digdag.core.session.SessionStoreManager;
 import io.digdag.core.session.StoredSessionAttemptWithSession;
 import io.digdag.core.workflow.AttemptBuilder;
+import io.digdag.core.workflow.AttemptRequest;
+import io.digdag.core.workflow.SessionAttemptConflictException;
 import io.digdag.core.workflow.WorkflowExecutor;
+import io.digdag.core.workflow.WorkflowSubmitter;
 import io.digdag.spi.ScheduleTime;
 import io.digdag.spi.Scheduler;
 import org.junit.Before;
@@ -27,13 +31,23 @@ import org.mockito.runners.MockitoJUnitRunner;
 import javax.sql.DataSource;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 
 import static java.time.ZoneOffset.UTC;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.spy;
@@ -46,6 +60,7 @@ public class ScheduleExecutorTest
     private static final int SITE_ID = 7;
     private static final long WORKFLOW_DEFINITION_ID = 17;
     private static final String WORKFLOW_NAME = "wfwf";
+    private static final long JOB_ID = 19L;
 
     private static final ConfigFactory CONFIG_FACTORY = new ConfigFactory(DigdagClient.objectMapper());
 
@@ -65,11 +80,15 @@ public class ScheduleExecutorTest
     @Mock AttemptBuilder attemptBuilder;
     @Mock WorkflowExecutor workflowExecutor;
     @Mock DataSource dataSource;
+    @Mock ScheduleStore scheduleStore;
+    @Mock WorkflowSubmitter submitter;
 
     private ScheduleExecutor scheduleExecutor;
 
     private Instant now;
     private Config workflowConfig;
+    private final BackfillJobs jobs = new BackfillJobs();
+    private final List<StoredSessionAttemptWithSession> unsubmittedAttempts = new ArrayList<>();
 
     @Before
     public void setUp()
@@ -232,4 +251,369 @@ public class ScheduleExecutorTest
         verify(scs).updateNextScheduleTimeAndLastSessionTime(SCHEDULE_ID, nextScheduleTime, now);
     }
 
+    @Test
+    public void testBatch()
+            throws Exception
+    {
+        workflowConfig.getNestedOrSetEmpty("schedule")
+                .set("daily>", "12:00:00");
+
+        ScheduleExecutor batchExecutor = spy(
+                new ScheduleExecutor(
+                        projectStoreManager,
+                        scheduleStoreManager,
+                        schedulerManager,
+                        transactionManager,
+                        sessionStoreManager,
+                        attemptBuilder,
+                        workflowExecutor,
+                        CONFIG_FACTORY,
+                        CONFIG_FACTORY.create().set("schedule.batch_size", 10)
+                ));
+
+        when(projectStoreManager.getWorkflowDetailsByIdList(ImmutableList.of(WORKFLOW_DEFINITION_ID)))
+                .thenReturn(ImmutableList.of(workflowDefinition));
+        doAnswer(invocation -> {
+            ScheduleStoreManager.ScheduleBatchAction func = invocation.getArgumentAt(2, ScheduleStoreManager.ScheduleBatchAction.class);
+            func.schedule(scs, ImmutableList.of(schedule));
+            return 1;
+        }).when(scheduleStoreManager).lockReadyScheduleBatch(any(Instant.class), eq(10), any(ScheduleStoreManager.ScheduleBatchAction.class));
+
+        batchExecutor.runScheduleOnce(now);
+
+        // Verify that the workflow was fetched in bulk and the attempt was started
+        verify(projectStoreManager, never()).getWorkflowDetailsById(anyLong());
+        verify(batchExecutor).startSchedule(any(StoredSchedule.class), any(Scheduler.class), any(StoredWorkflowDefinitionWithProject.class));
+        verify(scs).updateNextScheduleTimeAndLastSessionTime(SCHEDULE_ID, nextScheduleTime, now);
+        assertThat(batchExecutor.getFiredCount(), is(1L));
+    }
+
+    @Test
+    public void testBatchRetriesSchedulesOneByOneOnError()
+            throws Exception
+    {
+        workflowConfig.getNestedOrSetEmpty("schedule")
+                .set("daily>", "12:00:00");
+
+        ScheduleExecutor batchExecutor = spy(
+                new ScheduleExecutor(
+                        projectStoreManager,
+                        scheduleStoreManager,
+                        schedulerManager,
+                        transactionManager,
+                        sessionStoreManager,
+                        attemptBuilder,
+                        workflowExecutor,
+                        CONFIG_FACTORY,
+                        CONFIG_FACTORY.create().set("schedule.batch_size", 10)
+                ));
+
+        when(projectStoreManager.getWorkflowDetailsByIdList(ImmutableList.of(WORKFLOW_DEFINITION_ID)))
+                .thenReturn(ImmutableList.of(workflowDefinition));
+        doAnswer(invocation -> {
+            ScheduleStoreManager.ScheduleBatchAction func = invocation.getArgumentAt(2, ScheduleStoreManager.ScheduleBatchAction.class);
+            func.schedule(scs, ImmutableList.of(schedule));
+            return 1;
+        }).when(scheduleStoreManager).lockReadyScheduleBatch(any(Instant.class), eq(10), any(ScheduleStoreManager.ScheduleBatchAction.class));
+        doAnswer(invocation -> {
+            ScheduleStoreManager.ScheduleAction func = invocation.getArgumentAt(2, ScheduleStoreManager.ScheduleAction.class);
+            func.schedule(scs, schedule);
+            return true;
+        }).when(scheduleStoreManager).lockReadyScheduleById(eq(SCHEDULE_ID), any(Instant.class), any(ScheduleStoreManager.ScheduleAction.class));
+
+        // updating the schedule fails in the batch and succeeds in the retry
+        doThrow(new RuntimeException("aborted"))
+            .doNothing()
+            .when(scs).updateNextScheduleTimeAndLastSessionTime(SCHEDULE_ID, nextScheduleTime, now);
+
+        assertThat(batchExecutor.runScheduleOnce(now), is(true));
+
+        verify(scheduleStoreManager).lockReadyScheduleById(eq(SCHEDULE_ID), eq(now), any(ScheduleStoreManager.ScheduleAction.class));
+        verify(scs, times(2)).updateNextScheduleTimeAndLastSessionTime(SCHEDULE_ID, nextScheduleTime, now);
+    }
+
+    @Test
+    public void testStartBackfillSubmitsInChunks()
+            throws Exception
+    {
+        List<StoredSessionAttemptWithSession> attempts = setUpBackfill(5);
+        when(submitter.getActiveAttemptCount()).thenReturn(0L);
+
+        ScheduleExecutor backfillExecutor = newBackfillExecutor(CONFIG_FACTORY.create()
+                .set("schedule.backfill.chunk_size", 2));
+
+        BackfillJob started = backfillExecutor.startBackfill(SITE_ID, SCHEDULE_ID, now.minus(5, ChronoUnit.DAYS), "bf", Optional.absent());
+        assertThat(started.getStatus(), is(BackfillJob.Status.RUNNING));
+        assertThat(started.getTotal(), is(5));
+        // attempts are submitted by backfill threads
+        verify(submitter, never()).submitDelayedAttempts(anyInt(), anyListOf(AttemptRequest.class), any(Optional.class));
+
+        BackfillJob job = runBackfillJob(backfillExecutor);
+
+        assertThat(job.getStatus(), is(BackfillJob.Status.SUCCESS));
+        assertThat(job.getTotal(), is(5));
+        assertThat(job.getSubmitted(), is(5));
+        assertThat(job.getLastSessionTime(), is(Optional.of(attempts.get(4).getSession().getSessionTime())));
+        assertThat(backfillExecutor.getBackfillJob(SITE_ID, job.getId()), is(job));
+
+        // chunks are submitted in separated transactions and depend on the last session of the previous chunk
+        verify(submitter).submitDelayedAttempts(eq(PROJECT_ID), anyListOf(AttemptRequest.class), eq(Optional.absent()));
+        verify(submitter).submitDelayedAttempts(eq(PROJECT_ID), anyListOf(AttemptRequest.class), eq(Optional.of(2L)));
+        verify(submitter).submitDelayedAttempts(eq(PROJECT_ID), anyListOf(AttemptRequest.class), eq(Optional.of(4L)));
+        verify(workflowExecutor, times(3)).submitTransaction(eq(SITE_ID), any(WorkflowExecutor.WorkflowSubmitterAction.class));
+    }
+
+    @Test
+    public void testStartBackfillWaitsForActiveAttempts()
+            throws Exception
+    {
+        setUpBackfill(5);
+        when(submitter.getActiveAttemptCount()).thenReturn(3L, 3L, 1L, 0L);
+
+        ScheduleExecutor backfillExecutor = newBackfillExecutor(CONFIG_FACTORY.create()
+                .set("schedule.backfill.max_active_attempts", 3));
+
+        backfillExecutor.startBackfill(SITE_ID, SCHEDULE_ID, now.minus(5, ChronoUnit.DAYS), "bf", Optional.absent());
+
+        // a waiting job is released and locked again after the wait interval
+        assertThat(backfillExecutor.runBackfillJobOnce(now), is(false));
+        assertThat(jobs.job.getNextRunTime(), is(now.plusSeconds(10)));
+        assertThat(backfillExecutor.runBackfillJobOnce(now), is(false));
+        assertThat(backfillExecutor.runBackfillJobOnce(now.plusSeconds(10)), is(false));
+
+        BackfillJob job = runBackfillJob(backfillExecutor, now.plusSeconds(20));
+
+        assertThat(job.getStatus(), is(BackfillJob.Status.SUCCESS));
+        assertThat(job.getSubmitted(), is(5));
+
+        // waits twice, then submits 2 attempts (3 - 1) and 3 attempts (3 - 0)
+        verify(submitter, times(4)).getActiveAttemptCount();
+        verify(submitter).submitDelayedAttempts(eq(PROJECT_ID), anyListOf(AttemptRequest.class), eq(Optional.absent()));
+        verify(submitter).submitDelayedAttempts(eq(PROJECT_ID), anyListOf(AttemptRequest.class), eq(Optional.of(2L)));
+    }
+
+    @Test
+    public void testStartBackfillFailsAfterMaxWait()
+            throws Exception
+    {
+        setUpBackfill(5);
+        when(submitter.getActiveAttemptCount()).thenReturn(100L);
+
+        ScheduleExecutor backfillExecutor = newBackfillExecutor(CONFIG_FACTORY.create()
+                .set("schedule.backfill.max_active_attempts", 3)
+                .set("schedule.backfill.max_wait", 60));
+
+        backfillExecutor.startBackfill(SITE_ID, SCHEDULE_ID, now.minus(5, ChronoUnit.DAYS), "bf", Optional.absent());
+
+        assertThat(backfillExecutor.runBackfillJobOnce(now.plusSeconds(59)), is(false));
+        assertThat(jobs.job.getStatus(), is(BackfillJob.Status.RUNNING));
+
+        BackfillJob job = runBackfillJob(backfillExecutor, now.plusSeconds(70));
+
+        assertThat(job.getStatus(), is(BackfillJob.Status.ERROR));
+        assertThat(job.getSubmitted(), is(0));
+        assertThat(job.getError().get(), containsString("didn't decrease below 3"));
+        verify(submitter, never()).submitDelayedAttempts(anyInt(), anyListOf(AttemptRequest.class), any(Optional.class));
+    }
+
+    @Test
+    public void testBackfillContinuesStoredJob()
+            throws Exception
+    {
+        List<StoredSessionAttemptWithSession> attempts = setUpBackfill(5);
+        when(submitter.getActiveAttemptCount()).thenReturn(0L);
+
+        // a job that submitted 2 attempts on a server that was restarted
+        Instant first = attempts.get(0).getSession().getSessionTime();
+        jobs.job = ImmutableBackfillJob.builder()
+            .from(newBackfillJob(first, 5))
+            .submitted(2)
+            .lastSessionId(2L)
+            .lastSessionTime(first.plus(1, ChronoUnit.DAYS))
+            .build();
+        unsubmittedAttempts.subList(0, 2).clear();
+
+        BackfillJob job = runBackfillJob(newBackfillExecutor(CONFIG_FACTORY.create()));
+
+        assertThat(job.getStatus(), is(BackfillJob.Status.SUCCESS));
+        assertThat(job.getSubmitted(), is(5));
+        assertThat(job.getLastSessionTime(), is(Optional.of(first.plus(4, ChronoUnit.DAYS))));
+        // continues from the session after the last submitted one
+        verify(scheduler, never()).getFirstScheduleTime(any(Instant.class));
+        verify(scheduler).nextScheduleTime(first.plus(1, ChronoUnit.DAYS));
+        verify(submitter).submitDelayedAttempts(eq(PROJECT_ID), anyListOf(AttemptRequest.class), eq(Optional.of(2L)));
+        verify(submitter, never()).getLastExecutedSessionTime(anyInt(), any(String.class), any(Instant.class));
+    }
+
+    @Test
+    public void testBackfillJobFailsIfChunkFails()
+            throws Exception
+    {
+        setUpBackfill(5);
+        when(submitter.getActiveAttemptCount()).thenReturn(0L);
+        when(submitter.submitDelayedAttempts(anyInt(), anyListOf(AttemptRequest.class), any(Optional.class)))
+                .thenThrow(new SessionAttemptConflictException("conflict", null, null));
+
+        ScheduleExecutor backfillExecutor = newBackfillExecutor(CONFIG_FACTORY.create());
+        backfillExecutor.startBackfill(SITE_ID, SCHEDULE_ID, now.minus(5, ChronoUnit.DAYS), "bf", Optional.absent());
+
+        BackfillJob job = runBackfillJob(backfillExecutor);
+
+        assertThat(job.getStatus(), is(BackfillJob.Status.ERROR));
+        assertThat(job.getSubmitted(), is(0));
+        assertThat(job.getError().get(), containsString("conflict"));
+        // the chunk is rolled back and the job is failed in another transaction
+        verify(scheduleStoreManager).failBackfillJob(eq(JOB_ID), any(String.class));
+    }
+
+    // keeps a backfill job as the database does
+    private static class BackfillJobs
+            implements BackfillJobControlStore
+    {
+        BackfillJob job;
+
+        @Override
+        public void addSubmittedAttempts(long jobId, int count, long lastSessionId, Instant lastSessionTime, Instant currentTime)
+        {
+            job = ImmutableBackfillJob.builder()
+                .from(job)
+                .submitted(job.getSubmitted() + count)
+                .lastSessionId(lastSessionId)
+                .lastSessionTime(lastSessionTime)
+                .nextRunTime(currentTime)
+                .lastSubmittedAt(currentTime)
+                .build();
+        }
+
+        @Override
+        public void delayBackfillJob(long jobId, Instant nextRunTime)
+        {
+            job = ImmutableBackfillJob.builder()
+                .from(job)
+                .nextRunTime(nextRunTime)
+                .build();
+        }
+
+        @Override
+        public void finishBackfillJob(long jobId, BackfillJob.Status status, Optional<String> error)
+        {
+            job = ImmutableBackfillJob.builder()
+                .from(job)
+                .status(status)
+                .error(error)
+                .finishedAt(Instant.now())
+                .build();
+        }
+    }
+
+    private BackfillJob newBackfillJob(Instant fromTime, int total)
+    {
+        return ImmutableBackfillJob.builder()
+            .id(JOB_ID)
+            .siteId(SITE_ID)
+            .scheduleId(SCHEDULE_ID)
+            .attemptName("bf")
+            .fromTime(fromTime)
+            .total(total)
+            .submitted(0)
+            .status(BackfillJob.Status.RUNNING)
+            .nextRunTime(now)
+            .lastSubmittedAt(now)
+            .createdAt(now)
+            .build();
+    }
+
+    private List<StoredSessionAttemptWithSession> setUpBackfill(int count)
+            throws Exception
+    {
+        Instant first = now.minus(count, ChronoUnit.DAYS);
+        when(scheduler.getFirstScheduleTime(any(Instant.class))).thenReturn(ScheduleTime.of(first, first));
+        when(scheduler.nextScheduleTime(any(Instant.class))).thenAnswer(invocation -> {
+            Instant time = invocation.getArgumentAt(0, Instant.class).plus(1, ChronoUnit.DAYS);
+            return ScheduleTime.of(time, time);
+        });
+        when(scheduleStoreManager.getScheduleStore(SITE_ID)).thenReturn(scheduleStore);
+        when(scheduleStore.getScheduleById(SCHEDULE_ID)).thenReturn(schedule);
+        doAnswer(invocation -> {
+            ScheduleStore.ScheduleLockAction<?> func = invocation.getArgumentAt(1, ScheduleStore.ScheduleLockAction.class);
+            return func.call(scs, schedule);
+        }).when(scheduleStore).lockScheduleById(eq(SCHEDULE_ID), any(ScheduleStore.ScheduleLockAction.class));
+        doAnswer(invocation -> {
+            WorkflowExecutor.WorkflowSubmitterAction<?> func = invocation.getArgumentAt(1, WorkflowExecutor.WorkflowSubmitterAction.class);
+            return func.call(submitter);
+        }).when(workflowExecutor).submitTransaction(eq(SITE_ID), any(WorkflowExecutor.WorkflowSubmitterAction.class));
+        when(submitter.getLastExecutedSessionTime(anyInt(), any(String.class), any(Instant.class)))
+                .thenReturn(Optional.absent());
+
+        // backfill jobs are stored in jobs
+        when(scheduleStore.insertBackfillJob(eq(SCHEDULE_ID), eq("bf"), any(Instant.class), anyInt(), any(Instant.class))).thenAnswer(invocation -> {
+            jobs.job = newBackfillJob(invocation.getArgumentAt(2, Instant.class), invocation.getArgumentAt(3, Integer.class));
+            return jobs.job;
+        });
+        when(scheduleStore.getBackfillJobById(JOB_ID)).thenAnswer(invocation -> jobs.job);
+        when(scheduleStoreManager.lockReadyBackfillJob(any(Instant.class), any(ScheduleStoreManager.BackfillJobAction.class))).thenAnswer(invocation -> {
+            Instant currentTime = invocation.getArgumentAt(0, Instant.class);
+            if (jobs.job == null || jobs.job.getStatus() != BackfillJob.Status.RUNNING || jobs.job.getNextRunTime().isAfter(currentTime)) {
+                return false;
+            }
+            BackfillJob saved = jobs.job;
+            try {
+                invocation.getArgumentAt(1, ScheduleStoreManager.BackfillJobAction.class).run(jobs, jobs.job);
+            }
+            catch (Exception ex) {
+                // rollback
+                jobs.job = saved;
+                throw ex;
+            }
+            return true;
+        });
+        when(scheduleStoreManager.failBackfillJob(eq(JOB_ID), any(String.class))).thenAnswer(invocation -> {
+            jobs.finishBackfillJob(JOB_ID, BackfillJob.Status.ERROR, Optional.of(invocation.getArgumentAt(1, String.class)));
+            return true;
+        });
+
+        // session id of the n-th attempt is n
+        List<StoredSessionAttemptWithSession> attempts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StoredSessionAttemptWithSession a = Mockito.mock(StoredSessionAttemptWithSession.class);
+            when(a.getSessionId()).thenReturn((long) i + 1);
+            when(a.getSession()).thenReturn(Session.of(PROJECT_ID, WORKFLOW_NAME, first.plus(i, ChronoUnit.DAYS)));
+            attempts.add(a);
+        }
+        unsubmittedAttempts.addAll(attempts);
+        when(submitter.submitDelayedAttempts(anyInt(), anyListOf(AttemptRequest.class), any(Optional.class))).thenAnswer(invocation -> {
+            List<?> requests = invocation.getArgumentAt(1, List.class);
+            List<StoredSessionAttemptWithSession> chunk = ImmutableList.copyOf(unsubmittedAttempts.subList(0, requests.size()));
+            unsubmittedAttempts.subList(0, requests.size()).clear();
+            return chunk;
+        });
+        return attempts;
+    }
+
+    private ScheduleExecutor newBackfillExecutor(Config systemConfig)
+    {
+        return new ScheduleExecutor(
+                projectStoreManager,
+                scheduleStoreManager,
+                schedulerManager,
+                transactionManager,
+                sessionStoreManager,
+                attemptBuilder,
+                workflowExecutor,
+                CONFIG_FACTORY,
+                systemConfig);
+    }
+
+    private BackfillJob runBackfillJob(ScheduleExecutor executor)
+    {
+        return runBackfillJob(executor, now);
+    }
+
+    private BackfillJob runBackfillJob(ScheduleExecutor executor, Instant time)
+    {
+        for (int i = 0; i < 100 && jobs.job.getStatus() == BackfillJob.Status.RUNNING; i++) {
+            executor.runBackfillJobOnce(time);
+        }
+        return jobs.job;
+    }
 }
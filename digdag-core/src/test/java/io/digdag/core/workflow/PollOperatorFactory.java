@@ -0,0 +1,74 @@
+package io.digdag.core.workflow;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import com.google.common.base.Throwables;
+import com.google.inject.Inject;
+import io.digdag.spi.OperatorContext;
+import io.digdag.spi.TaskExecutionException;
+import io.digdag.spi.TaskRequest;
+import io.digdag.spi.TaskResult;
+import io.digdag.spi.Operator;
+import io.digdag.spi.OperatorFactory;
+import io.digdag.client.config.Config;
+import io.digdag.client.config.ConfigElement;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.nio.file.StandardOpenOption.APPEND;
+
+// polls once after `interval` seconds, then appends the command to append_file
+public class PollOperatorFactory
+        implements OperatorFactory
+{
+    @Inject
+    public PollOperatorFactory()
+    { }
+
+    public String getType()
+    {
+        return "poll";
+    }
+
+    @Override
+    public Operator newOperator(OperatorContext context)
+    {
+        return new PollOperator(context);
+    }
+
+    private static class PollOperator
+            implements Operator
+    {
+        private final Path projectPath;
+        private final TaskRequest request;
+
+        public PollOperator(OperatorContext context)
+        {
+            this.projectPath = context.getProjectPath();
+            this.request = context.getTaskRequest();
+        }
+
+        @Override
+        public TaskResult run()
+        {
+            Config params = request.getConfig();
+            Config state = request.getLastStateParams();
+
+            if (!state.get("polled", boolean.class, false)) {
+                throw TaskExecutionException.ofNextPolling(params.get("interval", int.class),
+                        ConfigElement.copyOf(state.deepCopy().set("polled", true)));
+            }
+
+            String message = params.get("_command", String.class);
+            try {
+                Files.write(projectPath.resolve(params.get("append_file", String.class)), message.getBytes(UTF_8), CREATE, WRITE, APPEND);
+            }
+            catch (IOException ex) {
+                throw Throwables.propagate(ex);
+            }
+
+            return TaskResult.empty(request);
+        }
+    }
+}
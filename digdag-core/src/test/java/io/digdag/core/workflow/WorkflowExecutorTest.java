@@ -82,6 +82,17 @@ public class WorkflowExecutorTest
         assertThat(new String(Files.readAllBytes(folder.getRoot().toPath().resolve("out")), UTF_8), is("try1try2try1try2try1try2try1try2"));
     }
 
+    @Test
+    public void retryWaitingTaskEarlierThanNextCheck()
+        throws Exception
+    {
+        // +late waits 8 seconds and the next check of RETRY_WAITING tasks is
+        // set to that time. +early starts waiting after that for 1 second and
+        // it's retried before +late.
+        runWorkflow("retry_waiting_wakeup", loadYamlResource("/io/digdag/core/workflow/retry_waiting_wakeup.dig"));
+        assertThat(new String(Files.readAllBytes(folder.getRoot().toPath().resolve("out")), UTF_8), is("earlylate"));
+    }
+
     private void runWorkflow(String workflowName, Config config)
             throws Exception
     {
@@ -12,6 +12,7 @@ import io.digdag.guice.rs.server.undertow.UndertowServerConfig.ListenAddress;
 import io.undertow.Handlers;
 import io.undertow.Undertow;
 import io.undertow.UndertowOptions;
+import io.undertow.predicate.Predicate;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.OpenListener;
@@ -19,6 +20,10 @@ import io.undertow.server.handlers.GracefulShutdownHandler;
 import io.undertow.server.handlers.accesslog.AccessLogHandler;
 import io.undertow.server.handlers.accesslog.AccessLogReceiver;
 import io.undertow.server.handlers.accesslog.DefaultAccessLogReceiver;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.DeflateEncodingProvider;
+import io.undertow.server.handlers.encoding.EncodingHandler;
+import io.undertow.server.handlers.encoding.GzipEncodingProvider;
 import io.undertow.servlet.Servlets;
 import io.undertow.servlet.api.DeploymentInfo;
 import io.undertow.servlet.api.DeploymentManager;
@@ -26,6 +31,8 @@ import io.undertow.servlet.api.FilterInfo;
 import io.undertow.servlet.api.ServletContainerInitializerInfo;
 import io.undertow.servlet.spec.HttpServletRequestImpl;
 import io.undertow.util.AttachmentKey;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
@@ -182,6 +189,9 @@ public class UndertowServer
         {
             HttpHandler handler = Handlers.path(Handlers.redirect("/"))
                 .addPrefixPath("/", deployment.start());
+            if (config.getEnableHttpCompression()) {
+                handler = buildEncodingHandler(handler);
+            }
             if (config.getAccessLogPath().isPresent()) {
                 handler = buildAccessLogHandler(config, handler);
             }
@@ -289,6 +299,43 @@ public class UndertowServer
         }
     }
 
+    private static HttpHandler buildEncodingHandler(HttpHandler nextHandler)
+    {
+        Predicate compressible = new CompressibleResponsePredicate();
+        return new EncodingHandler(nextHandler,
+                new ContentEncodingRepository()
+                .addEncodingHandler("gzip", new GzipEncodingProvider(), 50, compressible)
+                .addEncodingHandler("deflate", new DeflateEncodingProvider(), 10, compressible));
+    }
+
+    static class CompressibleResponsePredicate
+            implements Predicate
+    {
+        // smaller responses fit in a packet. compressing them only costs CPU.
+        private static final long MIN_COMPRESS_SIZE = 1024;
+
+        @Override
+        public boolean resolve(HttpServerExchange exchange)
+        {
+            HeaderMap headers = exchange.getResponseHeaders();
+
+            // Content-Length is absent if the response is streamed (e.g. StreamingOutput)
+            String length = headers.getFirst(Headers.CONTENT_LENGTH);
+            if (length != null && Long.parseLong(length) < MIN_COMPRESS_SIZE) {
+                return false;
+            }
+
+            // binary content such as project archives is already compressed
+            String type = headers.getFirst(Headers.CONTENT_TYPE);
+            if (type == null) {
+                return false;
+            }
+            return type.startsWith("application/json")
+                || type.startsWith("text/")
+                || type.startsWith("application/javascript");
+        }
+    }
+
     private static HttpHandler buildAccessLogHandler(UndertowServerConfig config, HttpHandler nextHandler)
     {
         Path path = Paths.get(config.getAccessLogPath().get()).toAbsolutePath().normalize();
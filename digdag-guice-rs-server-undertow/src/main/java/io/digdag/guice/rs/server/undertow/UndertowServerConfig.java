@@ -87,4 +87,9 @@ public interface UndertowServerConfig
      * Enable HTTP/2.
      */
     boolean getEnableHttp2();
+
+    /**
+     * Enable gzip and deflate compression of responses.
+     */
+    boolean getEnableHttpCompression();
 }
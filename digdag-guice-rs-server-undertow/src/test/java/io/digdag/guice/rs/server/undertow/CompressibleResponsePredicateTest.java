@@ -0,0 +1,57 @@
+package io.digdag.guice.rs.server.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CompressibleResponsePredicateTest
+{
+    private final UndertowServer.CompressibleResponsePredicate predicate = new UndertowServer.CompressibleResponsePredicate();
+
+    @Test
+    public void compressTextContent()
+    {
+        assertThat(predicate.resolve(exchange("application/json", 4096L)), is(true));
+        assertThat(predicate.resolve(exchange("application/json;charset=utf-8", 4096L)), is(true));
+        assertThat(predicate.resolve(exchange("text/plain", 4096L)), is(true));
+        assertThat(predicate.resolve(exchange("application/javascript", 4096L)), is(true));
+    }
+
+    @Test
+    public void compressStreamedContent()
+    {
+        // StreamingOutput doesn't set Content-Length
+        assertThat(predicate.resolve(exchange("application/json", null)), is(true));
+    }
+
+    @Test
+    public void skipSmallContent()
+    {
+        assertThat(predicate.resolve(exchange("application/json", 1023L)), is(false));
+        assertThat(predicate.resolve(exchange("application/json", 1024L)), is(true));
+    }
+
+    @Test
+    public void skipBinaryContent()
+    {
+        assertThat(predicate.resolve(exchange("application/gzip", 4096L)), is(false));
+        assertThat(predicate.resolve(exchange("application/octet-stream", 4096L)), is(false));
+        assertThat(predicate.resolve(exchange(null, 4096L)), is(false));
+    }
+
+    private static HttpServerExchange exchange(String contentType, Long contentLength)
+    {
+        HeaderMap headers = new HeaderMap();
+        if (contentType != null) {
+            headers.put(Headers.CONTENT_TYPE, contentType);
+        }
+        if (contentLength != null) {
+            headers.put(Headers.CONTENT_LENGTH, contentLength);
+        }
+        return new HttpServerExchange(null, new HeaderMap(), headers, 0);
+    }
+}
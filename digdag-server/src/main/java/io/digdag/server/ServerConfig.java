@@ -54,6 +54,7 @@ public interface ServerConfig
             .port(DEFAULT_PORT)
             .bind(DEFAULT_BIND)
             .accessLogPattern(DEFAULT_ACCESS_LOG_PATTERN)
+            .enableHttpCompression(true)
             .executorEnabled(true);
     }
 
@@ -84,6 +85,7 @@ public interface ServerConfig
             .httpIoIdleTimeout(config.getOptional("server.http.io-idle-timeout", Integer.class))
             .jmxPort(config.getOptional("server.jmx.port", Integer.class))
             .enableHttp2(config.get("server.http.enable-http2", boolean.class, false))
+            .enableHttpCompression(config.get("server.http.enable-compression", boolean.class, true))
             .executorEnabled(config.get("server.executor.enabled", boolean.class, true))
             .headers(readPrefixed.apply("server.http.headers."))
             .systemConfig(ConfigElement.copyOf(config))  // systemConfig needs to include other keys such as server.port so that ServerBootstrap.initialize can recover ServerConfig from this systemConfig
@@ -23,6 +23,7 @@ import io.digdag.server.rs.AdminResource;
 import io.digdag.server.rs.AdminRestricted;
 import io.digdag.server.rs.AttemptResource;
 import io.digdag.server.rs.LogResource;
+import io.digdag.server.rs.ProjectMetadataCache;
 import io.digdag.server.rs.ProjectResource;
 import io.digdag.server.rs.ScheduleResource;
 import io.digdag.server.rs.SessionResource;
@@ -71,6 +72,7 @@ public class ServerModule
             .addProvider(AdminRestrictedFilter.class)
             ;
         bindResources(builder);
+        binder().bind(ProjectMetadataCache.class).in(Scopes.SINGLETON);
         bindAuthenticator();
         bindExceptionhandlers(builder);
         bindSecrets();
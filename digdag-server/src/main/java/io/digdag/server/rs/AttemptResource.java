@@ -3,7 +3,9 @@ package io.digdag.server.rs;
 import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
+import java.time.Instant;
 import java.util.stream.Collectors;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
 import javax.ws.rs.Path;
@@ -12,11 +14,18 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.PUT;
 import javax.ws.rs.POST;
 import javax.ws.rs.GET;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.hash.Hashing;
 import io.digdag.core.database.TransactionManager;
 import io.digdag.core.session.ArchivedTask;
 import io.digdag.core.session.SessionStore;
@@ -27,6 +36,7 @@ import io.digdag.core.session.TaskStateCode;
 import io.digdag.core.workflow.*;
 import io.digdag.core.repository.*;
 import io.digdag.core.schedule.SchedulerManager;
+import io.digdag.client.Version;
 import io.digdag.client.config.ConfigFactory;
 import io.digdag.client.api.*;
 import io.digdag.spi.ScheduleTime;
@@ -36,12 +46,18 @@ import io.digdag.spi.ScheduleTime;
 public class AttemptResource
     extends AuthenticatedResource
 {
+    private static final int TASK_PAGE_SIZE = 1000;
+
     // GET  /api/attempts                                    # list attempts from recent to old
     // GET  /api/attempts?include_retried=1                  # list attempts from recent to old
     // GET  /api/attempts?project=<name>                     # list attempts that belong to a particular project
     // GET  /api/attempts?project=<name>&workflow=<name>     # list attempts that belong to a particular workflow
     // GET  /api/attempts/{id}                               # show a session
+    // GET  /api/attempts?page_size=<n>                      # list attempts with a page size
+    // GET  /api/attempts?updated_since=<time>               # list attempts created or finished since the time
     // GET  /api/attempts/{id}/tasks                         # list tasks of a session
+    // GET  /api/attempts/{id}/tasks?fields=<name>,<name>    # list tasks of a session with only the given fields
+    // GET  /api/attempts/{id}/tasks?updated_since=<time>    # list tasks of a session updated since the time
     // GET  /api/attempts/{id}/retries                       # list retried attempts of this session
     // PUT  /api/attempts                                    # starts a new session
     // POST /api/attempts/{id}/kill                          # kill a session
@@ -53,6 +69,9 @@ public class AttemptResource
     private final AttemptBuilder attemptBuilder;
     private final WorkflowExecutor executor;
     private final ConfigFactory cf;
+    private final ProjectMetadataCache projectCache;
+    private final ObjectMapper mapper;
+    private final Version version;
 
     @Inject
     public AttemptResource(
@@ -62,7 +81,10 @@ public class AttemptResource
             TransactionManager tm,
             AttemptBuilder attemptBuilder,
             WorkflowExecutor executor,
-            ConfigFactory cf)
+            ConfigFactory cf,
+            ProjectMetadataCache projectCache,
+            ObjectMapper mapper,
+            Version version)
     {
         this.rm = rm;
         this.sm = sm;
@@ -71,6 +93,9 @@ public class AttemptResource
         this.attemptBuilder = attemptBuilder;
         this.executor = executor;
         this.cf = cf;
+        this.projectCache = projectCache;
+        this.mapper = mapper;
+        this.version = version;
     }
 
     @GET
@@ -79,31 +104,42 @@ public class AttemptResource
             @QueryParam("project") String projName,
             @QueryParam("workflow") String wfName,
             @QueryParam("include_retried") boolean includeRetried,
-            @QueryParam("last_id") Long lastId)
+            @QueryParam("last_id") Long lastId,
+            @QueryParam("page_size") Integer pageSize,
+            @QueryParam("updated_since") String updatedSinceString)
             throws ResourceNotFoundException
     {
+        int limit = getPageSize(pageSize);
+        Optional<Instant> updatedSince = parseInstantParam("updated_since", updatedSinceString);
+        if (updatedSince.isPresent() && projName != null) {
+            throw new IllegalArgumentException("updated_since= can't be used with project= parameter");
+        }
         return tm.begin(() -> {
             List<StoredSessionAttemptWithSession> attempts;
 
             ProjectStore rs = rm.getProjectStore(getSiteId());
             SessionStore ss = sm.getSessionStore(getSiteId());
-            if (projName != null) {
+            if (updatedSince.isPresent()) {
+                // changes of the site
+                attempts = ss.getAttemptsUpdatedSince(includeRetried, updatedSince.get(), limit, Optional.fromNullable(lastId));
+            }
+            else if (projName != null) {
                 StoredProject proj = rs.getProjectByName(projName);
                 if (wfName != null) {
                     // of workflow
-                    attempts = ss.getAttemptsOfWorkflow(includeRetried, proj.getId(), wfName, 100, Optional.fromNullable(lastId));
+                    attempts = ss.getAttemptsOfWorkflow(includeRetried, proj.getId(), wfName, limit, Optional.fromNullable(lastId));
                 }
                 else {
                     // of project
-                    attempts = ss.getAttemptsOfProject(includeRetried, proj.getId(), 100, Optional.fromNullable(lastId));
+                    attempts = ss.getAttemptsOfProject(includeRetried, proj.getId(), limit, Optional.fromNullable(lastId));
                 }
             }
             else {
                 // of site
-                attempts = ss.getAttempts(includeRetried, 100, Optional.fromNullable(lastId));
+                attempts = ss.getAttempts(includeRetried, limit, Optional.fromNullable(lastId));
             }
 
-            return RestModels.attemptCollection(rm.getProjectStore(getSiteId()), attempts);
+            return RestModels.attemptCollection(projectCache.getProjectStore(getSiteId()), attempts);
         }, ResourceNotFoundException.class);
     }
 
@@ -115,7 +151,7 @@ public class AttemptResource
         return tm.begin(() -> {
             StoredSessionAttemptWithSession attempt = sm.getSessionStore(getSiteId())
                     .getAttemptById(id);
-            StoredProject proj = rm.getProjectStore(getSiteId())
+            StoredProject proj = projectCache.getProjectStore(getSiteId())
                     .getProjectById(attempt.getSession().getProjectId());
 
             return RestModels.attempt(attempt, proj.getName());
@@ -131,19 +167,93 @@ public class AttemptResource
             List<StoredSessionAttemptWithSession> attempts = sm.getSessionStore(getSiteId())
                     .getOtherAttempts(id);
 
-            return RestModels.attemptCollection(rm.getProjectStore(getSiteId()), attempts);
+            return RestModels.attemptCollection(projectCache.getProjectStore(getSiteId()), attempts);
         }, ResourceNotFoundException.class);
     }
 
     @GET
     @Path("/api/attempts/{id}/tasks")
-    public RestTaskCollection getTasks(@PathParam("id") long id)
+    public Response getTasks(
+            @PathParam("id") long id,
+            @QueryParam("fields") String fields,
+            @QueryParam("updated_since") String updatedSinceString,
+            @Context Request httpRequest)
     {
-        return tm.begin(() -> {
-            List<ArchivedTask> tasks = sm.getSessionStore(getSiteId())
-                    .getTasksOfAttempt(id);
-            return RestModels.taskCollection(tasks);
+        Optional<Set<String>> fieldSet = parseFields(fields);
+        Optional<Instant> updatedSince = parseInstantParam("updated_since", updatedSinceString);
+        SessionStore ss = sm.getSessionStore(getSiteId());
+
+        // Tasks of a finished attempt never change. This ETag is issued only
+        // for finished attempts. Thus If-None-Match with the tag means that the
+        // client already has the final tasks and the database is not necessary.
+        EntityTag finishedTag = finishedTasksTag(id, fieldSet, updatedSince);
+        Response.ResponseBuilder notModified = httpRequest.evaluatePreconditions(finishedTag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+
+        boolean finished = tm.begin(() -> {
+            try {
+                return ss.getAttemptById(id).getStateFlags().isDone();
+            }
+            catch (ResourceNotFoundException ex) {
+                return false;
+            }
         });
+
+        // Tasks of a finished attempt are moved to task_archives as one
+        // document. Parse it once and page over it in memory instead of
+        // parsing the whole document for every page.
+        Optional<List<ArchivedTask>> archivedTasks = finished
+            ? tm.begin(() -> ss.getArchivedTasksOfAttempt(id))
+            : Optional.absent();
+
+        StreamingCollectionOutput.PageFetcher<ArchivedTask> fetcher;
+        if (archivedTasks.isPresent()) {
+            List<ArchivedTask> tasks = archivedTasks.get();
+            if (updatedSince.isPresent()) {
+                tasks = tasks.stream()
+                    .filter(task -> !task.getUpdatedAt().isBefore(updatedSince.get()))
+                    .collect(Collectors.toList());
+            }
+            fetcher = StreamingCollectionOutput.sortedListFetcher(tasks, task -> task.getId());
+        }
+        else {
+            fetcher = (pageSize, lastId) -> tm.begin(() -> {
+                if (updatedSince.isPresent()) {
+                    return ss.getTasksOfAttemptUpdatedSince(id, updatedSince.get(), pageSize, lastId);
+                }
+                else {
+                    return ss.getTasksOfAttempt(id, pageSize, lastId);
+                }
+            });
+        }
+
+        // An attempt may have tens of thousands of tasks. Stream them page by
+        // page instead of building RestTaskCollection of all tasks.
+        StreamingOutput content = new StreamingCollectionOutput<ArchivedTask, RestTask>(
+                mapper, "tasks", TASK_PAGE_SIZE,
+                fetcher,
+                task -> task.getId(),
+                task -> RestModels.task(task),
+                fieldSet);
+
+        Response.ResponseBuilder builder = Response.ok(content);
+        if (finished) {
+            builder.tag(finishedTag);
+        }
+        return builder.build();
+    }
+
+    private EntityTag finishedTasksTag(long attemptId, Optional<Set<String>> fields, Optional<Instant> updatedSince)
+    {
+        // the representation depends on the server version, fields= and updated_since= parameters
+        String variant = version +
+            ":" + fields.transform(set -> Ordering.natural().sortedCopy(set).toString()).or("*") +
+            ":" + updatedSince.transform(Instant::toString).or("*");
+        // weak because the same tag is sent for gzip, deflate and identity
+        // content-coding of UndertowServer's EncodingHandler
+        return new EntityTag(attemptId + "-" + Hashing.murmur3_32().hashString(variant, UTF_8), true);
     }
 
     @PUT
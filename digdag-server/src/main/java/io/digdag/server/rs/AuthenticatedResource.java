@@ -1,15 +1,24 @@
 package io.digdag.server.rs;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
 import io.digdag.client.config.Config;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.Context;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
+import java.util.Set;
 
 public abstract class AuthenticatedResource
 {
+    protected static final int DEFAULT_PAGE_SIZE = 100;
+    protected static final int MAX_PAGE_SIZE = 1000;
+
     @Context
     protected HttpServletRequest request;
 
@@ -33,4 +42,47 @@ public abstract class AuthenticatedResource
     {
         return (Supplier<Map<String, String>>) request.getAttribute("secrets");
     }
+
+    /**
+     * Get number of items of a page from page_size= parameter. Larger values are
+     * capped by MAX_PAGE_SIZE. Clients paginate using last_id= parameter.
+     */
+    protected static int getPageSize(Integer pageSize)
+    {
+        if (pageSize == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("page_size must be greater than 0: " + pageSize);
+        }
+        return Math.min(pageSize, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Parse comma-separated field names of fields= parameter.
+     */
+    protected static Optional<Set<String>> parseFields(String fields)
+    {
+        if (fields == null || fields.trim().isEmpty()) {
+            return Optional.absent();
+        }
+        return Optional.of(ImmutableSet.copyOf(
+                    Splitter.on(',').trimResults().omitEmptyStrings().split(fields)));
+    }
+
+    /**
+     * Parse a timestamp parameter such as updated_since=.
+     */
+    protected static Optional<Instant> parseInstantParam(String name, String value)
+    {
+        if (value == null || value.isEmpty()) {
+            return Optional.absent();
+        }
+        try {
+            return Optional.of(Instant.parse(value));
+        }
+        catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid " + name + "= parameter format. Expected yyyy-MM-dd'T'HH:mm:ss'Z' format", ex);
+        }
+    }
 }
@@ -2,8 +2,10 @@ package io.digdag.server.rs;
 
 import java.util.List;
 import java.time.Instant;
+import java.io.EOFException;
 import java.io.InputStream;
 import java.io.IOException;
+import java.util.zip.GZIPInputStream;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
 import javax.ws.rs.Path;
@@ -12,6 +14,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.PUT;
 import javax.ws.rs.GET;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.ServerErrorException;
 import com.google.inject.Inject;
 import com.google.common.base.Optional;
@@ -32,12 +35,14 @@ public class LogResource
     extends AuthenticatedResource
 {
     // PUT  /api/logs/{attempt_id}/files?task=<name>&file_time=<unixtime sec>&node_id=<node_id>
-    // GET  /api/logs/{attempt_id}/files[?task=<name>]
+    // GET  /api/logs/{attempt_id}/files[?task=<name>][&after=<file_name>]
     // GET  /api/logs/{attempt_id}/files/{file_name}
+    // GET  /api/logs/{attempt_id}/files/{file_name}/content[?offset=<bytes>]
     // GET  /api/logs/{attempt_id}/upload_handle?task=<name>&file_time=<unixtime sec>&node_id=<nodeId>
 
     private final SessionStoreManager sm;
     private final TransactionManager tm;
+    private final LogServerManager lm;
     private final LogServer logServer;
 
     @Inject
@@ -48,6 +53,7 @@ public class LogResource
     {
         this.sm = sm;
         this.tm = tm;
+        this.lm = lm;
         this.logServer = lm.getLogServer();
     }
 
@@ -68,7 +74,7 @@ public class LogResource
             LogFilePrefix prefix = getPrefix(attemptId);
 
             byte[] data = ByteStreams.toByteArray(body);
-            String fileName = logServer.putFile(prefix, taskName, Instant.ofEpochSecond(unixFileTime), nodeId, data);
+            String fileName = lm.putFile(prefix, taskName, Instant.ofEpochSecond(unixFileTime), nodeId, data);
             return RestLogFilePutResult.of(fileName);
         }, ResourceNotFoundException.class, IOException.class);
     }
@@ -87,7 +93,7 @@ public class LogResource
             // TODO null check nodeId
             LogFilePrefix prefix = getPrefix(attemptId);
 
-            Optional<DirectUploadHandle> handle = logServer.getDirectUploadHandle(prefix, taskName, Instant.ofEpochSecond(unixFileTime), nodeId);
+            Optional<DirectUploadHandle> handle = lm.getDirectUploadHandle(prefix, taskName, Instant.ofEpochSecond(unixFileTime), nodeId);
 
             if (handle.isPresent()) {
                 return handle.get();
@@ -106,12 +112,32 @@ public class LogResource
     @Path("/api/logs/{attempt_id}/files")
     public RestLogFileHandleCollection getFileHandles(
             @PathParam("attempt_id") long attemptId,
-            @QueryParam("task") String taskName)
+            @QueryParam("task") String taskName,
+            @QueryParam("after") String afterFileName)
             throws ResourceNotFoundException
     {
+        if (afterFileName != null) {
+            // file names sort by task name first. after is meaningful only
+            // within files of a single task.
+            if (taskName == null) {
+                throw new IllegalArgumentException("after= requires task=");
+            }
+            if (!afterFileName.startsWith(taskName + "@")) {
+                throw new IllegalArgumentException("after= must be a file name of the task");
+            }
+        }
+
         return tm.begin(() -> {
-            LogFilePrefix prefix = getPrefix(attemptId);
-            List<LogFileHandle> handles = logServer.getFileHandles(prefix, Optional.fromNullable(taskName));
+            StoredSessionAttemptWithSession attempt = getAttempt(attemptId);
+            LogFilePrefix prefix = logFilePrefixFromSessionAttempt(attempt);
+            boolean finished = attempt.getStateFlags().isDone();
+            List<LogFileHandle> handles;
+            if (afterFileName != null) {
+                handles = lm.getFileHandles(prefix, finished, taskName, afterFileName);
+            }
+            else {
+                handles = lm.getFileHandles(prefix, finished, Optional.fromNullable(taskName));
+            }
             return RestModels.logFileHandleCollection(handles);
         }, ResourceNotFoundException.class);
     }
@@ -130,12 +156,46 @@ public class LogResource
         }, ResourceNotFoundException.class, IOException.class, StorageFileNotFoundException.class);
     }
 
+    // Returns uncompressed content of a log file starting from the given offset.
+    // The offset is counted in uncompressed bytes so that followers can resume
+    // reading a growing file by adding length of the content they received.
+    @GET
+    @Produces("text/plain")
+    @Path("/api/logs/{attempt_id}/files/{file_name}/content")
+    public Response getFileContent(
+            @PathParam("attempt_id") long attemptId,
+            @PathParam("file_name") String fileName,
+            @QueryParam("offset") long offset)
+            throws ResourceNotFoundException, StorageFileNotFoundException
+    {
+        InputStream gzData = tm.<InputStream, ResourceNotFoundException, StorageFileNotFoundException>begin(() -> {
+            LogFilePrefix prefix = getPrefix(attemptId);
+            return logServer.openFile(prefix, fileName);
+        }, ResourceNotFoundException.class, StorageFileNotFoundException.class);
+
+        StreamingOutput content = (out) -> {
+            try (InputStream in = new GZIPInputStream(gzData)) {
+                ByteStreams.skipFully(in, offset);
+                ByteStreams.copy(in, out);
+            }
+            catch (EOFException ex) {
+                // the file is shorter than offset, or the file is being written
+                // (Unexpected end of ZLIB input stream). OK to ignore.
+            }
+        };
+        return Response.ok(content).build();
+    }
+
     private LogFilePrefix getPrefix(long attemptId)
         throws ResourceNotFoundException
     {
-        StoredSessionAttemptWithSession attempt =
-                sm.getSessionStore(getSiteId())
-                        .getAttemptById(attemptId);
-        return logFilePrefixFromSessionAttempt(attempt);
+        return logFilePrefixFromSessionAttempt(getAttempt(attemptId));
+    }
+
+    private StoredSessionAttemptWithSession getAttempt(long attemptId)
+        throws ResourceNotFoundException
+    {
+        return sm.getSessionStore(getSiteId())
+            .getAttemptById(attemptId);
     }
 }
@@ -0,0 +1,255 @@
+package io.digdag.server.rs;
+
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import io.digdag.core.repository.Project;
+import io.digdag.core.repository.ProjectMap;
+import io.digdag.core.repository.ProjectStore;
+import io.digdag.core.repository.ProjectStoreManager;
+import io.digdag.core.repository.ResourceConflictException;
+import io.digdag.core.repository.ResourceNotFoundException;
+import io.digdag.core.repository.StoredProject;
+import io.digdag.core.repository.StoredRevision;
+import io.digdag.core.repository.StoredWorkflowDefinition;
+import io.digdag.core.repository.StoredWorkflowDefinitionWithProject;
+import io.digdag.core.repository.TimeZoneMap;
+
+/**
+ * Caches projects and workflow definitions looked up by id for REST
+ * resources.
+ *
+ * Name of a project doesn't change once it's created (a deleted project keeps
+ * its name as deleted_name) and a workflow definition never changes. Only
+ * deletedAt and updatedAt of a project change. So entries are invalidated
+ * when a project is pushed or deleted through this server and expire after a short time so that
+ * deletion through another server is reflected eventually. Lookups that must
+ * see the latest state, such as checking whether a project is deleted before
+ * modifying it, should use ProjectStoreManager directly.
+ */
+public class ProjectMetadataCache
+{
+    private static final int MAX_CACHE_SIZE = 10000;
+    private static final int EXPIRE_SECONDS = 60;
+
+    private final ProjectStoreManager rm;
+
+    private final Cache<Integer, StoredProject> projects;
+
+    private final Cache<Long, StoredWorkflowDefinitionWithProject> workflows;
+
+    @Inject
+    public ProjectMetadataCache(ProjectStoreManager rm)
+    {
+        this(rm, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    ProjectMetadataCache(ProjectStoreManager rm, Ticker ticker)
+    {
+        this.rm = rm;
+        this.projects = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHE_SIZE)
+            .expireAfterWrite(EXPIRE_SECONDS, TimeUnit.SECONDS)
+            .ticker(ticker)
+            .build();
+        this.workflows = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHE_SIZE)
+            .expireAfterWrite(EXPIRE_SECONDS, TimeUnit.SECONDS)
+            .ticker(ticker)
+            .build();
+    }
+
+    public ProjectStore getProjectStore(int siteId)
+    {
+        return new CachedProjectStore(rm.getProjectStore(siteId), siteId);
+    }
+
+    public void invalidateProject(int projId)
+    {
+        projects.invalidate(projId);
+        workflows.asMap().values().removeIf(def -> def.getProject().getId() == projId);
+    }
+
+    private class CachedProjectStore
+            implements ProjectStore
+    {
+        private final ProjectStore store;
+        private final int siteId;
+
+        CachedProjectStore(ProjectStore store, int siteId)
+        {
+            this.store = store;
+            this.siteId = siteId;
+        }
+
+        private StoredProject getCachedProject(int projId)
+        {
+            StoredProject proj = projects.getIfPresent(projId);
+            if (proj != null && proj.getSiteId() == siteId) {
+                return proj;
+            }
+            return null;
+        }
+
+        @Override
+        public List<StoredProject> getProjects(int pageSize, Optional<Integer> lastId)
+        {
+            return store.getProjects(pageSize, lastId);
+        }
+
+        @Override
+        public ProjectMap getProjectsByIdList(List<Integer> projIdList)
+        {
+            Map<Integer, StoredProject> map = new HashMap<>();
+            for (int projId : projIdList) {
+                StoredProject proj = getCachedProject(projId);
+                if (proj != null) {
+                    map.put(projId, proj);
+                }
+            }
+
+            List<Integer> missingIdList = projIdList.stream()
+                .filter(projId -> !map.containsKey(projId))
+                .distinct()
+                .collect(Collectors.toList());
+            if (!missingIdList.isEmpty()) {
+                ProjectMap found = store.getProjectsByIdList(missingIdList);
+                for (int projId : missingIdList) {
+                    try {
+                        StoredProject proj = found.get(projId);
+                        projects.put(projId, proj);
+                        map.put(projId, proj);
+                    }
+                    catch (ResourceNotFoundException ex) {
+                        // not cached. ProjectMap.get throws the same exception
+                    }
+                }
+            }
+
+            return new ProjectMap(map);
+        }
+
+        @Override
+        public StoredProject getProjectById(int projId)
+            throws ResourceNotFoundException
+        {
+            StoredProject proj = getCachedProject(projId);
+            if (proj == null) {
+                proj = store.getProjectById(projId);
+                projects.put(projId, proj);
+            }
+            return proj;
+        }
+
+        @Override
+        public StoredProject getProjectByName(String projName)
+            throws ResourceNotFoundException
+        {
+            return store.getProjectByName(projName);
+        }
+
+        @Override
+        public <T> T putAndLockProject(Project project, ProjectLockAction<T> func)
+            throws ResourceConflictException
+        {
+            // callers invalidate the cache after the transaction is committed
+            return store.putAndLockProject(project, func);
+        }
+
+        @Override
+        public <T> T deleteProject(int projId, ProjectObsoleteAction<T> func)
+            throws ResourceNotFoundException
+        {
+            // callers invalidate the cache after the transaction is committed
+            return store.deleteProject(projId, func);
+        }
+
+        @Override
+        public StoredRevision getRevisionById(int revId)
+            throws ResourceNotFoundException
+        {
+            return store.getRevisionById(revId);
+        }
+
+        @Override
+        public StoredRevision getRevisionByName(int projId, String revName)
+            throws ResourceNotFoundException
+        {
+            return store.getRevisionByName(projId, revName);
+        }
+
+        @Override
+        public StoredRevision getLatestRevision(int projId)
+            throws ResourceNotFoundException
+        {
+            return store.getLatestRevision(projId);
+        }
+
+        @Override
+        public List<StoredRevision> getRevisions(int projId, int pageSize, Optional<Integer> lastId)
+        {
+            return store.getRevisions(projId, pageSize, lastId);
+        }
+
+        @Override
+        public byte[] getRevisionArchiveData(int revId)
+            throws ResourceNotFoundException
+        {
+            return store.getRevisionArchiveData(revId);
+        }
+
+        @Override
+        public List<StoredWorkflowDefinition> getWorkflowDefinitions(int revId, int pageSize, Optional<Long> lastId)
+        {
+            return store.getWorkflowDefinitions(revId, pageSize, lastId);
+        }
+
+        @Override
+        public StoredWorkflowDefinition getWorkflowDefinitionByName(int revId, String name)
+            throws ResourceNotFoundException
+        {
+            return store.getWorkflowDefinitionByName(revId, name);
+        }
+
+        @Override
+        public StoredWorkflowDefinitionWithProject getWorkflowDefinitionById(long wfId)
+            throws ResourceNotFoundException
+        {
+            StoredWorkflowDefinitionWithProject def = workflows.getIfPresent(wfId);
+            if (def == null || def.getProject().getSiteId() != siteId) {
+                def = store.getWorkflowDefinitionById(wfId);
+                workflows.put(wfId, def);
+            }
+            return def;
+        }
+
+        @Override
+        public StoredWorkflowDefinitionWithProject getLatestWorkflowDefinitionByName(int projId, String name)
+            throws ResourceNotFoundException
+        {
+            return store.getLatestWorkflowDefinitionByName(projId, name);
+        }
+
+        @Override
+        public List<StoredWorkflowDefinitionWithProject> getLatestActiveWorkflowDefinitions(int pageSize, Optional<Long> lastId)
+            throws ResourceNotFoundException
+        {
+            return store.getLatestActiveWorkflowDefinitions(pageSize, lastId);
+        }
+
+        @Override
+        public TimeZoneMap getWorkflowTimeZonesByIdList(List<Long> defIdList)
+        {
+            return store.getWorkflowTimeZonesByIdList(defIdList);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.stream.Collectors;
 import java.net.URI;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -142,6 +143,7 @@ public class ProjectResource
     // GET  /api/projects/{id}/schedules?workflow={name} # get the schedule of the latest revision of a workflow in a project
     // GET  /api/projects/{id}/sessions                  # list sessions for a project
     // GET  /api/projects/{id}/sessions?workflow<name>   # list sessions for a workflow in the project
+    // GET  /api/projects/{id}/sessions?page_size=<n>    # list sessions for a project with a page size
     // GET  /api/projects/{id}/archive                   # download archive file of the latest revision of a project
     // GET  /api/projects/{id}/archive?revision=<name>   # download archive file of a former revision of a project
     // PUT  /api/projects?project=<name>&revision=<name> # create a new revision (also create a project if it doesn't exist)
@@ -170,6 +172,7 @@ public class ProjectResource
     private final SecretControlStoreManager scsp;
     private final TransactionManager tm;
     private final ProjectArchiveLoader projectArchiveLoader;
+    private final ProjectMetadataCache projectCache;
 
     @Inject
     public ProjectResource(
@@ -184,7 +187,8 @@ public class ProjectResource
             SessionStoreManager ssm,
             SecretControlStoreManager scsp,
             TransactionManager tm,
-            ProjectArchiveLoader projectArchiveLoader)
+            ProjectArchiveLoader projectArchiveLoader,
+            ProjectMetadataCache projectCache)
     {
         this.cf = cf;
         this.rawLoader = rawLoader;
@@ -198,6 +202,7 @@ public class ProjectResource
         this.tm = tm;
         this.scsp = scsp;
         this.projectArchiveLoader = projectArchiveLoader;
+        this.projectCache = projectCache;
     }
 
     private static StoredProject ensureNotDeletedProject(StoredProject proj)
@@ -390,7 +395,7 @@ public class ProjectResource
                 scheds = scheduleStore.getSchedulesByProjectId(projectId, 100, Optional.fromNullable(lastId));
             }
 
-            return RestModels.scheduleCollection(projectStore, scheds);
+            return RestModels.scheduleCollection(projectCache.getProjectStore(getSiteId()), scheds);
         }, ResourceNotFoundException.class);
     }
 
@@ -399,9 +404,11 @@ public class ProjectResource
     public RestSessionCollection getSessions(
             @PathParam("id") int projectId,
             @QueryParam("workflow") String workflowName,
-            @QueryParam("last_id") Long lastId)
+            @QueryParam("last_id") Long lastId,
+            @QueryParam("page_size") Integer pageSize)
             throws ResourceNotFoundException
     {
+        int limit = getPageSize(pageSize);
         return tm.begin(() -> {
             ProjectStore ps = rm.getProjectStore(getSiteId());
             SessionStore ss = ssm.getSessionStore(getSiteId());
@@ -410,12 +417,12 @@ public class ProjectResource
 
             List<StoredSessionWithLastAttempt> sessions;
             if (workflowName != null) {
-                sessions = ss.getSessionsOfWorkflowByName(proj.getId(), workflowName, 100, Optional.fromNullable(lastId));
+                sessions = ss.getSessionsOfWorkflowByName(proj.getId(), workflowName, limit, Optional.fromNullable(lastId));
             } else {
-                sessions = ss.getSessionsOfProject(proj.getId(), 100, Optional.fromNullable(lastId));
+                sessions = ss.getSessionsOfProject(proj.getId(), limit, Optional.fromNullable(lastId));
             }
 
-            return RestModels.sessionCollection(ps, sessions);
+            return RestModels.sessionCollection(projectCache.getProjectStore(getSiteId()), sessions);
         }, ResourceNotFoundException.class);
     }
 
@@ -483,13 +490,15 @@ public class ProjectResource
     public RestProject deleteProject(@PathParam("id") int projId)
             throws ResourceNotFoundException
     {
-        return tm.begin(() -> {
+        RestProject deleted = tm.begin(() -> {
             ProjectStore ps = rm.getProjectStore(getSiteId());
             return ProjectControl.deleteProject(ps, projId, (control, proj) -> {
                 StoredRevision rev = ps.getLatestRevision(proj.getId());
                 return RestModels.project(proj, rev);
             });
         }, ResourceNotFoundException.class);
+        projectCache.invalidateProject(projId);
+        return deleted;
     }
 
     @PUT
@@ -500,34 +509,61 @@ public class ProjectResource
             @QueryParam("schedule_from") String scheduleFromString)
             throws ResourceConflictException, IOException, ResourceNotFoundException
     {
-        return tm.<RestProject, IOException, ResourceConflictException, ResourceNotFoundException>begin(() -> {
-            Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "project= is required");
-            Preconditions.checkArgument(!Strings.isNullOrEmpty(revision), "revision= is required");
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "project= is required");
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(revision), "revision= is required");
 
-            Instant scheduleFrom;
-            if (scheduleFromString == null || scheduleFromString.isEmpty()) {
-                scheduleFrom = Instant.now();
+        Instant scheduleFrom;
+        if (scheduleFromString == null || scheduleFromString.isEmpty()) {
+            scheduleFrom = Instant.now();
+        }
+        else {
+            try {
+                scheduleFrom = Instant.parse(scheduleFromString);
             }
-            else {
-                try {
-                    scheduleFrom = Instant.parse(scheduleFromString);
-                }
-                catch (DateTimeParseException ex) {
-                    throw new IllegalArgumentException("Invalid schedule_from= parameter format. Expected yyyy-MM-dd'T'HH:mm:ss'Z' format", ex);
-                }
+            catch (DateTimeParseException ex) {
+                throw new IllegalArgumentException("Invalid schedule_from= parameter format. Expected yyyy-MM-dd'T'HH:mm:ss'Z' format", ex);
             }
+        }
 
-            if (contentLength > ARCHIVE_TOTAL_SIZE_LIMIT) {
-                throw new IllegalArgumentException(String.format(ENGLISH,
-                        "Size of the uploaded archive file exceeds limit (%d bytes)",
-                        ARCHIVE_TOTAL_SIZE_LIMIT));
+        if (contentLength > ARCHIVE_TOTAL_SIZE_LIMIT) {
+            throw new IllegalArgumentException(String.format(ENGLISH,
+                    "Size of the uploaded archive file exceeds limit (%d bytes)",
+                    ARCHIVE_TOTAL_SIZE_LIMIT));
+        }
+        int size = (int) contentLength;
+
+        // Location doesn't depend on contents of the archive. Deciding it
+        // first lets an archive stored in the database be buffered only once.
+        ArchiveManager.Location location =
+                archiveManager.newArchiveLocation(getSiteId(), name, revision, size);
+        boolean storeInDb = location.getArchiveType().equals(ArchiveType.DB);
+
+        // Reading, validating and uploading the archive happen before starting
+        // a transaction so that a slow upload to a remote storage doesn't hold
+        // a database connection and the lock of the project.
+        ArchiveMetadata meta;
+        byte[] md5;
+        byte[] data;
+        if (storeInDb) {
+            // Read uploaded data to memory and parse it from there
+            data = new byte[size];
+            Md5CountInputStream md5Count = new Md5CountInputStream(body);
+            try {
+                ByteStreams.readFully(md5Count, data);
             }
-            int size = (int) contentLength;
-
+            catch (EOFException ex) {
+                throw new IllegalArgumentException("Content-Length header doesn't match with uploaded data size");
+            }
+            if (md5Count.read() >= 0) {
+                throw new IllegalArgumentException("Content-Length header doesn't match with uploaded data size");
+            }
+            md5 = md5Count.getDigest();
+            meta = readArchiveMetadata(new ByteArrayInputStream(data), name);
+        }
+        else {
+            data = null;
             try (TempFile tempFile = tempFiles.createTempFile("upload-", ".tar.gz")) {
                 // Read uploaded data to the temp file and following variables
-                ArchiveMetadata meta;
-                byte[] md5;
                 try (OutputStream writeToTemp = Files.newOutputStream(tempFile.get())) {
                     Md5CountInputStream md5Count = new Md5CountInputStream(body);
                     meta = readArchiveMetadata(new DuplicateInputStream(md5Count, writeToTemp), name);
@@ -537,75 +573,66 @@ public class ProjectResource
                     }
                 }
 
-                ArchiveManager.Location location =
-                        archiveManager.newArchiveLocation(getSiteId(), name, revision, size);
-                boolean storeInDb = location.getArchiveType().equals(ArchiveType.DB);
-
-                if (!storeInDb) {
-                    // upload to storage
-                    try {
-                        archiveManager
-                                .getStorage(location.getArchiveType())
-                                .put(location.getPath(), size, () -> Files.newInputStream(tempFile.get()));
-                    }
-                    catch (RuntimeException | IOException ex) {
-                        throw new InternalServerErrorException("Failed to upload archive to a remote storage", ex);
-                    }
+                // upload to storage
+                try {
+                    archiveManager
+                            .getStorage(location.getArchiveType())
+                            .put(location.getPath(), size, () -> Files.newInputStream(tempFile.get()));
+                }
+                catch (RuntimeException | IOException ex) {
+                    throw new InternalServerErrorException("Failed to upload archive to a remote storage", ex);
                 }
+            }
+        }
 
-                // Getting secrets might fail. To avoid ending up with a project without secrets, get the secrets _before_ storing the project.
-                // If getting the project secrets fails, the project will not be stored and the push can then be retried with the same revision.
-                Map<String, String> secrets = getSecrets().get();
-
-                RestProject restProject = rm.getProjectStore(getSiteId()).putAndLockProject(
-                        Project.of(name),
-                        (store, storedProject) -> {
-                            ProjectControl lockedProj = new ProjectControl(store, storedProject);
-                            StoredRevision rev;
-                            if (storeInDb) {
-                                // store data in db
-                                byte[] data = new byte[size];
-                                try (InputStream in = Files.newInputStream(tempFile.get())) {
-                                    ByteStreams.readFully(in, data);
-                                }
-                                catch (RuntimeException | IOException ex) {
-                                    throw new InternalServerErrorException("Failed to load archive data in memory", ex);
-                                }
-                                rev = lockedProj.insertRevision(
-                                        Revision.builderFromArchive(revision, meta, getUserInfo())
-                                                .archiveType(ArchiveType.DB)
-                                                .archivePath(Optional.absent())
-                                                .archiveMd5(Optional.of(md5))
-                                                .build()
-                                );
-                                lockedProj.insertRevisionArchiveData(rev.getId(), data);
-                            }
-                            else {
-                                // store location of the uploaded file in db
-                                rev = lockedProj.insertRevision(
-                                        Revision.builderFromArchive(revision, meta, getUserInfo())
-                                                .archiveType(location.getArchiveType())
-                                                .archivePath(Optional.of(location.getPath()))
-                                                .archiveMd5(Optional.of(md5))
-                                                .build()
-                                );
-                            }
+        // Getting secrets might fail. To avoid ending up with a project without secrets, get the secrets _before_ storing the project.
+        // If getting the project secrets fails, the project will not be stored and the push can then be retried with the same revision.
+        Map<String, String> secrets = getSecrets().get();
+
+        RestProject pushed = tm.<RestProject, ResourceConflictException, ResourceNotFoundException>begin(() -> {
+            RestProject restProject = rm.getProjectStore(getSiteId()).putAndLockProject(
+                    Project.of(name),
+                    (store, storedProject) -> {
+                        ProjectControl lockedProj = new ProjectControl(store, storedProject);
+                        StoredRevision rev;
+                        if (storeInDb) {
+                            // store data in db
+                            rev = lockedProj.insertRevision(
+                                    Revision.builderFromArchive(revision, meta, getUserInfo())
+                                            .archiveType(ArchiveType.DB)
+                                            .archivePath(Optional.absent())
+                                            .archiveMd5(Optional.of(md5))
+                                            .build()
+                            );
+                            lockedProj.insertRevisionArchiveData(rev.getId(), data);
+                        }
+                        else {
+                            // store location of the uploaded file in db
+                            rev = lockedProj.insertRevision(
+                                    Revision.builderFromArchive(revision, meta, getUserInfo())
+                                            .archiveType(location.getArchiveType())
+                                            .archivePath(Optional.of(location.getPath()))
+                                            .archiveMd5(Optional.of(md5))
+                                            .build()
+                            );
+                        }
 
-                            List<StoredWorkflowDefinition> defs =
-                                    lockedProj.insertWorkflowDefinitions(rev,
-                                            meta.getWorkflowList().get(),
-                                            srm, scheduleFrom);
-                            return RestModels.project(storedProject, rev);
-                        });
-
-                SecretControlStore secretControlStore = scsp.getSecretControlStore(getSiteId());
-                secrets.forEach((k, v) -> secretControlStore.setProjectSecret(
-                        RestModels.parseProjectId(restProject.getId()),
-                        SecretScopes.PROJECT_DEFAULT,
-                        k, v));
-                return restProject;
-            }
-        }, IOException.class, ResourceConflictException.class, ResourceNotFoundException.class);
+                        List<StoredWorkflowDefinition> defs =
+                                lockedProj.insertWorkflowDefinitions(rev,
+                                        meta.getWorkflowList().get(),
+                                        srm, scheduleFrom);
+                        return RestModels.project(storedProject, rev);
+                    });
+
+            SecretControlStore secretControlStore = scsp.getSecretControlStore(getSiteId());
+            secrets.forEach((k, v) -> secretControlStore.setProjectSecret(
+                    RestModels.parseProjectId(restProject.getId()),
+                    SecretScopes.PROJECT_DEFAULT,
+                    k, v));
+            return restProject;
+        }, ResourceConflictException.class, ResourceNotFoundException.class);
+        projectCache.invalidateProject(RestModels.parseProjectId(pushed.getId()));
+        return pushed;
     }
 
     private ArchiveMetadata readArchiveMetadata(InputStream in, String projectName)
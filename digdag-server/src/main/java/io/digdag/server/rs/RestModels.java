@@ -12,6 +12,7 @@ import io.digdag.client.api.RestProjectCollection;
 import io.digdag.client.api.RestRevision;
 import io.digdag.client.api.RestRevisionCollection;
 import io.digdag.client.api.RestSchedule;
+import io.digdag.client.api.RestScheduleBackfillJob;
 import io.digdag.client.api.RestScheduleCollection;
 import io.digdag.client.api.RestScheduleSummary;
 import io.digdag.client.api.RestSession;
@@ -33,6 +34,7 @@ import io.digdag.core.repository.StoredRevision;
 import io.digdag.core.repository.StoredWorkflowDefinition;
 import io.digdag.core.repository.StoredWorkflowDefinitionWithProject;
 import io.digdag.core.repository.TimeZoneMap;
+import io.digdag.core.schedule.BackfillJob;
 import io.digdag.core.schedule.StoredSchedule;
 import io.digdag.core.session.ArchivedTask;
 import io.digdag.core.session.Session;
@@ -222,6 +224,22 @@ public final class RestModels
     }
 
 
+    public static RestScheduleBackfillJob scheduleBackfillJob(BackfillJob job)
+    {
+        return RestScheduleBackfillJob.builder()
+            .id(id(job.getId()))
+            .scheduleId(id(job.getScheduleId()))
+            .attemptName(job.getAttemptName())
+            .status(job.getStatus().name().toLowerCase(ENGLISH))
+            .total(job.getTotal())
+            .submitted(job.getSubmitted())
+            .lastSessionTime(job.getLastSessionTime())
+            .error(job.getError())
+            .createdAt(job.getCreatedAt())
+            .finishedAt(job.getFinishedAt())
+            .build();
+    }
+
     public static RestSession session(StoredSessionWithLastAttempt session, String projectName)
     {
         StoredSessionAttempt attempt = session.getLastAttempt();
@@ -4,6 +4,7 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.inject.Inject;
 import io.digdag.client.api.RestSchedule;
+import io.digdag.client.api.RestScheduleBackfillJob;
 import io.digdag.client.api.RestScheduleCollection;
 import io.digdag.client.api.RestScheduleBackfillRequest;
 import io.digdag.client.api.RestScheduleSkipRequest;
@@ -15,6 +16,7 @@ import io.digdag.core.repository.ResourceConflictException;
 import io.digdag.core.repository.ResourceLimitExceededException;
 import io.digdag.core.repository.ResourceNotFoundException;
 import io.digdag.core.repository.StoredProject;
+import io.digdag.core.schedule.BackfillJob;
 import io.digdag.core.schedule.ScheduleControl;
 import io.digdag.core.schedule.ScheduleExecutor;
 import io.digdag.core.schedule.ScheduleStoreManager;
@@ -41,6 +43,8 @@ public class ScheduleResource
     // GET  /api/schedules/{id}                              # show a particular schedule (which belongs to a workflow)
     // POST /api/schedules/{id}/skip                         # skips schedules forward to a future time
     // POST /api/schedules/{id}/backfill                     # run or re-run past schedules
+    // POST /api/schedules/{id}/backfill_jobs                # run or re-run past schedules in background
+    // GET  /api/schedules/{id}/backfill_jobs/{jobId}        # show progress of a background backfill
     // POST /api/schedules/{id}/disable                      # disable a schedule
     // POST /api/schedules/{id}/enable                       # enable a schedule
 
@@ -48,18 +52,21 @@ public class ScheduleResource
     private final ScheduleStoreManager sm;
     private final TransactionManager tm;
     private final ScheduleExecutor exec;
+    private final ProjectMetadataCache projectCache;
 
     @Inject
     public ScheduleResource(
             ProjectStoreManager rm,
             ScheduleStoreManager sm,
             TransactionManager tm,
-            ScheduleExecutor exec)
+            ScheduleExecutor exec,
+            ProjectMetadataCache projectCache)
     {
         this.rm = rm;
         this.sm = sm;
         this.tm = tm;
         this.exec = exec;
+        this.projectCache = projectCache;
     }
 
     @GET
@@ -70,7 +77,7 @@ public class ScheduleResource
             List<StoredSchedule> scheds = sm.getScheduleStore(getSiteId())
                     .getSchedules(100, Optional.fromNullable(lastId));
 
-            return RestModels.scheduleCollection(rm.getProjectStore(getSiteId()), scheds);
+            return RestModels.scheduleCollection(projectCache.getProjectStore(getSiteId()), scheds);
         });
     }
 
@@ -83,7 +90,7 @@ public class ScheduleResource
             StoredSchedule sched = sm.getScheduleStore(getSiteId())
                     .getScheduleById(id);
             ZoneId timeZone = getTimeZoneOfSchedule(sched);
-            StoredProject proj = rm.getProjectStore(getSiteId())
+            StoredProject proj = projectCache.getProjectStore(getSiteId())
                     .getProjectById(sched.getProjectId());
             return RestModels.schedule(sched, proj, timeZone);
         }, ResourceNotFoundException.class);
@@ -125,8 +132,8 @@ public class ScheduleResource
     private ZoneId getTimeZoneOfSchedule(StoredSchedule sched)
             throws ResourceNotFoundException
     {
-        // TODO optimize
-        return rm.getProjectStore(getSiteId())
+        // time zone of a workflow definition doesn't change
+        return projectCache.getProjectStore(getSiteId())
                 .getWorkflowDefinitionById(sched.getWorkflowDefinitionId())
                 .getTimeZone();
     }
@@ -145,10 +152,43 @@ public class ScheduleResource
                             request.getAttemptName(),
                             request.getCount(),
                             request.getDryRun());
-            return RestModels.attemptCollection(rm.getProjectStore(getSiteId()), attempts);
+            return RestModels.attemptCollection(projectCache.getProjectStore(getSiteId()), attempts);
         }, ResourceConflictException.class, ResourceLimitExceededException.class, ResourceNotFoundException.class);
     }
 
+    @POST
+    @Consumes("application/json")
+    @Path("/api/schedules/{id}/backfill_jobs")
+    public RestScheduleBackfillJob startBackfillJob(@PathParam("id") int id, RestScheduleBackfillRequest request)
+            throws ResourceConflictException, ResourceLimitExceededException, ResourceNotFoundException
+    {
+        Preconditions.checkArgument(!request.getDryRun(), "dry_run is not supported by backfill jobs");
+
+        return tm.<RestScheduleBackfillJob, ResourceConflictException, ResourceLimitExceededException, ResourceNotFoundException>begin(() ->
+        {
+            BackfillJob job = exec.startBackfill(getSiteId(), id,
+                    request.getFromTime(),
+                    request.getAttemptName(),
+                    request.getCount());
+            return RestModels.scheduleBackfillJob(job);
+        }, ResourceConflictException.class, ResourceLimitExceededException.class, ResourceNotFoundException.class);
+    }
+
+    @GET
+    @Path("/api/schedules/{id}/backfill_jobs/{jobId}")
+    public RestScheduleBackfillJob getBackfillJob(@PathParam("id") int id, @PathParam("jobId") long jobId)
+            throws ResourceNotFoundException
+    {
+        return tm.<RestScheduleBackfillJob, ResourceNotFoundException>begin(() ->
+        {
+            BackfillJob job = exec.getBackfillJob(getSiteId(), jobId);
+            if (job.getScheduleId() != id) {
+                throw new ResourceNotFoundException("backfill job id=" + jobId + " of schedule id=" + id);
+            }
+            return RestModels.scheduleBackfillJob(job);
+        }, ResourceNotFoundException.class);
+    }
+
     @POST
     @Path("/api/schedules/{id}/disable")
     public RestScheduleSummary disableSchedule(@PathParam("id") int id)
@@ -32,33 +32,40 @@ public class SessionResource
         extends AuthenticatedResource
 {
     // GET  /api/sessions                                    # List sessions from recent to old
+    // GET  /api/sessions?page_size=<n>                      # List sessions with a page size
     // GET  /api/sessions/{id}                               # Get a session by id
     // GET  /api/sessions/{id}/attempts                      # List attempts of a session
 
     private final ProjectStoreManager rm;
     private final SessionStoreManager sm;
     private final TransactionManager tm;
+    private final ProjectMetadataCache projectCache;
 
     @Inject
     public SessionResource(
             ProjectStoreManager rm,
             SessionStoreManager sm,
-            TransactionManager tm)
+            TransactionManager tm,
+            ProjectMetadataCache projectCache)
     {
         this.rm = rm;
         this.sm = sm;
         this.tm = tm;
+        this.projectCache = projectCache;
     }
 
     @GET
     @Path("/api/sessions")
-    public RestSessionCollection getSessions(@QueryParam("last_id") Long lastId)
+    public RestSessionCollection getSessions(
+            @QueryParam("last_id") Long lastId,
+            @QueryParam("page_size") Integer pageSize)
     {
+        int limit = getPageSize(pageSize);
         return tm.begin(() -> {
-            ProjectStore rs = rm.getProjectStore(getSiteId());
+            ProjectStore rs = projectCache.getProjectStore(getSiteId());
             SessionStore ss = sm.getSessionStore(getSiteId());
 
-            List<StoredSessionWithLastAttempt> sessions = ss.getSessions(100, Optional.fromNullable(lastId));
+            List<StoredSessionWithLastAttempt> sessions = ss.getSessions(limit, Optional.fromNullable(lastId));
 
             return RestModels.sessionCollection(rs, sessions);
         });
@@ -73,7 +80,7 @@ public class SessionResource
             StoredSessionWithLastAttempt session = sm.getSessionStore(getSiteId())
                     .getSessionById(id);
 
-            StoredProject proj = rm.getProjectStore(getSiteId())
+            StoredProject proj = projectCache.getProjectStore(getSiteId())
                     .getProjectById(session.getProjectId());
 
             return RestModels.session(session, proj.getName());
@@ -84,16 +91,18 @@ public class SessionResource
     @Path("/api/sessions/{id}/attempts")
     public RestSessionAttemptCollection getSessionAttempts(
             @PathParam("id") long id,
-            @QueryParam("last_id") Long lastId)
+            @QueryParam("last_id") Long lastId,
+            @QueryParam("page_size") Integer pageSize)
             throws ResourceNotFoundException
     {
+        int limit = getPageSize(pageSize);
         return tm.begin(() -> {
-            ProjectStore rs = rm.getProjectStore(getSiteId());
+            ProjectStore rs = projectCache.getProjectStore(getSiteId());
             SessionStore ss = sm.getSessionStore(getSiteId());
 
             StoredSession session = ss.getSessionById(id);
             StoredProject project = rs.getProjectById(session.getProjectId());
-            List<StoredSessionAttempt> attempts = ss.getAttemptsOfSession(id, 100, Optional.fromNullable(lastId));
+            List<StoredSessionAttempt> attempts = ss.getAttemptsOfSession(id, limit, Optional.fromNullable(lastId));
 
             List<RestSessionAttempt> collection = attempts.stream()
                     .map(attempt -> RestModels.attempt(session, attempt, project.getName()))
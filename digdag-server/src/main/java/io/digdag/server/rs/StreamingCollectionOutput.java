@@ -0,0 +1,118 @@
+package io.digdag.server.rs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import javax.ws.rs.core.StreamingOutput;
+import com.google.common.base.Optional;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Writes a collection response such as {"tasks": [...]} page by page.
+ *
+ * Pages are fetched lazily while the response body is written so that the
+ * server doesn't build the entire collection in memory. Each page should be
+ * fetched in its own transaction. Because the response is already committed
+ * when a later page fails, such error closes the connection instead of
+ * returning an error response.
+ */
+class StreamingCollectionOutput<T, R>
+        implements StreamingOutput
+{
+    interface PageFetcher<T>
+    {
+        List<T> fetch(int pageSize, Optional<Long> lastId);
+    }
+
+    // pages items sorted by id. This is used when all items are already in memory
+    static <T> PageFetcher<T> sortedListFetcher(List<T> items, Function<T, Long> idGetter)
+    {
+        return (pageSize, lastId) -> {
+            int start = 0;
+            if (lastId.isPresent()) {
+                // binary search of the first item after lastId
+                int end = items.size();
+                while (start < end) {
+                    int mid = (start + end) >>> 1;
+                    if (idGetter.apply(items.get(mid)) <= lastId.get()) {
+                        start = mid + 1;
+                    }
+                    else {
+                        end = mid;
+                    }
+                }
+            }
+            return items.subList(start, Math.min(start + pageSize, items.size()));
+        };
+    }
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+    private final String collectionName;
+    private final int pageSize;
+    private final PageFetcher<T> fetcher;
+    private final Function<T, Long> idGetter;
+    private final Function<T, R> converter;
+    private final Optional<Set<String>> fields;
+
+    StreamingCollectionOutput(ObjectMapper mapper, String collectionName, int pageSize,
+            PageFetcher<T> fetcher, Function<T, Long> idGetter, Function<T, R> converter,
+            Optional<Set<String>> fields)
+    {
+        this.mapper = mapper;
+        // flushing after every item makes a tiny chunk per item
+        this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.collectionName = collectionName;
+        this.pageSize = pageSize;
+        this.fetcher = fetcher;
+        this.idGetter = idGetter;
+        this.converter = converter;
+        this.fields = fields;
+    }
+
+    @Override
+    public void write(OutputStream out)
+        throws IOException
+    {
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.writeStartObject();
+            gen.writeArrayFieldStart(collectionName);
+
+            Optional<Long> lastId = Optional.absent();
+            while (true) {
+                List<T> page = fetcher.fetch(pageSize, lastId);
+                for (T item : page) {
+                    writeItem(gen, converter.apply(item));
+                }
+                if (page.size() < pageSize) {
+                    break;
+                }
+                lastId = Optional.of(idGetter.apply(page.get(page.size() - 1)));
+                gen.flush();
+            }
+
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    private void writeItem(JsonGenerator gen, R item)
+        throws IOException
+    {
+        if (fields.isPresent()) {
+            ObjectNode node = mapper.valueToTree(item);
+            node.retain(fields.get());
+            writer.writeValue(gen, node);
+        }
+        else {
+            writer.writeValue(gen, item);
+        }
+    }
+}
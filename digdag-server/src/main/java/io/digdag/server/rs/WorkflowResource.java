@@ -61,18 +61,21 @@ public class WorkflowResource
     private final ScheduleStoreManager sm;
     private final SchedulerManager srm;
     private final TransactionManager tm;
+    private final ProjectMetadataCache projectCache;
 
     @Inject
     public WorkflowResource(
             ProjectStoreManager rm,
             ScheduleStoreManager sm,
             SchedulerManager srm,
-            TransactionManager tm)
+            TransactionManager tm,
+            ProjectMetadataCache projectCache)
     {
         this.rm = rm;
         this.sm = sm;
         this.srm = srm;
         this.tm = tm;
+        this.projectCache = projectCache;
     }
 
     @GET
@@ -123,7 +126,7 @@ public class WorkflowResource
     {
         return tm.begin(() -> {
             StoredWorkflowDefinitionWithProject def =
-                    rm.getProjectStore(getSiteId())
+                    projectCache.getProjectStore(getSiteId())
                             .getWorkflowDefinitionById(id);
             return RestModels.workflowDefinition(def);
         }, ResourceNotFoundException.class);
@@ -141,7 +144,7 @@ public class WorkflowResource
             Preconditions.checkArgument(localTime != null, "session_time= is required");
 
             StoredWorkflowDefinitionWithProject def =
-                    rm.getProjectStore(getSiteId())
+                    projectCache.getProjectStore(getSiteId())
                             .getWorkflowDefinitionById(id);
 
             ZoneId timeZone = def.getTimeZone();
@@ -0,0 +1,140 @@
+package io.digdag.server.rs;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import io.digdag.client.DigdagClient;
+import io.digdag.client.Version;
+import io.digdag.core.database.ThreadLocalTransactionManager;
+import io.digdag.core.session.AttemptStateFlags;
+import io.digdag.core.session.SessionStore;
+import io.digdag.core.session.SessionStoreManager;
+import io.digdag.core.session.StoredSessionAttemptWithSession;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.specimpl.RequestImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.sql.DataSource;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AttemptResourceTest
+{
+    private static final int SITE_ID = 1;
+    private static final long ATTEMPT_ID = 2L;
+
+    @Mock SessionStoreManager sm;
+    @Mock SessionStore ss;
+    @Mock StoredSessionAttemptWithSession attempt;
+    @Mock HttpServletRequest servletRequest;
+    @Mock DataSource dataSource;
+
+    private AttemptResource resource;
+
+    @Before
+    public void setUp()
+            throws Exception
+    {
+        when(servletRequest.getAttribute("siteId")).thenReturn(SITE_ID);
+        when(sm.getSessionStore(SITE_ID)).thenReturn(ss);
+        when(ss.getAttemptById(ATTEMPT_ID)).thenReturn(attempt);
+        when(ss.getArchivedTasksOfAttempt(ATTEMPT_ID)).thenReturn(Optional.of(ImmutableList.of()));
+
+        resource = new AttemptResource(null, sm, null,
+                new ThreadLocalTransactionManager(dataSource),
+                null, null, null, null,
+                DigdagClient.objectMapper(),
+                Version.parse("0.9.0"));
+        resource.request = servletRequest;
+    }
+
+    @Test
+    public void finishedAttemptHasWeakTag()
+            throws Exception
+    {
+        when(attempt.getStateFlags()).thenReturn(AttemptStateFlags.empty().withDone());
+
+        Response response = resource.getTasks(ATTEMPT_ID, null, null, request(Optional.absent()));
+
+        assertThat(response.getStatus(), is(200));
+        // content-coding of the body depends on Accept-Encoding
+        assertThat(response.getEntityTag().isWeak(), is(true));
+    }
+
+    @Test
+    public void runningAttemptHasNoTag()
+            throws Exception
+    {
+        when(attempt.getStateFlags()).thenReturn(AttemptStateFlags.empty());
+
+        Response response = resource.getTasks(ATTEMPT_ID, null, null, request(Optional.absent()));
+
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.getEntityTag(), is(nullValue()));
+    }
+
+    @Test
+    public void notModifiedWithFinishedTag()
+            throws Exception
+    {
+        when(attempt.getStateFlags()).thenReturn(AttemptStateFlags.empty().withDone());
+
+        EntityTag tag = resource.getTasks(ATTEMPT_ID, null, null, request(Optional.absent())).getEntityTag();
+
+        Response response = resource.getTasks(ATTEMPT_ID, null, null, request(Optional.of(tag.toString())));
+        assertThat(response.getStatus(), is(304));
+        // the database isn't used
+        verify(ss, times(1)).getAttemptById(ATTEMPT_ID);
+    }
+
+    @Test
+    public void tagDependsOnParameters()
+            throws Exception
+    {
+        when(attempt.getStateFlags()).thenReturn(AttemptStateFlags.empty().withDone());
+
+        EntityTag tag = resource.getTasks(ATTEMPT_ID, null, null, request(Optional.absent())).getEntityTag();
+        EntityTag fieldsTag = resource.getTasks(ATTEMPT_ID, "id,state", null, request(Optional.absent())).getEntityTag();
+        assertThat(fieldsTag, is(not(tag)));
+
+        Response response = resource.getTasks(ATTEMPT_ID, "id,state", null, request(Optional.of(tag.toString())));
+        assertThat(response.getStatus(), is(200));
+    }
+
+    @Test
+    public void notFinishedAttemptIsNotNotModified()
+            throws Exception
+    {
+        when(attempt.getStateFlags()).thenReturn(AttemptStateFlags.empty());
+
+        Response response = resource.getTasks(ATTEMPT_ID, null, null, request(Optional.of("W/\"other\"")));
+        assertThat(response.getStatus(), is(200));
+        verify(ss, never()).getArchivedTasksOfAttempt(ATTEMPT_ID);
+    }
+
+    private static Request request(Optional<String> ifNoneMatch)
+            throws Exception
+    {
+        MockHttpRequest request = MockHttpRequest.get("/api/attempts/" + ATTEMPT_ID + "/tasks");
+        if (ifNoneMatch.isPresent()) {
+            request.header("If-None-Match", ifNoneMatch.get());
+        }
+        return new RequestImpl(request, new MockHttpResponse());
+    }
+}
@@ -0,0 +1,180 @@
+package io.digdag.server.rs;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.digdag.core.repository.ProjectMap;
+import io.digdag.core.repository.ProjectStore;
+import io.digdag.core.repository.ProjectStoreManager;
+import io.digdag.core.repository.ResourceNotFoundException;
+import io.digdag.core.repository.StoredProject;
+import io.digdag.core.repository.StoredWorkflowDefinitionWithProject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProjectMetadataCacheTest
+{
+    private static final int SITE_A = 1;
+    private static final int SITE_B = 2;
+    private static final int PROJECT_ID = 3;
+    private static final long WORKFLOW_ID = 4L;
+
+    @Mock ProjectStoreManager rm;
+    @Mock ProjectStore storeA;
+    @Mock ProjectStore storeB;
+    @Mock StoredProject project;
+    @Mock StoredWorkflowDefinitionWithProject workflow;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private ProjectMetadataCache cache;
+
+    @Before
+    public void setUp()
+            throws Exception
+    {
+        when(rm.getProjectStore(SITE_A)).thenReturn(storeA);
+        when(rm.getProjectStore(SITE_B)).thenReturn(storeB);
+
+        when(project.getId()).thenReturn(PROJECT_ID);
+        when(project.getSiteId()).thenReturn(SITE_A);
+        when(workflow.getProject()).thenReturn(project);
+
+        when(storeA.getProjectById(PROJECT_ID)).thenReturn(project);
+        when(storeA.getWorkflowDefinitionById(WORKFLOW_ID)).thenReturn(workflow);
+        when(storeA.getProjectsByIdList(anyListOf(Integer.class))).thenReturn(new ProjectMap(ImmutableMap.of(PROJECT_ID, project)));
+        when(storeB.getProjectById(PROJECT_ID)).thenThrow(new ResourceNotFoundException("project"));
+        when(storeB.getWorkflowDefinitionById(WORKFLOW_ID)).thenThrow(new ResourceNotFoundException("workflow"));
+        when(storeB.getProjectsByIdList(anyListOf(Integer.class))).thenReturn(new ProjectMap(ImmutableMap.of()));
+
+        cache = new ProjectMetadataCache(rm, new Ticker()
+        {
+            @Override
+            public long read()
+            {
+                return nanos.get();
+            }
+        });
+    }
+
+    @Test
+    public void cacheLookups()
+            throws Exception
+    {
+        ProjectStore store = cache.getProjectStore(SITE_A);
+        assertThat(store.getProjectById(PROJECT_ID), is(sameInstance(project)));
+        assertThat(store.getProjectById(PROJECT_ID), is(sameInstance(project)));
+        assertThat(store.getProjectsByIdList(ImmutableList.of(PROJECT_ID)).get(PROJECT_ID), is(sameInstance(project)));
+        assertThat(store.getWorkflowDefinitionById(WORKFLOW_ID), is(sameInstance(workflow)));
+        assertThat(cache.getProjectStore(SITE_A).getWorkflowDefinitionById(WORKFLOW_ID), is(sameInstance(workflow)));
+
+        verify(storeA, times(1)).getProjectById(PROJECT_ID);
+        verify(storeA, times(0)).getProjectsByIdList(anyListOf(Integer.class));
+        verify(storeA, times(1)).getWorkflowDefinitionById(WORKFLOW_ID);
+    }
+
+    @Test
+    public void otherSiteNeverSeesCachedEntries()
+            throws Exception
+    {
+        ProjectStore a = cache.getProjectStore(SITE_A);
+        a.getProjectById(PROJECT_ID);
+        a.getWorkflowDefinitionById(WORKFLOW_ID);
+
+        ProjectStore b = cache.getProjectStore(SITE_B);
+        try {
+            b.getProjectById(PROJECT_ID);
+            fail();
+        }
+        catch (ResourceNotFoundException ex) {
+        }
+        try {
+            b.getWorkflowDefinitionById(WORKFLOW_ID);
+            fail();
+        }
+        catch (ResourceNotFoundException ex) {
+        }
+        try {
+            b.getProjectsByIdList(ImmutableList.of(PROJECT_ID)).get(PROJECT_ID);
+            fail();
+        }
+        catch (ResourceNotFoundException ex) {
+        }
+
+        // lookups of the other site don't evict entries of the site
+        assertThat(a.getProjectById(PROJECT_ID), is(sameInstance(project)));
+        assertThat(a.getWorkflowDefinitionById(WORKFLOW_ID), is(sameInstance(workflow)));
+        verify(storeA, times(1)).getProjectById(PROJECT_ID);
+        verify(storeA, times(1)).getWorkflowDefinitionById(WORKFLOW_ID);
+    }
+
+    @Test
+    public void invalidateProject()
+            throws Exception
+    {
+        ProjectStore store = cache.getProjectStore(SITE_A);
+        store.getProjectById(PROJECT_ID);
+        store.getWorkflowDefinitionById(WORKFLOW_ID);
+
+        // ProjectResource invalidates a project after it's pushed or deleted
+        cache.invalidateProject(PROJECT_ID);
+
+        store.getProjectById(PROJECT_ID);
+        store.getWorkflowDefinitionById(WORKFLOW_ID);
+        verify(storeA, times(2)).getProjectById(PROJECT_ID);
+        verify(storeA, times(2)).getWorkflowDefinitionById(WORKFLOW_ID);
+    }
+
+    @Test
+    public void invalidateOnlyTheProject()
+            throws Exception
+    {
+        ProjectStore store = cache.getProjectStore(SITE_A);
+        store.getProjectById(PROJECT_ID);
+        store.getWorkflowDefinitionById(WORKFLOW_ID);
+
+        cache.invalidateProject(PROJECT_ID + 1);
+
+        store.getProjectById(PROJECT_ID);
+        store.getWorkflowDefinitionById(WORKFLOW_ID);
+        verify(storeA, times(1)).getProjectById(PROJECT_ID);
+        verify(storeA, times(1)).getWorkflowDefinitionById(WORKFLOW_ID);
+    }
+
+    @Test
+    public void expire()
+            throws Exception
+    {
+        ProjectStore store = cache.getProjectStore(SITE_A);
+        store.getProjectById(PROJECT_ID);
+        store.getWorkflowDefinitionById(WORKFLOW_ID);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        store.getProjectById(PROJECT_ID);
+        store.getWorkflowDefinitionById(WORKFLOW_ID);
+        verify(storeA, times(1)).getProjectById(PROJECT_ID);
+        verify(storeA, times(1)).getWorkflowDefinitionById(WORKFLOW_ID);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        store.getProjectById(PROJECT_ID);
+        store.getWorkflowDefinitionById(WORKFLOW_ID);
+        verify(storeA, times(2)).getProjectById(PROJECT_ID);
+        verify(storeA, times(2)).getWorkflowDefinitionById(WORKFLOW_ID);
+    }
+}
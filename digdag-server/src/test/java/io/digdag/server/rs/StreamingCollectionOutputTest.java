@@ -0,0 +1,117 @@
+package io.digdag.server.rs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.digdag.client.DigdagClient;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class StreamingCollectionOutputTest
+{
+    private static final ObjectMapper MAPPER = DigdagClient.objectMapper();
+
+    private static final List<Long> IDS = ImmutableList.of(2L, 3L, 5L, 7L, 11L);
+
+    private final List<Optional<Long>> fetchedLastIds = new ArrayList<>();
+
+    @Test
+    public void writeAllPages()
+            throws Exception
+    {
+        JsonNode json = write(2, recordingFetcher(StreamingCollectionOutput.sortedListFetcher(IDS, id -> id)), Optional.absent());
+
+        assertThat(ids(json), is(IDS));
+        assertThat(json.get("items").get(4).get("name").asText(), is("item-11"));
+        // the last page is shorter than the page size
+        assertThat(fetchedLastIds, is(ImmutableList.of(Optional.absent(), Optional.of(3L), Optional.of(7L))));
+    }
+
+    @Test
+    public void fetchOneMorePageIfLastPageIsFull()
+            throws Exception
+    {
+        JsonNode json = write(5, recordingFetcher(StreamingCollectionOutput.sortedListFetcher(IDS, id -> id)), Optional.absent());
+
+        assertThat(ids(json), is(IDS));
+        assertThat(fetchedLastIds, is(ImmutableList.of(Optional.absent(), Optional.of(11L))));
+    }
+
+    @Test
+    public void writeEmptyCollection()
+            throws Exception
+    {
+        JsonNode json = write(2, StreamingCollectionOutput.sortedListFetcher(ImmutableList.of(), id -> id), Optional.absent());
+
+        assertThat(json.get("items").size(), is(0));
+    }
+
+    @Test
+    public void retainFields()
+            throws Exception
+    {
+        JsonNode json = write(2, StreamingCollectionOutput.sortedListFetcher(IDS, id -> id), Optional.of(ImmutableSet.of("id")));
+
+        assertThat(ids(json), is(IDS));
+        for (JsonNode item : json.get("items")) {
+            assertThat(item.size(), is(1));
+            assertThat(item.has("name"), is(false));
+        }
+    }
+
+    @Test
+    public void sortedListFetcherStartsAfterLastId()
+            throws Exception
+    {
+        StreamingCollectionOutput.PageFetcher<Long> fetcher = StreamingCollectionOutput.sortedListFetcher(IDS, id -> id);
+
+        assertThat(fetcher.fetch(2, Optional.absent()), is(ImmutableList.of(2L, 3L)));
+        assertThat(fetcher.fetch(2, Optional.of(3L)), is(ImmutableList.of(5L, 7L)));
+        // lastId doesn't have to be an id in the list
+        assertThat(fetcher.fetch(2, Optional.of(4L)), is(ImmutableList.of(5L, 7L)));
+        assertThat(fetcher.fetch(2, Optional.of(1L)), is(ImmutableList.of(2L, 3L)));
+        assertThat(fetcher.fetch(10, Optional.of(7L)), is(ImmutableList.of(11L)));
+        assertThat(fetcher.fetch(2, Optional.of(11L)), is(ImmutableList.of()));
+    }
+
+    private StreamingCollectionOutput.PageFetcher<Long> recordingFetcher(StreamingCollectionOutput.PageFetcher<Long> fetcher)
+    {
+        return (pageSize, lastId) -> {
+            fetchedLastIds.add(lastId);
+            return fetcher.fetch(pageSize, lastId);
+        };
+    }
+
+    private static JsonNode write(int pageSize, StreamingCollectionOutput.PageFetcher<Long> fetcher, Optional<Set<String>> fields)
+            throws Exception
+    {
+        StreamingCollectionOutput<Long, Map<String, Object>> output = new StreamingCollectionOutput<>(
+                MAPPER, "items", pageSize, fetcher,
+                id -> id,
+                id -> ImmutableMap.of("id", id, "name", "item-" + id),
+                fields);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+        return MAPPER.readTree(out.toByteArray());
+    }
+
+    private static List<Long> ids(JsonNode json)
+    {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode item : json.get("items")) {
+            ids.add(item.get("id").asLong());
+        }
+        return ids;
+    }
+}
@@ -1,18 +1,56 @@
 package io.digdag.spi;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.IOException;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.time.Instant;
 import java.time.ZoneId;
 import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
 
 public interface LogServer
 {
     String putFile(LogFilePrefix prefix, String taskName, Instant firstLogTime, String agentId, byte[] gzData);
 
+    default String putFile(LogFilePrefix prefix, String taskName, Instant firstLogTime, String agentId,
+            long contentLength, Storage.UploadStreamProvider gzData)
+        throws IOException
+    {
+        byte[] data;
+        try (InputStream in = gzData.open()) {
+            data = ByteStreams.toByteArray(in);
+        }
+        return putFile(prefix, taskName, firstLogTime, agentId, data);
+    }
+
     Optional<DirectUploadHandle> getDirectUploadHandle(LogFilePrefix prefix, String taskName, Instant firstLogTime, String agentId);
 
     List<LogFileHandle> getFileHandles(LogFilePrefix prefix, Optional<String> taskName);
 
+    // Returns files of the task whose names are greater than afterFileName.
+    // Unlike getFileHandles(prefix, taskName), taskName is not a prefix
+    // because names of files of different tasks are not ordered by time.
+    // Files of a task are ordered by time of the first log and uploaded in
+    // that order. Followers can pass the last file name they have seen to
+    // fetch only new files.
+    default List<LogFileHandle> getFileHandles(LogFilePrefix prefix, String taskName, String afterFileName)
+    {
+        return getFileHandles(prefix, Optional.of(taskName)).stream()
+            .filter(handle -> handle.getTaskName().equals(taskName))
+            .filter(handle -> handle.getFileName().compareTo(afterFileName) > 0)
+            .collect(Collectors.toList());
+    }
+
     byte[] getFile(LogFilePrefix prefix, String fileName)
         throws StorageFileNotFoundException;
+
+    // Returns gzip-compressed content of a file as a stream. Implementations
+    // should override this method not to buffer whole content in memory.
+    default InputStream openFile(LogFilePrefix prefix, String fileName)
+        throws StorageFileNotFoundException
+    {
+        return new ByteArrayInputStream(getFile(prefix, fileName));
+    }
 }
@@ -3,4 +3,15 @@ package io.digdag.spi;
 public interface SecretStoreManager
 {
     SecretStore getSecretStore(int siteId);
+
+    /**
+     * Get a SecretStore used during execution of a task.
+     *
+     * Returned store may read secrets in advance and keep them until the task
+     * finishes. Thus it may not reflect changes made after it's created.
+     */
+    default SecretStore getTaskSecretStore(int siteId)
+    {
+        return getSecretStore(siteId);
+    }
 }
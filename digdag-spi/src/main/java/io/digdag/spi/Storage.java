@@ -3,6 +3,7 @@ package io.digdag.spi;
 import java.io.InputStream;
 import java.io.IOException;
 import java.util.List;
+import java.util.stream.Collectors;
 import com.google.common.base.Optional;
 
 public interface Storage
@@ -26,6 +27,21 @@ public interface Storage
 
     void list(String keyPrefix, FileListing callback);
 
+    // Lists files whose keys are lexicographically greater than startAfter.
+    // Implementations should override this method if the underlaying storage
+    // can skip the preceding keys without listing them.
+    default void list(String keyPrefix, String startAfter, FileListing callback)
+    {
+        list(keyPrefix, (chunk) -> {
+            List<StorageObjectSummary> filtered = chunk.stream()
+                .filter(summary -> summary.getKey().compareTo(startAfter) > 0)
+                .collect(Collectors.toList());
+            if (!filtered.isEmpty()) {
+                callback.accept(filtered);
+            }
+        });
+    }
+
     default Optional<DirectDownloadHandle> getDirectDownloadHandle(String key)
     {
         return Optional.absent();
@@ -0,0 +1,324 @@
+package io.digdag.standards.operator;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+import io.digdag.client.DigdagVersion;
+import io.digdag.client.config.Config;
+import io.digdag.spi.TaskExecutionException;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpProxy;
+import org.eclipse.jetty.client.Origin;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.util.HttpCookieStore;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weakref.jmx.Managed;
+
+import static org.eclipse.jetty.http.HttpHeader.USER_AGENT;
+
+/**
+ * Keeps started Jetty HttpClient instances used by http> operator so that
+ * tasks share thread pools, selectors, SSL contexts and keep-alive
+ * connections instead of starting a new client for every task.
+ *
+ * A client is created for each combination of TLS certificate verification
+ * and proxy settings. Settings that differ for each task (timeout, redirects,
+ * authentication) must be set to Request instead of HttpClient.
+ * HttpClient is thread-safe and the same client is used by tasks concurrently.
+ *
+ * Each client owns a thread pool. Number of clients is bounded, and clients
+ * that are not used for a while are discarded. Tasks lease a client while
+ * they use it, and a discarded client is stopped after all tasks using it
+ * release their leases.
+ */
+public class HttpClientPool
+{
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientPool.class);
+
+    static final int DEFAULT_MAX_CONNECTIONS_PER_DESTINATION = 16;
+    static final int DEFAULT_IDLE_TIMEOUT = 60;
+    static final int DEFAULT_MAX_THREADS = 32;
+    static final int DEFAULT_MAX_CLIENTS = 8;
+    static final int DEFAULT_CLIENT_IDLE_TIMEOUT = 600;
+
+    private final int maxConnectionsPerDestination;
+    private final long idleTimeoutMillis;
+    private final int maxThreads;
+    private final int maxRedirects;
+    private final String userAgent;
+
+    private final Cache<Key, SharedResource<HttpClient>> clients;
+    private final AtomicLong createdCount = new AtomicLong(0L);
+    private volatile boolean closed = false;
+
+    @Inject
+    public HttpClientPool(Config systemConfig)
+    {
+        this(systemConfig, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    HttpClientPool(Config systemConfig, Ticker ticker)
+    {
+        this.clients = CacheBuilder.newBuilder()
+            .maximumSize(systemConfig.get("config.http.client.max_clients", int.class, DEFAULT_MAX_CLIENTS))
+            .expireAfterAccess(systemConfig.get("config.http.client.client_idle_timeout", int.class, DEFAULT_CLIENT_IDLE_TIMEOUT), TimeUnit.SECONDS)
+            .ticker(ticker)
+            .removalListener((RemovalNotification<Key, SharedResource<HttpClient>> notification) -> notification.getValue().evict())
+            .build();
+        this.maxConnectionsPerDestination = systemConfig.get("config.http.client.max_connections_per_destination", int.class, DEFAULT_MAX_CONNECTIONS_PER_DESTINATION);
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(systemConfig.get("config.http.client.idle_timeout", int.class, DEFAULT_IDLE_TIMEOUT));
+        this.maxThreads = systemConfig.get("config.http.client.max_threads", int.class, DEFAULT_MAX_THREADS);
+        this.maxRedirects = systemConfig.get("config.http.max_redirects", int.class, 8);
+        this.userAgent = systemConfig.get("config.http.user_agent", String.class, "Digdag/" + DigdagVersion.buildVersion());
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        closed = true;
+        // clients used by running tasks are stopped when the tasks release them
+        clients.invalidateAll();
+        clients.cleanUp();
+    }
+
+    /**
+     * Returns a lease of a started client. The client is owned by this pool
+     * and callers must not stop it or change its settings, but must close
+     * the lease.
+     */
+    public SharedResource.Lease<HttpClient> getClient(boolean insecure, List<ProxySpec> proxies)
+    {
+        Key key = new Key(insecure, proxies);
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("HTTP client pool is already shut down");
+            }
+            SharedResource<HttpClient> shared;
+            try {
+                shared = clients.get(key, () -> new SharedResource<>(startClient(key), HttpClientPool::stop));
+            }
+            catch (UncheckedExecutionException | ExecutionException ex) {
+                throw Throwables.propagate(ex.getCause());
+            }
+            Optional<SharedResource.Lease<HttpClient>> lease = shared.tryLease();
+            if (lease.isPresent()) {
+                return lease.get();
+            }
+            // evicted after it was got from the cache. get or start a new one.
+        }
+    }
+
+    private HttpClient startClient(Key key)
+    {
+        long id = createdCount.incrementAndGet();
+        HttpClient httpClient = new HttpClient(new SslContextFactory(key.insecure));
+
+        for (ProxySpec proxy : key.proxies) {
+            httpClient.getProxyConfiguration().getProxies().add(proxy.toProxy());
+        }
+
+        QueuedThreadPool threadPool = new QueuedThreadPool(maxThreads);
+        threadPool.setName("http-client-" + id);
+        threadPool.setDaemon(true);
+        httpClient.setExecutor(threadPool);
+        httpClient.setScheduler(new ScheduledExecutorScheduler("http-client-scheduler-" + id, true));
+
+        httpClient.setMaxConnectionsPerDestination(maxConnectionsPerDestination);
+        httpClient.setIdleTimeout(idleTimeoutMillis);
+        httpClient.setRemoveIdleDestinations(true);
+        httpClient.setMaxRedirects(maxRedirects);
+
+        // don't share cookies between tasks
+        httpClient.setCookieStore(new HttpCookieStore.Empty());
+
+        httpClient.setUserAgentField(new HttpField(
+                USER_AGENT, userAgent + ' ' + httpClient.getUserAgentField().getValue()));
+
+        try {
+            httpClient.start();
+        }
+        catch (Exception e) {
+            stop(httpClient);
+            throw new TaskExecutionException(e);
+        }
+
+        logger.debug("Started a new HTTP client for {}", key);
+        return httpClient;
+    }
+
+    private static void stop(HttpClient httpClient)
+    {
+        try {
+            httpClient.stop();
+        }
+        catch (Exception e) {
+            logger.warn("Failed to stop http client", e);
+        }
+    }
+
+    @Managed
+    public long getCreatedCount()
+    {
+        return createdCount.get();
+    }
+
+    @Managed
+    public long getClientCount()
+    {
+        return clients.size();
+    }
+
+    @Managed
+    public long getDestinationCount()
+    {
+        long count = 0;
+        for (SharedResource<HttpClient> client : clients.asMap().values()) {
+            try (SharedResource.Lease<HttpClient> lease = client.tryLease().orNull()) {
+                if (lease != null) {
+                    count += lease.get().getDestinations().size();
+                }
+            }
+        }
+        return count;
+    }
+
+    public static class ProxySpec
+    {
+        private final Optional<String> scheme;
+        private final String host;
+        private final int port;
+        private final boolean tls;
+
+        private ProxySpec(Optional<String> scheme, String host, int port, boolean tls)
+        {
+            this.scheme = scheme;
+            this.host = host;
+            this.port = port;
+            this.tls = tls;
+        }
+
+        public static ProxySpec of(String host, int port, boolean tls)
+        {
+            return new ProxySpec(Optional.absent(), host, port, tls);
+        }
+
+        public static ProxySpec ofScheme(String scheme, String host, int port, boolean tls)
+        {
+            return new ProxySpec(Optional.of(scheme), host, port, tls);
+        }
+
+        HttpProxy toProxy()
+        {
+            Origin.Address address = new Origin.Address(host, port);
+            if (scheme.isPresent()) {
+                return new SchemeProxy(scheme.get(), address, tls);
+            }
+            else {
+                return new HttpProxy(address, tls);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ProxySpec other = (ProxySpec) o;
+            return port == other.port &&
+                tls == other.tls &&
+                scheme.equals(other.scheme) &&
+                host.equals(other.host);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(scheme, host, port, tls);
+        }
+
+        @Override
+        public String toString()
+        {
+            return (scheme.isPresent() ? scheme.get() + "=" : "") +
+                (tls ? "https://" : "http://") + host + ":" + port;
+        }
+    }
+
+    private static class SchemeProxy
+            extends HttpProxy
+    {
+        private final String scheme;
+
+        public SchemeProxy(String scheme, Origin.Address address, boolean tls)
+        {
+            super(address, tls);
+            this.scheme = scheme;
+        }
+
+        @Override
+        public boolean matches(Origin origin)
+        {
+            return scheme.equals(origin.getScheme());
+        }
+    }
+
+    private static class Key
+    {
+        private final boolean insecure;
+        private final List<ProxySpec> proxies;
+
+        Key(boolean insecure, List<ProxySpec> proxies)
+        {
+            this.insecure = insecure;
+            this.proxies = ImmutableList.copyOf(proxies);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return insecure == other.insecure &&
+                proxies.equals(other.proxies);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(insecure, proxies);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "insecure=" + insecure + ", proxies=" + proxies;
+        }
+    }
+}
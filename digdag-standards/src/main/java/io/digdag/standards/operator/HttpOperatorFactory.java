@@ -6,15 +6,14 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.google.api.client.repackaged.com.google.common.base.Throwables;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.inject.Inject;
-import com.treasuredata.client.ProxyConfig;
 import io.digdag.client.config.Config;
 import io.digdag.client.config.ConfigException;
 import io.digdag.client.config.ConfigFactory;
 import io.digdag.client.config.ConfigKey;
 import io.digdag.core.Environment;
-import io.digdag.client.DigdagVersion;
 import io.digdag.spi.ImmutableTaskResult;
 import io.digdag.spi.Operator;
 import io.digdag.spi.OperatorContext;
@@ -23,6 +22,7 @@ import io.digdag.spi.SecretProvider;
 import io.digdag.spi.TaskExecutionException;
 import io.digdag.spi.TaskResult;
 import io.digdag.standards.Proxies;
+import io.digdag.standards.operator.HttpClientPool.ProxySpec;
 import io.digdag.standards.operator.state.PollingRetryExecutor;
 import io.digdag.standards.operator.state.TaskState;
 import io.digdag.util.BaseOperator;
@@ -30,10 +30,7 @@ import io.digdag.util.UserSecretTemplate;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.eclipse.jetty.client.HttpClient;
-import org.eclipse.jetty.client.HttpProxy;
 import org.eclipse.jetty.client.HttpResponseException;
-import org.eclipse.jetty.client.Origin;
-import org.eclipse.jetty.client.ProxyConfiguration;
 import org.eclipse.jetty.client.api.ContentProvider;
 import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.client.api.Request;
@@ -41,10 +38,8 @@ import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.client.util.BasicAuthentication;
 import org.eclipse.jetty.client.util.FormContentProvider;
 import org.eclipse.jetty.client.util.StringContentProvider;
-import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.util.Fields;
-import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,32 +54,29 @@ import java.util.concurrent.TimeoutException;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.eclipse.jetty.http.HttpHeader.AUTHORIZATION;
-import static org.eclipse.jetty.http.HttpHeader.USER_AGENT;
 
 public class HttpOperatorFactory
         implements OperatorFactory
 {
     private static final Logger logger = LoggerFactory.getLogger(HttpOperatorFactory.class);
 
-    private final Optional<ProxyConfiguration.Proxy> systemProxy;
+    private final Optional<ProxySpec> systemProxy;
     private final Map<String, String> env;
     private final boolean allowUserProxy;
-    private final int maxRedirects;
-    private final String userAgent;
     private final int maxStoredResponseContentSize;
+    private final HttpClientPool clientPool;
 
     @Inject
-    public HttpOperatorFactory(Config systemConfig, @Environment Map<String, String> env)
+    public HttpOperatorFactory(Config systemConfig, @Environment Map<String, String> env, HttpClientPool clientPool)
     {
         this.allowUserProxy = systemConfig.get("config.http.allow_user_proxy", boolean.class, true);
         this.systemProxy = systemProxy(systemConfig);
-        this.maxRedirects = systemConfig.get("config.http.max_redirects", int.class, 8);
         this.maxStoredResponseContentSize = systemConfig.get("config.http.max_stored_response_content_size", int.class, 64 * 1024);
         this.env = env;
-        this.userAgent = systemConfig.get("config.http.user_agent", String.class, "Digdag/" + DigdagVersion.buildVersion());
+        this.clientPool = clientPool;
     }
 
-    private static Optional<ProxyConfiguration.Proxy> systemProxy(Config systemConfig)
+    private static Optional<ProxySpec> systemProxy(Config systemConfig)
     {
         boolean enabled = systemConfig.get("config.http.proxy.enabled", boolean.class, false);
         if (!enabled) {
@@ -93,8 +85,7 @@ public class HttpOperatorFactory
         String host = systemConfig.get("config.http.proxy.host", String.class);
         int port = systemConfig.get("config.http.proxy.port", int.class);
         boolean tls = systemConfig.get("config.http.proxy.tls", boolean.class, false);
-        HttpProxy proxy = new HttpProxy(new Origin.Address(host, port), tls);
-        return Optional.of(proxy);
+        return Optional.of(ProxySpec.of(host, port, tls));
     }
 
     @Override
@@ -133,12 +124,10 @@ public class HttpOperatorFactory
         @Override
         public TaskResult runTask()
         {
-            HttpClient client = client();
-            try {
-                return run(client);
-            }
-            finally {
-                stop(client);
+            boolean insecure = params.get("insecure", boolean.class, false);
+            // the client is shared with other tasks. don't change its settings here.
+            try (SharedResource.Lease<HttpClient> client = clientPool.getClient(insecure, proxies())) {
+                return run(client.get());
             }
         }
 
@@ -163,8 +152,11 @@ public class HttpOperatorFactory
             Optional<String> user = httpSecrets.getSecretOptional("user");
             Optional<String> authorization = httpSecrets.getSecretOptional("authorization");
 
+            boolean followRedirects = params.get("follow_redirects", boolean.class, true);
+
             Request request = httpClient.newRequest(uri)
                     .method(method)
+                    .followRedirects(followRedirects)
                     .timeout(timeout, SECONDS);
 
             if (authorization.isPresent()) {
@@ -172,7 +164,7 @@ public class HttpOperatorFactory
             }
             else if (user.isPresent()) {
                 Optional<String> password = httpSecrets.getSecretOptional("password");
-                httpClient.getAuthenticationStore().addAuthenticationResult(new BasicAuthentication.BasicResult(uri, user.get(), password.or("")));
+                new BasicAuthentication.BasicResult(uri, user.get(), password.or("")).apply(request);
             }
 
             Optional<JsonNode> content = params.getOptional("content", JsonNode.class);
@@ -387,61 +379,27 @@ public class HttpOperatorFactory
                     .build();
         }
 
-        private HttpClient client()
-        {
-            boolean insecure = params.get("insecure", boolean.class, false);
-
-            HttpClient httpClient = new HttpClient(new SslContextFactory(insecure));
-
-            configureProxy(httpClient);
-
-            boolean followRedirects = params.get("follow_redirects", boolean.class, true);
-
-            httpClient.setFollowRedirects(followRedirects);
-            httpClient.setMaxRedirects(maxRedirects);
-
-            httpClient.setUserAgentField(new HttpField(
-                    USER_AGENT, userAgent + ' ' + httpClient.getUserAgentField().getValue()));
-
-            try {
-                httpClient.start();
-            }
-            catch (Exception e) {
-                throw new TaskExecutionException(e);
-            }
-            return httpClient;
-        }
-
-        private void configureProxy(HttpClient httpClient)
+        private List<ProxySpec> proxies()
         {
-            List<ProxyConfiguration.Proxy> proxies = httpClient.getProxyConfiguration().getProxies();
+            ImmutableList.Builder<ProxySpec> proxies = ImmutableList.builder();
             Config userProxyConfig = params.getNestedOrGetEmpty("proxy");
             boolean userProxyEnabled = userProxyConfig.get("enabled", boolean.class, false);
             if (allowUserProxy && userProxyEnabled) {
                 String host = userProxyConfig.get("host", String.class);
                 int port = userProxyConfig.get("port", int.class);
                 boolean tls = userProxyConfig.get("tls", boolean.class, false);
-                proxies.add(new HttpProxy(new Origin.Address(host, port), tls));
+                proxies.add(ProxySpec.of(host, port, tls));
             }
             else {
                 if (systemProxy.isPresent()) {
                     proxies.add(systemProxy.get());
                 }
                 else {
-                    configureEnvProxy("http", proxies);
-                    configureEnvProxy("https", proxies);
+                    proxies.addAll(envProxy("http").asSet());
+                    proxies.addAll(envProxy("https").asSet());
                 }
             }
-        }
-
-        private void stop(HttpClient httpClient)
-        {
-            try {
-                httpClient.stop();
-            }
-            catch (Exception e) {
-                logger.warn("Failed to stop http client", e);
-            }
+            return proxies.build();
         }
     }
 
@@ -550,30 +508,9 @@ public class HttpOperatorFactory
         return fields;
     }
 
-    private void configureEnvProxy(String scheme, List<ProxyConfiguration.Proxy> proxies)
-    {
-        Optional<ProxyConfig> proxyConfig = Proxies.proxyConfigFromEnv(scheme, env);
-        if (proxyConfig.isPresent()) {
-            ProxyConfig c = proxyConfig.get();
-            proxies.add(new SchemeProxy(scheme, new Origin.Address(c.getHost(), c.getPort()), c.useSSL()));
-        }
-    }
-
-    private class SchemeProxy
-            extends HttpProxy
+    private Optional<ProxySpec> envProxy(String scheme)
     {
-        private final String scheme;
-
-        public SchemeProxy(String scheme, Origin.Address address, boolean tls)
-        {
-            super(address, tls);
-            this.scheme = scheme;
-        }
-
-        @Override
-        public boolean matches(Origin origin)
-        {
-            return scheme.equals(origin.getScheme());
-        }
+        return Proxies.proxyConfigFromEnv(scheme, env)
+            .transform(c -> ProxySpec.ofScheme(scheme, c.getHost(), c.getPort(), c.useSSL()));
     }
 }
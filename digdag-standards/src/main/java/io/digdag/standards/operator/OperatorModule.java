@@ -5,8 +5,10 @@ import com.google.inject.Module;
 import com.google.inject.Scopes;
 import com.google.inject.multibindings.Multibinder;
 import io.digdag.spi.OperatorFactory;
+import io.digdag.standards.operator.aws.AwsClientCache;
 import io.digdag.standards.operator.aws.EmrOperatorFactory;
 import io.digdag.standards.operator.aws.S3WaitOperatorFactory;
+import io.digdag.standards.operator.jdbc.JdbcConnectionPool;
 import io.digdag.standards.operator.pg.PgOperatorFactory;
 import io.digdag.standards.operator.redshift.RedshiftLoadOperatorFactory;
 import io.digdag.standards.operator.redshift.RedshiftOperatorFactory;
@@ -22,6 +24,8 @@ import io.digdag.standards.operator.td.TdTableExportOperatorFactory;
 import io.digdag.standards.operator.td.TdWaitOperatorFactory;
 import io.digdag.standards.operator.td.TdWaitTableOperatorFactory;
 
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
+
 public class OperatorModule
         implements Module
 {
@@ -57,6 +61,13 @@ public class OperatorModule
         addStandardOperatorFactory(binder, S3WaitOperatorFactory.class);
         addStandardOperatorFactory(binder, EmrOperatorFactory.class);
         addStandardOperatorFactory(binder, HttpOperatorFactory.class);
+
+        binder.bind(JdbcConnectionPool.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(JdbcConnectionPool.class).withGeneratedName();
+        binder.bind(HttpClientPool.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(HttpClientPool.class).withGeneratedName();
+        binder.bind(AwsClientCache.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(AwsClientCache.class).withGeneratedName();
     }
 
     protected void addStandardOperatorFactory(Binder binder, Class<? extends OperatorFactory> factory)
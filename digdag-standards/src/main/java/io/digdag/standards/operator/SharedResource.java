@@ -0,0 +1,98 @@
+package io.digdag.standards.operator;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import com.google.common.base.Optional;
+
+/**
+ * A resource such as an API client that is cached and used by multiple
+ * tasks at once.
+ *
+ * Tasks lease the resource while they use it. When a cache discards the
+ * resource (size limit, idle timeout or expiration of credentials), it calls
+ * evict. The resource is closed when the last lease is released, or
+ * immediately if no tasks are using it.
+ */
+public class SharedResource<T>
+{
+    private final T resource;
+    private final Consumer<? super T> closer;
+    private int leaseCount = 0;
+    private boolean evicted = false;
+
+    public SharedResource(T resource, Consumer<? super T> closer)
+    {
+        this.resource = resource;
+        this.closer = closer;
+    }
+
+    /**
+     * Returns a lease of the resource, or absent if the resource is already
+     * evicted. Callers should get a new resource from the cache in that case.
+     */
+    public synchronized Optional<Lease<T>> tryLease()
+    {
+        if (evicted) {
+            return Optional.absent();
+        }
+        leaseCount++;
+        return Optional.of(new Lease<>(this));
+    }
+
+    public void evict()
+    {
+        boolean close;
+        synchronized (this) {
+            if (evicted) {
+                return;
+            }
+            evicted = true;
+            close = leaseCount == 0;
+        }
+        if (close) {
+            closer.accept(resource);
+        }
+    }
+
+    private void release()
+    {
+        boolean close;
+        synchronized (this) {
+            leaseCount--;
+            close = evicted && leaseCount == 0;
+        }
+        if (close) {
+            closer.accept(resource);
+        }
+    }
+
+    public synchronized int getLeaseCount()
+    {
+        return leaseCount;
+    }
+
+    public static class Lease<T>
+            implements AutoCloseable
+    {
+        private final SharedResource<T> shared;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Lease(SharedResource<T> shared)
+        {
+            this.shared = shared;
+        }
+
+        public T get()
+        {
+            return shared.resource;
+        }
+
+        @Override
+        public void close()
+        {
+            if (released.compareAndSet(false, true)) {
+                shared.release();
+            }
+        }
+    }
+}
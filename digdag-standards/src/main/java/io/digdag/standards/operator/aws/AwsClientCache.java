@@ -0,0 +1,237 @@
+package io.digdag.standards.operator.aws;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSSessionCredentials;
+import com.amazonaws.services.securitytoken.model.AssumeRoleResult;
+import com.amazonaws.services.securitytoken.model.Credentials;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+import io.digdag.client.config.Config;
+import io.digdag.standards.operator.SharedResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weakref.jmx.Managed;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps AWS SDK clients used by emr> and s3_wait> operators so that
+ * following tasks and polling of the same task reuse HTTP connection pools
+ * instead of creating a new client every time.
+ *
+ * Clients are keyed by client type, a hash of the credentials, endpoint,
+ * region and client options. Clients created with temporary credentials are
+ * discarded before the credentials expire. Credentials of assumed roles are
+ * cached in the same way so that polling doesn't call STS every time.
+ *
+ * Tasks lease a client while they use it. A client discarded from the cache
+ * is shut down after all tasks using it release their leases.
+ */
+public class AwsClientCache
+{
+    private static final Logger logger = LoggerFactory.getLogger(AwsClientCache.class);
+
+    static final int DEFAULT_MAX_ENTRIES = 64;
+    static final int DEFAULT_IDLE_TIMEOUT = 600;
+
+    // discard clients and credentials a bit before credentials expire
+    // so that a request doesn't fail in the middle.
+    private static final Duration EXPIRATION_MARGIN = Duration.ofMinutes(5);
+
+    private final Cache<ClientKey, Expiring<SharedResource<AmazonWebServiceClient>>> clients;
+    private final Cache<String, Expiring<Credentials>> assumedRoles;
+
+    @Inject
+    public AwsClientCache(Config systemConfig)
+    {
+        this(systemConfig.get("config.aws.client_cache.max_entries", int.class, DEFAULT_MAX_ENTRIES),
+                systemConfig.get("config.aws.client_cache.idle_timeout", int.class, DEFAULT_IDLE_TIMEOUT));
+    }
+
+    public AwsClientCache(int maxEntries, int idleTimeoutSeconds)
+    {
+        this.clients = CacheBuilder.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterAccess(idleTimeoutSeconds, TimeUnit.SECONDS)
+            .removalListener((RemovalNotification<ClientKey, Expiring<SharedResource<AmazonWebServiceClient>>> notification) -> notification.getValue().value.evict())
+            .build();
+        this.assumedRoles = CacheBuilder.newBuilder()
+            .maximumSize(maxEntries)
+            .build();
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        clients.invalidateAll();
+        clients.cleanUp();
+        assumedRoles.invalidateAll();
+    }
+
+    /**
+     * Returns a lease of a cached client or creates a new one using the factory.
+     * The client is shared with other tasks. Callers must configure
+     * endpoint, region and options in the factory, must not shut it down,
+     * and must close the lease when they finish using the client.
+     *
+     * @param options other settings that the factory sets to the client, such as path style access of S3.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends AmazonWebServiceClient> SharedResource.Lease<T> getClient(Class<T> type,
+            AWSCredentials credentials, Optional<Instant> credentialsExpiration,
+            Optional<String> endpoint, Optional<String> regionName, String options,
+            Supplier<T> factory)
+    {
+        ClientKey key = new ClientKey(type, fingerprint(credentials), endpoint, regionName, options);
+        while (true) {
+            Expiring<SharedResource<AmazonWebServiceClient>> cached = get(clients, key,
+                    () -> new Expiring<>(new SharedResource<>(factory.get(), AwsClientCache::shutdown), credentialsExpiration));
+            Optional<SharedResource.Lease<AmazonWebServiceClient>> lease = cached.value.tryLease();
+            if (lease.isPresent()) {
+                type.cast(lease.get().get());
+                return (SharedResource.Lease<T>) (SharedResource.Lease<?>) lease.get();
+            }
+            // evicted after it was got from the cache. the cache doesn't
+            // have it any more. get or create a new one.
+        }
+    }
+
+    /**
+     * Returns cached temporary credentials of a role, or assumes the role using assumeRole function.
+     */
+    public Credentials getAssumedRoleCredentials(AWSCredentials baseCredentials,
+            String roleArn, String roleSessionName,
+            Function<AWSCredentials, AssumeRoleResult> assumeRole)
+    {
+        String key = fingerprint(baseCredentials) + ':' + roleArn + ':' + roleSessionName;
+        Expiring<Credentials> cached = get(assumedRoles, key, () -> {
+            Credentials credentials = assumeRole.apply(baseCredentials).getCredentials();
+            return new Expiring<>(credentials,
+                    Optional.fromNullable(credentials.getExpiration()).transform(date -> date.toInstant()));
+        });
+        return cached.value;
+    }
+
+    private static <K, V> Expiring<V> get(Cache<K, Expiring<V>> cache, K key, Supplier<Expiring<V>> loader)
+    {
+        try {
+            Expiring<V> cached = cache.getIfPresent(key);
+            if (cached != null && cached.isExpired(Instant.now())) {
+                cache.invalidate(key);
+            }
+            return cache.get(key, loader::get);
+        }
+        catch (UncheckedExecutionException | ExecutionException ex) {
+            throw Throwables.propagate(ex.getCause());
+        }
+    }
+
+    private static String fingerprint(AWSCredentials credentials)
+    {
+        Hasher hasher = Hashing.sha256().newHasher()
+            .putString(credentials.getAWSAccessKeyId(), UTF_8)
+            .putByte((byte) 0)
+            .putString(credentials.getAWSSecretKey(), UTF_8);
+        if (credentials instanceof AWSSessionCredentials) {
+            hasher.putByte((byte) 0)
+                .putString(((AWSSessionCredentials) credentials).getSessionToken(), UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void shutdown(AmazonWebServiceClient client)
+    {
+        try {
+            client.shutdown();
+        }
+        catch (RuntimeException ex) {
+            logger.warn("Failed to shutdown AWS client", ex);
+        }
+    }
+
+    @Managed
+    public long getClientCount()
+    {
+        return clients.size();
+    }
+
+    @Managed
+    public long getAssumedRoleCount()
+    {
+        return assumedRoles.size();
+    }
+
+    private static class Expiring<T>
+    {
+        private final T value;
+        private final Optional<Instant> expiration;
+
+        Expiring(T value, Optional<Instant> expiration)
+        {
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+        boolean isExpired(Instant now)
+        {
+            return expiration.isPresent() && now.plus(EXPIRATION_MARGIN).isAfter(expiration.get());
+        }
+    }
+
+    private static class ClientKey
+    {
+        private final Class<?> type;
+        private final String credentials;
+        private final Optional<String> endpoint;
+        private final Optional<String> regionName;
+        private final String options;
+
+        ClientKey(Class<?> type, String credentials, Optional<String> endpoint, Optional<String> regionName, String options)
+        {
+            this.type = type;
+            this.credentials = credentials;
+            this.endpoint = endpoint;
+            this.regionName = regionName;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ClientKey other = (ClientKey) o;
+            return type.equals(other.type) &&
+                credentials.equals(other.credentials) &&
+                endpoint.equals(other.endpoint) &&
+                regionName.equals(other.regionName) &&
+                options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(type, credentials, endpoint, regionName, options);
+        }
+    }
+}
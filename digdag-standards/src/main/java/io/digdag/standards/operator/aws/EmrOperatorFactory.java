@@ -40,6 +40,7 @@ import com.amazonaws.services.kms.model.EncryptRequest;
 import com.amazonaws.services.kms.model.EncryptResult;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.AmazonS3URI;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.DeleteObjectsRequest;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
@@ -50,7 +51,7 @@ import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.Upload;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClient;
 import com.amazonaws.services.securitytoken.model.AssumeRoleRequest;
-import com.amazonaws.services.securitytoken.model.AssumeRoleResult;
+import com.amazonaws.services.securitytoken.model.Credentials;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -64,8 +65,13 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 import com.google.common.io.BaseEncoding;
 import com.google.common.io.Resources;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import io.digdag.client.config.Config;
 import io.digdag.client.config.ConfigException;
@@ -82,6 +88,7 @@ import io.digdag.spi.TaskResult;
 import io.digdag.spi.TemplateEngine;
 import io.digdag.spi.TemplateException;
 import io.digdag.standards.operator.DurationInterval;
+import io.digdag.standards.operator.SharedResource;
 import io.digdag.standards.operator.state.TaskState;
 import io.digdag.util.BaseOperator;
 import io.digdag.util.RetryExecutor;
@@ -92,19 +99,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -140,14 +154,18 @@ public class EmrOperatorFactory
     private final ObjectMapper objectMapper;
     private final ConfigFactory cf;
     private final Map<String, String> environment;
+    private final AwsClientCache clientCache;
+    private final int stagingUploadThreads;
 
     @Inject
-    public EmrOperatorFactory(TemplateEngine templateEngine, ObjectMapper objectMapper, ConfigFactory cf, @Environment Map<String, String> environment)
+    public EmrOperatorFactory(TemplateEngine templateEngine, ObjectMapper objectMapper, ConfigFactory cf, @Environment Map<String, String> environment, AwsClientCache clientCache, Config systemConfig)
     {
+        this.stagingUploadThreads = systemConfig.get("config.emr.staging.upload_threads", int.class, 4);
         this.templateEngine = templateEngine;
         this.objectMapper = objectMapper;
         this.cf = cf;
         this.environment = environment;
+        this.clientCache = clientCache;
     }
 
     @Override
@@ -178,7 +196,8 @@ public class EmrOperatorFactory
         {
             String tag = state.constant("tag", String.class, EmrOperatorFactory::randomTag);
 
-            AWSCredentials credentials = credentials(tag);
+            AwsSession session = session(tag);
+            AWSCredentials credentials = session.credentials;
 
             SecretProvider awsSecrets = context.getSecrets().getSecrets("aws");
             SecretProvider s3Secrets = awsSecrets.getSecrets("s3");
@@ -215,22 +234,38 @@ public class EmrOperatorFactory
                     () -> params.getOptional("kms.endpoint", String.class),
                     () -> kmsRegionName.transform(regionName -> "kms." + regionName + ".amazonaws.com"));
 
-            ClientConfiguration emrClientConfiguration = new ClientConfiguration();
-            ClientConfiguration s3ClientConfiguration = new ClientConfiguration();
-            ClientConfiguration kmsClientConfiguration = new ClientConfiguration();
-
-            Aws.configureProxy(emrClientConfiguration, emrEndpoint, environment);
-            Aws.configureProxy(s3ClientConfiguration, s3Endpoint, environment);
-            Aws.configureProxy(kmsClientConfiguration, kmsEndpoint, environment);
-
-            AmazonElasticMapReduceClient emr = new AmazonElasticMapReduceClient(credentials, emrClientConfiguration);
-            AmazonS3Client s3 = new AmazonS3Client(credentials, s3ClientConfiguration);
-            AWSKMSClient kms = new AWSKMSClient(credentials, kmsClientConfiguration);
-
-            Aws.configureServiceClient(s3, s3Endpoint, s3RegionName);
-            Aws.configureServiceClient(emr, emrEndpoint, emrRegionName);
-            Aws.configureServiceClient(kms, kmsEndpoint, kmsRegionName);
+            // Clients are shared with other tasks and polling of this task. Don't shut them down.
+            // Leases keep them from being shut down by the cache while this task uses them.
+            try (SharedResource.Lease<AmazonElasticMapReduceClient> emr = clientCache.getClient(AmazonElasticMapReduceClient.class,
+                    credentials, session.expiration, emrEndpoint, emrRegionName, "", () -> {
+                        ClientConfiguration emrClientConfiguration = new ClientConfiguration();
+                        Aws.configureProxy(emrClientConfiguration, emrEndpoint, environment);
+                        AmazonElasticMapReduceClient client = new AmazonElasticMapReduceClient(credentials, emrClientConfiguration);
+                        Aws.configureServiceClient(client, emrEndpoint, emrRegionName);
+                        return client;
+                    });
+                    SharedResource.Lease<AmazonS3Client> s3 = clientCache.getClient(AmazonS3Client.class,
+                    credentials, session.expiration, s3Endpoint, s3RegionName, "", () -> {
+                        ClientConfiguration s3ClientConfiguration = new ClientConfiguration();
+                        Aws.configureProxy(s3ClientConfiguration, s3Endpoint, environment);
+                        AmazonS3Client client = new AmazonS3Client(credentials, s3ClientConfiguration);
+                        Aws.configureServiceClient(client, s3Endpoint, s3RegionName);
+                        return client;
+                    });
+                    SharedResource.Lease<AWSKMSClient> kms = clientCache.getClient(AWSKMSClient.class,
+                    credentials, session.expiration, kmsEndpoint, kmsRegionName, "", () -> {
+                        ClientConfiguration kmsClientConfiguration = new ClientConfiguration();
+                        Aws.configureProxy(kmsClientConfiguration, kmsEndpoint, environment);
+                        AWSKMSClient client = new AWSKMSClient(credentials, kmsClientConfiguration);
+                        Aws.configureServiceClient(client, kmsEndpoint, kmsRegionName);
+                        return client;
+                    })) {
+                return runWithClients(tag, emr.get(), s3.get(), kms.get());
+            }
+        }
 
+        private TaskResult runWithClients(String tag, AmazonElasticMapReduceClient emr, AmazonS3Client s3, AWSKMSClient kms)
+        {
             // Set up file stager
             Optional<AmazonS3URI> staging = params.getOptional("staging", String.class).transform(s -> {
                 try {
@@ -240,7 +275,7 @@ public class EmrOperatorFactory
                     throw new ConfigException("Invalid staging uri: '" + s + "'", ex);
                 }
             });
-            Filer filer = new Filer(s3, staging, workspace, templateEngine, params);
+            Filer filer = new Filer(s3, staging, workspace, templateEngine, params, stagingUploadThreads);
 
             // TODO: make it possible for operators to _reliably_ clean up
             boolean cleanup = false;
@@ -266,12 +301,10 @@ public class EmrOperatorFactory
                         logger.warn("Failed to clean up staging: {}", staging, t);
                     }
                 }
-                s3.shutdown();
-                emr.shutdown();
             }
         }
 
-        private AWSCredentials credentials(String tag)
+        private AwsSession session(String tag)
         {
             SecretProvider awsSecrets = context.getSecrets().getSecrets("aws");
             SecretProvider emrSecrets = awsSecrets.getSecrets("emr");
@@ -288,7 +321,7 @@ public class EmrOperatorFactory
                     .or(awsSecrets.getSecretOptional("role_arn"));
 
             if (!roleArn.isPresent()) {
-                return credentials;
+                return new AwsSession(credentials, Optional.absent());
             }
 
             // use STS to assume role
@@ -296,16 +329,25 @@ public class EmrOperatorFactory
                     .or(awsSecrets.getSecretOptional("role_session_name"))
                     .or("digdag-emr-" + tag);
 
-            AWSSecurityTokenServiceClient stsClient = new AWSSecurityTokenServiceClient(credentials);
-            AssumeRoleResult assumeResult = stsClient.assumeRole(new AssumeRoleRequest()
-                    .withRoleArn(roleArn.get())
-                    .withDurationSeconds(3600)
-                    .withRoleSessionName(roleSessionName));
+            Credentials assumed = clientCache.getAssumedRoleCredentials(credentials, roleArn.get(), roleSessionName, baseCredentials -> {
+                AWSSecurityTokenServiceClient stsClient = new AWSSecurityTokenServiceClient(baseCredentials);
+                try {
+                    return stsClient.assumeRole(new AssumeRoleRequest()
+                            .withRoleArn(roleArn.get())
+                            .withDurationSeconds(3600)
+                            .withRoleSessionName(roleSessionName));
+                }
+                finally {
+                    stsClient.shutdown();
+                }
+            });
 
-            return new BasicSessionCredentials(
-                    assumeResult.getCredentials().getAccessKeyId(),
-                    assumeResult.getCredentials().getSecretAccessKey(),
-                    assumeResult.getCredentials().getSessionToken());
+            return new AwsSession(
+                    new BasicSessionCredentials(
+                        assumed.getAccessKeyId(),
+                        assumed.getSecretAccessKey(),
+                        assumed.getSessionToken()),
+                    Optional.fromNullable(assumed.getExpiration()).transform(Date::toInstant));
         }
 
         private TaskResult run(String tag, AmazonElasticMapReduce emr, AWSKMSClient kms, Filer filer)
@@ -833,25 +875,32 @@ public class EmrOperatorFactory
         }
     }
 
-    private static class Filer
+    static class Filer
     {
+        private static final String CACHE_PREFIX = "_cache/";
+
         private final AmazonS3Client s3;
         private final Optional<AmazonS3URI> staging;
         private final Workspace workspace;
         private final TemplateEngine templateEngine;
         private final Config params;
+        private final boolean cache;
+        private final int uploadThreads;
 
         private final List<StagingFile> files = new ArrayList<>();
+        private final Map<StagingFile, StagingContent> cachedContents = new HashMap<>();
 
         private final Set<String> ids = new HashSet<>();
 
-        Filer(AmazonS3Client s3, Optional<AmazonS3URI> staging, Workspace workspace, TemplateEngine templateEngine, Config params)
+        Filer(AmazonS3Client s3, Optional<AmazonS3URI> staging, Workspace workspace, TemplateEngine templateEngine, Config params, int uploadThreads)
         {
             this.s3 = s3;
             this.staging = staging;
             this.workspace = workspace;
             this.templateEngine = templateEngine;
             this.params = params;
+            this.cache = params.get("staging_cache", boolean.class, false);
+            this.uploadThreads = uploadThreads;
         }
 
         RemoteFile prepareRemoteFile(String tag, String section, String path, FileReference reference, boolean template)
@@ -874,13 +923,23 @@ public class EmrOperatorFactory
                             .reference(reference)
                             .localPath(localDir + "/" + reference.filename());
 
+            Optional<StagingContent> content = Optional.absent();
+
             if (reference.local()) {
                 // Local file? Then we need to upload it to S3.
                 if (!staging.isPresent()) {
                     throw new ConfigException("Please configure a S3 'staging' directory");
                 }
                 String baseKey = staging.get().getKey();
-                String key = (baseKey != null ? baseKey : "") + prefix + "/" + reference.filename();
+                String key;
+                if (cache) {
+                    // Content addressed key. The file is uploaded only if an object doesn't exist at the key.
+                    content = Optional.of(stagingContent(reference, template));
+                    key = (baseKey != null ? baseKey : "") + CACHE_PREFIX + content.get().hash() + "/" + reference.filename();
+                }
+                else {
+                    key = (baseKey != null ? baseKey : "") + prefix + "/" + reference.filename();
+                }
                 builder.s3Uri(new AmazonS3URI("s3://" + staging.get().getBucket() + "/" + key));
             }
             else {
@@ -890,7 +949,11 @@ public class EmrOperatorFactory
             RemoteFile remoteFile = builder.build();
 
             if (reference.local()) {
-                files.add(StagingFile.of(template, remoteFile));
+                StagingFile stagingFile = StagingFile.of(template, remoteFile);
+                files.add(stagingFile);
+                if (content.isPresent()) {
+                    cachedContents.put(stagingFile, content.get());
+                }
             }
 
             return remoteFile;
@@ -902,15 +965,40 @@ public class EmrOperatorFactory
                 return;
             }
 
-            TransferManager transferManager = new TransferManager(s3);
+            ExecutorService executor = Executors.newFixedThreadPool(uploadThreads,
+                    new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("emr-staging-%d")
+                    .build());
+            // TransferManager uploads large files using multipart upload in the executor
+            TransferManager transferManager = new TransferManager(s3, executor);
             List<PutObjectRequest> requests = new ArrayList<>();
 
-            for (StagingFile f : files) {
-                logger.info("Staging {} -> {}", f.file().reference().filename(), f.file().s3Uri());
-                requests.add(stagingFilePutRequest(f));
-            }
-
             try {
+                List<StagingFile> uploadFiles = new ArrayList<>();
+                Map<String, Future<Boolean>> existences = new HashMap<>();
+                for (StagingFile f : files) {
+                    String uri = f.file().s3Uri().toString();
+                    if (!cachedContents.containsKey(f)) {
+                        uploadFiles.add(f);
+                    }
+                    else if (!existences.containsKey(uri)) {
+                        AmazonS3URI s3Uri = f.file().s3Uri();
+                        existences.put(uri, executor.submit(() -> cachedObjectExists(s3Uri)));
+                        uploadFiles.add(f);
+                    }
+                }
+
+                for (StagingFile f : uploadFiles) {
+                    Future<Boolean> exists = existences.get(f.file().s3Uri().toString());
+                    if (exists != null && Futures.getUnchecked(exists)) {
+                        logger.info("Staging {} -> {} (unchanged)", f.file().reference().filename(), f.file().s3Uri());
+                        continue;
+                    }
+                    logger.info("Staging {} -> {}", f.file().reference().filename(), f.file().s3Uri());
+                    requests.add(stagingFilePutRequest(f));
+                }
+
                 List<Upload> uploads = requests.stream()
                         .map(transferManager::upload)
                         .collect(toList());
@@ -925,34 +1013,69 @@ public class EmrOperatorFactory
                     }
                 }
             }
+            catch (UncheckedExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
             finally {
+                // shuts down the executor but not the s3 client
                 transferManager.shutdownNow(false);
                 requests.forEach(r -> closeQuietly(r.getInputStream()));
             }
         }
 
+        // Returns false if a cached object doesn't exist. Files are staged
+        // right before the steps are submitted, so this checks the object at
+        // submission. A lifecycle rule on the cache prefix must be longer than
+        // the runtime of jobs so that the object doesn't expire while the
+        // submitted steps wait or run.
+        private boolean cachedObjectExists(AmazonS3URI uri)
+        {
+            try {
+                s3.getObjectMetadata(uri.getBucket(), uri.getKey());
+                return true;
+            }
+            catch (AmazonS3Exception ex) {
+                if (ex.getStatusCode() == 404) {
+                    return false;
+                }
+                throw ex;
+            }
+        }
+
         private PutObjectRequest stagingFilePutRequest(StagingFile file)
         {
             AmazonS3URI uri = file.file().s3Uri();
-            FileReference reference = file.file().reference();
+            StagingContent content = cachedContents.get(file);
+            if (content == null) {
+                content = stagingContent(file.file().reference(), file.template());
+            }
+            if (content.file.isPresent()) {
+                return new PutObjectRequest(uri.getBucket(), uri.getKey(), content.file.get());
+            }
+            else {
+                byte[] bytes = content.bytes.get();
+                ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentLength(bytes.length);
+                return new PutObjectRequest(uri.getBucket(), uri.getKey(), new ByteArrayInputStream(bytes), metadata);
+            }
+        }
 
+        private StagingContent stagingContent(FileReference reference, boolean template)
+        {
             switch (reference.type()) {
                 case LOCAL: {
-                    if (file.template()) {
+                    if (template) {
                         String content;
                         try {
                             content = workspace.templateFile(templateEngine, reference.filename(), UTF_8, params);
                         }
                         catch (IOException | TemplateException e) {
-                            throw new ConfigException("Failed to load file: " + file.file().reference().filename(), e);
+                            throw new ConfigException("Failed to load file: " + reference.filename(), e);
                         }
-                        byte[] bytes = content.getBytes(UTF_8);
-                        ObjectMetadata metadata = new ObjectMetadata();
-                        metadata.setContentLength(bytes.length);
-                        return new PutObjectRequest(uri.getBucket(), uri.getKey(), new ByteArrayInputStream(bytes), metadata);
+                        return StagingContent.ofBytes(content.getBytes(UTF_8));
                     }
                     else {
-                        return new PutObjectRequest(uri.getBucket(), uri.getKey(), workspace.getFile(reference.filename()));
+                        return StagingContent.ofFile(workspace.getFile(reference.filename()));
                     }
                 }
                 case RESOURCE: {
@@ -963,15 +1086,10 @@ public class EmrOperatorFactory
                     catch (IOException e) {
                         throw new TaskExecutionException(e);
                     }
-                    ObjectMetadata metadata = new ObjectMetadata();
-                    metadata.setContentLength(bytes.length);
-                    return new PutObjectRequest(uri.getBucket(), uri.getKey(), new ByteArrayInputStream(bytes), metadata);
+                    return StagingContent.ofBytes(bytes);
                 }
                 case DIRECT:
-                    byte[] bytes = reference.contents().get();
-                    ObjectMetadata metadata = new ObjectMetadata();
-                    metadata.setContentLength(bytes.length);
-                    return new PutObjectRequest(uri.getBucket(), uri.getKey(), new ByteArrayInputStream(bytes), metadata);
+                    return StagingContent.ofBytes(reference.contents().get());
                 case S3:
                 default:
                     throw new AssertionError();
@@ -985,34 +1103,79 @@ public class EmrOperatorFactory
             }
 
             String bucket = staging.get().getBucket();
+            String baseKey = staging.get().getKey();
+            String cachePrefix = (baseKey != null ? baseKey : "") + CACHE_PREFIX;
             ListObjectsRequest req = new ListObjectsRequest()
                     .withBucketName(bucket)
-                    .withPrefix(staging.get().getKey());
+                    .withPrefix(baseKey);
             do {
                 ObjectListing res = s3.listObjects(req);
                 String[] keys = res.getObjectSummaries().stream()
                         .map(S3ObjectSummary::getKey)
+                        // cached files are shared with other tasks using the same staging
+                        // directory regardless of their staging_cache option. never remove them here.
+                        .filter(key -> !key.startsWith(cachePrefix))
                         .toArray(String[]::new);
-                for (String key : keys) {
-                    logger.info("Removing s3://{}/{}", bucket, key);
-                }
-                try {
-                    RetryExecutor.retryExecutor()
-                            .withRetryLimit(3)
-                            .withInitialRetryWait(100)
-                            .retryIf(e -> !(e instanceof AmazonServiceException) || !Aws.isDeterministicException((AmazonServiceException) e))
-                            .run(() -> s3.deleteObjects(new DeleteObjectsRequest(bucket).withKeys(keys)));
-                }
-                catch (RetryExecutor.RetryGiveupException e) {
-                    logger.info("Failed to delete staging files in {}", staging.get(), e.getCause());
+                if (keys.length > 0) {
+                    for (String key : keys) {
+                        logger.info("Removing s3://{}/{}", bucket, key);
+                    }
+                    try {
+                        RetryExecutor.retryExecutor()
+                                .withRetryLimit(3)
+                                .withInitialRetryWait(100)
+                                .retryIf(e -> !(e instanceof AmazonServiceException) || !Aws.isDeterministicException((AmazonServiceException) e))
+                                .run(() -> s3.deleteObjects(new DeleteObjectsRequest(bucket).withKeys(keys)));
+                    }
+                    catch (RetryExecutor.RetryGiveupException e) {
+                        logger.info("Failed to delete staging files in {}", staging.get(), e.getCause());
+                    }
                 }
 
-                req.setMarker(res.getMarker());
+                List<S3ObjectSummary> summaries = res.getObjectSummaries();
+                req.setMarker(res.isTruncated() && !summaries.isEmpty()
+                        ? summaries.get(summaries.size() - 1).getKey()
+                        : null);
             }
             while (req.getMarker() != null);
         }
     }
 
+    private static class StagingContent
+    {
+        private final Optional<byte[]> bytes;
+        private final Optional<File> file;
+
+        private StagingContent(Optional<byte[]> bytes, Optional<File> file)
+        {
+            this.bytes = bytes;
+            this.file = file;
+        }
+
+        static StagingContent ofBytes(byte[] bytes)
+        {
+            return new StagingContent(Optional.of(bytes), Optional.absent());
+        }
+
+        static StagingContent ofFile(File file)
+        {
+            return new StagingContent(Optional.absent(), Optional.of(file));
+        }
+
+        String hash()
+        {
+            if (bytes.isPresent()) {
+                return Hashing.sha256().hashBytes(bytes.get()).toString();
+            }
+            try {
+                return Files.asByteSource(file.get()).hash(Hashing.sha256()).toString();
+            }
+            catch (IOException e) {
+                throw new ConfigException("Failed to load file: " + file.get(), e);
+            }
+        }
+    }
+
     private static class StepCompiler
     {
         private final ParameterCompiler pc;
@@ -1441,6 +1604,18 @@ public class EmrOperatorFactory
         }
     }
 
+    private static class AwsSession
+    {
+        private final AWSCredentials credentials;
+        private final Optional<Instant> expiration;
+
+        AwsSession(AWSCredentials credentials, Optional<Instant> expiration)
+        {
+            this.credentials = credentials;
+            this.expiration = expiration;
+        }
+    }
+
     private static String randomTag()
     {
         byte[] bytes = new byte[8];
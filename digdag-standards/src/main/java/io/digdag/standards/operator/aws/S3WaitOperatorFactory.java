@@ -26,6 +26,7 @@ import io.digdag.spi.OperatorContext;
 import io.digdag.spi.TaskRequest;
 import io.digdag.spi.TaskResult;
 import io.digdag.standards.operator.DurationInterval;
+import io.digdag.standards.operator.SharedResource;
 import io.digdag.standards.operator.state.TaskState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,20 +46,23 @@ public class S3WaitOperatorFactory
     private static final DurationInterval POLL_INTERVAL = DurationInterval.of(Duration.ofSeconds(5), Duration.ofMinutes(5));
 
     private final AmazonS3ClientFactory s3ClientFactory;
+    private final AwsClientCache clientCache;
     private final Map<String, String> environment;
 
     @Inject
-    public S3WaitOperatorFactory(@Environment Map<String, String> environment)
+    public S3WaitOperatorFactory(AwsClientCache clientCache, @Environment Map<String, String> environment)
     {
-        this(AmazonS3Client::new, environment);
+        this(AmazonS3Client::new, clientCache, environment);
     }
 
     @VisibleForTesting
     S3WaitOperatorFactory(
             AmazonS3ClientFactory s3ClientFactory,
+            AwsClientCache clientCache,
             Map<String, String> environment)
     {
         this.s3ClientFactory = s3ClientFactory;
+        this.clientCache = clientCache;
         this.environment = environment;
     }
 
@@ -133,20 +137,7 @@ public class S3WaitOperatorFactory
             String secretKey = s3Secrets.getSecretOptional("secret_access_key")
                     .or(() -> awsSecrets.getSecret("secret_access_key"));
 
-            // Create S3 Client
-            ClientConfiguration configuration = new ClientConfiguration();
-            Aws.configureProxy(configuration, endpoint, environment);
             AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-            AmazonS3Client s3Client = s3ClientFactory.create(credentials, configuration);
-
-            Aws.configureServiceClient(s3Client, endpoint, regionName);
-
-            S3ClientOptions clientOptions = new S3ClientOptions();
-            if (pathStyleAccess.isPresent()) {
-                clientOptions.setPathStyleAccess(pathStyleAccess.get());
-            }
-            s3Client.setS3ClientOptions(clientOptions);
-
 
             GetObjectMetadataRequest req = new GetObjectMetadataRequest(bucket.get(), key.get());
 
@@ -168,22 +159,42 @@ public class S3WaitOperatorFactory
                 req.setSSECustomerKey(sseKey);
             }
 
-            ObjectMetadata objectMetadata = pollingWaiter(state, "EXISTS")
-                    .withPollInterval(POLL_INTERVAL)
-                    .withWaitMessage("Object '%s/%s' does not yet exist", bucket.get(), key.get())
-                    .await(pollState -> pollingRetryExecutor(pollState, "POLL")
-                            .retryUnless(AmazonServiceException.class, Aws::isDeterministicException)
-                            .run(s -> {
-                                try {
-                                    return Optional.of(s3Client.getObjectMetadata(req));
-                                }
-                                catch (AmazonS3Exception e) {
-                                    if (e.getStatusCode() == 404) {
-                                        return Optional.absent();
+            // Get or create S3 Client. The client is shared with other tasks and polling of this task.
+            ObjectMetadata objectMetadata;
+            try (SharedResource.Lease<AmazonS3Client> s3Client = clientCache.getClient(AmazonS3Client.class,
+                    credentials, Optional.absent(), endpoint, regionName,
+                    "path_style_access=" + pathStyleAccess.or(false),
+                    () -> {
+                        ClientConfiguration configuration = new ClientConfiguration();
+                        Aws.configureProxy(configuration, endpoint, environment);
+                        AmazonS3Client client = s3ClientFactory.create(credentials, configuration);
+
+                        Aws.configureServiceClient(client, endpoint, regionName);
+
+                        S3ClientOptions clientOptions = new S3ClientOptions();
+                        if (pathStyleAccess.isPresent()) {
+                            clientOptions.setPathStyleAccess(pathStyleAccess.get());
+                        }
+                        client.setS3ClientOptions(clientOptions);
+                        return client;
+                    })) {
+                objectMetadata = pollingWaiter(state, "EXISTS")
+                        .withPollInterval(POLL_INTERVAL)
+                        .withWaitMessage("Object '%s/%s' does not yet exist", bucket.get(), key.get())
+                        .await(pollState -> pollingRetryExecutor(pollState, "POLL")
+                                .retryUnless(AmazonServiceException.class, Aws::isDeterministicException)
+                                .run(s -> {
+                                    try {
+                                        return Optional.of(s3Client.get().getObjectMetadata(req));
+                                    }
+                                    catch (AmazonS3Exception e) {
+                                        if (e.getStatusCode() == 404) {
+                                            return Optional.absent();
+                                        }
+                                        throw e;
                                     }
-                                    throw e;
-                                }
-                            }));
+                                }));
+            }
 
             return TaskResult.defaultBuilder(request)
                     .resetStoreParams(ImmutableList.of(ConfigKey.of("s3", "last_object")))
@@ -6,14 +6,24 @@ import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.treasuredata.client.ProxyConfig;
+import io.digdag.client.config.Config;
 import io.digdag.core.Environment;
 import io.digdag.standards.Proxies;
+import io.digdag.standards.operator.SharedResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
 
 abstract class BaseGcpClient<CLIENT extends AbstractGoogleJsonClient>
         implements AutoCloseable
@@ -43,13 +53,63 @@ abstract class BaseGcpClient<CLIENT extends AbstractGoogleJsonClient>
         }
     }
 
-    abstract static class Factory
+    /**
+     * Caches clients for each credential so that following tasks and polling
+     * of the same task reuse HTTP connections and OAuth access tokens.
+     * GcpCredentialProvider returns the same credential instance for the
+     * same secret. The credential refreshes its access token by itself.
+     *
+     * Tasks lease a client while they use it. A client discarded from the
+     * cache is closed after all tasks using it release their leases.
+     */
+    abstract static class Factory<C extends BaseGcpClient<?>>
     {
+        static final int DEFAULT_MAX_ENTRIES = 16;
+        static final int DEFAULT_IDLE_TIMEOUT = 600;
+
         protected final Optional<ProxyConfig> proxyConfig;
+        private final Cache<GoogleCredential, SharedResource<C>> clients;
 
-        protected Factory(@Environment Map<String, String> environment)
+        protected Factory(@Environment Map<String, String> environment, Config systemConfig)
         {
             this.proxyConfig = Proxies.proxyConfigFromEnv("https", environment);
+            this.clients = CacheBuilder.newBuilder()
+                .weakKeys()
+                .maximumSize(systemConfig.get("config.gcp.client_cache.max_entries", int.class, DEFAULT_MAX_ENTRIES))
+                .expireAfterAccess(systemConfig.get("config.gcp.client_cache.idle_timeout", int.class, DEFAULT_IDLE_TIMEOUT), TimeUnit.SECONDS)
+                .removalListener((RemovalNotification<GoogleCredential, SharedResource<C>> notification) -> notification.getValue().evict())
+                .build();
+        }
+
+        /**
+         * Returns a lease of a client shared with other tasks. Callers must
+         * not close the client but must close the lease.
+         */
+        SharedResource.Lease<C> create(GoogleCredential credential)
+        {
+            while (true) {
+                SharedResource<C> shared;
+                try {
+                    shared = clients.get(credential, () -> new SharedResource<>(newClient(credential), BaseGcpClient::close));
+                }
+                catch (UncheckedExecutionException | ExecutionException ex) {
+                    throw Throwables.propagate(ex.getCause());
+                }
+                Optional<SharedResource.Lease<C>> lease = shared.tryLease();
+                if (lease.isPresent()) {
+                    return lease.get();
+                }
+                // evicted after it was got from the cache. get or create a new one.
+            }
+        }
+
+        protected abstract C newClient(GoogleCredential credential);
+
+        @PreDestroy
+        public void shutdown()
+        {
+            clients.invalidateAll();
+            clients.cleanUp();
         }
     }
 }
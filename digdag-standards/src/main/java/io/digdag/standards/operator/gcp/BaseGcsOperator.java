@@ -3,6 +3,7 @@ package io.digdag.standards.operator.gcp;
 import io.digdag.client.config.Config;
 import io.digdag.spi.OperatorContext;
 import io.digdag.spi.TaskResult;
+import io.digdag.standards.operator.SharedResource;
 
 import java.nio.file.Path;
 
@@ -24,8 +25,11 @@ abstract class BaseGcsOperator
     @Override
     protected TaskResult run(GcpCredential credential, String projectId)
     {
-        try (GcsClient bq = clientFactory.create(credential.credential())) {
-            return run(bq, projectId);
+        // the client is cached and shared with other tasks. closing the lease
+        // releases it. the client is stopped after it is evicted and released
+        // by all tasks.
+        try (SharedResource.Lease<GcsClient> gcs = clientFactory.create(credential.credential())) {
+            return run(gcs.get(), projectId);
         }
     }
 
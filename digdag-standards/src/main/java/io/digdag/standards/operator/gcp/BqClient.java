@@ -15,6 +15,7 @@ import com.google.api.services.bigquery.model.TableReference;
 import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.treasuredata.client.ProxyConfig;
+import io.digdag.client.config.Config;
 import io.digdag.core.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -179,15 +180,16 @@ class BqClient
     }
 
     static class Factory
-            extends BaseGcpClient.Factory
+            extends BaseGcpClient.Factory<BqClient>
     {
         @Inject
-        public Factory(@Environment Map<String, String> environment)
+        public Factory(@Environment Map<String, String> environment, Config systemConfig)
         {
-            super(environment);
+            super(environment, systemConfig);
         }
 
-        BqClient create(GoogleCredential credential)
+        @Override
+        protected BqClient newClient(GoogleCredential credential)
         {
             return new BqClient(credential, proxyConfig);
         }
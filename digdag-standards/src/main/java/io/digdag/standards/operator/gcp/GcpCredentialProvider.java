@@ -4,12 +4,20 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
+import io.digdag.client.config.Config;
 import io.digdag.spi.SecretProvider;
 import io.digdag.spi.TaskExecutionException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -17,19 +25,33 @@ class GcpCredentialProvider
 {
     private final ObjectMapper objectMapper;
 
+    // Parsed credentials keyed by hash of the secret. Reusing the same
+    // GoogleCredential instance lets clients reuse its access token.
+    private final Cache<String, GcpCredential> credentials;
+
     @Inject
-    GcpCredentialProvider(ObjectMapper objectMapper)
+    GcpCredentialProvider(ObjectMapper objectMapper, Config systemConfig)
     {
         this.objectMapper = objectMapper;
+        this.credentials = CacheBuilder.newBuilder()
+            .maximumSize(systemConfig.get("config.gcp.client_cache.max_entries", int.class, BaseGcpClient.Factory.DEFAULT_MAX_ENTRIES))
+            .expireAfterAccess(systemConfig.get("config.gcp.client_cache.idle_timeout", int.class, BaseGcpClient.Factory.DEFAULT_IDLE_TIMEOUT), TimeUnit.SECONDS)
+            .build();
     }
 
     GcpCredential credential(SecretProvider secrets)
     {
         String credential = secrets.getSecret("gcp.credential");
-        return ImmutableGcpCredential.builder()
-                .projectId(credentialProjectId(credential))
-                .credential(googleCredential(credential))
-                .build();
+        String key = Hashing.sha256().hashString(credential, UTF_8).toString();
+        try {
+            return credentials.get(key, () -> ImmutableGcpCredential.builder()
+                    .projectId(credentialProjectId(credential))
+                    .credential(googleCredential(credential))
+                    .build());
+        }
+        catch (UncheckedExecutionException | ExecutionException ex) {
+            throw Throwables.propagate(ex.getCause());
+        }
     }
 
     private Optional<String> credentialProjectId(String credential)
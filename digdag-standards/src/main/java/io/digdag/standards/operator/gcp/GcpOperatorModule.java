@@ -12,9 +12,9 @@ public class GcpOperatorModule
     @Override
     public void configure(Binder binder)
     {
-        binder.bind(BqClient.Factory.class);
-        binder.bind(GcsClient.Factory.class);
-        binder.bind(GcpCredentialProvider.class);
+        binder.bind(BqClient.Factory.class).in(Scopes.SINGLETON);
+        binder.bind(GcsClient.Factory.class).in(Scopes.SINGLETON);
+        binder.bind(GcpCredentialProvider.class).in(Scopes.SINGLETON);
         addStandardOperatorFactory(binder, BqOperatorFactory.class);
         addStandardOperatorFactory(binder, BqLoadOperatorFactory.class);
         addStandardOperatorFactory(binder, BqExtractOperatorFactory.class);
@@ -11,6 +11,7 @@ import com.google.api.services.storage.model.StorageObject;
 import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.treasuredata.client.ProxyConfig;
+import io.digdag.client.config.Config;
 import io.digdag.core.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,15 +58,16 @@ class GcsClient
     }
 
     static class Factory
-            extends BaseGcpClient.Factory
+            extends BaseGcpClient.Factory<GcsClient>
     {
         @Inject
-        public Factory(@Environment Map<String, String> environment)
+        public Factory(@Environment Map<String, String> environment, Config systemConfig)
         {
-            super(environment);
+            super(environment, systemConfig);
         }
 
-        GcsClient create(GoogleCredential credential)
+        @Override
+        protected GcsClient newClient(GoogleCredential credential)
         {
             return new GcsClient(credential, proxyConfig);
         }
@@ -1,5 +1,6 @@
 package io.digdag.standards.operator.jdbc;
 
+import java.util.List;
 import java.util.Properties;
 import java.time.Duration;
 import java.sql.SQLException;
@@ -35,6 +36,20 @@ public abstract class AbstractJdbcConnectionConfig
 
     public abstract Properties buildProperties();
 
+    // Statements to reset session state before a connection is reused by
+    // another task. Connections are not pooled if this is absent.
+    public Optional<List<String>> resetSessionStatements()
+    {
+        return Optional.absent();
+    }
+
+    // A query that returns a row if the session has state that
+    // resetSessionStatements can't reset. Such connection is closed.
+    public Optional<String> nonReusableSessionQuery()
+    {
+        return Optional.absent();
+    }
+
     public String url()
     {
         return String.format(ENGLISH, "jdbc:%s://%s:%d/%s", jdbcProtocolName(), host(), port(), database());
@@ -14,13 +14,20 @@ import io.digdag.spi.TaskResult;
 import io.digdag.spi.TemplateEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.google.common.io.CountingOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -71,6 +78,8 @@ public abstract class AbstractJdbcJobOperator<C>
         if (downloadFile.isPresent() && queryModifier > 0) {
             throw new ConfigException("Can't use download_file with insert_into or create_table");
         }
+        boolean downloadGzip = isGzipCompression(params.get("download_file_compression", String.class, "none"));
+        boolean downloadWithCopy = params.get("download_with_copy", boolean.class, false);
 
         StoreLastResultsOption storeResultsOption = params.get("store_last_results", StoreLastResultsOption.class, StoreLastResultsOption.FALSE);
         if (storeResultsOption.isEnabled() && queryModifier > 0) {
@@ -110,7 +119,7 @@ public abstract class AbstractJdbcJobOperator<C>
             if (readOnlyMode) {
                 ImmutableTaskResult.Builder builder = TaskResult.defaultBuilder(request);
                 if (downloadFile.isPresent()) {
-                    connection.executeReadOnlyQuery(query, (results) -> downloadResultsToFile(results, downloadFile.get()));
+                    downloadToFile(connection, query, downloadFile.get(), downloadGzip, downloadWithCopy);
                 }
                 else if (storeResultsOption.isEnabled()) {
                     connection.executeReadOnlyQuery(query, (results) -> storeResultsInTaskResult(results, storeResultsOption, builder));
@@ -193,9 +202,58 @@ public abstract class AbstractJdbcJobOperator<C>
         }
     }
 
-    private void downloadResultsToFile(JdbcResultSet results, String fileName)
+    private static boolean isGzipCompression(String compression)
     {
-        try (CsvWriter csvWriter = new CsvWriter(workspace.newBufferedWriter(fileName, UTF_8))) {
+        switch (compression) {
+        case "none":
+            return false;
+        case "gzip":
+            return true;
+        default:
+            throw new ConfigException("download_file_compression must be none or gzip: " + compression);
+        }
+    }
+
+    private void downloadToFile(JdbcConnection connection, String query, String fileName, boolean gzip, boolean useCopy)
+        throws NotReadOnlyException
+    {
+        // checked before creating the file not to leave an empty file
+        if (useCopy && !(connection instanceof CopyableJdbcConnection)) {
+            throw new ConfigException("download_with_copy is not supported by " + type() + ">");
+        }
+
+        long startTime = System.nanoTime();
+        // counts uncompressed bytes
+        CountingOutputStream counter;
+        try {
+            OutputStream out = new BufferedOutputStream(workspace.newOutputStream(fileName));
+            if (gzip) {
+                out = new GZIPOutputStream(out, 64 * 1024);
+            }
+            counter = new CountingOutputStream(out);
+            try (OutputStream closer = counter) {
+                if (useCopy) {
+                    ((CopyableJdbcConnection) connection).copyReadOnlyQueryResults(query, counter);
+                }
+                else {
+                    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(counter, UTF_8));
+                    connection.executeReadOnlyQuery(query, (results) -> downloadResultsToFile(results, writer));
+                }
+            }
+        }
+        catch (IOException ex) {
+            throw Throwables.propagate(ex);
+        }
+
+        long elapsedMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), 1L);
+        logger.info("Downloaded {} bytes to {} in {} seconds ({} KB/s)",
+                counter.getCount(), fileName, elapsedMillis / 1000.0,
+                counter.getCount() * 1000 / 1024 / elapsedMillis);
+    }
+
+    private void downloadResultsToFile(JdbcResultSet results, BufferedWriter writer)
+    {
+        try (CsvWriter csvWriter = new CsvWriter(writer)) {
             List<String> columnNames = results.getColumnNames();
             csvWriter.addCsvHeader(columnNames);
             while (true) {
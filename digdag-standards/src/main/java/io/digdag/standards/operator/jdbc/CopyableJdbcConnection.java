@@ -0,0 +1,16 @@
+package io.digdag.standards.operator.jdbc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A connection that can export results of a query using a bulk export
+ * command of the database such as COPY TO STDOUT of PostgreSQL.
+ */
+public interface CopyableJdbcConnection
+{
+    // Writes results of a read-only query to the stream in CSV format with
+    // a header line.
+    void copyReadOnlyQueryResults(String sql, OutputStream out)
+        throws NotReadOnlyException, IOException;
+}
@@ -0,0 +1,466 @@
+package io.digdag.standards.operator.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import com.google.common.base.Optional;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import io.digdag.client.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weakref.jmx.Managed;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Locale.ENGLISH;
+
+/**
+ * Keeps JDBC connections opened by pg> and redshift> operators so that
+ * following tasks (and polling of the same task) connecting to the same
+ * target reuse them instead of connecting and authenticating every time.
+ *
+ * Connections are keyed by URL and a hash of all connection properties
+ * including credentials. If a secret is rotated, new connections use a new
+ * key and idle connections opened with the old secret are evicted.
+ *
+ * A connection is returned to the pool only if its session state can be
+ * reset by AbstractJdbcConnectionConfig.resetSessionStatements().
+ */
+public class JdbcConnectionPool
+{
+    private static final Logger logger = LoggerFactory.getLogger(JdbcConnectionPool.class);
+
+    static final int DEFAULT_MAX_IDLE_PER_TARGET = 4;
+    static final int DEFAULT_IDLE_TIMEOUT = 300;
+    static final int DEFAULT_MAX_LIFETIME = 3600;
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private final int maxIdlePerTarget;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+
+    private final ConcurrentHashMap<Key, Target> targets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicLong createdCount = new AtomicLong(0L);
+    private final AtomicLong reusedCount = new AtomicLong(0L);
+    private final AtomicLong closedCount = new AtomicLong(0L);
+
+    @Inject
+    public JdbcConnectionPool(Config systemConfig)
+    {
+        this(systemConfig.get("config.jdbc.pool.max_idle_per_target", int.class, DEFAULT_MAX_IDLE_PER_TARGET),
+                systemConfig.get("config.jdbc.pool.idle_timeout", int.class, DEFAULT_IDLE_TIMEOUT),
+                systemConfig.get("config.jdbc.pool.max_lifetime", int.class, DEFAULT_MAX_LIFETIME));
+    }
+
+    public JdbcConnectionPool(int maxIdlePerTarget, int idleTimeoutSeconds, int maxLifetimeSeconds)
+    {
+        this.maxIdlePerTarget = maxIdlePerTarget;
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+        this.maxLifetimeMillis = TimeUnit.SECONDS.toMillis(maxLifetimeSeconds);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("jdbc-pool-evictor-%d")
+                .build()
+                );
+        if (maxIdlePerTarget > 0) {
+            evictor.scheduleWithFixedDelay(() -> evictExpired(),
+                    10, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        evictor.shutdown();
+        for (Target target : targets.values()) {
+            target.closeAll();
+        }
+    }
+
+    /**
+     * Returns a connection to the target. Connection.close() of the returned
+     * connection returns it to the pool instead of closing it.
+     */
+    public Connection getConnection(AbstractJdbcConnectionConfig config)
+    {
+        if (maxIdlePerTarget <= 0 || !config.resetSessionStatements().isPresent()) {
+            return config.openConnection();
+        }
+
+        // reserve a slot in compute() so that evictExpired doesn't remove the target concurrently
+        Target target = targets.compute(Key.of(config), (key, t) -> {
+            Target reserved = (t != null) ? t : new Target(key.label);
+            reserved.reserve();
+            return reserved;
+        });
+
+        long now = System.currentTimeMillis();
+        while (true) {
+            Optional<PooledConnection> idle = target.poll();
+            if (!idle.isPresent()) {
+                break;
+            }
+            PooledConnection pooled = idle.get();
+            if (pooled.isExpired(now) || !isValid(pooled.connection)) {
+                target.closeQuietly(pooled);
+                continue;
+            }
+            target.reusedCount.incrementAndGet();
+            reusedCount.incrementAndGet();
+            return pooled.checkout(config);
+        }
+
+        Connection connection;
+        try {
+            connection = config.openConnection();
+        }
+        catch (RuntimeException ex) {
+            target.unreserve();
+            throw ex;
+        }
+        target.createdCount.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(target, connection, now).checkout(config);
+    }
+
+    private static boolean isValid(Connection connection)
+    {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT);
+        }
+        catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled, AbstractJdbcConnectionConfig config)
+    {
+        Target target = pooled.target;
+        if (pooled.isExpired(System.currentTimeMillis()) || !resetSession(pooled.connection, config)) {
+            target.unreserve();
+            target.closeQuietly(pooled);
+            return;
+        }
+        if (!target.offer(pooled, maxIdlePerTarget)) {
+            target.closeQuietly(pooled);
+        }
+    }
+
+    private static boolean resetSession(Connection connection, AbstractJdbcConnectionConfig config)
+    {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            try (Statement stmt = connection.createStatement()) {
+                // a script may leave a transaction open with BEGIN
+                stmt.execute("ROLLBACK");
+                Optional<String> check = config.nonReusableSessionQuery();
+                if (check.isPresent()) {
+                    try (ResultSet rs = stmt.executeQuery(check.get())) {
+                        if (rs.next()) {
+                            return false;
+                        }
+                    }
+                }
+                for (String sql : config.resetSessionStatements().get()) {
+                    stmt.execute(sql);
+                }
+            }
+            return true;
+        }
+        catch (SQLException ex) {
+            logger.debug("Failed to reset a database session. Closing the connection.", ex);
+            return false;
+        }
+    }
+
+    private void evictExpired()
+    {
+        long now = System.currentTimeMillis();
+        for (Key key : targets.keySet()) {
+            targets.computeIfPresent(key, (k, target) -> {
+                target.evictIdle(now, idleTimeoutMillis);
+                return target.isUnused() ? null : target;
+            });
+        }
+    }
+
+    private static class Key
+    {
+        private final String url;
+        private final String digest;
+        private final String label;
+
+        private Key(String url, String digest, String label)
+        {
+            this.url = url;
+            this.digest = digest;
+            this.label = label;
+        }
+
+        static Key of(AbstractJdbcConnectionConfig config)
+        {
+            // don't keep credentials in the key
+            Hasher hasher = Hashing.sha256().newHasher();
+            Map<String, String> props = new TreeMap<>();
+            for (String name : config.buildProperties().stringPropertyNames()) {
+                props.put(name, config.buildProperties().getProperty(name));
+            }
+            for (Map.Entry<String, String> pair : props.entrySet()) {
+                hasher.putString(pair.getKey(), UTF_8).putByte((byte) 0);
+                hasher.putString(pair.getValue(), UTF_8).putByte((byte) 0);
+            }
+            String url = config.url();
+            return new Key(url, hasher.hash().toString(),
+                    String.format(ENGLISH, "%s?user=%s", url, config.user()));
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return url.equals(other.url) && digest.equals(other.digest);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(url, digest);
+        }
+    }
+
+    private class Target
+    {
+        private final String label;
+        private final Deque<PooledConnection> idle = new ArrayDeque<>();
+        private int activeCount = 0;
+
+        private final AtomicLong createdCount = new AtomicLong(0L);
+        private final AtomicLong reusedCount = new AtomicLong(0L);
+        private final AtomicLong closedCount = new AtomicLong(0L);
+
+        Target(String label)
+        {
+            this.label = label;
+        }
+
+        synchronized void reserve()
+        {
+            activeCount++;
+        }
+
+        synchronized void unreserve()
+        {
+            activeCount--;
+        }
+
+        synchronized Optional<PooledConnection> poll()
+        {
+            // most recently used one is likely alive
+            return Optional.fromNullable(idle.pollFirst());
+        }
+
+        synchronized boolean offer(PooledConnection pooled, int maxIdle)
+        {
+            activeCount--;
+            if (idle.size() >= maxIdle) {
+                return false;
+            }
+            pooled.idleSince = System.currentTimeMillis();
+            idle.addFirst(pooled);
+            return true;
+        }
+
+        void evictIdle(long now, long idleTimeoutMillis)
+        {
+            while (true) {
+                PooledConnection pooled;
+                synchronized (this) {
+                    pooled = idle.peekLast();
+                    if (pooled == null || (now - pooled.idleSince < idleTimeoutMillis && !pooled.isExpired(now))) {
+                        return;
+                    }
+                    idle.pollLast();
+                }
+                closeQuietly(pooled);
+            }
+        }
+
+        synchronized boolean isUnused()
+        {
+            return idle.isEmpty() && activeCount == 0;
+        }
+
+        void closeAll()
+        {
+            while (true) {
+                PooledConnection pooled;
+                synchronized (this) {
+                    pooled = idle.pollFirst();
+                }
+                if (pooled == null) {
+                    return;
+                }
+                closeQuietly(pooled);
+            }
+        }
+
+        synchronized String stats()
+        {
+            return String.format(ENGLISH, "%s: active=%d, idle=%d, created=%d, reused=%d, closed=%d",
+                    label, activeCount, idle.size(), createdCount.get(), reusedCount.get(), closedCount.get());
+        }
+
+        void closeQuietly(PooledConnection pooled)
+        {
+            closedCount.incrementAndGet();
+            JdbcConnectionPool.this.closedCount.incrementAndGet();
+            try {
+                pooled.connection.close();
+            }
+            catch (SQLException ex) {
+                logger.debug("Failed to close a pooled database connection. Ignoring.", ex);
+            }
+        }
+    }
+
+    private class PooledConnection
+    {
+        private final Target target;
+        private final Connection connection;
+        private final long openedAt;
+        private volatile long idleSince;
+
+        PooledConnection(Target target, Connection connection, long openedAt)
+        {
+            this.target = target;
+            this.connection = connection;
+            this.openedAt = openedAt;
+        }
+
+        boolean isExpired(long now)
+        {
+            return maxLifetimeMillis > 0 && now - openedAt >= maxLifetimeMillis;
+        }
+
+        Connection checkout(AbstractJdbcConnectionConfig config)
+        {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new CheckedOutHandler(this, config));
+        }
+    }
+
+    private class CheckedOutHandler
+            implements InvocationHandler
+    {
+        private final PooledConnection pooled;
+        private final AbstractJdbcConnectionConfig config;
+        private boolean closed = false;
+
+        CheckedOutHandler(PooledConnection pooled, AbstractJdbcConnectionConfig config)
+        {
+            this.pooled = pooled;
+            this.config = config;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable
+        {
+            switch (method.getName()) {
+            case "close":
+                if (!closed) {
+                    closed = true;
+                    release(pooled, config);
+                }
+                return null;
+            case "isClosed":
+                if (closed) {
+                    return true;
+                }
+                break;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "PooledConnection(" + pooled.target.label + ")";
+            default:
+                if (closed) {
+                    throw new SQLException("Connection is already closed");
+                }
+            }
+            try {
+                return method.invoke(pooled.connection, args);
+            }
+            catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+    @Managed
+    public long getCreatedCount()
+    {
+        return createdCount.get();
+    }
+
+    @Managed
+    public long getReusedCount()
+    {
+        return reusedCount.get();
+    }
+
+    @Managed
+    public long getClosedCount()
+    {
+        return closedCount.get();
+    }
+
+    @Managed
+    public long getTargetCount()
+    {
+        return targets.size();
+    }
+
+    @Managed
+    public String getTargetStats()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Target target : targets.values()) {
+            sb.append(target.stats()).append('\n');
+        }
+        return sb.toString();
+    }
+}
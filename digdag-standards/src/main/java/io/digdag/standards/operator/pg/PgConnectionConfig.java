@@ -2,6 +2,7 @@ package io.digdag.standards.operator.pg;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import io.digdag.client.config.Config;
 import io.digdag.spi.SecretProvider;
 import io.digdag.standards.operator.jdbc.AbstractJdbcConnectionConfig;
@@ -9,6 +10,7 @@ import io.digdag.util.DurationParam;
 import org.immutables.value.Value;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Properties;
 
 @Value.Immutable
@@ -47,6 +49,20 @@ public abstract class PgConnectionConfig
         return "postgresql";
     }
 
+    @Override
+    public Optional<List<String>> resetSessionStatements()
+    {
+        // Same with DISCARD ALL except DEALLOCATE ALL which breaks
+        // server-side prepared statements cached by the JDBC driver
+        return Optional.of(ImmutableList.of(
+                "CLOSE ALL",
+                "SET SESSION AUTHORIZATION DEFAULT",
+                "RESET ALL",
+                "UNLISTEN *",
+                "SELECT pg_advisory_unlock_all()",
+                "DISCARD TEMP"));
+    }
+
     @Override
     public Properties buildProperties()
     {
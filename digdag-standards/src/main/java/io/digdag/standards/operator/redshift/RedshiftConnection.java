@@ -3,8 +3,9 @@ package io.digdag.standards.operator.redshift;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import io.digdag.client.config.ConfigException;
+import io.digdag.standards.operator.jdbc.JdbcConnectionPool;
 import io.digdag.standards.operator.jdbc.TableReference;
-import io.digdag.standards.operator.pg.PgConnection;
+import io.digdag.standards.operator.pg.AbstractPgConnection;
 import io.digdag.standards.operator.jdbc.TransactionHelper;
 
 import java.util.ArrayList;
@@ -27,7 +28,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Locale.ENGLISH;
 
 public class RedshiftConnection
-    extends PgConnection
+    extends AbstractPgConnection
 {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -37,6 +38,11 @@ public class RedshiftConnection
         return new RedshiftConnection(config.openConnection());
     }
 
+    public static RedshiftConnection open(RedshiftConnectionConfig config, JdbcConnectionPool connectionPool)
+    {
+        return new RedshiftConnection(connectionPool.getConnection(config));
+    }
+
     RedshiftConnection(Connection connection)
     {
         super(connection);
@@ -2,6 +2,7 @@ package io.digdag.standards.operator.redshift;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import io.digdag.client.config.Config;
 import io.digdag.spi.SecretProvider;
 import io.digdag.standards.operator.jdbc.AbstractJdbcConnectionConfig;
@@ -9,6 +10,7 @@ import io.digdag.util.DurationParam;
 import org.immutables.value.Value;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Properties;
 
 @Value.Immutable
@@ -46,6 +48,23 @@ public abstract class RedshiftConnectionConfig
         return "postgresql";
     }
 
+    @Override
+    public Optional<List<String>> resetSessionStatements()
+    {
+        // Redshift doesn't support DISCARD
+        return Optional.of(ImmutableList.of(
+                "SET SESSION AUTHORIZATION DEFAULT",
+                "RESET ALL"));
+    }
+
+    @Override
+    public Optional<String> nonReusableSessionQuery()
+    {
+        // temporary tables can't be dropped without DISCARD
+        return Optional.of("SELECT 1 FROM pg_class c JOIN pg_namespace n ON c.relnamespace = n.oid" +
+                " WHERE n.nspname LIKE 'pg_temp_%' AND pg_table_is_visible(c.oid) LIMIT 1");
+    }
+
     @Override
     public Properties buildProperties()
     {
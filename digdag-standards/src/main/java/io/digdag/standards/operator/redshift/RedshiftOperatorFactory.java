@@ -8,6 +8,7 @@ import io.digdag.spi.OperatorFactory;
 import io.digdag.spi.SecretProvider;
 import io.digdag.spi.TemplateEngine;
 import io.digdag.standards.operator.jdbc.AbstractJdbcJobOperator;
+import io.digdag.standards.operator.jdbc.JdbcConnectionPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,12 +18,14 @@ public class RedshiftOperatorFactory
     private static final String OPERATOR_TYPE = "redshift";
     private final Config systemConfig;
     private final TemplateEngine templateEngine;
+    private final JdbcConnectionPool connectionPool;
 
     @Inject
-    public RedshiftOperatorFactory(Config systemConfig, TemplateEngine templateEngine)
+    public RedshiftOperatorFactory(Config systemConfig, TemplateEngine templateEngine, JdbcConnectionPool connectionPool)
     {
         this.systemConfig = systemConfig;
         this.templateEngine = templateEngine;
+        this.connectionPool = connectionPool;
     }
 
     @Override
@@ -34,17 +37,19 @@ public class RedshiftOperatorFactory
     @Override
     public Operator newOperator(OperatorContext context)
     {
-        return new RedshiftOperator(systemConfig, context, templateEngine);
+        return new RedshiftOperator(systemConfig, context, templateEngine, connectionPool);
     }
 
     private static class RedshiftOperator
         extends AbstractJdbcJobOperator<RedshiftConnectionConfig>
     {
         private final Logger logger = LoggerFactory.getLogger(getClass());
+        private final JdbcConnectionPool connectionPool;
 
-        RedshiftOperator(Config systemConfig, OperatorContext context, TemplateEngine templateEngine)
+        RedshiftOperator(Config systemConfig, OperatorContext context, TemplateEngine templateEngine, JdbcConnectionPool connectionPool)
         {
             super(systemConfig, context, templateEngine);
+            this.connectionPool = connectionPool;
         }
 
         @Override
@@ -56,7 +61,7 @@ public class RedshiftOperatorFactory
         @Override
         protected RedshiftConnection connect(RedshiftConnectionConfig connectionConfig)
         {
-            return RedshiftConnection.open(connectionConfig);
+            return RedshiftConnection.open(connectionConfig, connectionPool);
         }
 
         @Override
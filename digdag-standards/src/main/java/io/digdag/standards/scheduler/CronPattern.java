@@ -0,0 +1,323 @@
+package io.digdag.standards.scheduler;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.TimeZone;
+import com.google.common.collect.ImmutableList;
+import it.sauronsoftware.cron4j.SchedulingPattern;
+
+/**
+ * Computes matching times of a cron4j scheduling pattern.
+ *
+ * cron4j's Predictor searches the next matching time by incrementing a
+ * calendar field by field and is created for every call. This class keeps
+ * the values of each field as bit sets and walks days, then hours and
+ * minutes that match, so computing the next or previous time costs at most
+ * a few hundred days of bit tests.
+ *
+ * Parsing is delegated to cron4j so that accepted syntax doesn't change.
+ * Values of each field are extracted by matching a pattern that contains
+ * only the field against known times.
+ */
+class CronPattern
+{
+    // a pattern that never matches (e.g. "0 0 30 2 *") is searched up to this number of years
+    private static final int MAX_SEARCH_YEARS = 30;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final List<Fields> patterns;
+
+    CronPattern(String cronPattern)
+    {
+        // validates the pattern and throws InvalidPatternException
+        new SchedulingPattern(cronPattern);
+
+        ImmutableList.Builder<Fields> builder = ImmutableList.builder();
+        StringTokenizer st = new StringTokenizer(cronPattern, "|");
+        while (st.hasMoreTokens()) {
+            builder.add(Fields.parse(st.nextToken()));
+        }
+        this.patterns = builder.build();
+    }
+
+    /**
+     * Returns the first matching time after the given time. The result is
+     * aligned to minutes and is always later than the minute of the given time.
+     */
+    Instant next(Instant time, ZoneId timeZone)
+    {
+        // truncate to minutes and search from the next minute
+        Instant from = Instant.ofEpochSecond(Math.floorDiv(time.getEpochSecond(), 60) * 60).plusSeconds(60);
+        LocalDate date = LocalDateTime.ofInstant(from, timeZone).toLocalDate();
+        LocalDate limit = date.plusYears(MAX_SEARCH_YEARS);
+        while (date.isBefore(limit)) {
+            Instant found = null;
+            for (Fields fields : patterns) {
+                if (fields.matchDate(date)) {
+                    Instant candidate = fields.firstTimeOfDay(date, timeZone, from);
+                    if (candidate != null && (found == null || candidate.isBefore(found))) {
+                        found = candidate;
+                    }
+                }
+            }
+            if (found != null) {
+                return found;
+            }
+            date = date.plusDays(1);
+        }
+        throw new IllegalStateException("Cron pattern doesn't match any time in " + MAX_SEARCH_YEARS + " years");
+    }
+
+    /**
+     * Returns the last matching time before the given time.
+     */
+    Instant previous(Instant time, ZoneId timeZone)
+    {
+        // matching time must be before this exclusive upper bound
+        Instant until = time;
+        LocalDate date = LocalDateTime.ofInstant(until, timeZone).toLocalDate();
+        LocalDate limit = date.minusYears(MAX_SEARCH_YEARS);
+        while (date.isAfter(limit)) {
+            Instant found = null;
+            for (Fields fields : patterns) {
+                if (fields.matchDate(date)) {
+                    Instant candidate = fields.lastTimeOfDay(date, timeZone, until);
+                    if (candidate != null && (found == null || candidate.isAfter(found))) {
+                        found = candidate;
+                    }
+                }
+            }
+            if (found != null) {
+                return found;
+            }
+            date = date.minusDays(1);
+        }
+        throw new IllegalStateException("Cron pattern doesn't match any time in " + MAX_SEARCH_YEARS + " years");
+    }
+
+    private static class Fields
+    {
+        // 2001-01-01 is Monday and 2001 is not a leap year
+        private static final LocalDate PROBE_BASE = LocalDate.of(2001, 1, 1);
+
+        private final long minutes;     // bit 0-59
+        private final int hours;        // bit 0-23
+        private final long daysOfMonth; // bit 1-31
+        private final boolean lastDayOfMonth;
+        private final int months;       // bit 1-12
+        private final int daysOfWeek;   // bit 0-6, 0 is Sunday
+
+        private Fields(long minutes, int hours, long daysOfMonth, boolean lastDayOfMonth, int months, int daysOfWeek)
+        {
+            this.minutes = minutes;
+            this.hours = hours;
+            this.daysOfMonth = daysOfMonth;
+            this.lastDayOfMonth = lastDayOfMonth;
+            this.months = months;
+            this.daysOfWeek = daysOfWeek;
+        }
+
+        static Fields parse(String pattern)
+        {
+            StringTokenizer st = new StringTokenizer(pattern, " \t");
+            String minute = st.nextToken();
+            String hour = st.nextToken();
+            String dayOfMonth = st.nextToken();
+            String month = st.nextToken();
+            String dayOfWeek = st.nextToken();
+
+            SchedulingPattern minuteOnly = new SchedulingPattern(minute + " * * * *");
+            long minutes = 0;
+            for (int i = 0; i < 60; i++) {
+                if (minuteOnly.match(UTC, probe(PROBE_BASE, 0, i))) {
+                    minutes |= 1L << i;
+                }
+            }
+
+            SchedulingPattern hourOnly = new SchedulingPattern("* " + hour + " * * *");
+            int hours = 0;
+            for (int i = 0; i < 24; i++) {
+                if (hourOnly.match(UTC, probe(PROBE_BASE, i, 0))) {
+                    hours |= 1 << i;
+                }
+            }
+
+            SchedulingPattern dayOfMonthOnly = new SchedulingPattern("* * " + dayOfMonth + " * *");
+            long daysOfMonth = 0;
+            for (int i = 1; i <= 31; i++) {
+                // January has 31 days. Last day of month ("L") matches 31 here
+                if (dayOfMonthOnly.match(UTC, probe(PROBE_BASE.withDayOfMonth(i), 0, 0))) {
+                    daysOfMonth |= 1L << i;
+                }
+            }
+            // Last day of month ("L") is found by days that match only if L is included:
+            // February 28 in 2001, February 29 in 2004 and April 30 in 2001 match
+            // only if the day is listed or L is included. Bit 31 may be set by L but
+            // day 31 is always the last day of month.
+            boolean lastDayOfMonth =
+                (dayOfMonthOnly.match(UTC, probe(LocalDate.of(2001, 2, 28), 0, 0)) && (daysOfMonth & (1L << 28)) == 0) ||
+                (dayOfMonthOnly.match(UTC, probe(LocalDate.of(2004, 2, 29), 0, 0)) && (daysOfMonth & (1L << 29)) == 0) ||
+                (dayOfMonthOnly.match(UTC, probe(LocalDate.of(2001, 4, 30), 0, 0)) && (daysOfMonth & (1L << 30)) == 0);
+
+            SchedulingPattern monthOnly = new SchedulingPattern("* * * " + month + " *");
+            int months = 0;
+            for (int i = 1; i <= 12; i++) {
+                if (monthOnly.match(UTC, probe(PROBE_BASE.withMonth(i), 0, 0))) {
+                    months |= 1 << i;
+                }
+            }
+
+            SchedulingPattern dayOfWeekOnly = new SchedulingPattern("* * * * " + dayOfWeek);
+            int daysOfWeek = 0;
+            for (int i = 0; i < 7; i++) {
+                // PROBE_BASE is Monday
+                LocalDate day = PROBE_BASE.plusDays(i);
+                if (dayOfWeekOnly.match(UTC, probe(day, 0, 0))) {
+                    daysOfWeek |= 1 << (day.getDayOfWeek().getValue() % 7);
+                }
+            }
+
+            return new Fields(minutes, hours, daysOfMonth, lastDayOfMonth, months, daysOfWeek);
+        }
+
+        private static long probe(LocalDate date, int hour, int minute)
+        {
+            return date.atTime(hour, minute).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+
+        boolean matchDate(LocalDate date)
+        {
+            if ((months & (1 << date.getMonthValue())) == 0) {
+                return false;
+            }
+            if ((daysOfWeek & (1 << (date.getDayOfWeek().getValue() % 7))) == 0) {
+                return false;
+            }
+            int day = date.getDayOfMonth();
+            if ((daysOfMonth & (1L << day)) != 0) {
+                return true;
+            }
+            return lastDayOfMonth && day == date.lengthOfMonth();
+        }
+
+        // returns the first matching time of the date at or after from, or null
+        Instant firstTimeOfDay(LocalDate date, ZoneId timeZone, Instant from)
+        {
+            // instants of an hour can be earlier than the previous hour only around an overlap
+            boolean transition = isAroundTransition(date, timeZone);
+            int startHour = 0;
+            int startMinute = 0;
+            if (!transition) {
+                // local times of the date are in the same order as instants.
+                // times before the local time of from don't match.
+                LocalDateTime fromLocal = LocalDateTime.ofInstant(from, timeZone);
+                int cmp = fromLocal.toLocalDate().compareTo(date);
+                if (cmp > 0) {
+                    return null;
+                }
+                else if (cmp == 0) {
+                    startHour = fromLocal.getHour();
+                    startMinute = fromLocal.getMinute();
+                }
+            }
+            Instant found = null;
+            for (int h = startHour; h < 24; h++) {
+                if ((hours & (1 << h)) == 0) {
+                    continue;
+                }
+                for (int m = (h == startHour ? startMinute : 0); m < 60; m++) {
+                    if ((minutes & (1L << m)) == 0) {
+                        continue;
+                    }
+                    Instant candidate = earliestInstant(LocalDateTime.of(date, LocalTime.of(h, m)), timeZone, from);
+                    if (candidate != null) {
+                        if (!transition) {
+                            return candidate;
+                        }
+                        if (found == null || candidate.isBefore(found)) {
+                            found = candidate;
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+
+        // returns the last matching time of the date before until, or null
+        Instant lastTimeOfDay(LocalDate date, ZoneId timeZone, Instant until)
+        {
+            boolean transition = isAroundTransition(date, timeZone);
+            int startHour = 23;
+            int startMinute = 59;
+            if (!transition) {
+                // times after the local time of until don't match
+                LocalDateTime untilLocal = LocalDateTime.ofInstant(until, timeZone);
+                int cmp = untilLocal.toLocalDate().compareTo(date);
+                if (cmp < 0) {
+                    return null;
+                }
+                else if (cmp == 0) {
+                    startHour = untilLocal.getHour();
+                    startMinute = untilLocal.getMinute();
+                }
+            }
+            Instant found = null;
+            for (int h = startHour; h >= 0; h--) {
+                if ((hours & (1 << h)) == 0) {
+                    continue;
+                }
+                for (int m = (h == startHour ? startMinute : 59); m >= 0; m--) {
+                    if ((minutes & (1L << m)) == 0) {
+                        continue;
+                    }
+                    Instant candidate = latestInstant(LocalDateTime.of(date, LocalTime.of(h, m)), timeZone, until);
+                    if (candidate != null) {
+                        if (!transition) {
+                            return candidate;
+                        }
+                        if (found == null || candidate.isAfter(found)) {
+                            found = candidate;
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+
+        private static boolean isAroundTransition(LocalDate date, ZoneId timeZone)
+        {
+            Instant start = date.atStartOfDay(timeZone).toInstant();
+            Instant end = date.plusDays(1).atStartOfDay(timeZone).toInstant();
+            return end.getEpochSecond() - start.getEpochSecond() != ChronoUnit.DAYS.getDuration().getSeconds();
+        }
+
+        // Same with cron4j's Predictor, a local time in a gap is shifted
+        // forward by the length of the gap and a local time in an overlap
+        // is mapped to the later offset so that it runs only once.
+        private static Instant toInstant(LocalDateTime local, ZoneId timeZone)
+        {
+            return ZonedDateTime.ofLocal(local, timeZone, null).withLaterOffsetAtOverlap().toInstant();
+        }
+
+        private static Instant earliestInstant(LocalDateTime local, ZoneId timeZone, Instant from)
+        {
+            Instant instant = toInstant(local, timeZone);
+            return instant.isBefore(from) ? null : instant;
+        }
+
+        private static Instant latestInstant(LocalDateTime local, ZoneId timeZone, Instant until)
+        {
+            Instant instant = toInstant(local, timeZone);
+            return instant.isBefore(until) ? instant : null;
+        }
+    }
+}
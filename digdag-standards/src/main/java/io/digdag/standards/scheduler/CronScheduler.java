@@ -1,32 +1,20 @@
 package io.digdag.standards.scheduler;
 
-import java.util.Date;
-import java.util.TimeZone;
 import java.time.Instant;
 import java.time.ZoneId;
 import io.digdag.spi.ScheduleTime;
 import io.digdag.spi.Scheduler;
-import it.sauronsoftware.cron4j.SchedulingPattern;
-import it.sauronsoftware.cron4j.Predictor;
 
 public class CronScheduler
         implements Scheduler
 {
-    private final SchedulingPattern pattern;
+    private final CronPattern pattern;
     private final ZoneId timeZone;
     private final long delaySeconds;
 
     CronScheduler(String cronPattern, ZoneId timeZone, long delaySeconds)
     {
-        this.pattern = new SchedulingPattern(cronPattern) {
-            // workaround for a bug of cron4j:
-            // https://gist.github.com/frsyuki/618c4e6c1f5f876e4ee74b9da2fd37c0
-            @Override
-            public boolean match(long millis)
-            {
-                return match(TimeZone.getTimeZone(timeZone), millis);
-            }
-        };
+        this.pattern = new CronPattern(cronPattern);
         this.timeZone = timeZone;
         this.delaySeconds = delaySeconds;
     }
@@ -46,7 +34,7 @@ public class CronScheduler
         Instant truncated = Instant.ofEpochSecond(currentTime.getEpochSecond());
         if (truncated.equals(currentTime)) {
             // in this particular case, minus 1 second to include this currentTime
-            // because Predictor doesn't include this time at "next"MatchingTime() method
+            // because CronPattern.next() doesn't include this time
             truncated = truncated.minusSeconds(1);
         }
         Instant lastTime = truncated.minusSeconds(delaySeconds);
@@ -64,32 +52,12 @@ public class CronScheduler
     @Override
     public ScheduleTime lastScheduleTime(Instant currentScheduleTime)
     {
-        // estimate interval (doesn't have to be exact value)
-        Instant next = next(currentScheduleTime);
-        Instant nextNext = next(next);
-        long estimatedInterval = nextNext.getEpochSecond() - next.getEpochSecond();
-
-        // get an aligned time that is before currentScheduleTime
-        Instant before = currentScheduleTime.minusSeconds(estimatedInterval);
-        do {
-            before = before.minusSeconds(estimatedInterval);
-        } while(!before.isBefore(currentScheduleTime));
-
-        // before is before currentScheduleTime but not sure how many times before. calculate it.
-        Instant nextOfBefore = next(before);
-        while (nextOfBefore.isBefore(currentScheduleTime)) {
-            before = nextOfBefore;
-            nextOfBefore = next(before);
-        }
-
-        // nextOfBefore is same with currentScheduleTime or after currentScheduleTime. nextOfBefore is next of before. done.
+        Instant before = pattern.previous(currentScheduleTime, timeZone);
         return ScheduleTime.of(before, before.plusSeconds(delaySeconds));
     }
 
     private Instant next(Instant time)
     {
-        Predictor predictor = new Predictor(pattern, Date.from(time));
-        predictor.setTimeZone(TimeZone.getTimeZone(timeZone));
-        return Instant.ofEpochMilli(predictor.nextMatchingTime());
+        return pattern.next(time, timeZone);
     }
 }
@@ -0,0 +1,151 @@
+package io.digdag.standards.operator;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import io.digdag.client.config.Config;
+import io.digdag.standards.operator.HttpClientPool.ProxySpec;
+import org.eclipse.jetty.client.HttpClient;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.digdag.client.config.ConfigUtils.newConfig;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class HttpClientPoolTest
+{
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final List<HttpClientPool> pools = new ArrayList<>();
+
+    private final HttpClientPool pool = newPool(newConfig()
+            .set("config.http.client.max_connections_per_destination", 3));
+
+    @After
+    public void shutdown()
+    {
+        for (HttpClientPool pool : pools) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void reuseClient()
+            throws Exception
+    {
+        try (SharedResource.Lease<HttpClient> lease1 = pool.getClient(false, ImmutableList.of());
+                SharedResource.Lease<HttpClient> lease2 = pool.getClient(false, ImmutableList.of())) {
+            HttpClient client1 = lease1.get();
+            assertThat(lease2.get(), is(sameInstance(client1)));
+            assertThat(client1.isStarted(), is(true));
+            assertThat(client1.getMaxConnectionsPerDestination(), is(3));
+        }
+        assertThat(pool.getCreatedCount(), is(1L));
+    }
+
+    @Test
+    public void separateClientsForTlsAndProxySettings()
+            throws Exception
+    {
+        HttpClient plain = get(pool, false, ImmutableList.of());
+        HttpClient insecure = get(pool, true, ImmutableList.of());
+        HttpClient proxied = get(pool, false, ImmutableList.of(ProxySpec.of("proxy.example.com", 8080, false)));
+        HttpClient schemeProxied = get(pool, false, ImmutableList.of(ProxySpec.ofScheme("https", "proxy.example.com", 8080, false)));
+
+        assertThat(insecure, is(not(sameInstance(plain))));
+        assertThat(proxied, is(not(sameInstance(plain))));
+        assertThat(schemeProxied, is(not(sameInstance(proxied))));
+        assertThat(proxied.getProxyConfiguration().getProxies().size(), is(1));
+
+        assertThat(get(pool, false, ImmutableList.of(ProxySpec.of("proxy.example.com", 8080, false))), is(sameInstance(proxied)));
+        assertThat(pool.getClientCount(), is(4L));
+    }
+
+    @Test
+    public void stopClientsOnShutdown()
+            throws Exception
+    {
+        HttpClient idle = get(pool, true, ImmutableList.of());
+        SharedResource.Lease<HttpClient> lease = pool.getClient(false, ImmutableList.of());
+        pool.shutdown();
+
+        assertThat(idle.isStopped(), is(true));
+        assertThat(pool.getClientCount(), is(0L));
+
+        // a client in use is stopped when the task releases it
+        assertThat(lease.get().isStopped(), is(false));
+        lease.close();
+        assertThat(lease.get().isStopped(), is(true));
+    }
+
+    @Test
+    public void stopEvictedClient()
+            throws Exception
+    {
+        HttpClientPool pool = newPool(newConfig()
+                .set("config.http.client.max_clients", 1));
+
+        HttpClient plain = get(pool, false, ImmutableList.of());
+        SharedResource.Lease<HttpClient> lease = pool.getClient(true, ImmutableList.of());
+        HttpClient insecure = lease.get();
+
+        assertThat(plain.isStopped(), is(true));
+        assertThat(pool.getClientCount(), is(1L));
+
+        get(pool, false, ImmutableList.of(ProxySpec.of("proxy.example.com", 8080, false)));
+
+        // evicted while a task is using it
+        assertThat(insecure.isStopped(), is(false));
+        lease.close();
+        assertThat(insecure.isStopped(), is(true));
+        assertThat(pool.getCreatedCount(), is(3L));
+    }
+
+    @Test
+    public void stopIdleClient()
+            throws Exception
+    {
+        HttpClientPool pool = newPool(newConfig()
+                .set("config.http.client.client_idle_timeout", 60));
+
+        HttpClient client = get(pool, false, ImmutableList.of());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertThat(get(pool, false, ImmutableList.of()), is(sameInstance(client)));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        HttpClient next = get(pool, false, ImmutableList.of());
+
+        assertThat(next, is(not(sameInstance(client))));
+        assertThat(client.isStopped(), is(true));
+        assertThat(next.isStarted(), is(true));
+    }
+
+    private HttpClientPool newPool(Config config)
+    {
+        HttpClientPool pool = new HttpClientPool(config, new Ticker()
+        {
+            @Override
+            public long read()
+            {
+                return nanos.get();
+            }
+        });
+        pools.add(pool);
+        return pool;
+    }
+
+    private static HttpClient get(HttpClientPool pool, boolean insecure, List<ProxySpec> proxies)
+    {
+        try (SharedResource.Lease<HttpClient> lease = pool.getClient(insecure, proxies)) {
+            return lease.get();
+        }
+    }
+}
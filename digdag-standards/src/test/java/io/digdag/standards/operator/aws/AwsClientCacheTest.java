@@ -0,0 +1,135 @@
+package io.digdag.standards.operator.aws;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.securitytoken.model.AssumeRoleResult;
+import com.amazonaws.services.securitytoken.model.Credentials;
+import com.google.common.base.Optional;
+import io.digdag.standards.operator.SharedResource;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AwsClientCacheTest
+{
+    private static final BasicAWSCredentials CREDENTIALS = new BasicAWSCredentials("key", "secret");
+
+    @Mock AmazonS3Client s3Client;
+
+    private final AwsClientCache cache = new AwsClientCache(10, 600);
+
+    @After
+    public void shutdown()
+    {
+        cache.shutdown();
+    }
+
+    @Test
+    public void reuseClient()
+            throws Exception
+    {
+        try (SharedResource.Lease<AmazonS3Client> client1 = cache.getClient(AmazonS3Client.class, CREDENTIALS, Optional.absent(),
+                    Optional.absent(), Optional.of("us-east-1"), "", () -> s3Client);
+                SharedResource.Lease<AmazonS3Client> client2 = cache.getClient(AmazonS3Client.class, new BasicAWSCredentials("key", "secret"), Optional.absent(),
+                    Optional.absent(), Optional.of("us-east-1"), "", () -> mock(AmazonS3Client.class))) {
+            assertThat(client2.get(), is(sameInstance(client1.get())));
+        }
+        verify(s3Client, never()).shutdown();
+
+        cache.shutdown();
+        verify(s3Client).shutdown();
+    }
+
+    @Test
+    public void shutdownEvictedClientAfterRelease()
+            throws Exception
+    {
+        AwsClientCache smallCache = new AwsClientCache(1, 600);
+        try {
+            SharedResource.Lease<AmazonS3Client> lease = smallCache.getClient(AmazonS3Client.class, CREDENTIALS, Optional.absent(),
+                    Optional.absent(), Optional.of("us-east-1"), "", () -> s3Client);
+
+            // evicts the first client by size while the lease is held
+            smallCache.getClient(AmazonS3Client.class, CREDENTIALS, Optional.absent(),
+                    Optional.absent(), Optional.of("us-west-2"), "", () -> mock(AmazonS3Client.class)).close();
+            assertThat(smallCache.getClientCount(), is(1L));
+            verify(s3Client, never()).shutdown();
+
+            lease.close();
+            verify(s3Client).shutdown();
+        }
+        finally {
+            smallCache.shutdown();
+        }
+    }
+
+    @Test
+    public void separateClientsForCredentialsAndRegions()
+            throws Exception
+    {
+        cache.getClient(AmazonS3Client.class, CREDENTIALS, Optional.absent(),
+                Optional.absent(), Optional.of("us-east-1"), "", () -> s3Client);
+        cache.getClient(AmazonS3Client.class, CREDENTIALS, Optional.absent(),
+                Optional.absent(), Optional.of("us-west-2"), "", () -> mock(AmazonS3Client.class));
+        cache.getClient(AmazonS3Client.class, new BasicAWSCredentials("key", "rotated"), Optional.absent(),
+                Optional.absent(), Optional.of("us-east-1"), "", () -> mock(AmazonS3Client.class));
+        cache.getClient(AmazonS3Client.class, CREDENTIALS, Optional.absent(),
+                Optional.absent(), Optional.of("us-east-1"), "path_style_access=true", () -> mock(AmazonS3Client.class));
+
+        assertThat(cache.getClientCount(), is(4L));
+    }
+
+    @Test
+    public void discardClientOfExpiringCredentials()
+            throws Exception
+    {
+        BasicSessionCredentials session = new BasicSessionCredentials("key", "secret", "token");
+        Optional<Instant> expiration = Optional.of(Instant.now().plus(Duration.ofMinutes(1)));
+
+        try (SharedResource.Lease<AmazonS3Client> client1 = cache.getClient(AmazonS3Client.class, session, expiration,
+                    Optional.absent(), Optional.absent(), "", () -> s3Client)) {
+            try (SharedResource.Lease<AmazonS3Client> client2 = cache.getClient(AmazonS3Client.class, session, expiration,
+                        Optional.absent(), Optional.absent(), "", () -> mock(AmazonS3Client.class))) {
+                assertThat(client2.get(), is(not(sameInstance(client1.get()))));
+            }
+            // discarded client is still used by the first lease
+            verify(s3Client, never()).shutdown();
+        }
+        verify(s3Client).shutdown();
+    }
+
+    @Test
+    public void reuseAssumedRoleCredentials()
+            throws Exception
+    {
+        AtomicInteger calls = new AtomicInteger();
+        Date expiration = Date.from(Instant.now().plus(Duration.ofHours(1)));
+
+        for (int i = 0; i < 3; i++) {
+            Credentials credentials = cache.getAssumedRoleCredentials(CREDENTIALS, "arn:aws:iam::1:role/r", "session", base -> {
+                calls.incrementAndGet();
+                return new AssumeRoleResult().withCredentials(new Credentials("a", "s", "t", expiration));
+            });
+            assertThat(credentials.getSessionToken(), is("t"));
+        }
+
+        assertThat(calls.get(), is(1));
+    }
+}
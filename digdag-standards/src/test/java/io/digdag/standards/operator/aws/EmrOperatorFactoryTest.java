@@ -0,0 +1,172 @@
+package io.digdag.standards.operator.aws;
+
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.AmazonS3URI;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsResult;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import io.digdag.client.config.Config;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static io.digdag.client.config.ConfigUtils.newConfig;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EmrOperatorFactoryTest
+{
+    private static final AmazonS3URI STAGING = new AmazonS3URI("s3://bucket/staging/");
+
+    @Mock AmazonS3Client s3;
+
+    @Test
+    public void cachedFileKeyIsContentHash()
+            throws Exception
+    {
+        EmrOperatorFactory.Filer filer = filer(true);
+
+        EmrOperatorFactory.RemoteFile file = filer.prepareRemoteFile("tag", "steps", "1", direct("run.sh", "echo hello"), false);
+        assertThat(file.s3Uri().getBucket(), is("bucket"));
+        assertThat(file.s3Uri().getKey(), is("staging/_cache/" + sha256("echo hello") + "/run.sh"));
+
+        // same contents are staged to the same key by other steps
+        assertThat(filer.prepareRemoteFile("tag", "steps", "2", direct("run.sh", "echo hello"), false).s3Uri().getKey(),
+                is(file.s3Uri().getKey()));
+        assertThat(filer.prepareRemoteFile("tag", "steps", "3", direct("run.sh", "echo world"), false).s3Uri().getKey(),
+                is(not(file.s3Uri().getKey())));
+    }
+
+    @Test
+    public void uncachedFileKeyIsUnique()
+            throws Exception
+    {
+        EmrOperatorFactory.Filer filer = filer(false);
+
+        EmrOperatorFactory.RemoteFile file = filer.prepareRemoteFile("tag", "steps", "1", direct("run.sh", "echo hello"), false);
+        assertThat(file.s3Uri().getKey(), startsWith("staging/tag/steps/1/"));
+        assertThat(filer.prepareRemoteFile("tag", "steps", "1", direct("run.sh", "echo hello"), false).s3Uri().getKey(),
+                is(not(file.s3Uri().getKey())));
+    }
+
+    @Test
+    public void existingCachedFileIsNotUploaded()
+            throws Exception
+    {
+        when(s3.getObjectMetadata("bucket", "staging/_cache/" + sha256("echo hello") + "/run.sh")).thenReturn(new ObjectMetadata());
+
+        EmrOperatorFactory.Filer filer = filer(true);
+        filer.prepareRemoteFile("tag", "steps", "1", direct("run.sh", "echo hello"), false);
+        filer.prepareRemoteFile("tag", "steps", "2", direct("run.sh", "echo hello"), false);
+        filer.stageFiles();
+
+        // checked once by HEAD. the object isn't copied or uploaded
+        verify(s3, times(1)).getObjectMetadata("bucket", "staging/_cache/" + sha256("echo hello") + "/run.sh");
+        verify(s3, never()).copyObject(any(CopyObjectRequest.class));
+        verify(s3, never()).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test(expected = AmazonS3Exception.class)
+    public void failureOfCachedFileCheckIsNotIgnored()
+            throws Exception
+    {
+        AmazonS3Exception forbidden = new AmazonS3Exception("Forbidden");
+        forbidden.setStatusCode(403);
+        when(s3.getObjectMetadata("bucket", "staging/_cache/" + sha256("echo hello") + "/run.sh")).thenThrow(forbidden);
+
+        EmrOperatorFactory.Filer filer = filer(true);
+        filer.prepareRemoteFile("tag", "steps", "1", direct("run.sh", "echo hello"), false);
+        filer.stageFiles();
+    }
+
+    @Test
+    public void cleanupKeepsCachedFiles()
+            throws Exception
+    {
+        List<String> markers = new ArrayList<>();
+        List<List<String>> deletedKeys = new ArrayList<>();
+        when(s3.listObjects(any(ListObjectsRequest.class))).thenAnswer(invocation -> {
+            ListObjectsRequest req = invocation.getArgumentAt(0, ListObjectsRequest.class);
+            markers.add(req.getMarker());
+            if (req.getMarker() == null) {
+                return listing(true, "staging/tag/steps/1/run.sh", "staging/_cache/0123/run.sh");
+            }
+            else {
+                return listing(false, "staging/tag/steps/2/run.sh");
+            }
+        });
+        when(s3.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(invocation -> {
+            DeleteObjectsRequest req = invocation.getArgumentAt(0, DeleteObjectsRequest.class);
+            deletedKeys.add(req.getKeys().stream()
+                    .map(DeleteObjectsRequest.KeyVersion::getKey)
+                    .collect(Collectors.toList()));
+            return new DeleteObjectsResult(ImmutableList.of());
+        });
+
+        filer(false).tryCleanup();
+
+        // the next page starts after the last key of the previous page even if it's a cached file
+        assertThat(markers, is(Arrays.asList(null, "staging/_cache/0123/run.sh")));
+        assertThat(deletedKeys, is(ImmutableList.of(
+                        ImmutableList.of("staging/tag/steps/1/run.sh"),
+                        ImmutableList.of("staging/tag/steps/2/run.sh"))));
+    }
+
+    private EmrOperatorFactory.Filer filer(boolean cache)
+    {
+        Config params = newConfig().set("staging_cache", cache);
+        return new EmrOperatorFactory.Filer(s3, Optional.of(STAGING), null, null, params, 1);
+    }
+
+    private static EmrOperatorFactory.FileReference direct(String filename, String contents)
+    {
+        return ImmutableFileReference.builder()
+                .type(EmrOperatorFactory.FileReference.Type.DIRECT)
+                .contents(contents.getBytes(UTF_8))
+                .filename(filename)
+                .build();
+    }
+
+    private static ObjectListing listing(boolean truncated, String... keys)
+    {
+        ObjectListing listing = new ObjectListing();
+        listing.setBucketName("bucket");
+        listing.setTruncated(truncated);
+        for (String key : keys) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setBucketName("bucket");
+            summary.setKey(key);
+            listing.getObjectSummaries().add(summary);
+        }
+        return listing;
+    }
+
+    private static String sha256(String contents)
+    {
+        return Hashing.sha256().hashBytes(contents.getBytes(UTF_8)).toString();
+    }
+}
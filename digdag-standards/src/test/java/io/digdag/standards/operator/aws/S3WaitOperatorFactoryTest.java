@@ -122,7 +122,7 @@ public class S3WaitOperatorFactoryTest
 
         when(s3ClientFactory.create(any(AWSCredentials.class), any(ClientConfiguration.class))).thenReturn(s3Client);
         projectPath = temporaryFolder.newFolder().toPath();
-        factory = new S3WaitOperatorFactory(s3ClientFactory, environment);
+        factory = new S3WaitOperatorFactory(s3ClientFactory, new AwsClientCache(newConfig()), environment);
     }
 
     @Test
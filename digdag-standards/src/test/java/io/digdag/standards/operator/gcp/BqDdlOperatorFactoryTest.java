@@ -18,6 +18,7 @@ import io.digdag.spi.SecretProvider;
 import io.digdag.spi.OperatorContext;
 import io.digdag.spi.TaskRequest;
 import io.digdag.spi.TemplateEngine;
+import io.digdag.standards.operator.SharedResource;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -85,7 +86,7 @@ public class BqDdlOperatorFactoryTest
 
         when(secrets.getSecretOptional("gcp.project")).thenReturn(Optional.of(PROJECT_ID));
 
-        when(bqClientFactory.create(googleCredential)).thenReturn(bqClient);
+        when(bqClientFactory.create(googleCredential)).thenReturn(new SharedResource<>(bqClient, client -> {}).tryLease().get());
         when(taskRequest.getLastStateParams()).thenReturn(newConfig());
 
         projectPath = temporaryFolder.newFolder().toPath();
@@ -101,7 +102,6 @@ public class BqDdlOperatorFactoryTest
         when(taskRequest.getConfig()).thenReturn(config);
         Operator operator = factory.newOperator(operatorContext);
         operator.run();
-        verify(bqClient).close();
         verifyNoMoreInteractions(bqClient);
     }
 
@@ -119,7 +119,6 @@ public class BqDdlOperatorFactoryTest
         when(taskRequest.getConfig()).thenReturn(config);
         Operator operator = factory.newOperator(operatorContext);
         operator.run();
-        verify(bqClient).close();
         verifyNoMoreInteractions(bqClient);
     }
 
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
 import io.digdag.client.DigdagClient;
 import io.digdag.client.config.Config;
 import io.digdag.client.config.ConfigException;
@@ -22,24 +23,32 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Map;
 import java.util.UUID;
 import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AbstractJdbcJobOperatorTest
@@ -83,6 +92,11 @@ public class AbstractJdbcJobOperatorTest
         {
             return context.getSecrets().getSecrets("test");
         }
+
+        Path getWorkspacePath()
+        {
+            return workspace.getPath();
+        }
     }
 
     private TestJobOperator getJdbcOperator(
@@ -143,8 +157,12 @@ public class AbstractJdbcJobOperatorTest
     private TaskResult runTaskReadOnly(Optional<Config> systemConfig, Map<String, Object> configInput, String sql)
             throws IOException, NotReadOnlyException
     {
-        TestJobOperator operator = getJdbcOperator(systemConfig, configInput, Optional.absent());
+        return runTaskReadOnly(getJdbcOperator(systemConfig, configInput, Optional.absent()), sql);
+    }
 
+    private TaskResult runTaskReadOnly(TestJobOperator operator, String sql)
+            throws IOException, NotReadOnlyException
+    {
         JdbcConnection connection = Mockito.mock(JdbcConnection.class);
 
         doAnswer(invocationOnMock -> {
@@ -218,6 +236,104 @@ public class AbstractJdbcJobOperatorTest
         runTaskReadOnly(configInput, sql);
     }
 
+    @Test
+    public void selectAndDownloadGzip()
+            throws IOException, NotReadOnlyException
+    {
+        String sql = "SELECT * FROM users";
+        Map<String, Object> configInput = new ImmutableMap.Builder<String, Object>()
+                .put("host", "foobar.com")
+                .put("user", "testuser")
+                .put("database", "testdb")
+                .put("download_file", "result.csv.gz")
+                .put("download_file_compression", "gzip")
+                .put("query", sql)
+                .build();
+
+        TestJobOperator operator = getJdbcOperator(configInput, Optional.absent());
+        runTaskReadOnly(operator, sql);
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(operator.getWorkspacePath().resolve("result.csv.gz")))) {
+            assertThat(new String(ByteStreams.toByteArray(in), UTF_8),
+                    is("int,str,float\r\n42,foo,3.14\r\n12345,bar,0.12\r\n"));
+        }
+    }
+
+    @Test
+    public void selectAndDownloadWithUnsupportedCopy()
+            throws IOException, NotReadOnlyException
+    {
+        String sql = "SELECT * FROM users";
+        Map<String, Object> configInput = new ImmutableMap.Builder<String, Object>()
+                .put("host", "foobar.com")
+                .put("user", "testuser")
+                .put("database", "testdb")
+                .put("download_file", "result.csv")
+                .put("download_with_copy", true)
+                .put("query", sql)
+                .build();
+
+        TestJobOperator operator = getJdbcOperator(configInput, Optional.absent());
+        JdbcConnection connection = Mockito.mock(JdbcConnection.class);
+        when(operator.connect(any(TestConnectionConfig.class))).thenReturn(connection);
+
+        try {
+            operator.runTask();
+            fail();
+        }
+        catch (ConfigException ex) {
+        }
+        // the file isn't created
+        assertThat(Files.exists(operator.getWorkspacePath().resolve("result.csv")), is(false));
+    }
+
+    @Test
+    public void selectAndDownloadWithCopy()
+            throws IOException, NotReadOnlyException
+    {
+        String sql = "SELECT * FROM users";
+        Map<String, Object> configInput = new ImmutableMap.Builder<String, Object>()
+                .put("host", "foobar.com")
+                .put("user", "testuser")
+                .put("database", "testdb")
+                .put("download_file", "result.csv")
+                .put("download_with_copy", true)
+                .put("query", sql)
+                .build();
+
+        TestJobOperator operator = getJdbcOperator(configInput, Optional.absent());
+        JdbcConnection connection = Mockito.mock(JdbcConnection.class, withSettings().extraInterfaces(CopyableJdbcConnection.class));
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgumentAt(1, OutputStream.class);
+            out.write("int,str\n42,foo\n".getBytes(UTF_8));
+            return null;
+        }).when((CopyableJdbcConnection) connection).copyReadOnlyQueryResults(eq(sql), any(OutputStream.class));
+        when(operator.connect(any(TestConnectionConfig.class))).thenReturn(connection);
+
+        operator.runTask();
+
+        verify(connection, never()).executeReadOnlyQuery(anyString(), any(Consumer.class));
+        assertThat(new String(Files.readAllBytes(operator.getWorkspacePath().resolve("result.csv")), UTF_8),
+                is("int,str\n42,foo\n"));
+    }
+
+    @Test(expected = ConfigException.class)
+    public void selectAndDownloadWithUnknownCompression()
+            throws IOException, NotReadOnlyException
+    {
+        String sql = "SELECT * FROM users";
+        Map<String, Object> configInput = new ImmutableMap.Builder<String, Object>()
+                .put("host", "foobar.com")
+                .put("user", "testuser")
+                .put("database", "testdb")
+                .put("download_file", "result.csv")
+                .put("download_file_compression", "zip")
+                .put("query", sql)
+                .build();
+
+        getJdbcOperator(configInput, Optional.absent()).runTask();
+    }
+
     @Test
     public void selectAndStoreAllResults()
             throws IOException, NotReadOnlyException
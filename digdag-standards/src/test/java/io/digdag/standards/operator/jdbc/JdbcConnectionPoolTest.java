@@ -0,0 +1,214 @@
+package io.digdag.standards.operator.jdbc;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import io.digdag.util.DurationParam;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class JdbcConnectionPoolTest
+{
+    private static class H2ConnectionConfig
+            extends AbstractJdbcConnectionConfig
+    {
+        private final boolean poolable;
+        private final Optional<String> nonReusableSessionQuery;
+
+        H2ConnectionConfig(boolean poolable, Optional<String> nonReusableSessionQuery)
+        {
+            this.poolable = poolable;
+            this.nonReusableSessionQuery = nonReusableSessionQuery;
+        }
+
+        @Override
+        public String host()
+        {
+            return "localhost";
+        }
+
+        @Override
+        public int port()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean ssl()
+        {
+            return false;
+        }
+
+        @Override
+        public String user()
+        {
+            return "sa";
+        }
+
+        @Override
+        public Optional<String> password()
+        {
+            return Optional.absent();
+        }
+
+        @Override
+        public String database()
+        {
+            return "jdbc_connection_pool_test";
+        }
+
+        @Override
+        public DurationParam connectTimeout()
+        {
+            return DurationParam.of(Duration.ofSeconds(10));
+        }
+
+        @Override
+        public DurationParam socketTimeout()
+        {
+            return DurationParam.of(Duration.ofSeconds(10));
+        }
+
+        @Override
+        public String jdbcProtocolName()
+        {
+            return "h2";
+        }
+
+        @Override
+        public String jdbcDriverName()
+        {
+            return "org.h2.Driver";
+        }
+
+        @Override
+        public String url()
+        {
+            return "jdbc:h2:mem:" + database() + ";DB_CLOSE_DELAY=-1";
+        }
+
+        @Override
+        public Properties buildProperties()
+        {
+            Properties props = new Properties();
+            props.setProperty("user", user());
+            return props;
+        }
+
+        @Override
+        public Optional<List<String>> resetSessionStatements()
+        {
+            if (poolable) {
+                return Optional.of(ImmutableList.of("SET SCHEMA PUBLIC"));
+            }
+            return Optional.absent();
+        }
+
+        @Override
+        public Optional<String> nonReusableSessionQuery()
+        {
+            return nonReusableSessionQuery;
+        }
+    }
+
+    private final JdbcConnectionPool pool = new JdbcConnectionPool(2, 60, 60);
+
+    @After
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    private static int sessionId(Connection conn)
+            throws SQLException
+    {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT SESSION_ID()")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void reuseConnection()
+            throws Exception
+    {
+        H2ConnectionConfig config = new H2ConnectionConfig(true, Optional.absent());
+
+        Connection conn1 = pool.getConnection(config);
+        int session1 = sessionId(conn1);
+        conn1.close();
+        assertThat(conn1.isClosed(), is(true));
+
+        Connection conn2 = pool.getConnection(config);
+        assertThat(sessionId(conn2), is(session1));
+
+        // another connection is opened while the pooled one is in use
+        Connection conn3 = pool.getConnection(config);
+        assertThat(sessionId(conn3), is(not(session1)));
+        conn2.close();
+        conn3.close();
+
+        assertThat(pool.getCreatedCount(), is(2L));
+        assertThat(pool.getReusedCount(), is(1L));
+        assertThat(pool.getClosedCount(), is(0L));
+    }
+
+    @Test
+    public void rollbackOpenTransaction()
+            throws Exception
+    {
+        H2ConnectionConfig config = new H2ConnectionConfig(true, Optional.absent());
+
+        try (Connection conn = pool.getConnection(config); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS pool_test (id int)");
+            conn.setAutoCommit(false);
+            stmt.execute("INSERT INTO pool_test VALUES (1)");
+        }
+
+        try (Connection conn = pool.getConnection(config);
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT count(*) FROM pool_test")) {
+            assertThat(conn.getAutoCommit(), is(true));
+            rs.next();
+            assertThat(rs.getInt(1), is(0));
+        }
+    }
+
+    @Test
+    public void closeNonReusableSession()
+            throws Exception
+    {
+        H2ConnectionConfig config = new H2ConnectionConfig(true, Optional.of("SELECT 1"));
+
+        pool.getConnection(config).close();
+        pool.getConnection(config).close();
+
+        assertThat(pool.getCreatedCount(), is(2L));
+        assertThat(pool.getReusedCount(), is(0L));
+        assertThat(pool.getClosedCount(), is(2L));
+    }
+
+    @Test
+    public void notPooledWithoutResetStatements()
+            throws Exception
+    {
+        H2ConnectionConfig config = new H2ConnectionConfig(false, Optional.absent());
+
+        Connection conn = pool.getConnection(config);
+        conn.close();
+
+        assertThat(pool.getCreatedCount(), is(0L));
+        assertThat(pool.getTargetCount(), is(0L));
+    }
+}
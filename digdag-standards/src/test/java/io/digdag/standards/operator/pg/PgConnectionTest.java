@@ -7,6 +7,7 @@ import io.digdag.standards.operator.jdbc.NotReadOnlyException;
 import io.digdag.standards.operator.jdbc.TransactionHelper;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import java.io.IOException;
 import java.sql.Connection;
@@ -22,8 +23,12 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -68,12 +73,36 @@ public class PgConnectionTest
         AtomicReference<JdbcResultSet> rs = new AtomicReference<>();
         pgConnection.executeReadOnlyQuery(SQL, rs::set);
 
-        verify(pgConnection).execute(eq("SET TRANSACTION READ ONLY"));
-        verify(statement).executeQuery(eq(SQL));
-        verify(pgConnection).execute(eq("SET TRANSACTION READ WRITE"));
+        InOrder inOrder = inOrder(connection, pgConnection, statement);
+        inOrder.verify(connection).setAutoCommit(eq(false));
+        inOrder.verify(pgConnection).execute(eq("SET TRANSACTION READ ONLY"));
+        inOrder.verify(statement).setFetchSize(anyInt());
+        inOrder.verify(statement).executeQuery(eq(SQL));
+        inOrder.verify(connection).commit();
+        inOrder.verify(connection).setAutoCommit(eq(true));
         assertThat(rs.get(), is(notNullValue()));
     }
 
+    @Test
+    public void rollbackFailedReadOnlyQuery()
+            throws IOException, NotReadOnlyException, SQLException
+    {
+        SQLException error = new SQLException("cannot execute INSERT in a read-only transaction", "25006");
+        when(statement.executeQuery(eq(SQL))).thenThrow(error);
+
+        try {
+            pgConnection.executeReadOnlyQuery(SQL, rs -> {});
+            fail();
+        }
+        catch (NotReadOnlyException ex) {
+            assertThat(ex.getCause(), is(error));
+        }
+
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(connection, atLeastOnce()).setAutoCommit(eq(true));
+    }
+
     @Test
     public void buildInsertStatement()
             throws IOException, NotReadOnlyException, SQLException
@@ -168,4 +197,15 @@ public class PgConnectionTest
         verify(pgConnection).execute(eq("BEGIN"));
         verify(pgConnection).execute(eq("ROLLBACK"));
     }
+
+    @Test
+    public void buildCopyStatementStripsTrailingSemicolons()
+    {
+        assertThat(PgConnection.buildCopyStatement("SELECT * FROM users"),
+                is("COPY (SELECT * FROM users\n) TO STDOUT WITH CSV HEADER"));
+        assertThat(PgConnection.buildCopyStatement("SELECT * FROM users ;\n; \n"),
+                is("COPY (SELECT * FROM users\n) TO STDOUT WITH CSV HEADER"));
+        assertThat(PgConnection.buildCopyStatement("SELECT * FROM users -- comment\n"),
+                is("COPY (SELECT * FROM users -- comment\n) TO STDOUT WITH CSV HEADER"));
+    }
 }
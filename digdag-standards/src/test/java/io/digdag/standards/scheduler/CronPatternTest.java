@@ -0,0 +1,148 @@
+package io.digdag.standards.scheduler;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.TimeZone;
+import com.google.common.collect.ImmutableList;
+import it.sauronsoftware.cron4j.InvalidPatternException;
+import it.sauronsoftware.cron4j.Predictor;
+import it.sauronsoftware.cron4j.SchedulingPattern;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CronPatternTest
+{
+    private static final ImmutableList<String> CRON_PATTERNS = ImmutableList.of(
+            "* * * * *",
+            "*/7 * * * *",
+            "0 0 * * *",
+            "30 2 * * *",
+            "15 1,2,3 * * *",
+            "0 22-2 * * *",
+            "5-50/15 */5 * * *",
+            "0 0 1 * *",
+            "0 0 L * *",
+            "0 0 28,L * *",
+            "0 12 29 2 *",
+            "0 0 31 * *",
+            "0 9 * * mon-fri",
+            "0 0 * * sun",
+            "0 0 * jan,jul *",
+            "0 0 13 * 5",
+            "0 0 * * 0-6/2",
+            "0 5 * * *|30 17 * * sat");
+
+    private static final ImmutableList<String> TIME_ZONES = ImmutableList.of(
+            "UTC",
+            "Asia/Tokyo",
+            "America/Los_Angeles",
+            "Europe/London",
+            "Australia/Lord_Howe");
+
+    // same with the implementation of CronScheduler using cron4j's Predictor
+    private static Instant predict(String cron, ZoneId zone, Instant time)
+    {
+        SchedulingPattern pattern = new SchedulingPattern(cron) {
+            @Override
+            public boolean match(long millis)
+            {
+                return match(TimeZone.getTimeZone(zone), millis);
+            }
+        };
+        Predictor predictor = new Predictor(pattern, Date.from(time));
+        predictor.setTimeZone(TimeZone.getTimeZone(zone));
+        return Instant.ofEpochMilli(predictor.nextMatchingTime());
+    }
+
+    @Test
+    public void sameWithCron4jPredictor()
+    {
+        for (String zoneName : TIME_ZONES) {
+            ZoneId zone = ZoneId.of(zoneName);
+            for (String cron : CRON_PATTERNS) {
+                CronPattern pattern = new CronPattern(cron);
+
+                // includes daylight saving time transitions of 2017
+                Instant time = Instant.parse("2016-12-31T23:59:30Z");
+                Instant previous = null;
+                int count = cron.startsWith("* ") || cron.startsWith("*/") ? 2000 : 400;
+                for (int i = 0; i < count; i++) {
+                    Instant next = pattern.next(time, zone);
+                    assertThat(cron + " in " + zoneName + " after " + time, next, is(predict(cron, zone, time)));
+                    if (previous != null) {
+                        assertThat(cron + " in " + zoneName + " before " + next, pattern.previous(next, zone), is(previous));
+                    }
+                    previous = next;
+                    time = next;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nextFromMiddleOfDay()
+    {
+        // search starts at the local time of the given time on its date
+        for (String zoneName : TIME_ZONES) {
+            ZoneId zone = ZoneId.of(zoneName);
+            for (String cron : CRON_PATTERNS) {
+                CronPattern pattern = new CronPattern(cron);
+                Instant time = Instant.parse("2017-01-01T00:00:00Z");
+                for (int i = 0; i < 300; i++) {
+                    Instant next = pattern.next(time, zone);
+                    assertThat(cron + " in " + zoneName + " after " + time, next, is(predict(cron, zone, time)));
+                    assertThat(cron + " in " + zoneName + " before " + next, pattern.previous(next.plusSeconds(1), zone), is(next));
+                    time = time.plusSeconds(97 * 60 + 13);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void aroundDaylightSavingTime()
+    {
+        ZoneId zone = ZoneId.of("America/Los_Angeles");
+        for (String cron : ImmutableList.of("30 1 * * *", "30 2 * * *", "*/20 * * * *")) {
+            CronPattern pattern = new CronPattern(cron);
+            for (Instant time : ImmutableList.of(
+                        Instant.parse("2017-03-12T09:00:00Z"),
+                        Instant.parse("2017-11-05T07:50:00Z"))) {
+                Instant t = time;
+                for (int i = 0; i < 10; i++) {
+                    Instant next = pattern.next(t, zone);
+                    assertThat(cron + " after " + t, next, is(predict(cron, zone, t)));
+                    t = next;
+                }
+            }
+        }
+
+        // 02:30 doesn't exist on 2017-03-12 and runs at 03:30 PDT
+        assertThat(new CronPattern("30 2 * * *").next(Instant.parse("2017-03-12T09:00:00Z"), zone),
+                is(Instant.parse("2017-03-12T10:30:00Z")));
+
+        // 01:30 happens twice on 2017-11-05 and runs only at 01:30 PST
+        CronPattern overlap = new CronPattern("30 1 * * *");
+        assertThat(overlap.next(Instant.parse("2017-11-05T08:00:00Z"), zone), is(Instant.parse("2017-11-05T09:30:00Z")));
+        assertThat(overlap.previous(Instant.parse("2017-11-05T10:00:00Z"), zone), is(Instant.parse("2017-11-05T09:30:00Z")));
+
+        // cron4j compares local times and skips 01:30 PST if it starts
+        // searching from 01:45 PDT. This doesn't skip it because 01:30 PST
+        // comes after 01:45 PDT.
+        assertThat(overlap.next(Instant.parse("2017-11-05T08:45:00Z"), zone), is(Instant.parse("2017-11-05T09:30:00Z")));
+    }
+
+    @Test(expected = InvalidPatternException.class)
+    public void invalidPattern()
+    {
+        new CronPattern("0 0 * *");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void neverMatch()
+    {
+        new CronPattern("0 0 30 2 *").next(Instant.now(), ZoneId.of("UTC"));
+    }
+}
@@ -1,6 +1,7 @@
 package io.digdag.storage.s3;
 
 import java.util.Date;
+import java.util.List;
 import java.time.Instant;
 import java.io.IOException;
 import java.io.InputStream;
@@ -23,6 +24,7 @@ import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.model.UploadResult;
@@ -166,12 +168,25 @@ public class S3Storage
     public void list(String keyPrefix, FileListing callback)
     {
         checkArgument(keyPrefix != null, "keyPrefix is null");
+        listObjects(keyPrefix, null, callback);
+    }
+
+    @Override
+    public void list(String keyPrefix, String startAfter, FileListing callback)
+    {
+        checkArgument(keyPrefix != null, "keyPrefix is null");
+        checkArgument(startAfter != null, "startAfter is null");
+        listObjects(keyPrefix, startAfter, callback);
+    }
 
+    private void listObjects(String keyPrefix, String markerOrNull, FileListing callback)
+    {
         String errorMessage = "listing files on bucket " + bucket + " prefix " + keyPrefix;
 
         ListObjectsRequest req = new ListObjectsRequest();
         req.setBucketName(bucket);
         req.setPrefix(keyPrefix);
+        req.setMarker(markerOrNull);
 
         ObjectListing listing;
         do {
@@ -189,7 +204,13 @@ public class S3Storage
                             .lastModified(summary.getLastModified().toInstant())
                             .build()
                         ));
-            req.setMarker(listing.getNextMarker());
+            // NextMarker is set only when delimiter is set. Otherwise, the last key is the next marker.
+            String nextMarker = listing.getNextMarker();
+            if (nextMarker == null && !listing.getObjectSummaries().isEmpty()) {
+                List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+                nextMarker = summaries.get(summaries.size() - 1).getKey();
+            }
+            req.setMarker(nextMarker);
         }
         while (listing.isTruncated());
     }